@@ -0,0 +1,163 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * La classe <code>BaselineStep</code> conserve, pour les mesures seulement,
+ * le pas de <code>Sailboat.update</code> tel qu'il etait avant
+ * l'introduction de <code>KinematicFrame</code> : chaque effort recalcule
+ * les sinus et cosinus de phi, theta, de l'angle de la voile et de l'angle
+ * du safran. Les trajectoires sont identiques au bit pres a celles du
+ * schema par defaut ; seul le cout du pas change, ce qui donne la reference
+ * des mesures <code>...Baseline</code>.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+final class BaselineStep {
+    private BaselineStep() {
+    }
+
+    /**
+     * Un pas de simulation, integre selon le schema d'Euler semi-implicite
+     * @param s voilier mis a jour
+     * @param dt intervalle de temps pour l'integration
+     * @param deltag angle du safran
+     * @param deltavmax angle de la voile
+     * @param theWind vent auquel le voilier est soumis
+     */
+    static void update(Sailboat s, double dt, double deltag, double deltavmax, Wind theWind) {
+        Sail sail = s.getTheSail();
+        Hull hull = s.getTheHull();
+        Rudder rudder = s.getTheRudder();
+        double x = s.getX(), y = s.getY(), theta = s.getTheta(), phi = s.getPhi();
+        double xPoint = s.getxPoint(), yPoint = s.getyPoint();
+        double thetaPoint = s.getThetaPoint(), phiPoint = s.getPhiPoint();
+        s.setDeltavmax(deltavmax);
+        double vx1 = xPoint * Math.cos(phi) + yPoint * Math.sin(phi);
+        double vy1 = yPoint * Math.cos(phi) * Math.cos(theta);
+        vy1 -= xPoint * Math.sin(phi) * Math.cos(theta);
+
+        double fvy2 = fVelique(sail, deltavmax, theWind.getWindForce(), theWind.getWindDir(), xPoint, yPoint,
+                phi, theta);
+        sail.setDeltaV(deltavmax);
+        sail.setfV(fvy2);
+        double fady1 = hull.fAntiDerive(-vx1, -vy1);
+        double fdevy3 = rudder.fDeviation(-vx1, -vy1, deltag);
+        double frx1 = hull.fResistance(vx1);
+        double fry1 = hull.fResistance(vy1);
+        double pz0 = hull.poids();
+        double deltav = deltavmax;
+        double fvx0 = -(Math.sin(deltav) * Math.cos(phi) + Math.cos(deltav) * Math.sin(phi) *
+                Math.sin(theta)) * fvy2;
+        double fvy0 = (Math.cos(deltav) * Math.cos(theta) * Math.cos(phi) - Math.sin(deltav) *
+                Math.sin(phi)) * fvy2;
+        double fvz0 = Math.cos(deltav) * Math.sin(theta) * fvy2;
+        double fadx0 = -(Math.cos(theta) * Math.sin(phi) * fady1);
+        double fady0 = Math.cos(theta) * Math.sin(phi) * fady1;
+        double fadz0 = Math.sin(theta) * fady1;
+        double rudderAng = deltag;
+        double fdevx0 = -(Math.sin(rudderAng) * Math.cos(phi) + Math.cos(rudderAng) * Math.sin(phi) *
+                Math.cos(theta)) * fdevy3;
+        double fdevy0 = (Math.cos(rudderAng) * Math.cos(theta) * Math.cos(phi) - Math.sin(rudderAng) *
+                Math.sin(phi) * fdevy3);
+        double fdevz0 = Math.cos(rudderAng) * Math.sin(theta) * fdevy3;
+        double frx0 = Math.cos(phi) * frx1 - Math.cos(theta) * Math.sin(phi) * fry1;
+        double fry0 = Math.sin(phi) * frx1 + Math.cos(theta) * Math.cos(phi) * fry1;
+        double frz0 = Math.sin(theta) * fry1;
+        double faz0 = -(fvz0 + fadz0 + fdevz0 + pz0 + frz0);
+        double m1 = hull.getM();
+        double xPointPoint = (1. / m1) * (fvx0 + fadx0 + fdevx0 + frx0);
+        double yPointPoint = (1. / m1) * (fvy0 + fady0 + fdevy0 + fry0);
+        double mfvx2 = -sail.gethV() * fvy2;
+        double mfvz2 = fvy2 * (hull.getrV() * Math.cos(deltav) - sail.getL());
+        double mfadx1 = hull.getLadz1() * fady1;
+        double mfdevx3 = 0.5 * rudder.getHauteurSafran() * fdevy3;
+        double mfdevz3 = -fdevy3 * (hull.getrG() + 0.5 * rudder.getLongueurSafran());
+        double mfax1 = -s.getDcgCcMax() * Math.sin(theta) * Math.cos(theta) * faz0;
+        mfax1 -= s.getLgCcz1() * faz0 * Math.sin(theta);
+        double mcfz0 = -hull.getAlphaPhi() * phiPoint;
+        double mcfx1 = -hull.getAlphaPhi() * thetaPoint;
+        double mfvx1 = mfvx2 * Math.cos(deltav);
+        double mfvy1 = mfvx2 * Math.sin(deltav);
+        double mfvz1 = mfvz2;
+        double mfdevx1 = mfdevx3 * Math.cos(rudderAng);
+        double mfdevy1 = mfdevx3 * Math.sin(rudderAng);
+        double mfdevz1 = mfdevz3;
+        double mcfy1 = mcfz0 * Math.sin(theta);
+        double mcfz1 = mcfz0 * Math.cos(theta);
+        double jx1 = hull.getJx();
+        double jz1 = hull.getJz();
+        double jy1 = getJy(hull, theta, thetaPoint, phiPoint, mfvy1, mfdevy1, mcfy1, mfvz1, mfdevz1, mcfz1);
+        double thetaPointPoint = (1. / jx1) * (mfvx1 + mfadx1 + mfdevx1 + mfax1 + mcfx1 - Math.pow(phiPoint, 2.) *
+                Math.cos(theta) * Math.sin(theta) * (jz1 - jy1));
+        double phiPointPoint = (1. / (jz1 * Math.cos(theta))) *
+                (mfvz1 + mfdevz1 + mcfz1 - thetaPoint * phiPoint * Math.sin(theta) * (jy1 - jx1 - jz1));
+        xPoint = xPoint + xPointPoint * dt;
+        yPoint = yPoint + yPointPoint * dt;
+        thetaPoint = thetaPoint + thetaPointPoint * dt;
+        phiPoint = phiPoint + phiPointPoint * dt;
+        s.setxPoint(xPoint);
+        s.setyPoint(yPoint);
+        s.setX(x + xPoint * dt);
+        s.setY(y + yPoint * dt);
+        s.setThetaPoint(thetaPoint);
+        s.setPhiPoint(phiPoint);
+        s.setTheta(theta + thetaPoint * dt);
+        s.setPhi(phi + phiPoint * dt);
+    }
+
+    /**
+     * Force velique selon O2z2, chaque rotation recalculee
+     */
+    static double fVelique(Sail sail, double deltaV, double a, double psiv, double xPoint, double yPoint,
+            double phi, double theta) {
+        double wappx2 = (a * Math.cos(psiv) - xPoint) * (Math.cos(phi) *
+                Math.cos(deltaV) - Math.sin(phi) * Math.cos(theta) *
+                Math.sin(deltaV));
+        wappx2 += (a * Math.sin(psiv) - yPoint) * (Math.sin(phi) *
+                Math.cos(deltaV) + Math.cos(phi) * Math.cos(theta) *
+                Math.sin(deltaV));
+        double wappy2 = -(a * Math.cos(psiv) - xPoint) * (Math.cos(phi) *
+                Math.sin(deltaV) + Math.sin(phi) * Math.cos(theta) *
+                Math.cos(deltaV));
+        wappy2 += (a * Math.sin(psiv) - yPoint) * (Math.cos(phi) *
+                Math.cos(theta) * Math.cos(deltaV) - Math.sin(phi *
+                Math.sin(deltaV)));
+        double wappz2 = (a * Math.cos(psiv) - xPoint) * Math.sin(phi) *
+                Math.sin(theta);
+        wappz2 -= (a * Math.sin(psiv) - yPoint) * Math.cos(phi) *
+                Math.cos(theta);
+        double a_ap2 = Math.pow(wappx2, 2.) + Math.pow(wappy2, 2.) + Math.pow(wappz2, 2.);
+        double psiv2 = Math.atan2(wappy2, wappx2);
+        return 0.5 * Sail.RHO_AIR * sail.getSurfaceVoile() * a_ap2 * sail.computeCx(psiv2) * Math.signum(wappy2);
+    }
+
+    /**
+     * Coefficient d'inertie selon l'axe Gy1, chaque rotation recalculee
+     */
+    static double getJy(Hull hull, double theta, double thetaPoint, double phiPoint, double mfvy1, double mfdevy1,
+            double mfcy1, double mfvz1, double mfdevz1, double mfcz1) {
+        double jx = hull.getJx();
+        double jz = hull.getJz();
+        double a = (phiPoint * thetaPoint * Math.pow(Math.sin(theta), 2.)) / (jz * Math.cos(theta));
+        if (a == 0) {
+            return 0;
+        }
+        double b = -(phiPoint * thetaPoint * Math.cos(theta));
+        b -= (Math.sin(theta) / (jz * Math.cos(theta))) *
+                (mfvz1 + mfdevz1 + mfcz1 + phiPoint * thetaPoint * Math.sin(theta) * (jx + jz));
+        double c = mfvy1 + mfdevy1 + mfcy1 - phiPoint * thetaPoint * Math.cos(theta) * (jx - jz);
+        double delta = Math.pow(b, 2.) - 4 * a * c;
+        if (delta > 0) {
+            double sol1 = (-b - Math.sqrt(delta)) / (2 * a);
+            double sol2 = (-b + Math.sqrt(delta)) / (2 * a);
+            return (sol1 > 0) ? sol1 : sol2;
+        } else if (delta == 0) {
+            return (-b / (2 * a));
+        } else {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * La classe <code>BenchmarkMain</code> lance les mesures de performance et
+ * ecrit les resultats au format JSON de JMH, pour suivre les pas par seconde
+ * et les nanosecondes par operation d'une version a l'autre.
+ * <pre>
+ * java -cp &lt;classes&gt; jphs.sailboatsimulation.BenchmarkMain [resultats.json] [expression]
+ * </pre>
+ * L'expression reguliere optionnelle choisit les mesures a lancer, par
+ * exemple <code>ForceBenchmark</code> ; par defaut toutes les mesures du
+ * paquetage sont lancees.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class BenchmarkMain {
+
+    /**
+     * Lancement des mesures
+     * @param args fichier de resultats (benchmarks.json par defaut) et expression des mesures a lancer
+     * @throws RunnerException si une mesure echoue
+     */
+    public static void main(String[] args) throws RunnerException {
+        String result = args.length > 0 ? args[0] : "benchmarks.json";
+        String include = args.length > 1 ? args[1] : BenchmarkMain.class.getPackage().getName() + ".*Benchmark";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+        new Runner(options).run();
+    }
+}
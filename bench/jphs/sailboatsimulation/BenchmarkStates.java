@@ -0,0 +1,183 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.Random;
+
+/**
+ * La classe <code>BenchmarkStates</code> fournit aux mesures de performance
+ * des etats du voilier representatifs de differentes allures, tires au
+ * hasard avec une graine fixe pour que les mesures soient reproductibles.
+ * Le vent est celui de la visualisation : force 4, soufflant vers psi = 0.
+ * <ul>
+ * <li><code>upwind</code> : pres, a environ 45 degres du vent, peu gite ;</li>
+ * <li><code>downwind</code> : vent arriere, a 20 degres pres ;</li>
+ * <li><code>heeled</code> : cap quelconque, forte gite et roulis ;</li>
+ * <li><code>still</code> : voilier presque arrete, vitesses quasi nulles.</li>
+ * </ul>
+ * Les etats dont la trajectoire diverge avant <code>STABLE_STEPS</code> pas
+ * (singularite du modele a forte gite) sont retires au hasard a nouveau,
+ * pour que les mesures ne portent pas sur des calculs en NaN.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+final class BenchmarkStates {
+    /**
+     * Nombre d'etats par allure, puissance de 2
+     */
+    static final int COUNT = 1024;
+    /**
+     * Masque pour parcourir les etats en boucle
+     */
+    static final int MASK = COUNT - 1;
+    /**
+     * Nombre de pas pendant lesquels la trajectoire issue de chaque etat reste finie
+     */
+    static final int STABLE_STEPS = 250;
+    /**
+     * Pas de temps de la visualisation
+     */
+    static final double DT = 0.02;
+    /**
+     * Force et direction du vent
+     */
+    static final double WIND_FORCE = 4, WIND_DIR = 0;
+    /**
+     * Allures disponibles
+     */
+    static final String UPWIND = "upwind", DOWNWIND = "downwind", HEELED = "heeled", STILL = "still";
+
+    /**
+     * Vecteurs d'etat, indices selon <code>Sailboat</code>
+     */
+    final double[][] states = new double[COUNT][Sailboat.STATE_SIZE];
+    /**
+     * Angles du safran et de la voile associes a chaque etat
+     */
+    final double[] deltag = new double[COUNT], deltavmax = new double[COUNT];
+    /**
+     * Angles du vent apparent sur la voile, pour le calcul du coefficient de portance
+     */
+    final double[] psiv = new double[COUNT];
+
+    /**
+     * Constructeur
+     * @param regime allure : upwind, downwind, heeled ou still
+     */
+    BenchmarkStates(String regime) {
+        Random random = new Random(42);
+        Sailboat sailboat = new Sailboat();
+        Wind wind = new Wind(WIND_FORCE, WIND_DIR);
+        for (int i = 0; i < COUNT; i++) {
+            do {
+                this.draw(i, regime, random);
+            } while (!this.isStable(i, sailboat, wind));
+        }
+    }
+
+    /**
+     * Tirage d'un etat
+     */
+    private void draw(int i, String regime, Random random) {
+        double[] s = this.states[i];
+        double side = random.nextBoolean() ? 1 : -1;
+        double heading;
+        double speed;
+        double heel;
+        double rates;
+        double minPsiv;
+        double maxPsiv;
+        switch (regime) {
+            case UPWIND:
+                heading = Math.PI + side * (0.7 + 0.2 * random.nextDouble());
+                speed = 0.4 + 0.3 * random.nextDouble();
+                heel = -side * 0.15 * random.nextDouble();
+                rates = 0.05;
+                minPsiv = 0.1;
+                maxPsiv = 0.6;
+                break;
+            case DOWNWIND:
+                heading = side * 0.35 * random.nextDouble();
+                speed = 0.6 + 0.4 * random.nextDouble();
+                heel = 0.05 * random.nextGaussian();
+                rates = 0.05;
+                minPsiv = 1.2;
+                maxPsiv = Math.PI;
+                break;
+            case HEELED:
+                heading = 2 * Math.PI * random.nextDouble();
+                speed = 0.3 + 0.5 * random.nextDouble();
+                heel = side * (0.35 + 0.25 * random.nextDouble());
+                rates = 0.3;
+                minPsiv = 0;
+                maxPsiv = Math.PI;
+                break;
+            case STILL:
+                heading = 2 * Math.PI * random.nextDouble();
+                speed = 1e-6 * random.nextDouble();
+                heel = 0.01 * random.nextGaussian();
+                rates = 1e-8;
+                minPsiv = 0;
+                maxPsiv = Math.PI;
+                break;
+            default:
+                throw new IllegalArgumentException("allure inconnue : " + regime);
+        }
+        double leeway = 0.05 * random.nextGaussian();
+        s[Sailboat.X] = 100 * random.nextGaussian();
+        s[Sailboat.Y] = 100 * random.nextGaussian();
+        s[Sailboat.THETA] = heel;
+        s[Sailboat.PHI] = heading;
+        s[Sailboat.X_POINT] = speed * Math.cos(heading + leeway);
+        s[Sailboat.Y_POINT] = speed * Math.sin(heading + leeway);
+        s[Sailboat.THETA_POINT] = rates * random.nextGaussian();
+        s[Sailboat.PHI_POINT] = 0.2 * rates * random.nextGaussian();
+        this.deltag[i] = 0.2 * (2 * random.nextDouble() - 1);
+        this.deltavmax[i] = side * (0.2 + 0.4 * random.nextDouble());
+        this.psiv[i] = (random.nextBoolean() ? 1 : -1) * (minPsiv + (maxPsiv - minPsiv) * random.nextDouble());
+    }
+
+    /**
+     * Verification que la trajectoire issue d'un etat reste finie pendant <code>STABLE_STEPS</code> pas
+     */
+    private boolean isStable(int i, Sailboat sailboat, Wind wind) {
+        this.apply(i, sailboat);
+        for (int k = 0; k < STABLE_STEPS; k++) {
+            sailboat.update(DT, this.deltag[i], this.deltavmax[i], wind);
+        }
+        return Double.isFinite(sailboat.getX() + sailboat.getY() + sailboat.getTheta() + sailboat.getPhi()
+                + sailboat.getxPoint() + sailboat.getyPoint() + sailboat.getThetaPoint() + sailboat.getPhiPoint());
+    }
+
+    /**
+     * Copie d'un etat dans un voilier
+     * @param i indice de l'etat
+     * @param sailboat voilier a modifier
+     */
+    void apply(int i, Sailboat sailboat) {
+        double[] s = this.states[i];
+        sailboat.setX(s[Sailboat.X]);
+        sailboat.setY(s[Sailboat.Y]);
+        sailboat.setTheta(s[Sailboat.THETA]);
+        sailboat.setPhi(s[Sailboat.PHI]);
+        sailboat.setxPoint(s[Sailboat.X_POINT]);
+        sailboat.setyPoint(s[Sailboat.Y_POINT]);
+        sailboat.setThetaPoint(s[Sailboat.THETA_POINT]);
+        sailboat.setPhiPoint(s[Sailboat.PHI_POINT]);
+    }
+
+    /**
+     * Repere cinematique d'un etat
+     * @param i indice de l'etat
+     * @return le repere de l'etat, avec ses angles de voile et de safran
+     */
+    KinematicFrame frame(int i) {
+        double[] s = this.states[i];
+        KinematicFrame frame = new KinematicFrame();
+        frame.set(s[Sailboat.THETA], s[Sailboat.PHI], s[Sailboat.X_POINT], s[Sailboat.Y_POINT],
+                s[Sailboat.THETA_POINT], s[Sailboat.PHI_POINT], this.deltavmax[i], this.deltag[i]);
+        return frame;
+    }
+}
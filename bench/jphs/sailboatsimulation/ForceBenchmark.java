@@ -0,0 +1,156 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * La classe <code>ForceBenchmark</code> mesure separement les calculs
+ * d'efforts de la voile, du safran et de la coque, sur des etats tires de
+ * l'allure choisie. Les reperes cinematiques sont calcules a l'avance : les
+ * mesures <code>...Frame</code> ne comptent que l'effort, les mesures
+ * <code>...Legacy</code> passent par les surcharges prenant le voilier, qui
+ * recalculent le repere a chaque appel, et les mesures
+ * <code>...Baseline</code> reprennent les formules d'avant l'introduction de
+ * <code>KinematicFrame</code> (<code>BaselineStep</code>).
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForceBenchmark {
+    /**
+     * Allure des etats
+     */
+    @Param({ BenchmarkStates.UPWIND, BenchmarkStates.DOWNWIND, BenchmarkStates.HEELED, BenchmarkStates.STILL })
+    public String regime;
+
+    private BenchmarkStates states;
+    private KinematicFrame[] frames;
+    private Sailboat[] sailboats;
+    private double[] moments;
+    private Sail sail;
+    private Rudder rudder;
+    private Hull hull;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        this.states = new BenchmarkStates(this.regime);
+        this.frames = new KinematicFrame[BenchmarkStates.COUNT];
+        this.sailboats = new Sailboat[BenchmarkStates.COUNT];
+        this.moments = new double[6 * BenchmarkStates.COUNT];
+        Random random = new Random(7);
+        Wind wind = new Wind(BenchmarkStates.WIND_FORCE, BenchmarkStates.WIND_DIR);
+        for (int i = 0; i < BenchmarkStates.COUNT; i++) {
+            this.frames[i] = this.states.frame(i);
+            this.sailboats[i] = new Sailboat();
+            this.states.apply(i, this.sailboats[i]);
+            this.sailboats[i].update(0, this.states.deltag[i], this.states.deltavmax[i], wind);
+            for (int k = 0; k < 6; k++) {
+                this.moments[6 * i + k] = 1000 * random.nextGaussian();
+            }
+        }
+        Sailboat model = new Sailboat();
+        this.sail = model.getTheSail();
+        this.rudder = model.getTheRudder();
+        this.hull = model.getTheHull();
+    }
+
+    /**
+     * Indice de l'etat suivant
+     */
+    private int next() {
+        this.index = (this.index + 1) & BenchmarkStates.MASK;
+        return this.index;
+    }
+
+    @Benchmark
+    public double sailComputeCx() {
+        return this.sail.computeCx(this.states.psiv[this.next()]);
+    }
+
+    @Benchmark
+    public double sailUpdateFrame() {
+        return this.sail.update(BenchmarkStates.WIND_FORCE, BenchmarkStates.WIND_DIR, this.frames[this.next()]);
+    }
+
+    @Benchmark
+    public double sailUpdateLegacy() {
+        int i = this.next();
+        return this.sail.update(this.states.deltavmax[i], BenchmarkStates.WIND_FORCE, BenchmarkStates.WIND_DIR,
+                this.sailboats[i]);
+    }
+
+    @Benchmark
+    public double sailForceBaseline() {
+        int i = this.next();
+        Sailboat s = this.sailboats[i];
+        return BaselineStep.fVelique(this.sail, this.states.deltavmax[i], BenchmarkStates.WIND_FORCE,
+                BenchmarkStates.WIND_DIR, s.getxPoint(), s.getyPoint(), s.getPhi(), s.getTheta());
+    }
+
+    @Benchmark
+    public double rudderFDeviation() {
+        int i = this.next();
+        KinematicFrame f = this.frames[i];
+        return this.rudder.fDeviation(-f.getVx1(), -f.getVy1(), this.states.deltag[i]);
+    }
+
+    @Benchmark
+    public double rudderFDeviationFrame() {
+        KinematicFrame f = this.frames[this.next()];
+        return this.rudder.computeFDeviation(-f.getVx1(), -f.getVy1(), f);
+    }
+
+    @Benchmark
+    public double hullFAntiDerive() {
+        KinematicFrame f = this.frames[this.next()];
+        return this.hull.fAntiDerive(-f.getVx1(), -f.getVy1());
+    }
+
+    @Benchmark
+    public double hullGetJyFrame() {
+        int i = this.next();
+        double[] m = this.moments;
+        int o = 6 * i;
+        return this.hull.getJy(this.frames[i], m[o], m[o + 1], m[o + 2], m[o + 3], m[o + 4], m[o + 5]);
+    }
+
+    @Benchmark
+    public double hullGetJyLegacy() {
+        int i = this.next();
+        double[] m = this.moments;
+        int o = 6 * i;
+        return this.hull.getJy(this.sailboats[i], m[o], m[o + 1], m[o + 2], m[o + 3], m[o + 4], m[o + 5]);
+    }
+
+    @Benchmark
+    public double hullGetJyBaseline() {
+        int i = this.next();
+        double[] m = this.moments;
+        int o = 6 * i;
+        Sailboat s = this.sailboats[i];
+        return BaselineStep.getJy(this.hull, s.getTheta(), s.getThetaPoint(), s.getPhiPoint(), m[o], m[o + 1],
+                m[o + 2], m[o + 3], m[o + 4], m[o + 5]);
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.GLAutoDrawable;
+import com.jogamp.opengl.GLCapabilities;
+import com.jogamp.opengl.GLDrawableFactory;
+import com.jogamp.opengl.GLEventListener;
+import com.jogamp.opengl.GLOffscreenAutoDrawable;
+import com.jogamp.opengl.GLProfile;
+
+/**
+ * La classe <code>RenderBenchmark</code> mesure le dessin d'une image de
+ * <code>SailboatVisualization</code> dans une surface hors ecran, sans
+ * fenetre. Chaque mesure attend la fin du dessin par le GPU
+ * (<code>glFinish</code>). Sur une machine sans GPU, la mesure porte sur le
+ * rendu logiciel (Mesa llvmpipe par exemple).
+ * <p>
+ * La mesure <code>fleet</code> dessine en plus une flotte de
+ * <code>FLEET_SIZE</code> voiliers par instances, depuis l'etat d'une
+ * <code>SailboatFleet</code> recopie a chaque image.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    /**
+     * Taille de la surface de dessin
+     */
+    public static final int WIDTH = 800, HEIGHT = 600;
+    /**
+     * Nombre de voiliers de la flotte
+     */
+    public static final int FLEET_SIZE = 4096;
+
+    private SailboatVisualization visualization;
+    private GLOffscreenAutoDrawable drawable;
+    private SailboatFleet fleet;
+    private InstanceBuffer boats;
+    private InstancedRenderer fleetRenderer;
+    private MeshCache meshes;
+    private boolean drawFleet;
+
+    @Setup
+    public void setUp() {
+        GLProfile profile = GLProfile.getDefault();
+        GLCapabilities caps = new GLCapabilities(profile);
+        caps.setOnscreen(false);
+        this.visualization = new SailboatVisualization(new Telemetry());
+        this.fleet = new SailboatFleet(FLEET_SIZE);
+        Sailboat sailboat = new Sailboat();
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            sailboat.setX(10 * (i % 64));
+            sailboat.setY(10 * (i / 64));
+            this.fleet.load(i, sailboat);
+        }
+        this.boats = new InstanceBuffer(FLEET_SIZE);
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            this.boats.setColor(i, (i % 3) / 2f, ((i / 3) % 3) / 2f, 1);
+        }
+        this.drawable = GLDrawableFactory.getFactory(profile).createOffscreenAutoDrawable(null, caps, null, WIDTH,
+                HEIGHT);
+        final SailboatVisualization visu = this.visualization;
+        this.drawable.addGLEventListener(new GLEventListener() {
+            @Override
+            public void init(GLAutoDrawable d) {
+                visu.init(d);
+                visu.reshape(d, 0, 0, WIDTH, HEIGHT);
+                meshes = new MeshCache();
+                fleetRenderer = new InstancedRenderer(d.getGL().getGL2(), meshes);
+            }
+
+            @Override
+            public void dispose(GLAutoDrawable d) {
+                GL2 gl = d.getGL().getGL2();
+                fleetRenderer.dispose(gl);
+                meshes.dispose(gl);
+                boats.dispose(gl);
+                visu.dispose(d);
+            }
+
+            @Override
+            public void display(GLAutoDrawable d) {
+                visu.display(d);
+                if (drawFleet) {
+                    GL2 gl = d.getGL().getGL2();
+                    boats.setFleet(fleet);
+                    boats.upload(gl);
+                    fleetRenderer.drawBoats(gl, boats);
+                }
+                d.getGL().glFinish();
+            }
+
+            @Override
+            public void reshape(GLAutoDrawable d, int x, int y, int width, int height) {
+                visu.reshape(d, x, y, width, height);
+            }
+        });
+        this.drawable.display();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.drawable.destroy();
+        this.visualization.getSimulation().stop();
+        this.visualization.getTelemetry().close();
+    }
+
+    /**
+     * Dessin d'une image
+     */
+    @Benchmark
+    public void frame() {
+        this.drawFleet = false;
+        this.drawable.display();
+    }
+
+    /**
+     * Dessin d'une image avec la flotte
+     */
+    @Benchmark
+    public void fleet() {
+        this.drawFleet = true;
+        this.drawable.display();
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * La classe <code>SailboatBenchmark</code> mesure le pas de simulation
+ * complet : <code>Sailboat.update</code> depuis un etat tire de l'allure
+ * choisie, le calcul pur de la derivee, des trajectoires de
+ * <code>TRAJECTORY_STEPS</code> pas (en pas par seconde) et le pas d'une
+ * flotte de <code>FLEET_SIZE</code> voiliers. <code>trajectoryBaseline</code>
+ * mesure les memes trajectoires avec le pas d'avant
+ * <code>KinematicFrame</code> (<code>BaselineStep</code>), pour comparer les
+ * pas par seconde avant et apres.
+ * <p>
+ * Pour rester dans la distribution d'etats voulue, chaque appel de
+ * <code>update</code> recharge un etat avant le pas, et la flotte est
+ * rechargee tous les <code>BenchmarkStates.STABLE_STEPS</code> pas : ces
+ * chargements sont inclus dans les mesures.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SailboatBenchmark {
+    /**
+     * Nombre de pas d'une trajectoire
+     */
+    public static final int TRAJECTORY_STEPS = BenchmarkStates.STABLE_STEPS;
+    /**
+     * Nombre de voiliers de la flotte
+     */
+    public static final int FLEET_SIZE = 4096;
+    /**
+     * Allure des etats de depart
+     */
+    @Param({ BenchmarkStates.UPWIND, BenchmarkStates.DOWNWIND, BenchmarkStates.HEELED, BenchmarkStates.STILL })
+    public String regime;
+
+    private BenchmarkStates states;
+    private Sailboat sailboat;
+    private Wind wind;
+    private KinematicFrame frame;
+    private double[] dState;
+    private SailboatFleet fleet;
+    private int fleetSteps;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        this.states = new BenchmarkStates(this.regime);
+        this.sailboat = new Sailboat();
+        this.wind = new Wind(BenchmarkStates.WIND_FORCE, BenchmarkStates.WIND_DIR);
+        this.frame = new KinematicFrame();
+        this.dState = new double[Sailboat.STATE_SIZE];
+        this.fleet = new SailboatFleet(FLEET_SIZE);
+        this.resetFleet();
+    }
+
+    /**
+     * Rechargement de la flotte, pour qu'elle ne s'eloigne pas de l'allure choisie
+     */
+    private void resetFleet() {
+        this.fleetSteps = 0;
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            int k = i & BenchmarkStates.MASK;
+            this.states.apply(k, this.sailboat);
+            this.fleet.load(i, this.sailboat);
+            this.fleet.setControl(i, this.states.deltag[k], this.states.deltavmax[k]);
+        }
+    }
+
+    /**
+     * Indice de l'etat suivant
+     */
+    private int next() {
+        this.index = (this.index + 1) & BenchmarkStates.MASK;
+        return this.index;
+    }
+
+    /**
+     * Un pas de <code>Sailboat.update</code>
+     * @return l'abscisse apres le pas
+     */
+    @Benchmark
+    public double update() {
+        int i = this.next();
+        this.states.apply(i, this.sailboat);
+        this.sailboat.update(BenchmarkStates.DT, this.states.deltag[i], this.states.deltavmax[i], this.wind);
+        return this.sailboat.getX();
+    }
+
+    /**
+     * Calcul des efforts et de la derivee de l'etat, sans integration ni modification du voilier
+     * @return la force velique
+     */
+    @Benchmark
+    public double computeDerivative() {
+        int i = this.next();
+        return this.sailboat.computeDerivative(this.states.states[i], this.states.deltag[i],
+                this.states.deltavmax[i], BenchmarkStates.WIND_FORCE, BenchmarkStates.WIND_DIR, this.frame,
+                this.dState);
+    }
+
+    /**
+     * Trajectoire depuis un etat de l'allure choisie, en pas par seconde
+     * @return l'abscisse finale
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(TRAJECTORY_STEPS)
+    public double trajectory() {
+        int i = this.next();
+        this.states.apply(i, this.sailboat);
+        double deltag = this.states.deltag[i];
+        double deltavmax = this.states.deltavmax[i];
+        for (int k = 0; k < TRAJECTORY_STEPS; k++) {
+            this.sailboat.update(BenchmarkStates.DT, deltag, deltavmax, this.wind);
+        }
+        return this.sailboat.getX();
+    }
+
+    /**
+     * Trajectoire de <code>trajectory</code> avec le pas d'avant <code>KinematicFrame</code>, en pas par seconde
+     * @return l'abscisse finale
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(TRAJECTORY_STEPS)
+    public double trajectoryBaseline() {
+        int i = this.next();
+        this.states.apply(i, this.sailboat);
+        double deltag = this.states.deltag[i];
+        double deltavmax = this.states.deltavmax[i];
+        for (int k = 0; k < TRAJECTORY_STEPS; k++) {
+            BaselineStep.update(this.sailboat, BenchmarkStates.DT, deltag, deltavmax, this.wind);
+        }
+        return this.sailboat.getX();
+    }
+
+    /**
+     * Pas de la flotte, en pas de voilier par seconde
+     * @return l'abscisse du premier voilier
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(FLEET_SIZE)
+    public double fleetUpdate() {
+        if (++this.fleetSteps > BenchmarkStates.STABLE_STEPS) {
+            this.resetFleet();
+        }
+        this.fleet.update(BenchmarkStates.DT, this.wind);
+        return this.fleet.getX(0);
+    }
+}
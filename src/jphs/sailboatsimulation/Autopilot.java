@@ -0,0 +1,451 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * La classe <code>Autopilot</code> est un pilote automatique a commande
+ * predictive : a chaque intervalle de commande, elle choisit une suite
+ * d'angles de safran et de voile sur un horizon de <code>segments</code>
+ * intervalles, en simulant le modele du voilier, et applique le premier
+ * reglage de la suite.
+ * <p>
+ * La suite est optimisee par echantillonnage (integrale de chemin) :
+ * <code>rollouts</code> suites sont tirees autour de la suite nominale en
+ * ajoutant un bruit gaussien a chaque intervalle, simulees en parallele sur
+ * un pool propre au pilote, chacune sur une copie du voilier pilote (meme coque, meme profil de
+ * voile, meme schema d'integration) restauree depuis un
+ * <code>SailboatSnapshot</code>, puis moyennees avec des poids
+ * <code>exp(-(cout - coutMin) / (temperature * (coutMoyen - coutMin)))</code>.
+ * La premiere suite est la suite nominale sans bruit. La suite nominale du
+ * pas suivant est la suite obtenue decalee d'un intervalle, le dernier
+ * reglage etant repete : l'optimisation repart de la solution precedente.
+ * <p>
+ * Deux consignes sont possibles : tenir un cap (<code>HEADING</code>), ou
+ * avancer le plus vite possible dans une direction (<code>VMG</code>), au
+ * pres par exemple. Le cout cumule a chaque pas l'ecart de cap au carre
+ * (cap seulement), moins la vitesse dans la direction de consigne, plus la
+ * gite au carre, et a chaque intervalle le carre des variations de
+ * reglage. Un voilier qui diverge a un cout infini.
+ * <p>
+ * Les tirages d'un calcul sont faits dans l'ordre des suites a partir de la
+ * graine : le resultat ne depend pas du nombre de threads. Le pool propre
+ * evite qu'un autre utilisateur du pool commun (flotte, flux paralleles)
+ * retarde le thread de simulation, qui attend la fin de chaque calcul. Avec les valeurs
+ * par defaut, un calcul simule 32 x 300 pas, soit environ 5 ms sur un seul
+ * coeur : une simulation a 50 Hz qui en lance un tous les 10 pas garde le
+ * rythme du temps reel.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class Autopilot {
+    /**
+     * Consignes du pilote
+     */
+    public enum Mode {
+        /**
+         * Tenir le cap de consigne
+         */
+        HEADING,
+        /**
+         * Maximiser la vitesse dans la direction de consigne
+         */
+        VMG
+    }
+
+    /**
+     * Intervalle de commande par defaut, en secondes simulees
+     */
+    public static final double DEFAULT_INTERVAL = 0.2;
+    /**
+     * Nombre d'intervalles de l'horizon par defaut
+     */
+    public static final int DEFAULT_SEGMENTS = 30;
+    /**
+     * Nombre de suites simulees par calcul par defaut
+     */
+    public static final int DEFAULT_ROLLOUTS = 32;
+    /**
+     * Ecarts types par defaut du bruit sur le safran et sur la voile
+     */
+    public static final double DEFAULT_SIGMA_DELTAG = 0.1, DEFAULT_SIGMA_DELTAVMAX = 0.05;
+    /**
+     * Temperature par defaut, relative a l'ecart entre cout moyen et cout minimal
+     */
+    public static final double DEFAULT_TEMPERATURE = 0.2;
+    /**
+     * Poids par defaut de l'ecart de cap, de la vitesse, de la gite et des variations de reglage
+     */
+    public static final double DEFAULT_HEADING_WEIGHT = 10000., DEFAULT_SPEED_WEIGHT = 1., DEFAULT_HEEL_WEIGHT = 5.,
+            DEFAULT_RATE_WEIGHT = 1.;
+
+    /**
+     * Vent de la simulation
+     */
+    private final WindModel wind;
+    /**
+     * Pas d'integration des suites simulees
+     */
+    private final double dt;
+    /**
+     * Nombre de pas par intervalle de commande
+     */
+    private final int stepsPerSegment;
+    /**
+     * Nombre d'intervalles de l'horizon et nombre de suites simulees
+     */
+    private final int segments, rollouts;
+    /**
+     * Pool des simulations
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Voiliers de calcul, un par suite
+     */
+    private final Sailboat[] boats;
+    /**
+     * Etat de depart du calcul en cours
+     */
+    private final SailboatSnapshot start = new SailboatSnapshot();
+    /**
+     * Generateur des tirages et generateurs des suites du calcul en cours
+     */
+    private final SplittableRandom root;
+    private final SplittableRandom[] streams;
+    /**
+     * Suite nominale : safran puis voile de chaque intervalle, alternes
+     */
+    private final double[] nominal;
+    /**
+     * Suites simulees, meme disposition que la suite nominale
+     */
+    private final double[][] controls;
+    /**
+     * Cout de chaque suite
+     */
+    private final double[] costs;
+    /**
+     * Somme ponderee des suites, tampon reutilise
+     */
+    private final double[] weighted;
+    /**
+     * Consigne, NaN pour un pilote desengage
+     */
+    private volatile Mode mode;
+    private volatile double target = Double.NaN;
+    /**
+     * Reglage applique : premier reglage du dernier calcul
+     */
+    private double deltag, deltavmax;
+    /**
+     * Duree du dernier calcul en nanosecondes
+     */
+    private volatile long planNanos;
+    /**
+     * Parametres de l'optimisation et du cout
+     */
+    private double sigmaDeltag = DEFAULT_SIGMA_DELTAG, sigmaDeltavmax = DEFAULT_SIGMA_DELTAVMAX,
+            temperature = DEFAULT_TEMPERATURE;
+    private double headingWeight = DEFAULT_HEADING_WEIGHT, speedWeight = DEFAULT_SPEED_WEIGHT,
+            heelWeight = DEFAULT_HEEL_WEIGHT, rateWeight = DEFAULT_RATE_WEIGHT;
+
+    /**
+     * Constructeur avec l'horizon et le nombre de suites par defaut, et un pool laissant un coeur au thread de
+     * simulation
+     * @param template voilier pilote, dont les voiliers de calcul sont des copies
+     * @param wind vent de la simulation
+     * @param dt pas d'integration de la simulation
+     * @param seed graine des tirages
+     */
+    public Autopilot(Sailboat template, WindModel wind, double dt, long seed) {
+        this(template, wind, dt, DEFAULT_INTERVAL, DEFAULT_SEGMENTS, DEFAULT_ROLLOUTS, seed);
+    }
+
+    /**
+     * Constructeur avec un pool laissant un coeur au thread de simulation
+     * @param template voilier pilote, dont les voiliers de calcul sont des copies
+     * @param wind vent de la simulation
+     * @param dt pas d'integration de la simulation
+     * @param interval intervalle de commande, arrondi a un nombre entier de pas
+     * @param segments nombre d'intervalles de l'horizon
+     * @param rollouts nombre de suites simulees par calcul
+     * @param seed graine des tirages
+     */
+    public Autopilot(Sailboat template, WindModel wind, double dt, double interval, int segments, int rollouts,
+            long seed) {
+        this(template, wind, dt, interval, segments, rollouts, seed,
+                new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)));
+    }
+
+    /**
+     * Constructeur
+     * @param template voilier pilote, dont les voiliers de calcul sont des copies
+     * @param wind vent de la simulation
+     * @param dt pas d'integration de la simulation
+     * @param interval intervalle de commande, arrondi a un nombre entier de pas
+     * @param segments nombre d'intervalles de l'horizon
+     * @param rollouts nombre de suites simulees par calcul
+     * @param seed graine des tirages
+     * @param pool pool des simulations, reserve au pilote
+     */
+    public Autopilot(Sailboat template, WindModel wind, double dt, double interval, int segments, int rollouts,
+            long seed, ForkJoinPool pool) {
+        if (segments < 1 || rollouts < 1) {
+            throw new IllegalArgumentException("horizon ou nombre de suites invalide : " + segments + ", " + rollouts);
+        }
+        this.wind = wind;
+        this.dt = dt;
+        this.pool = pool;
+        this.stepsPerSegment = Math.max(1, (int) Math.round(interval / dt));
+        this.segments = segments;
+        this.rollouts = rollouts;
+        this.boats = new Sailboat[rollouts];
+        for (int i = 0; i < rollouts; i++) {
+            this.boats[i] = new Sailboat(template);
+        }
+        this.root = new SplittableRandom(seed);
+        this.streams = new SplittableRandom[rollouts];
+        this.nominal = new double[2 * segments];
+        this.controls = new double[rollouts][2 * segments];
+        this.costs = new double[rollouts];
+        this.weighted = new double[2 * segments];
+    }
+
+    /**
+     * Engagement du pilote, la suite nominale partant du reglage courant
+     * @param mode consigne
+     * @param target cap de consigne ou direction dans laquelle avancer, en radians
+     * @param deltag angle du safran courant
+     * @param deltavmax angle de la voile courant
+     */
+    public void engage(Mode mode, double target, double deltag, double deltavmax) {
+        for (int k = 0; k < this.segments; k++) {
+            this.nominal[2 * k] = deltag;
+            this.nominal[2 * k + 1] = deltavmax;
+        }
+        this.deltag = deltag;
+        this.deltavmax = deltavmax;
+        this.mode = mode;
+        this.target = PolarDiagram.normalizeAngle(target);
+    }
+
+    /**
+     * Desengagement du pilote
+     */
+    public void disengage() {
+        this.target = Double.NaN;
+    }
+
+    public boolean isEngaged() {
+        return !Double.isNaN(this.target);
+    }
+
+    /**
+     * Calcul du reglage a appliquer pendant le prochain intervalle ; a appeler par le thread qui fait avancer
+     * le voilier, tous les <code>getInterval()</code>
+     * @param sailboat voilier pilote, celui donne a la construction
+     * @param t instant simule
+     */
+    public void plan(Sailboat sailboat, double t) {
+        if (!this.isEngaged()) {
+            return;
+        }
+        long begin = System.nanoTime();
+        this.start.capture(sailboat, t);
+        SplittableRandom r = this.root.split();
+        for (int i = 0; i < this.rollouts; i++) {
+            this.streams[i] = r.split();
+        }
+        this.pool.submit(() -> IntStream.range(0, this.rollouts).parallel().forEach(this::rollout)).join();
+
+        double min = Double.POSITIVE_INFINITY;
+        double mean = 0;
+        int finite = 0;
+        for (double c : this.costs) {
+            if (c < Double.POSITIVE_INFINITY) {
+                min = Math.min(min, c);
+                mean += c;
+                finite++;
+            }
+        }
+        if (finite > 0) {
+            mean /= finite;
+            double scale = this.temperature * Math.max(1e-9, mean - min);
+            double total = 0;
+            double[] sum = this.weighted;
+            Arrays.fill(sum, 0);
+            for (int i = 0; i < this.rollouts; i++) {
+                double w = Math.exp(-(this.costs[i] - min) / scale);
+                if (w > 0) {
+                    total += w;
+                    double[] u = this.controls[i];
+                    for (int k = 0; k < sum.length; k++) {
+                        sum[k] += w * u[k];
+                    }
+                }
+            }
+            for (int k = 0; k < sum.length; k++) {
+                this.nominal[k] = sum[k] / total;
+            }
+        }
+        this.deltag = this.nominal[0];
+        this.deltavmax = this.nominal[1];
+        // depart de la prochaine optimisation : suite decalee d'un intervalle
+        System.arraycopy(this.nominal, 2, this.nominal, 0, this.nominal.length - 2);
+        this.planNanos = System.nanoTime() - begin;
+    }
+
+    /**
+     * Tirage et simulation d'une suite
+     * @param i indice de la suite, 0 pour la suite nominale sans bruit
+     */
+    private void rollout(int i) {
+        double[] u = this.controls[i];
+        SplittableRandom random = this.streams[i];
+        for (int k = 0; k < this.segments; k++) {
+            double g = this.nominal[2 * k];
+            double v = this.nominal[2 * k + 1];
+            if (i > 0) {
+                g += this.sigmaDeltag * EnsembleRunner.gaussian(random);
+                v += this.sigmaDeltavmax * EnsembleRunner.gaussian(random);
+            }
+            u[2 * k] = clamp(g, SimulationLoop.MAX_DELTAG);
+            u[2 * k + 1] = clamp(v, SimulationLoop.MAX_DELTAVMAX);
+        }
+
+        Sailboat s = this.boats[i];
+        this.start.restore(s);
+        boolean heading = this.mode == Mode.HEADING;
+        double target = this.target;
+        double ux = Math.cos(target);
+        double uy = Math.sin(target);
+        double t = this.start.getTime();
+        double cost = 0;
+        double previousG = this.deltag;
+        double previousV = this.deltavmax;
+        for (int k = 0; k < this.segments; k++) {
+            double g = u[2 * k];
+            double v = u[2 * k + 1];
+            cost += this.rateWeight * ((g - previousG) * (g - previousG) + (v - previousV) * (v - previousV));
+            previousG = g;
+            previousV = v;
+            for (int n = 0; n < this.stepsPerSegment; n++) {
+                s.update(this.dt, g, v, this.wind, t);
+                t += this.dt;
+                double stage = this.heelWeight * s.getTheta() * s.getTheta()
+                        - this.speedWeight * (s.getxPoint() * ux + s.getyPoint() * uy);
+                if (heading) {
+                    double e = PolarDiagram.normalizeAngle(s.getPhi() - target);
+                    stage += this.headingWeight * e * e;
+                }
+                cost += stage * this.dt;
+            }
+            if (Double.isNaN(cost)) {
+                break;
+            }
+        }
+        this.costs[i] = Double.isNaN(cost) ? Double.POSITIVE_INFINITY : cost;
+    }
+
+    private static double clamp(double v, double max) {
+        return Math.max(-max, Math.min(max, v));
+    }
+
+    /**
+     * Angle du safran a appliquer
+     * @return le premier angle de safran du dernier calcul
+     */
+    public double getDeltag() {
+        return deltag;
+    }
+
+    /**
+     * Angle de la voile a appliquer
+     * @return le premier angle de voile du dernier calcul
+     */
+    public double getDeltavmax() {
+        return deltavmax;
+    }
+
+    /**
+     * Intervalle de commande
+     * @return la duree simulee entre deux calculs, un nombre entier de pas
+     */
+    public double getInterval() {
+        return this.stepsPerSegment * this.dt;
+    }
+
+    public int getStepsPerSegment() {
+        return stepsPerSegment;
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    public int getRollouts() {
+        return rollouts;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public double getTarget() {
+        return target;
+    }
+
+    /**
+     * Setter de la consigne d'un pilote engage
+     * @param target cap de consigne ou direction dans laquelle avancer, en radians
+     */
+    public void setTarget(double target) {
+        if (this.isEngaged()) {
+            this.target = PolarDiagram.normalizeAngle(target);
+        }
+    }
+
+    /**
+     * Duree du dernier calcul
+     * @return la duree reelle en nanosecondes
+     */
+    public long getPlanNanos() {
+        return planNanos;
+    }
+
+    /**
+     * Arret du pool des simulations
+     */
+    public void close() {
+        this.pool.shutdownNow();
+    }
+
+    public void setSigmas(double sigmaDeltag, double sigmaDeltavmax) {
+        this.sigmaDeltag = sigmaDeltag;
+        this.sigmaDeltavmax = sigmaDeltavmax;
+    }
+
+    public void setTemperature(double temperature) {
+        this.temperature = temperature;
+    }
+
+    /**
+     * Setter des poids du cout
+     * @param heading poids de l'ecart de cap au carre
+     * @param speed poids de la vitesse dans la direction de consigne
+     * @param heel poids de la gite au carre
+     * @param rate poids des variations de reglage au carre
+     */
+    public void setWeights(double heading, double speed, double heel, double rate) {
+        this.headingWeight = heading;
+        this.speedWeight = speed;
+        this.heelWeight = heel;
+        this.rateWeight = rate;
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * La classe <code>BoatGeometry</code> decrit les maillages du voilier dessine
+ * par <code>SailboatVisualization</code> : la coque et le safran, qui ne
+ * changent pas et sont construits une seule fois, et la voile, dont la
+ * courbure suit la force velique a chaque image.
+ * <p>
+ * Les sommets, couleurs et decalages sont ceux de l'ancien dessin immediat.
+ * Le plancher et la face avant n'avaient pas de couleur propre et
+ * heritaient de la couleur courante (le rouge des bouees pour le plancher,
+ * le vert de la face arriere pour la face avant) : ces couleurs sont
+ * reprises ici.
+ * <p>
+ * Pour le dessin d'une flotte par instances, le safran et sa barre, puis le
+ * mat et la bome, forment chacun un seul maillage, et la voile est
+ * construite avec une courbure unite que le nuanceur multiplie par la
+ * courbure de chaque voilier.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public final class BoatGeometry {
+    /**
+     * Nombre de sommets du maillage de la voile
+     */
+    public static final int SAIL_VERTICES = 15;
+    /**
+     * Contour de la coque dans le plan de l'eau, repere du voilier : abscisses de l'arriere et de l'etrave,
+     * demi-largeur
+     */
+    public static final float HULL_STERN = -1, HULL_BOW = 6, HULL_HALF_BEAM = 2;
+
+    private BoatGeometry() {
+    }
+
+    /**
+     * Construction de la coque, dans le repere du voilier
+     * @return le maillage de la coque
+     */
+    public static MeshBuilder hull() {
+        MeshBuilder m = new MeshBuilder();
+        m.orientFrom(2.5f, 0, 0.5f);
+        // plancher
+        m.color(1, 0, 0);
+        m.quads(-1, -1.5f, 0.1f, 3, -1.5f, 0.1f, 3, 1.5f, 0.1f, -1, 1.5f, 0.1f,
+                4.5f, -0.75f, 0.1f, 5.06f, -0.375f, 0.1f, 5.25f, 0, 0.1f, 5.06f, 0.375f, 0.1f,
+                4.5f, 0.75f, 0.1f);
+        // dessus avant
+        m.translate(0.01f, 0, 0.01f);
+        m.color(0.8f, 0.2f, 0.2f);
+        m.polygon(3, -2, 1.0f, 3.1f, -1.9f, 1.01f, 3.75f, -1.6f, 1.01f, 5.0f, -1, 1.01f, 5.75f, -0.5f, 1.01f,
+                6.0f, 0, 1.01f, 5.75f, 0.5f, 1.01f, 5.0f, 1, 1.01f, 3.75f, 1.6f, 1.01f, 3.1f, 1.9f, 1.01f,
+                3, 2, 1.01f);
+        // faces laterales
+        m.translate(-0.01f, 0, 0);
+        m.color(0, 1, 0);
+        m.polygon(-1, -1.5f, 0, -1, -1.9f, 0.5f, -1, -2, 1.0f, 3, -2, 1.0f, 3, -1.9f, 0.5f, 3, -1.5f, 0,
+                -1, -1.5f, 0);
+        m.color(0, 0, 1);
+        m.polygon(-1, 1.5f, 0, -1, 1.9f, 0.5f, -1, 2, 1.0f, 3, 2, 1.0f, 3, 1.9f, 0.5f, 3, 1.5f, 0,
+                -1, 1.5f, 0);
+        // bancs
+        m.translate(0, -0.01f, 0);
+        m.color(1, 1, 1);
+        m.quads(-1, 2, 1.0f, -1, 1.3f, 1.0f, 3, 1.3f, 1.0f, 3, 2, 1.0f,
+                -1, 1.3f, 1.0f, -1, 1.1f, 0.8f, 3, 1.1f, 0.8f, 3, 1.3f, 1.0f,
+                -1, 1.1f, 0.8f, -1, 0.9f, 0.6f, 3, 0.9f, 0.6f, 3, 1.1f, 0.8f,
+                -1, 0.9f, 0.6f, -1, 0.8f, 0, 3, 0.8f, 0, 3, 0.9f, 0.6f);
+        m.translate(0, 0.01f, 0);
+        m.quads(-1, -2, 1.0f, -1, -1.3f, 1.0f, 3, -1.3f, 1.0f, 3, -2, 1.0f,
+                -1, -1.3f, 1.0f, -1, -1.1f, 0.8f, 3, -1.1f, 0.8f, 3, -1.3f, 1.0f,
+                -1, -1.1f, 0.8f, -1, -0.9f, 0.6f, 3, -0.9f, 0.6f, 3, -1.1f, 0.8f,
+                -1, -0.9f, 0.6f, -1, -0.8f, 0, 3, -0.8f, 0, 3, -0.9f, 0.6f);
+        // face avant mat
+        m.translate(0, -0.01f, 0);
+        m.color(0, 0, 1);
+        m.polygon(3, -1.1f, 0, 3, -1.5f, 0.5f, 3, -1.6f, 1.0f, 3, 1.6f, 1.0f, 3, 1.5f, 0.5f, 3, 1.1f, 0,
+                3, -1.1f, 0);
+        // face arriere
+        m.translate(-0.01f, 0, 0);
+        m.color(0.5f, 1, 0);
+        m.polygon(-1, -1.5f, 0, -1, -1.9f, 0.5f, -1, -2, 1.0f, -1, 2, 1.0f, -1, 1.9f, 0.5f, -1, 1.5f, 0,
+                -1, -1.5f, 0);
+        // face avant
+        m.translate(0.01f, -0.01f, 0);
+        m.polygon(3, -2, 1.0f, 3.1f, -1.7f, 1.0f, 3.75f, -1.5f, 1.0f, 5.0f, -1, 1.0f, 5.75f, -0.5f, 1.0f,
+                6.0f, 0, 1.0f, 5.25f, 0, 0, 5.06f, -0.375f, 0, 4.5f, -0.75f, 0, 3, -1.5f, 0, 3, -1.9f, 0.5f,
+                3, -2, 1.0f, 3, 2, 1.0f, 3.1f, 1.7f, 1.0f, 3.75f, 1.5f, 1.0f, 5.0f, 1, 1.0f, 5.75f, 0.5f, 1.0f,
+                6.0f, 0, 1.0f, 5.25f, 0, 0, 5.06f, 0.375f, 0, 4.5f, 0.75f, 0, 3, 1.5f, 0, 3, 1.9f, 0.5f,
+                3, 2, 1.0f);
+        return m;
+    }
+
+    /**
+     * Construction de la pale du safran, dans le repere de son axe
+     * @return le maillage du safran
+     */
+    public static MeshBuilder rudder() {
+        MeshBuilder m = new MeshBuilder();
+        m.orientFrom(-0.3f, 0, 0.5f);
+        m.color(0, 0, 1);
+        m.polygon(0, -0.05f, 1, 0, -0.05f, 0, -0.6f, -0.05f, 0, -0.3f, -0.05f, 1, 0, -0.05f, 1, 0, 0.05f, 1,
+                0, 0.05f, 0, -0.6f, 0.05f, 0, -0.3f, 0.05f, 1, 0, 0.05f, 1,
+                0, -0.05f, 1, 0, 0.05f, 1, 0, -0.05f, 0, 0, 0.05f, 0, -0.6f, -0.05f, 0, -0.6f, 0.05f, 0,
+                -0.3f, -0.05f, 1, -0.3f, 0.05f, 1, 0, -0.05f, 1, 0, 0.05f, 1);
+        return m;
+    }
+
+    /**
+     * Construction du safran et de sa barre, dans le repere de l'axe du safran
+     * @return le maillage du safran et de la barre
+     */
+    public static MeshBuilder rudderWithTiller() {
+        MeshBuilder m = rudder();
+        m.color(0, 0, 1);
+        m.cylinder(0.05f, -0.6f, 0, 1, 2.4f, 0, 1, 10, 10);
+        return m;
+    }
+
+    /**
+     * Construction du mat et de la bome, dans le repere du mat
+     * @return le maillage du greement
+     */
+    public static MeshBuilder rig() {
+        MeshBuilder m = new MeshBuilder();
+        m.color(0.9f, 0.9f, 0.9f);
+        m.cylinder(0.08f, 14, 10, 10);
+        m.color(1, 1, 0);
+        m.cylinder(0.1f, 0, 0, 2, -5.5f, 0, 2, 10, 10);
+        return m;
+    }
+
+    /**
+     * Courbure de la voile
+     * @param fV force velique
+     * @return la courbure, dans ]-pi/2, pi/2[
+     */
+    public static float sailCurvature(double fV) {
+        return (float) -Math.atan(fV / 500.);
+    }
+
+    /**
+     * Construction de la voile, dans le repere du mat, sans allocation
+     * @param m constructeur remis a zero qui recoit les <code>SAIL_VERTICES</code> sommets
+     * @param fV force velique, qui donne la courbure de la voile
+     */
+    public static void sail(MeshBuilder m, double fV) {
+        curvedSail(m, sailCurvature(fV));
+    }
+
+    /**
+     * Construction de la voile pour une courbure donnee, dans le repere du mat, sans allocation
+     * @param m constructeur remis a zero qui recoit les <code>SAIL_VERTICES</code> sommets
+     * @param b courbure de la voile
+     */
+    public static void curvedSail(MeshBuilder m, float b) {
+        m.reset();
+        m.color(1, 1, 0);
+        m.triangle(0, 0, 2, 0, 0, 12, -1, b * 1.5f, 10);
+        m.triangle(0, 0, 2, -1, b * 1.5f, 10, -2, b * 2, 8);
+        m.triangle(0, 0, 2, -2, b * 2, 8, -3, b * 2, 6);
+        m.triangle(0, 0, 2, -3, b * 2, 6, -4, b * 1.5f, 4);
+        m.triangle(0, 0, 2, -4, b * 1.5f, 4, -5, 0, 2);
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.PrintStream;
+
+/**
+ * La classe <code>ConsoleTelemetrySink</code> affiche un echantillon de
+ * telemetrie sur <code>every</code>, sur la sortie standard ou un autre flux.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class ConsoleTelemetrySink implements TelemetrySink {
+    /**
+     * Flux d'affichage
+     */
+    private final PrintStream out;
+    /**
+     * Periode d'affichage en echantillons
+     */
+    private final int every;
+    /**
+     * Nombre d'echantillons recus
+     */
+    private long count;
+    /**
+     * Ligne reutilisee d'un affichage a l'autre
+     */
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * Constructeur affichant sur la sortie standard
+     * @param every periode d'affichage en echantillons
+     */
+    public ConsoleTelemetrySink(int every) {
+        this(System.out, every);
+    }
+
+    /**
+     * Constructeur
+     * @param out flux d'affichage
+     * @param every periode d'affichage en echantillons
+     */
+    public ConsoleTelemetrySink(PrintStream out, int every) {
+        if (every < 1) {
+            throw new IllegalArgumentException("periode invalide : " + every);
+        }
+        this.out = out;
+        this.every = every;
+    }
+
+    @Override
+    public void write(double[] sample, int offset) {
+        if (this.count++ % this.every != 0) {
+            return;
+        }
+        this.line.setLength(0);
+        this.line.append("t ").append(sample[offset + Telemetry.TIME])
+                .append(" x ").append(sample[offset + Telemetry.X])
+                .append(" y ").append(sample[offset + Telemetry.Y])
+                .append(" phi ").append(sample[offset + Telemetry.PHI])
+                .append(" xPoint ").append(sample[offset + Telemetry.X_POINT])
+                .append(" yPoint ").append(sample[offset + Telemetry.Y_POINT]);
+        this.out.println(this.line);
+    }
+
+    @Override
+    public void flush() {
+        this.out.flush();
+    }
+
+    @Override
+    public String toString() {
+        return "console";
+    }
+}
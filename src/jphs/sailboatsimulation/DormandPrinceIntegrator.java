@@ -0,0 +1,335 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.Arrays;
+
+/**
+ * La classe <code>DormandPrinceIntegrator</code> implemente la methode de
+ * Runge-Kutta emboitee de Dormand et Prince (RK45, ordre 5 avec estimateur
+ * d'erreur d'ordre 4) a pas adaptatif.
+ * <p>
+ * Chaque appel a <code>integrate</code> avance l'etat exactement de
+ * <code>dt</code> en enchainant autant de sous-pas que necessaire. Le pas
+ * est agrandi dans les phases calmes et reduit quand la dynamique devient
+ * raide, dans les bornes [minStep, maxStep]. Un sous-pas est rejete et
+ * recommence quand l'erreur estimee depasse la tolerance de chaque variable
+ * d'etat : atol[i] + rtol * |y[i]|. Au pas minimum, le sous-pas est accepte
+ * quelle que soit l'erreur et compte comme force, sauf si l'etat n'est plus
+ * fini : l'integration echoue alors avec une <code>IllegalStateException</code>.
+ * <p>
+ * La derniere derivee d'un sous-pas accepte est celle du debut du suivant
+ * (propriete FSAL) : un sous-pas accepte coute six evaluations.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class DormandPrinceIntegrator implements Integrator {
+    /*
+        Coefficients du tableau de Butcher
+     */
+    private static final double C2 = 1. / 5., C3 = 3. / 10., C4 = 4. / 5., C5 = 8. / 9.;
+    private static final double A21 = 1. / 5.;
+    private static final double A31 = 3. / 40., A32 = 9. / 40.;
+    private static final double A41 = 44. / 45., A42 = -56. / 15., A43 = 32. / 9.;
+    private static final double A51 = 19372. / 6561., A52 = -25360. / 2187., A53 = 64448. / 6561.,
+            A54 = -212. / 729.;
+    private static final double A61 = 9017. / 3168., A62 = -355. / 33., A63 = 46732. / 5247., A64 = 49. / 176.,
+            A65 = -5103. / 18656.;
+    private static final double A71 = 35. / 384., A73 = 500. / 1113., A74 = 125. / 192., A75 = -2187. / 6784.,
+            A76 = 11. / 84.;
+    /*
+        Difference entre les solutions d'ordre 5 et d'ordre 4
+     */
+    private static final double E1 = 71. / 57600., E3 = -71. / 16695., E4 = 71. / 1920., E5 = -17253. / 339200.,
+            E6 = 22. / 525., E7 = -1. / 40.;
+    /**
+     * Coefficient de securite sur le pas propose
+     */
+    private static final double SAFETY = 0.9;
+    /**
+     * Bornes du facteur de variation du pas entre deux sous-pas
+     */
+    private static final double MIN_FACTOR = 0.2, MAX_FACTOR = 5.;
+
+    /**
+     * Tolerances absolues par variable d'etat
+     */
+    private final double[] atol;
+    /**
+     * Tolerance relative
+     */
+    private final double rtol;
+    /**
+     * Bornes du pas de temps
+     */
+    private final double minStep, maxStep;
+    /**
+     * Pas propose pour le prochain sous-pas, 0 avant le premier appel
+     */
+    private double step;
+    /**
+     * Compteurs de sous-pas acceptes, rejetes et acceptes au pas minimum malgre l'erreur
+     */
+    private long acceptedSteps, rejectedSteps, forcedSteps;
+    /**
+     * Compteur d'evaluations de la derivee
+     */
+    private long evaluations;
+    /**
+     * Tableaux de travail
+     */
+    private double[] k1, k2, k3, k4, k5, k6, k7, stage, next;
+
+    /**
+     * Constructeur avec la meme tolerance absolue pour toutes les variables d'etat
+     * @param atol tolerance absolue
+     * @param rtol tolerance relative
+     * @param minStep pas minimum
+     * @param maxStep pas maximum
+     */
+    public DormandPrinceIntegrator(double atol, double rtol, double minStep, double maxStep) {
+        this(new double[] {atol}, rtol, minStep, maxStep);
+    }
+
+    /**
+     * Constructeur avec une tolerance absolue par variable d'etat
+     * @param atol tolerances absolues, une par variable d'etat (ou une seule valeur pour toutes)
+     * @param rtol tolerance relative
+     * @param minStep pas minimum
+     * @param maxStep pas maximum
+     */
+    public DormandPrinceIntegrator(double[] atol, double rtol, double minStep, double maxStep) {
+        if (minStep <= 0 || maxStep < minStep) {
+            throw new IllegalArgumentException("bornes du pas invalides : [" + minStep + ", " + maxStep + "]");
+        }
+        this.atol = atol.clone();
+        this.rtol = rtol;
+        this.minStep = minStep;
+        this.maxStep = maxStep;
+        this.step = 0;
+    }
+
+    /**
+     * Creation d'un integrateur regle pour le vecteur d'etat de <code>Sailboat</code> : 1 mm sur les positions,
+     * 1e-5 rad sur les angles, 1e-4 sur les vitesses et 1e-6 rad/s sur les vitesses de rotation
+     * @return un nouvel integrateur
+     */
+    public static DormandPrinceIntegrator forSailboat() {
+        double[] atol = new double[Sailboat.STATE_SIZE];
+        atol[Sailboat.X] = 1e-3;
+        atol[Sailboat.Y] = 1e-3;
+        atol[Sailboat.THETA] = 1e-5;
+        atol[Sailboat.PHI] = 1e-5;
+        atol[Sailboat.X_POINT] = 1e-4;
+        atol[Sailboat.Y_POINT] = 1e-4;
+        atol[Sailboat.THETA_POINT] = 1e-6;
+        atol[Sailboat.PHI_POINT] = 1e-6;
+        return new DormandPrinceIntegrator(atol, 1e-6, 1e-5, 1.0);
+    }
+
+    @Override
+    public Integrator copy() {
+        return new DormandPrinceIntegrator(this.atol, this.rtol, this.minStep, this.maxStep);
+    }
+
+    @Override
+    public void integrate(StateDerivative f, double t, double[] state, double[] dState, double dt) {
+        int n = state.length;
+        if (this.atol.length != 1 && this.atol.length != n) {
+            throw new IllegalArgumentException("tolerances pour " + this.atol.length + " variables, etat de " + n);
+        }
+        if (this.k1 == null || this.k1.length != n) {
+            this.k1 = new double[n];
+            this.k2 = new double[n];
+            this.k3 = new double[n];
+            this.k4 = new double[n];
+            this.k5 = new double[n];
+            this.k6 = new double[n];
+            this.k7 = new double[n];
+            this.stage = new double[n];
+            this.next = new double[n];
+        }
+        System.arraycopy(dState, 0, this.k1, 0, n);
+        if (this.step == 0) {
+            this.step = Math.min(this.maxStep, Math.max(this.minStep, dt));
+        }
+        double end = t + dt;
+        double time = t;
+        while (time < end) {
+            double remaining = end - time;
+            boolean last = this.step >= remaining;
+            double h = last ? remaining : this.step;
+            double err = this.trialStep(f, time, state, h);
+            if (err <= 1. || h <= this.minStep) {
+                if (err == Double.POSITIVE_INFINITY) {
+                    throw new IllegalStateException("etat non fini a t = " + time + " malgre le pas minimum");
+                }
+                if (err > 1.) {
+                    this.forcedSteps++;
+                }
+                this.acceptedSteps++;
+                System.arraycopy(this.next, 0, state, 0, n);
+                double[] swap = this.k1;
+                this.k1 = this.k7;
+                this.k7 = swap;
+                time = last ? end : time + h;
+                if (!last || h >= this.step) {
+                    this.step = this.clampStep(h * factor(err));
+                }
+            } else {
+                this.rejectedSteps++;
+                this.step = this.clampStep(h * Math.max(MIN_FACTOR, SAFETY * Math.pow(err, -0.2)));
+            }
+        }
+    }
+
+    /**
+     * Calcul d'un sous-pas : la solution d'ordre 5 est rangee dans <code>next</code> et la derivee a cette
+     * solution dans <code>k7</code>
+     * @param f systeme a integrer
+     * @param t instant initial du sous-pas
+     * @param y etat initial du sous-pas
+     * @param h longueur du sous-pas
+     * @return l'erreur estimee, normalisee par les tolerances (acceptable si inferieure ou egale a 1)
+     */
+    private double trialStep(StateDerivative f, double t, double[] y, double h) {
+        int n = y.length;
+        double[] s = this.stage;
+        for (int i = 0; i < n; i++) {
+            s[i] = y[i] + h * A21 * this.k1[i];
+        }
+        f.computeDerivative(t + C2 * h, s, this.k2);
+        for (int i = 0; i < n; i++) {
+            s[i] = y[i] + h * (A31 * this.k1[i] + A32 * this.k2[i]);
+        }
+        f.computeDerivative(t + C3 * h, s, this.k3);
+        for (int i = 0; i < n; i++) {
+            s[i] = y[i] + h * (A41 * this.k1[i] + A42 * this.k2[i] + A43 * this.k3[i]);
+        }
+        f.computeDerivative(t + C4 * h, s, this.k4);
+        for (int i = 0; i < n; i++) {
+            s[i] = y[i] + h * (A51 * this.k1[i] + A52 * this.k2[i] + A53 * this.k3[i] + A54 * this.k4[i]);
+        }
+        f.computeDerivative(t + C5 * h, s, this.k5);
+        for (int i = 0; i < n; i++) {
+            s[i] = y[i] + h * (A61 * this.k1[i] + A62 * this.k2[i] + A63 * this.k3[i] + A64 * this.k4[i]
+                    + A65 * this.k5[i]);
+        }
+        f.computeDerivative(t + h, s, this.k6);
+        for (int i = 0; i < n; i++) {
+            this.next[i] = y[i] + h * (A71 * this.k1[i] + A73 * this.k3[i] + A74 * this.k4[i] + A75 * this.k5[i]
+                    + A76 * this.k6[i]);
+        }
+        f.computeDerivative(t + h, this.next, this.k7);
+        this.evaluations += 6;
+
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            double e = h * (E1 * this.k1[i] + E3 * this.k3[i] + E4 * this.k4[i] + E5 * this.k5[i]
+                    + E6 * this.k6[i] + E7 * this.k7[i]);
+            double tol = this.atol[this.atol.length == 1 ? 0 : i]
+                    + this.rtol * Math.max(Math.abs(y[i]), Math.abs(this.next[i]));
+            double r = e / tol;
+            sum += r * r;
+        }
+        double err = Math.sqrt(sum / n);
+        // un etat non fini (Jy degenere par exemple) impose de reduire le pas
+        return Double.isNaN(err) || Double.isInfinite(err) ? Double.POSITIVE_INFINITY : err;
+    }
+
+    /**
+     * Facteur d'agrandissement du pas apres un sous-pas accepte
+     * @param err erreur normalisee du sous-pas
+     * @return le facteur a appliquer au pas
+     */
+    private static double factor(double err) {
+        if (err == 0) {
+            return MAX_FACTOR;
+        }
+        return Math.min(MAX_FACTOR, Math.max(MIN_FACTOR, SAFETY * Math.pow(err, -0.2)));
+    }
+
+    /**
+     * Limitation du pas a ses bornes
+     * @param h pas propose
+     * @return le pas borne
+     */
+    private double clampStep(double h) {
+        return Math.min(this.maxStep, Math.max(this.minStep, h));
+    }
+
+    /**
+     * Remise a zero des compteurs et du pas propose
+     */
+    public void reset() {
+        this.step = 0;
+        this.acceptedSteps = 0;
+        this.rejectedSteps = 0;
+        this.forcedSteps = 0;
+        this.evaluations = 0;
+    }
+
+    /**
+     * Getter de l'attribut step
+     * @return le pas propose pour le prochain sous-pas
+     */
+    public double getStep() {
+        return step;
+    }
+
+    /**
+     * Setter de l'attribut step, pour reprendre une integration interrompue
+     * @param step pas propose pour le prochain sous-pas, 0 pour le deduire du prochain pas
+     */
+    public void setStep(double step) {
+        this.step = step == 0 ? 0 : this.clampStep(step);
+    }
+
+    /**
+     * Getter de l'attribut acceptedSteps
+     * @return le nombre de sous-pas acceptes
+     */
+    public long getAcceptedSteps() {
+        return acceptedSteps;
+    }
+
+    /**
+     * Getter de l'attribut rejectedSteps
+     * @return le nombre de sous-pas rejetes
+     */
+    public long getRejectedSteps() {
+        return rejectedSteps;
+    }
+
+    /**
+     * Getter de l'attribut forcedSteps
+     * @return le nombre de sous-pas acceptes au pas minimum alors que l'erreur depassait la tolerance
+     */
+    public long getForcedSteps() {
+        return forcedSteps;
+    }
+
+    /**
+     * Getter de l'attribut evaluations
+     * @return le nombre d'evaluations de la derivee, hors derivee fournie par l'appelant
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Getter des tolerances absolues
+     * @return une copie des tolerances absolues
+     */
+    public double[] getAtol() {
+        return Arrays.copyOf(this.atol, this.atol.length);
+    }
+
+    @Override
+    public String toString() {
+        return "dopri5 : " + this.acceptedSteps + " sous-pas acceptes, " + this.rejectedSteps + " rejetes, "
+                + this.forcedSteps + " forces, " + this.evaluations + " evaluations";
+    }
+}
@@ -0,0 +1,386 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * La classe <code>EnsembleRunner</code> simule un meme scenario un grand
+ * nombre de fois avec des perturbations aleatoires (methode de Monte Carlo)
+ * : force et direction du vent, cap <code>phi</code> et gite
+ * <code>theta</code> initiaux, coefficients d'amortissement
+ * <code>alphaF</code> et <code>alphaPhi</code> de la coque. Chaque
+ * simulation est un <code>Sailboat</code> independant ; les simulations sont
+ * reparties sur les coeurs par lots.
+ * <p>
+ * Chaque simulation tire ses perturbations d'un generateur
+ * <code>SplittableRandom</code> qui lui est propre, separe du generateur
+ * racine dans l'ordre des simulations. Les resultats d'un lot sont ajoutes
+ * aux estimateurs de quantiles (<code>StreamingQuantile</code>) dans
+ * l'ordre des simulations : pour une meme graine, le resume est identique
+ * quel que soit le nombre de threads. Seuls les resultats d'un lot sont
+ * gardes en memoire.
+ * <p>
+ * Les ecarts types des perturbations gaussiennes sont relatifs pour la
+ * force du vent et les coefficients de la coque, en radians pour les angles.
+ * Une simulation qui diverge, etat non fini ou echec d'un integrateur a pas
+ * adaptatif, est comptee a part et n'entre pas dans les quantiles.
+ * <pre>
+ * java -cp &lt;classes&gt; jphs.sailboatsimulation.EnsembleRunner scenario.txt [simulations [graine]]
+ * </pre>
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class EnsembleRunner {
+    /**
+     * Grandeurs resumees : position finale, VMG (vitesse moyenne vers le vent) et gite maximale
+     */
+    public static final int FINAL_X = 0, FINAL_Y = 1, VMG = 2, MAX_HEEL = 3, METRICS = 4;
+    /**
+     * Noms des grandeurs
+     */
+    private static final String[] NAMES = { "finalX", "finalY", "vmg", "maxHeel" };
+    /**
+     * Rangs des quantiles par defaut
+     */
+    public static final double[] DEFAULT_LEVELS = { 0.05, 0.5, 0.95 };
+    /**
+     * Nombre de simulations par lot par defaut
+     */
+    public static final int DEFAULT_BATCH = 1024;
+
+    /**
+     * Scenario simule
+     */
+    private final Scenario scenario;
+    /**
+     * Ecarts types relatifs de la force du vent, de alphaF et de alphaPhi
+     */
+    private double windForceSigma = 0.1, alphaFSigma = 0.1, alphaPhiSigma = 0.1;
+    /**
+     * Ecarts types en radians de la direction du vent, du cap et de la gite initiaux
+     */
+    private double windDirSigma = 0.1, phiSigma = 0.1, thetaSigma = 0.05;
+    /**
+     * Rangs des quantiles estimes
+     */
+    private double[] levels = DEFAULT_LEVELS;
+    /**
+     * Nombre de simulations par lot
+     */
+    private int batch = DEFAULT_BATCH;
+    /**
+     * Pool de threads des simulations
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * Constructeur
+     * @param scenario scenario simule
+     */
+    public EnsembleRunner(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    /**
+     * Execution des simulations
+     * @param runs nombre de simulations
+     * @param seed graine du generateur racine
+     * @return le resume des simulations
+     * @throws IOException si le vent du scenario ne peut pas etre lu
+     */
+    public Summary run(int runs, long seed) throws IOException {
+        final WindModel wind = this.scenario.createWindModel();
+        final Summary summary = new Summary(this.levels);
+        final SplittableRandom root = new SplittableRandom(seed);
+        final int size = Math.max(1, Math.min(this.batch, runs));
+        final SplittableRandom[] streams = new SplittableRandom[size];
+        final double[] results = new double[size * METRICS];
+        for (int first = 0; first < runs; first += size) {
+            final int count = Math.min(size, runs - first);
+            for (int i = 0; i < count; i++) {
+                streams[i] = root.split();
+            }
+            this.pool.submit(() -> IntStream.range(0, count).parallel()
+                    .forEach(i -> this.simulate(wind, streams[i], results, i * METRICS))).join();
+            for (int i = 0; i < count; i++) {
+                summary.add(results, i * METRICS);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Simulation d'un membre de l'ensemble
+     * @param wind vent du scenario, partage par les simulations
+     * @param random generateur propre a la simulation
+     * @param out resultats, ecrits a partir de <code>offset</code> dans l'ordre des grandeurs
+     * @param offset position des resultats dans <code>out</code>
+     */
+    private void simulate(WindModel wind, SplittableRandom random, double[] out, int offset) {
+        Scenario sc = this.scenario;
+        double forceFactor = Math.max(0, 1 + this.windForceSigma * gaussian(random));
+        double dirOffset = this.windDirSigma * gaussian(random);
+        Sailboat boat = sc.createSailboat();
+        boat.setPhi(boat.getPhi() + this.phiSigma * gaussian(random));
+        boat.setTheta(boat.getTheta() + this.thetaSigma * gaussian(random));
+        Hull hull = boat.getTheHull();
+        hull.setAlphaF(hull.getAlphaF() * Math.max(0, 1 + this.alphaFSigma * gaussian(random)));
+        hull.setAlphaPhi(hull.getAlphaPhi() * Math.max(0, 1 + this.alphaPhiSigma * gaussian(random)));
+        PerturbedWind perturbed = new PerturbedWind(wind, forceFactor, dirOffset);
+
+        double x0 = boat.getX();
+        double y0 = boat.getY();
+        double dt = sc.getDt();
+        long steps = Math.round(sc.getDuration() / dt);
+        double deltag = HeadlessSimulation.DEFAULT_DELTAG;
+        double deltavmax = HeadlessSimulation.DEFAULT_DELTAVMAX;
+        int nextControl = 0;
+        int controlCount = sc.getControlCount();
+        double maxHeel = Math.abs(boat.getTheta());
+        try {
+            for (long step = 0; step < steps; step++) {
+                double t = step * dt;
+                while (nextControl < controlCount && sc.getControlTime(nextControl) <= t) {
+                    deltag = sc.getControlDeltag(nextControl);
+                    deltavmax = sc.getControlDeltavmax(nextControl);
+                    nextControl++;
+                }
+                boat.update(dt, deltag, deltavmax, perturbed, t);
+                maxHeel = Math.max(maxHeel, Math.abs(boat.getTheta()));
+            }
+        } catch (IllegalStateException e) {
+            // l'integrateur n'a pas pu avancer : la simulation est comptee comme divergee
+            for (int k = 0; k < METRICS; k++) {
+                out[offset + k] = Double.NaN;
+            }
+            return;
+        }
+        // le vent souffle vers psi et vient donc de psi + PI
+        double psi = sc.createWind().getWindDir();
+        double upwind = -(boat.getX() - x0) * Math.cos(psi) - (boat.getY() - y0) * Math.sin(psi);
+        out[offset + FINAL_X] = boat.getX();
+        out[offset + FINAL_Y] = boat.getY();
+        out[offset + VMG] = upwind / Math.max(steps * dt, dt);
+        out[offset + MAX_HEEL] = maxHeel;
+    }
+
+    /**
+     * Tirage gaussien centre reduit par la methode polaire de Marsaglia, <code>SplittableRandom</code> n'en
+     * proposant pas en Java 8
+     * @param random generateur
+     * @return la valeur tiree
+     */
+    static double gaussian(SplittableRandom random) {
+        double u, v, s;
+        do {
+            u = 2 * random.nextDouble() - 1;
+            v = 2 * random.nextDouble() - 1;
+            s = u * u + v * v;
+        } while (s >= 1 || s == 0);
+        return u * Math.sqrt(-2 * Math.log(s) / s);
+    }
+
+    /**
+     * Vent d'un membre de l'ensemble : vent du scenario dont la force est multipliee et la direction decalee
+     */
+    private static final class PerturbedWind implements WindModel {
+        private final WindModel base;
+        private final double forceFactor;
+        private final double dirOffset;
+
+        PerturbedWind(WindModel base, double forceFactor, double dirOffset) {
+            this.base = base;
+            this.forceFactor = forceFactor;
+            this.dirOffset = dirOffset;
+        }
+
+        @Override
+        public void sample(double x, double y, double t, Wind out) {
+            this.base.sample(x, y, t, out);
+            out.setWindForce(out.getWindForce() * this.forceFactor);
+            out.setWindDir(out.getWindDir() + this.dirOffset);
+        }
+
+        @Override
+        public void sample(double[] x, double[] y, double t, int from, int to, double[] force, double[] dir) {
+            this.base.sample(x, y, t, from, to, force, dir);
+            for (int i = from; i < to; i++) {
+                force[i] *= this.forceFactor;
+                dir[i] += this.dirOffset;
+            }
+        }
+    }
+
+    /**
+     * Resume d'un ensemble : quantiles et moyenne de chaque grandeur, nombre de simulations et de divergences
+     */
+    public static final class Summary {
+        /**
+         * Estimateurs, par grandeur puis par rang
+         */
+        private final StreamingQuantile[][] quantiles;
+        /**
+         * Sommes des grandeurs des simulations retenues
+         */
+        private final double[] sums = new double[METRICS];
+        /**
+         * Nombre de simulations retenues et divergees
+         */
+        private long runs, diverged;
+
+        Summary(double[] levels) {
+            this.quantiles = new StreamingQuantile[METRICS][levels.length];
+            for (int m = 0; m < METRICS; m++) {
+                for (int l = 0; l < levels.length; l++) {
+                    this.quantiles[m][l] = new StreamingQuantile(levels[l]);
+                }
+            }
+        }
+
+        /**
+         * Ajout des resultats d'une simulation
+         */
+        void add(double[] results, int offset) {
+            for (int m = 0; m < METRICS; m++) {
+                double v = results[offset + m];
+                if (Double.isNaN(v) || Double.isInfinite(v)) {
+                    this.diverged++;
+                    return;
+                }
+            }
+            for (int m = 0; m < METRICS; m++) {
+                double v = results[offset + m];
+                this.sums[m] += v;
+                for (StreamingQuantile q : this.quantiles[m]) {
+                    q.add(v);
+                }
+            }
+            this.runs++;
+        }
+
+        /**
+         * Quantile estime d'une grandeur
+         * @param metric grandeur (<code>FINAL_X</code>, <code>FINAL_Y</code>, <code>VMG</code>,
+         * <code>MAX_HEEL</code>)
+         * @param level indice du rang dans les rangs de l'ensemble
+         * @return l'estimation du quantile, NaN sans simulation retenue
+         */
+        public double getQuantile(int metric, int level) {
+            return this.quantiles[metric][level].getQuantile();
+        }
+
+        /**
+         * Moyenne d'une grandeur
+         * @param metric grandeur
+         * @return la moyenne, NaN sans simulation retenue
+         */
+        public double getMean(int metric) {
+            return this.runs == 0 ? Double.NaN : this.sums[metric] / this.runs;
+        }
+
+        public long getRuns() {
+            return runs;
+        }
+
+        public long getDiverged() {
+            return diverged;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.ROOT, "%d simulation(s), %d divergee(s)%n", this.runs, this.diverged));
+            sb.append(String.format(Locale.ROOT, "%-8s %10s", "", "moyenne"));
+            for (StreamingQuantile q : this.quantiles[0]) {
+                sb.append(String.format(Locale.ROOT, " %10s", "p" + Math.round(q.getP() * 100)));
+            }
+            sb.append(String.format("%n"));
+            for (int m = 0; m < METRICS; m++) {
+                sb.append(String.format(Locale.ROOT, "%-8s %10.3f", NAMES[m], this.getMean(m)));
+                for (StreamingQuantile q : this.quantiles[m]) {
+                    sb.append(String.format(Locale.ROOT, " %10.3f", q.getQuantile()));
+                }
+                sb.append(String.format("%n"));
+            }
+            return sb.toString();
+        }
+    }
+
+    public void setWindForceSigma(double windForceSigma) {
+        this.windForceSigma = windForceSigma;
+    }
+
+    public void setWindDirSigma(double windDirSigma) {
+        this.windDirSigma = windDirSigma;
+    }
+
+    public void setPhiSigma(double phiSigma) {
+        this.phiSigma = phiSigma;
+    }
+
+    public void setThetaSigma(double thetaSigma) {
+        this.thetaSigma = thetaSigma;
+    }
+
+    public void setAlphaFSigma(double alphaFSigma) {
+        this.alphaFSigma = alphaFSigma;
+    }
+
+    public void setAlphaPhiSigma(double alphaPhiSigma) {
+        this.alphaPhiSigma = alphaPhiSigma;
+    }
+
+    /**
+     * Setter des rangs des quantiles estimes
+     * @param levels rangs dans [0, 1], au moins un
+     */
+    public void setLevels(double... levels) {
+        if (levels.length == 0) {
+            throw new IllegalArgumentException("au moins un rang de quantile est necessaire");
+        }
+        this.levels = levels.clone();
+    }
+
+    /**
+     * Setter de l'attribut batch
+     * @param batch nombre de simulations par lot, qui borne la memoire des resultats
+     */
+    public void setBatch(int batch) {
+        this.batch = Math.max(1, batch);
+    }
+
+    /**
+     * Setter du pool de threads
+     * @param pool pool fork/join des simulations
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Execution d'un ensemble et affichage de son resume
+     * @param args scenario, nombre de simulations (1000 par defaut) et graine (0 par defaut)
+     * @throws IOException si le scenario ne peut pas etre lu
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: EnsembleRunner scenario [runs [seed]]");
+            System.exit(2);
+        }
+        Scenario scenario = Scenario.load(Paths.get(args[0]));
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0L;
+        long start = System.nanoTime();
+        Summary summary = new EnsembleRunner(scenario).run(runs, seed);
+        System.out.print(summary);
+        System.out.println(runs + " simulation(s) en " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+}
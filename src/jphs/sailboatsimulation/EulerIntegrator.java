@@ -0,0 +1,26 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * La classe <code>EulerIntegrator</code> implemente le schema d'Euler
+ * explicite : y(t + dt) = y(t) + dt * f(t, y(t)). Ordre 1.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class EulerIntegrator implements Integrator {
+
+    @Override
+    public Integrator copy() {
+        return new EulerIntegrator();
+    }
+
+    @Override
+    public void integrate(StateDerivative f, double t, double[] state, double[] dState, double dt) {
+        for (int i = 0; i < state.length; i++) {
+            state[i] = state[i] + dState[i] * dt;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * La classe <code>FileTelemetrySink</code> ecrit les echantillons de
+ * telemetrie dans un fichier CSV, avec les memes colonnes et le meme
+ * separateur que <code>HeadlessSimulation</code>, suivies de la force
+ * velique.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class FileTelemetrySink implements TelemetrySink {
+    /**
+     * Fichier ecrit
+     */
+    private final Path file;
+    /**
+     * Flux d'ecriture
+     */
+    private final BufferedWriter out;
+    /**
+     * Ligne reutilisee d'un echantillon a l'autre
+     */
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * Constructeur : le fichier est cree ou remplace et son en-tete ecrit
+     * @param file fichier a ecrire
+     * @throws IOException si le fichier ne peut pas etre ecrit
+     */
+    public FileTelemetrySink(Path file) throws IOException {
+        this.file = file;
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        this.out.write(Telemetry.HEADER);
+        this.out.write('\n');
+    }
+
+    @Override
+    public void write(double[] sample, int offset) throws IOException {
+        this.line.setLength(0);
+        for (int i = 0; i < Telemetry.FIELDS; i++) {
+            if (i > 0) {
+                this.line.append(';');
+            }
+            this.line.append(sample[offset + i]);
+        }
+        this.line.append('\n');
+        this.out.append(this.line);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+
+    @Override
+    public String toString() {
+        return this.file.toString();
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * La classe <code>FrameProfiler</code> mesure la duree des phases d'une
+ * image de <code>SailboatVisualization</code> et des pas de
+ * <code>SimulationLoop</code>, chacune dans un
+ * <code>LatencyHistogram</code> : intervalle entre deux images, affichage
+ * complet, lecture de l'etat, dessin, dessin de la mer, des bouees et du
+ * voilier, et pas de simulation.
+ * <p>
+ * Une mesure coute deux lectures de <code>System.nanoTime</code> et un
+ * enregistrement sans verrou ; elle est sautee si le profileur est
+ * desactive. Les durees de dessin sont celles de l'envoi des commandes
+ * OpenGL par le processeur, pas de leur execution par la carte graphique.
+ * Chaque phase doit etre mesuree par un seul thread : le thread de dessin
+ * pour les phases de l'image, le thread de simulation pour les pas.
+ * <p>
+ * Les quantiles peuvent etre ajoutes periodiquement a un fichier CSV
+ * (<code>startExport</code>), une ligne par phase et par export.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class FrameProfiler implements AutoCloseable {
+    /**
+     * Phases mesurees
+     */
+    public static final int INTERVAL = 0, DISPLAY = 1, UPDATE = 2, RENDER = 3, DRAW_SEA = 4, DRAW_BUOYS = 5,
+            DRAW_BOAT = 6, STEP = 7, DRAW_GHOSTS = 8, PHASES = 9;
+    /**
+     * Noms des phases
+     */
+    private static final String[] NAMES = { "interval", "display", "update", "render", "drawSea", "drawBuoys",
+            "drawBoat", "step", "drawGhosts" };
+    /**
+     * Entete du fichier d'export, durees en microsecondes
+     */
+    public static final String HEADER = "time;phase;count;mean;p50;p99;p99.9;max";
+
+    /**
+     * Histogrammes des phases
+     */
+    private final LatencyHistogram[] histograms = new LatencyHistogram[PHASES];
+    /**
+     * Vrai si les mesures sont faites
+     */
+    private volatile boolean enabled = true;
+    /**
+     * Debut de l'image precedente, 0 avant la premiere
+     */
+    private long lastFrame;
+    /**
+     * Thread d'export, null sans export
+     */
+    private ScheduledExecutorService exporter;
+    /**
+     * Fichier d'export
+     */
+    private Path exportFile;
+
+    /**
+     * Constructeur
+     */
+    public FrameProfiler() {
+        for (int i = 0; i < PHASES; i++) {
+            this.histograms[i] = new LatencyHistogram(NAMES[i]);
+        }
+    }
+
+    /**
+     * Debut d'une image : enregistrement de l'intervalle depuis l'image precedente
+     * @return l'instant de debut, a passer a <code>stop</code>, 0 si le profileur est desactive
+     */
+    public long startFrame() {
+        if (!this.enabled) {
+            this.lastFrame = 0;
+            return 0;
+        }
+        long now = System.nanoTime();
+        if (this.lastFrame != 0) {
+            this.histograms[INTERVAL].record(now - this.lastFrame);
+        }
+        this.lastFrame = now;
+        return now;
+    }
+
+    /**
+     * Debut d'une mesure
+     * @return l'instant de debut, a passer a <code>stop</code>, 0 si le profileur est desactive
+     */
+    public long start() {
+        return this.enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Fin d'une mesure
+     * @param phase phase mesuree
+     * @param start instant de debut rendu par <code>start</code> ou <code>stop</code>
+     * @return l'instant de fin, qui peut servir de debut a la phase suivante, 0 si la mesure est sautee
+     */
+    public long stop(int phase, long start) {
+        if (start == 0 || !this.enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        this.histograms[phase].record(now - start);
+        return now;
+    }
+
+    /**
+     * Histogramme d'une phase
+     * @param phase phase
+     * @return l'histogramme
+     */
+    public LatencyHistogram get(int phase) {
+        return this.histograms[phase];
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Ecriture d'une ligne par phase mesuree
+     * @param out destination
+     * @param timeMillis date des lignes en millisecondes
+     * @throws IOException si l'ecriture echoue
+     */
+    public void writeTo(Appendable out, long timeMillis) throws IOException {
+        for (LatencyHistogram h : this.histograms) {
+            if (h.getCount() == 0) {
+                continue;
+            }
+            out.append(String.format(Locale.ROOT, "%d;%s;%d;%.1f;%.1f;%.1f;%.1f;%.1f%n", timeMillis, h.getName(),
+                    h.getCount(), h.getMean() * 1e-3, h.quantile(0.5) * 1e-3, h.quantile(0.99) * 1e-3,
+                    h.quantile(0.999) * 1e-3, h.getMax() * 1e-3));
+        }
+    }
+
+    /**
+     * Demarrage de l'export periodique, sans effet si un export est en cours. L'entete est ecrit si le fichier
+     * est cree.
+     * @param file fichier CSV, complete a chaque export
+     * @param periodMillis periode des exports en millisecondes
+     * @throws IOException si le fichier ne peut pas etre cree
+     */
+    public synchronized void startExport(Path file, long periodMillis) throws IOException {
+        if (this.exporter != null) {
+            return;
+        }
+        if (!Files.exists(file)) {
+            Files.write(file, (HEADER + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        }
+        this.exportFile = file;
+        this.exporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "profiler-export");
+            t.setDaemon(true);
+            return t;
+        });
+        this.exporter.scheduleAtFixedRate(this::export, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ajout de l'etat courant au fichier d'export
+     */
+    private void export() {
+        try (BufferedWriter out = Files.newBufferedWriter(this.exportFile, StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND)) {
+            this.writeTo(out, System.currentTimeMillis());
+        } catch (IOException e) {
+            System.err.println("profileur : export vers " + this.exportFile + " : " + e);
+        }
+    }
+
+    /**
+     * Arret de l'export periodique, apres un dernier export
+     */
+    @Override
+    public synchronized void close() {
+        if (this.exporter == null) {
+            return;
+        }
+        this.exporter.shutdown();
+        try {
+            this.exporter.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.export();
+        this.exporter = null;
+    }
+}
@@ -0,0 +1,327 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * La classe <code>GhostPreview</code> calcule ou sera le voilier dans les
+ * prochaines secondes pour le reglage courant et les reglages voisins : le
+ * safran et la voile commandes, plus ou moins <code>deltagStep</code> et
+ * <code>deltavmaxStep</code>, soit neuf trajectoires fantomes.
+ * <p>
+ * L'affichage demande un apercu (<code>request</code>) toutes les quelques
+ * images ; le thread de simulation, seul a modifier le voilier, le prend en
+ * compte au pas suivant (<code>fork</code>) en capturant l'etat du voilier
+ * dans un <code>SailboatSnapshot</code>. Les trajectoires sont ensuite
+ * simulees en parallele sur un pool en arriere-plan, chacune sur sa propre
+ * copie du voilier simule (meme coque, meme profil de voile, meme schema
+ * d'integration), et publiees d'un coup dans un objet <code>Paths</code>
+ * immuable.
+ * Ni l'affichage ni la simulation n'attendent le calcul : une demande
+ * arrivee pendant un calcul est servie au pas qui suit sa fin.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class GhostPreview {
+    /**
+     * Horizon de l'apercu par defaut, en secondes simulees
+     */
+    public static final double DEFAULT_HORIZON = 20.;
+    /**
+     * Intervalle par defaut entre deux points d'une trajectoire, en secondes simulees
+     */
+    public static final double DEFAULT_POINT_INTERVAL = 0.5;
+    /**
+     * Ecarts par defaut des reglages voisins
+     */
+    public static final double DEFAULT_DELTAG_STEP = 0.1, DEFAULT_DELTAVMAX_STEP = 0.2;
+    /**
+     * Nombre de trajectoires : trois angles de safran par trois angles de voile
+     */
+    public static final int CANDIDATES = 9;
+    /**
+     * Indice de la trajectoire du reglage courant
+     */
+    public static final int CURRENT = CANDIDATES / 2;
+
+    /**
+     * Trajectoires fantomes calculees a partir d'un meme etat
+     */
+    public static final class Paths {
+        /**
+         * Instant simule de l'etat de depart
+         */
+        private final double time;
+        /**
+         * Positions successives de chaque trajectoire, x et y alternes
+         */
+        private final float[][] points;
+        /**
+         * Nombre de points de chaque trajectoire, plus court si le voilier diverge
+         */
+        private final int[] counts;
+        /**
+         * Reglages de chaque trajectoire
+         */
+        private final double[] deltag, deltavmax;
+
+        private Paths(double time, int pointCount) {
+            this.time = time;
+            this.points = new float[CANDIDATES][2 * pointCount];
+            this.counts = new int[CANDIDATES];
+            this.deltag = new double[CANDIDATES];
+            this.deltavmax = new double[CANDIDATES];
+        }
+
+        public double getTime() {
+            return time;
+        }
+
+        /**
+         * Abscisse d'un point
+         * @param candidate indice de la trajectoire
+         * @param k indice du point, de 0 a <code>getCount(candidate) - 1</code>
+         * @return la position selon Ox0
+         */
+        public float getX(int candidate, int k) {
+            return this.points[candidate][2 * k];
+        }
+
+        /**
+         * Ordonnee d'un point
+         * @param candidate indice de la trajectoire
+         * @param k indice du point, de 0 a <code>getCount(candidate) - 1</code>
+         * @return la position selon Oy0
+         */
+        public float getY(int candidate, int k) {
+            return this.points[candidate][2 * k + 1];
+        }
+
+        public int getCount(int candidate) {
+            return this.counts[candidate];
+        }
+
+        public double getDeltag(int candidate) {
+            return this.deltag[candidate];
+        }
+
+        public double getDeltavmax(int candidate) {
+            return this.deltavmax[candidate];
+        }
+    }
+
+    /**
+     * Vent de la simulation
+     */
+    private final WindModel wind;
+    /**
+     * Pas d'integration des trajectoires
+     */
+    private final double dt;
+    /**
+     * Pool en arriere-plan
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Voiliers de calcul, un par trajectoire
+     */
+    private final Sailboat[] boats = new Sailboat[CANDIDATES];
+    /**
+     * Etat de depart du calcul en cours
+     */
+    private final SailboatSnapshot start = new SailboatSnapshot();
+    /**
+     * Apercu demande par l'affichage
+     */
+    private final AtomicBoolean requested = new AtomicBoolean();
+    /**
+     * Calcul en cours
+     */
+    private final AtomicBoolean busy = new AtomicBoolean();
+    /**
+     * Reglage du calcul en cours
+     */
+    private double startDeltag, startDeltavmax;
+    /**
+     * Dernieres trajectoires calculees, null avant le premier calcul
+     */
+    private volatile Paths paths;
+    /**
+     * Horizon et intervalle entre deux points
+     */
+    private volatile double horizon = DEFAULT_HORIZON, pointInterval = DEFAULT_POINT_INTERVAL;
+    /**
+     * Ecarts des reglages voisins
+     */
+    private volatile double deltagStep = DEFAULT_DELTAG_STEP, deltavmaxStep = DEFAULT_DELTAVMAX_STEP;
+
+    /**
+     * Constructeur : pool laissant un coeur au thread de simulation
+     * @param template voilier simule, dont les voiliers de calcul sont des copies
+     * @param wind vent de la simulation
+     * @param dt pas d'integration des trajectoires
+     */
+    public GhostPreview(Sailboat template, WindModel wind, double dt) {
+        this(template, wind, dt, new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)));
+    }
+
+    /**
+     * Constructeur
+     * @param template voilier simule, dont les voiliers de calcul sont des copies
+     * @param wind vent de la simulation
+     * @param dt pas d'integration des trajectoires
+     * @param pool pool en arriere-plan
+     */
+    public GhostPreview(Sailboat template, WindModel wind, double dt, ForkJoinPool pool) {
+        this.wind = wind;
+        this.dt = dt;
+        this.pool = pool;
+        for (int c = 0; c < CANDIDATES; c++) {
+            this.boats[c] = new Sailboat(template);
+        }
+    }
+
+    /**
+     * Demande d'un apercu, depuis n'importe quel thread
+     */
+    public void request() {
+        this.requested.set(true);
+    }
+
+    /**
+     * Lancement du calcul si un apercu est demande et qu'aucun calcul n'est en cours ; a appeler par le thread
+     * qui fait avancer le voilier, entre deux pas
+     * @param sailboat voilier simule, celui donne a la construction
+     * @param time instant simule
+     * @param deltag angle du safran commande
+     * @param deltavmax angle de la voile commande
+     * @return vrai si un calcul a ete lance
+     */
+    public boolean fork(Sailboat sailboat, double time, double deltag, double deltavmax) {
+        if (!this.requested.get() || !this.busy.compareAndSet(false, true)) {
+            return false;
+        }
+        this.requested.set(false);
+        this.start.capture(sailboat, time);
+        this.startDeltag = deltag;
+        this.startDeltavmax = deltavmax;
+        this.pool.execute(this::compute);
+        return true;
+    }
+
+    /**
+     * Calcul des trajectoires en parallele puis publication
+     */
+    private void compute() {
+        try {
+            double dt = this.dt;
+            int stepsPerPoint = Math.max(1, (int) Math.round(this.pointInterval / dt));
+            int pointCount = 1 + (int) Math.ceil(this.horizon / (stepsPerPoint * dt));
+            Paths p = new Paths(this.start.getTime(), pointCount);
+            for (int c = 0; c < CANDIDATES; c++) {
+                p.deltag[c] = clamp(this.startDeltag + (c / 3 - 1) * this.deltagStep, SimulationLoop.MAX_DELTAG);
+                p.deltavmax[c] = clamp(this.startDeltavmax + (c % 3 - 1) * this.deltavmaxStep,
+                        SimulationLoop.MAX_DELTAVMAX);
+            }
+            IntStream.range(0, CANDIDATES).parallel().forEach(c -> this.simulate(c, p, stepsPerPoint, pointCount));
+            this.paths = p;
+        } finally {
+            this.busy.set(false);
+        }
+    }
+
+    /**
+     * Simulation d'une trajectoire depuis l'etat de depart
+     */
+    private void simulate(int c, Paths p, int stepsPerPoint, int pointCount) {
+        Sailboat s = this.boats[c];
+        this.start.restore(s);
+        double t = p.time;
+        double deltag = p.deltag[c];
+        double deltavmax = p.deltavmax[c];
+        float[] points = p.points[c];
+        points[0] = (float) s.getX();
+        points[1] = (float) s.getY();
+        int count = 1;
+        while (count < pointCount) {
+            for (int k = 0; k < stepsPerPoint; k++) {
+                s.update(this.dt, deltag, deltavmax, this.wind, t);
+                t += this.dt;
+            }
+            if (Double.isNaN(s.getX()) || Double.isNaN(s.getY())) {
+                break;
+            }
+            points[2 * count] = (float) s.getX();
+            points[2 * count + 1] = (float) s.getY();
+            count++;
+        }
+        p.counts[c] = count;
+    }
+
+    private static double clamp(double v, double max) {
+        return Math.max(-max, Math.min(max, v));
+    }
+
+    /**
+     * Arret du pool en arriere-plan
+     */
+    public void close() {
+        this.pool.shutdownNow();
+    }
+
+    /**
+     * Dernieres trajectoires calculees
+     * @return les trajectoires, null avant le premier calcul
+     */
+    public Paths getPaths() {
+        return paths;
+    }
+
+    /**
+     * Abandon des trajectoires calculees, par exemple quand l'apercu est masque
+     */
+    public void clear() {
+        this.paths = null;
+    }
+
+    public boolean isBusy() {
+        return this.busy.get();
+    }
+
+    public double getHorizon() {
+        return horizon;
+    }
+
+    public void setHorizon(double horizon) {
+        this.horizon = horizon;
+    }
+
+    public double getPointInterval() {
+        return pointInterval;
+    }
+
+    public void setPointInterval(double pointInterval) {
+        this.pointInterval = pointInterval;
+    }
+
+    public double getDeltagStep() {
+        return deltagStep;
+    }
+
+    public void setDeltagStep(double deltagStep) {
+        this.deltagStep = deltagStep;
+    }
+
+    public double getDeltavmaxStep() {
+        return deltavmaxStep;
+    }
+
+    public void setDeltavmaxStep(double deltavmaxStep) {
+        this.deltavmaxStep = deltavmaxStep;
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * La classe <code>HeadlessSimulation</code> execute des scenarios sans
+ * affichage ni dependance a JOGL. Le voilier est integre aussi vite que le
+ * processeur le permet et les resultats sont ecrits au format CSV (separateur
+ * <code>;</code>), un fichier par scenario.
+ * <p>
+ * Utilisation :
+ * <pre>
+ * java jphs.sailboatsimulation.HeadlessSimulation [-o repertoire] [-j threads] scenario...
+ * </pre>
+ * Les scenarios sont executes en parallele, un scenario par thread. Le
+ * fichier de resultats porte le nom du scenario ; si plusieurs scenarios ont
+ * le meme nom (<code>a/cas.txt</code> et <code>b/cas.txt</code>), leur rang
+ * sur la ligne de commande est ajoute au nom (<code>cas-1.csv</code>,
+ * <code>cas-2.csv</code>).
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class HeadlessSimulation {
+    /**
+     * Entete des fichiers de resultats
+     */
+    public static final String HEADER = "t;x;y;theta;phi;xPoint;yPoint;thetaPoint;phiPoint;deltag;deltav";
+    /**
+     * Angle du safran avant la premiere commande
+     */
+    public static final double DEFAULT_DELTAG = 0;
+    /**
+     * Angle de la voile avant la premiere commande
+     */
+    public static final double DEFAULT_DELTAVMAX = 0.3;
+
+    /**
+     * Scenario a executer
+     */
+    private Scenario scenario;
+
+    /**
+     * Constructeur
+     * @param scenario scenario a executer
+     */
+    public HeadlessSimulation(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    /**
+     * Execution du scenario
+     * @param out destination des resultats, null pour ne rien ecrire
+     * @return le voilier dans son etat final
+     * @throws IOException si l'ecriture des resultats echoue
+     */
+    public Sailboat run(Writer out) throws IOException {
+        Sailboat sailboat = this.scenario.createSailboat();
+        WindModel wind = this.scenario.createWindModel();
+        double dt = this.scenario.getDt();
+        long steps = Math.round(this.scenario.getDuration() / dt);
+        long sampleEvery = Math.max(1, Math.round(this.scenario.getSamplePeriod() / dt));
+        double deltag = DEFAULT_DELTAG;
+        double deltavmax = DEFAULT_DELTAVMAX;
+        int nextControl = 0;
+        int controlCount = this.scenario.getControlCount();
+        StringBuilder line = new StringBuilder(256);
+        if (out != null) {
+            out.write(HEADER);
+            out.write('\n');
+            writeSample(out, line, 0, sailboat);
+        }
+        for (long step = 0; step < steps; step++) {
+            double t = step * dt;
+            while (nextControl < controlCount && this.scenario.getControlTime(nextControl) <= t) {
+                deltag = this.scenario.getControlDeltag(nextControl);
+                deltavmax = this.scenario.getControlDeltavmax(nextControl);
+                nextControl++;
+            }
+            sailboat.update(dt, deltag, deltavmax, wind, t);
+            if (out != null && (step + 1) % sampleEvery == 0) {
+                writeSample(out, line, (step + 1) * dt, sailboat);
+            }
+        }
+        return sailboat;
+    }
+
+    /**
+     * Ecriture d'une ligne de resultats
+     * @param out destination des resultats
+     * @param line tampon reutilise pour construire la ligne
+     * @param t instant simule
+     * @param sailboat voilier a ecrire
+     * @throws IOException si l'ecriture echoue
+     */
+    private static void writeSample(Writer out, StringBuilder line, double t, Sailboat sailboat) throws IOException {
+        line.setLength(0);
+        line.append(t).append(';')
+                .append(sailboat.getX()).append(';')
+                .append(sailboat.getY()).append(';')
+                .append(sailboat.getTheta()).append(';')
+                .append(sailboat.getPhi()).append(';')
+                .append(sailboat.getxPoint()).append(';')
+                .append(sailboat.getyPoint()).append(';')
+                .append(sailboat.getThetaPoint()).append(';')
+                .append(sailboat.getPhiPoint()).append(';')
+                .append(sailboat.getDeltag()).append(';')
+                .append(sailboat.getDeltav()).append('\n');
+        out.append(line);
+    }
+
+    /**
+     * Execution d'un scenario et ecriture de ses resultats dans un repertoire
+     * @param scenarioFile fichier de scenario
+     * @param outputDir repertoire des resultats
+     * @return le fichier de resultats et le bilan de l'integrateur
+     * @throws IOException si la lecture ou l'ecriture echoue
+     */
+    public static String run(Path scenarioFile, Path outputDir) throws IOException {
+        return run(scenarioFile, outputDir, null);
+    }
+
+    /**
+     * Execution d'un scenario et ecriture de ses resultats dans un fichier nomme
+     * @param scenarioFile fichier de scenario
+     * @param outputDir repertoire des resultats
+     * @param resultName nom du fichier de resultats sans extension, null pour le nom du scenario
+     * @return le fichier de resultats et le bilan de l'integrateur
+     * @throws IOException si la lecture ou l'ecriture echoue
+     */
+    public static String run(Path scenarioFile, Path outputDir, String resultName) throws IOException {
+        Scenario scenario = Scenario.load(scenarioFile);
+        String name = resultName != null ? resultName : scenario.getName();
+        Path result = outputDir.resolve(name + ".csv");
+        Sailboat sailboat;
+        try (BufferedWriter out = Files.newBufferedWriter(result, StandardCharsets.UTF_8)) {
+            sailboat = new HeadlessSimulation(scenario).run(out);
+        }
+        Integrator integrator = sailboat.getIntegrator();
+        if (integrator instanceof DormandPrinceIntegrator) {
+            return result + " (" + integrator + ")";
+        }
+        return result.toString();
+    }
+
+    /**
+     * Noms des fichiers de resultats : nom de chaque scenario, suivi de son rang a partir de 1 si un autre
+     * scenario porte le meme nom
+     * @param scenarios fichiers de scenario
+     * @return le nom du fichier de resultats de chaque scenario, sans extension
+     */
+    public static List<String> resultNames(List<Path> scenarios) {
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> counts = new HashMap<>();
+        for (Path scenario : scenarios) {
+            String name = scenario.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            if (dot > 0) {
+                name = name.substring(0, dot);
+            }
+            names.add(name);
+            counts.merge(name, 1, Integer::sum);
+        }
+        for (int i = 0; i < names.size(); i++) {
+            if (counts.get(names.get(i)) > 1) {
+                names.set(i, names.get(i) + "-" + (i + 1));
+            }
+        }
+        return names;
+    }
+
+    public static void main(String args[]) throws Exception {
+        Path outputDir = Paths.get(".");
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> scenarios = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-o".equals(args[i]) && i + 1 < args.length) {
+                outputDir = Paths.get(args[++i]);
+            } else if ("-j".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                scenarios.add(Paths.get(args[i]));
+            }
+        }
+        if (scenarios.isEmpty()) {
+            System.err.println("usage: HeadlessSimulation [-o repertoire] [-j threads] scenario...");
+            System.exit(2);
+        }
+        Files.createDirectories(outputDir);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, scenarios.size())));
+        List<Future<String>> results = new ArrayList<>();
+        final Path dir = outputDir;
+        final List<String> names = resultNames(scenarios);
+        long start = System.nanoTime();
+        for (int i = 0; i < scenarios.size(); i++) {
+            final Path scenario = scenarios.get(i);
+            final String name = names.get(i);
+            results.add(executor.submit(() -> HeadlessSimulation.run(scenario, dir, name)));
+        }
+        int failures = 0;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                System.out.println(scenarios.get(i) + " -> " + results.get(i).get());
+            } catch (ExecutionException e) {
+                failures++;
+                System.err.println(scenarios.get(i) + ": " + e.getCause());
+            }
+        }
+        executor.shutdown();
+        System.out.println(scenarios.size() + " scenario(s) en " + (System.nanoTime() - start) / 1000000 + " ms");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * La classe <code>HeunIntegrator</code> implemente la methode de Heun
+ * (trapezes explicite) : un pas d'Euler predicteur puis une correction par
+ * la moyenne des derivees aux deux extremites. Ordre 2.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class HeunIntegrator implements Integrator {
+    /**
+     * Etat predit et derivee a l'etat predit
+     */
+    private double[] predicted, dPredicted;
+
+    @Override
+    public Integrator copy() {
+        return new HeunIntegrator();
+    }
+
+    @Override
+    public void integrate(StateDerivative f, double t, double[] state, double[] dState, double dt) {
+        int n = state.length;
+        if (this.predicted == null || this.predicted.length != n) {
+            this.predicted = new double[n];
+            this.dPredicted = new double[n];
+        }
+        for (int i = 0; i < n; i++) {
+            this.predicted[i] = state[i] + dState[i] * dt;
+        }
+        f.computeDerivative(t + dt, this.predicted, this.dPredicted);
+        for (int i = 0; i < n; i++) {
+            state[i] = state[i] + 0.5 * dt * (dState[i] + this.dPredicted[i]);
+        }
+    }
+}
@@ -52,6 +52,10 @@ public class Hull {
      * Distance centre de gravite - point d'application de la force anti-derive selon z1
      */
     private double ladz1;
+    /**
+     * Repere reutilise par la surcharge de getJy prenant le voilier
+     */
+    private final KinematicFrame legacyFrame = new KinematicFrame();
 
     /**
      * Constructeur
@@ -76,6 +80,22 @@ public class Hull {
         this.ladz1 = 1.5;
 	}
 
+    /**
+     * Constructeur : copie d'une coque
+     * @param other coque copiee
+     */
+    public Hull(Hull other) {
+        this.m = other.m;
+        this.Jx = other.Jx;
+        this.Jz = other.Jz;
+        this.alphaF = other.alphaF;
+        this.alphaPhi = other.alphaPhi;
+        this.rG = other.rG;
+        this.rV = other.rV;
+        this.sAntiderive = other.sAntiderive;
+        this.ladz1 = other.ladz1;
+    }
+
     /**
      * Getter de l'attribut ladz1
      * @return distance entre le centre de gravite et le point d'application de la force anti-derive selon z1
@@ -145,6 +165,30 @@ public class Hull {
 		return alphaPhi;
 	}
 
+    /**
+     * Setter pour l'attribut alphaPhi
+     * @param alphaPhi coefficient d'amortissement des rotations
+     */
+	public void setAlphaPhi(double alphaPhi) {
+		this.alphaPhi = alphaPhi;
+	}
+
+    /**
+     * Getter pour l'attribut alphaF
+     * @return la valeur du coefficient d'amortissement des mouvements longitudinaux
+     */
+	public double getAlphaF() {
+		return alphaF;
+	}
+
+    /**
+     * Setter pour l'attribut alphaF
+     * @param alphaF coefficient d'amortissement des mouvements longitudinaux
+     */
+	public void setAlphaF(double alphaF) {
+		this.alphaF = alphaF;
+	}
+
 
     /**
      * Getter pour l'attribut rG
@@ -165,7 +209,8 @@ public class Hull {
 
 
     /**
-     * Calcul du coefficient d'inertie selon l'axe Gy1
+     * Calcul du coefficient d'inertie selon l'axe Gy1 ; le repere est recalcule dans un objet reutilise par cette
+     * coque, la surcharge prenant un <code>KinematicFrame</code> evite ce calcul
      * @param sailboat le voilier a considerer
      * @param mfvy1 le moment de la force velique suivant l'axe Gy1
      * @param mfdevy1 le moment de la force de deviation suivant l'axe Gy1
@@ -175,17 +220,33 @@ public class Hull {
      */
 	public double getJy(Sailboat sailboat, double mfvy1, double mfdevy1,double mfcy1,  double mfvz1, double mfdevz1,
         double mfcz1) {
-		double a = (sailboat.getPhiPoint() * sailboat.getThetaPoint() * Math.pow(Math.sin(sailboat.getTheta()), 2.))
-                / (this.Jz * Math.cos(sailboat.getTheta()));
+        KinematicFrame frame = this.legacyFrame;
+        frame.set(sailboat, sailboat.getDeltav(), sailboat.getDeltag());
+        return this.getJy(frame, mfvy1, mfdevy1, mfcy1, mfvz1, mfdevz1, mfcz1);
+    }
+
+    /**
+     * Calcul du coefficient d'inertie selon l'axe Gy1 a partir du repere du pas courant
+     * @param frame repere cinematique du voilier
+     * @param mfvy1 le moment de la force velique suivant l'axe Gy1
+     * @param mfdevy1 le moment de la force de deviation suivant l'axe Gy1
+     * @param mfvz1 le moment de la force velique suivant l'axe Gz1
+     * @param mfdevz1 le moment de la force de deviation suivant l'axe Gz1
+     * @return la valeur du coefficient d'inertie selon l'axe Gy1, 0 si le calcul est impossible
+     */
+    public double getJy(KinematicFrame frame, double mfvy1, double mfdevy1, double mfcy1, double mfvz1,
+        double mfdevz1, double mfcz1) {
+        double sinTheta = frame.getSinTheta();
+        double cosTheta = frame.getCosTheta();
+        double phiPointThetaPoint = frame.getPhiPoint() * frame.getThetaPoint();
+		double a = (phiPointThetaPoint * Math.pow(sinTheta, 2.)) / (this.Jz * cosTheta);
         if (a == 0) {
             return 0;
         }
-        double b = -(sailboat.getPhiPoint() * sailboat.getThetaPoint() * Math.cos(sailboat.getTheta()));
-        b -= (Math.sin(sailboat.getTheta()) / (this.Jz * Math.cos(sailboat.getTheta()))) *
-                (mfvz1 + mfdevz1 + mfcz1 + sailboat.getPhiPoint() * sailboat.getThetaPoint() * Math.sin(sailboat.getTheta()) *
-                        (this.Jx + this.Jz));
-        double c = mfvy1 + mfdevy1 + mfcy1 - sailboat.getPhiPoint() * sailboat.getThetaPoint() *
-                Math.cos(sailboat.getTheta()) * (this.Jx - this.Jz);
+        double b = -(phiPointThetaPoint * cosTheta);
+        b -= (sinTheta / (this.Jz * cosTheta)) *
+                (mfvz1 + mfdevz1 + mfcz1 + phiPointThetaPoint * sinTheta * (this.Jx + this.Jz));
+        double c = mfvy1 + mfdevy1 + mfcy1 - phiPointThetaPoint * cosTheta * (this.Jx - this.Jz);
         double delta = Math.pow(b, 2.) - 4 * a * c;
         if (delta > 0) {
             double sol1 = (-b - Math.sqrt(delta)) / (2 * a);
@@ -0,0 +1,210 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.GL2ES2;
+
+/**
+ * La classe <code>InstanceBuffer</code> contient les attributs par instance
+ * dessines par <code>InstancedRenderer</code> : pour chaque voilier ou
+ * bouee, position, cap <code>phi</code>, gite <code>theta</code>, angles du
+ * safran et de la voile, courbure de la voile et couleur.
+ * <p>
+ * Les attributs sont ecrits directement dans un tampon en memoire directe,
+ * depuis l'etat d'un <code>Sailboat</code> ou d'une
+ * <code>SailboatFleet</code>, puis envoyes en une fois a la carte graphique
+ * par <code>upload</code>. Le remplissage ne demande pas de contexte
+ * OpenGL ; l'envoi et la liberation doivent etre faits avec le contexte
+ * courant.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class InstanceBuffer {
+    /**
+     * Position des attributs dans une instance : pose (x, y, phi, theta), commandes (deltag, deltav,
+     * courbure) et couleur (rouge, vert, bleu, 1)
+     */
+    public static final int X = 0, Y = 1, PHI = 2, THETA = 3, DELTAG = 4, DELTAV = 5, CURVATURE = 6,
+            RED = 8, GREEN = 9, BLUE = 10, ALPHA = 11;
+    /**
+     * Nombre de reels par instance
+     */
+    public static final int FLOATS_PER_INSTANCE = 12;
+    /**
+     * Taille d'une instance en octets
+     */
+    public static final int STRIDE = FLOATS_PER_INSTANCE * Float.BYTES;
+    /**
+     * Nombre maximal d'instances
+     */
+    private final int capacity;
+    /**
+     * Attributs des instances
+     */
+    private final FloatBuffer data;
+    /**
+     * Nombre d'instances a dessiner
+     */
+    private int count;
+    /**
+     * Nom OpenGL du tampon, 0 avant le premier envoi
+     */
+    private int buffer;
+
+    /**
+     * Constructeur
+     * @param capacity nombre maximal d'instances
+     */
+    public InstanceBuffer(int capacity) {
+        this.capacity = capacity;
+        this.data = ByteBuffer.allocateDirect(capacity * STRIDE).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        for (int i = 0; i < capacity; i++) {
+            this.setColor(i, 1, 1, 1);
+        }
+    }
+
+    /**
+     * Ecriture de la pose et des commandes d'une instance
+     * @param i indice de l'instance
+     * @param x abscisse
+     * @param y ordonnee
+     * @param phi cap
+     * @param theta gite
+     * @param deltag angle du safran
+     * @param deltav angle de la voile
+     * @param curvature courbure de la voile
+     */
+    public void set(int i, double x, double y, double phi, double theta, double deltag, double deltav,
+            float curvature) {
+        int o = i * FLOATS_PER_INSTANCE;
+        FloatBuffer d = this.data;
+        d.put(o + X, (float) x);
+        d.put(o + Y, (float) y);
+        d.put(o + PHI, (float) phi);
+        d.put(o + THETA, (float) theta);
+        d.put(o + DELTAG, (float) deltag);
+        d.put(o + DELTAV, (float) deltav);
+        d.put(o + CURVATURE, curvature);
+    }
+
+    /**
+     * Ecriture d'une instance fixe et droite, une bouee par exemple
+     * @param i indice de l'instance
+     * @param x abscisse
+     * @param y ordonnee
+     */
+    public void setPosition(int i, double x, double y) {
+        this.set(i, x, y, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Ecriture d'une instance depuis l'etat d'un voilier
+     * @param i indice de l'instance
+     * @param sailboat voilier
+     */
+    public void setBoat(int i, Sailboat sailboat) {
+        this.set(i, sailboat.getX(), sailboat.getY(), sailboat.getPhi(), sailboat.getTheta(),
+                sailboat.getDeltag(), sailboat.getDeltav(), BoatGeometry.sailCurvature(sailboat.getTheSail().getfV()));
+    }
+
+    /**
+     * Ecriture des instances depuis l'etat d'une flotte, en gardant leurs couleurs. Le nombre d'instances
+     * devient la taille de la flotte.
+     * @param fleet flotte
+     */
+    public void setFleet(SailboatFleet fleet) {
+        int n = fleet.getSize();
+        if (n > this.capacity) {
+            throw new IllegalArgumentException("flotte plus grande que le tampon : " + n + " > " + this.capacity);
+        }
+        for (int i = 0; i < n; i++) {
+            this.set(i, fleet.getX(i), fleet.getY(i), fleet.getPhi(i), fleet.getTheta(i), fleet.getDeltag(i),
+                    fleet.getDeltav(i), BoatGeometry.sailCurvature(fleet.getfV(i)));
+        }
+        this.count = n;
+    }
+
+    /**
+     * Ecriture de la couleur d'une instance
+     * @param i indice de l'instance
+     * @param r composante rouge
+     * @param g composante verte
+     * @param b composante bleue
+     */
+    public void setColor(int i, float r, float g, float b) {
+        int o = i * FLOATS_PER_INSTANCE;
+        this.data.put(o + RED, r);
+        this.data.put(o + GREEN, g);
+        this.data.put(o + BLUE, b);
+        this.data.put(o + ALPHA, 1);
+    }
+
+    /**
+     * Lecture d'un attribut d'une instance
+     * @param i indice de l'instance
+     * @param field position de l'attribut dans l'instance
+     * @return la valeur
+     */
+    public float get(int i, int field) {
+        return this.data.get(i * FLOATS_PER_INSTANCE + field);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        if (count < 0 || count > this.capacity) {
+            throw new IllegalArgumentException("nombre hors de [0, " + this.capacity + "] : " + count);
+        }
+        this.count = count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Nom OpenGL du tampon, valide apres <code>upload</code>
+     * @return le nom du tampon
+     */
+    public int getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Envoi des <code>count</code> premieres instances a la carte graphique
+     * @param gl contexte OpenGL
+     */
+    public void upload(GL2 gl) {
+        if (this.buffer == 0) {
+            int[] names = new int[1];
+            gl.glGenBuffers(1, names, 0);
+            this.buffer = names[0];
+        }
+        this.data.clear();
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, this.buffer);
+        gl.glBufferData(GL.GL_ARRAY_BUFFER, (long) this.capacity * STRIDE, null, GL2ES2.GL_STREAM_DRAW);
+        gl.glBufferSubData(GL.GL_ARRAY_BUFFER, 0, (long) this.count * STRIDE, this.data);
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Liberation du tampon de la carte graphique
+     * @param gl contexte OpenGL
+     */
+    public void dispose(GL2 gl) {
+        if (this.buffer != 0) {
+            gl.glDeleteBuffers(1, new int[] { this.buffer }, 0);
+            this.buffer = 0;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.nio.charset.StandardCharsets;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.GL2ES2;
+import com.jogamp.opengl.GLException;
+
+/**
+ * La classe <code>InstancedRenderer</code> dessine une flotte de voiliers ou
+ * un champ de bouees avec un seul appel de dessin par maillage
+ * (<code>glDrawArraysInstanced</code>), quel que soit le nombre
+ * d'instances. Chaque instance est placee par le nuanceur de sommets a
+ * partir des attributs d'un <code>InstanceBuffer</code> : translation, cap,
+ * gite, rotation du safran ou de la voile autour de son axe, et courbure de
+ * la voile.
+ * <p>
+ * Le nuanceur est en GLSL 1.20 et reprend la camera et la lumiere 0 du
+ * pipeline fixe, ce qui le rend utilisable sur tout contexte de
+ * compatibilite, y compris le rendu logiciel de Mesa (llvmpipe). La
+ * position est liee a l'attribut 0, que les profils de compatibilite
+ * exigent actif. Si le contexte n'a pas le dessin par instances
+ * (<code>ARB_instanced_arrays</code>), les instances sont dessinees une par
+ * une avec les memes attributs constants.
+ * <p>
+ * Les coques, safrans et greements gardent les couleurs de leurs sommets ;
+ * la voile et les bouees prennent la couleur de l'instance. Les methodes
+ * doivent etre appelees avec le contexte OpenGL courant.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class InstancedRenderer {
+    /**
+     * Indices des attributs des sommets et des instances
+     */
+    public static final int POSITION = 0, NORMAL = 1, COLOR = 2, POSE = 3, CONTROL = 4, INSTANCE_COLOR = 5;
+    /**
+     * Nuanceur de sommets
+     */
+    private static final String VERTEX_SHADER = String.join("\n",
+            "#version 120",
+            "attribute vec3 aPosition;",
+            "attribute vec3 aNormal;",
+            "attribute vec3 aColor;",
+            "attribute vec4 aPose;",            // x, y, phi, theta
+            "attribute vec4 aControl;",         // deltag, deltav, courbure
+            "attribute vec4 aInstanceColor;",
+            "uniform vec3 uPivot;",             // axe de la piece dans le repere du voilier
+            "uniform vec2 uSelect;",            // (1, 0) safran, (0, 1) voile, (0, 0) coque
+            "uniform float uCurved;",
+            "uniform float uInstanceColor;",
+            "varying vec4 vColor;",
+            "mat3 rotZ(float a) { float c = cos(a), s = sin(a); return mat3(c, s, 0.0, -s, c, 0.0, 0.0, 0.0, 1.0); }",
+            "mat3 rotX(float a) { float c = cos(a), s = sin(a); return mat3(1.0, 0.0, 0.0, 0.0, c, s, 0.0, -s, c); }",
+            "void main() {",
+            "    float k = mix(1.0, aControl.z, uCurved);",
+            "    vec3 p = vec3(aPosition.x, k * aPosition.y, aPosition.z);",
+            "    vec3 n = vec3(k * aNormal.x, aNormal.y, k * aNormal.z);",
+            "    mat3 part = rotZ(dot(aControl.xy, uSelect));",
+            "    mat3 boat = rotZ(aPose.z) * rotX(aPose.w);",
+            "    p = boat * (part * p + uPivot) + vec3(aPose.xy, 0.0);",
+            "    n = normalize(gl_NormalMatrix * (boat * (part * n)));",
+            "    vec4 eye = gl_ModelViewMatrix * vec4(p, 1.0);",
+            "    vec4 light = gl_LightSource[0].position;",
+            "    vec3 l = normalize(light.xyz - light.w * eye.xyz);",
+            "    vec3 c = mix(aColor, aInstanceColor.rgb, uInstanceColor);",
+            "    vec4 e = gl_LightModel.ambient + gl_LightSource[0].ambient",
+            "            + gl_LightSource[0].diffuse * max(dot(n, l), 0.0);",
+            "    vColor = vec4(c * e.rgb, 1.0);",
+            "    gl_Position = gl_ProjectionMatrix * eye;",
+            "}");
+    /**
+     * Nuanceur de fragments
+     */
+    private static final String FRAGMENT_SHADER = String.join("\n",
+            "#version 120",
+            "varying vec4 vColor;",
+            "void main() {",
+            "    gl_FragColor = vColor;",
+            "}");
+
+    /**
+     * Maillages d'un voilier pour le dessin par instances
+     */
+    private final VertexBufferMesh hull, rudder, rig, sail;
+    /**
+     * Maillage d'une bouee, pris dans le cache
+     */
+    private final VertexBufferMesh buoy;
+    /**
+     * Programme et emplacements de ses variables uniformes
+     */
+    private final int program, pivot, select, curved, instanceColor;
+    /**
+     * Vrai si le contexte sait dessiner par instances
+     */
+    private final boolean instanced;
+
+    /**
+     * Constructeur : compilation du nuanceur et construction des maillages
+     * @param gl contexte OpenGL
+     * @param meshes cache qui fournit la sphere des bouees
+     * @throws GLException si le nuanceur ne compile pas
+     */
+    public InstancedRenderer(GL2 gl, MeshCache meshes) {
+        this.program = link(gl, compile(gl, GL2ES2.GL_VERTEX_SHADER, VERTEX_SHADER),
+                compile(gl, GL2ES2.GL_FRAGMENT_SHADER, FRAGMENT_SHADER));
+        this.pivot = gl.glGetUniformLocation(this.program, "uPivot");
+        this.select = gl.glGetUniformLocation(this.program, "uSelect");
+        this.curved = gl.glGetUniformLocation(this.program, "uCurved");
+        this.instanceColor = gl.glGetUniformLocation(this.program, "uInstanceColor");
+        this.instanced = gl.isFunctionAvailable("glVertexAttribDivisor")
+                && gl.isFunctionAvailable("glDrawArraysInstanced");
+        this.hull = new VertexBufferMesh(gl, BoatGeometry.hull());
+        this.rudder = new VertexBufferMesh(gl, BoatGeometry.rudderWithTiller());
+        this.rig = new VertexBufferMesh(gl, BoatGeometry.rig());
+        MeshBuilder sailBuilder = new MeshBuilder();
+        BoatGeometry.curvedSail(sailBuilder, 1);
+        this.sail = new VertexBufferMesh(gl, sailBuilder, false);
+        this.buoy = meshes.sphere(gl, 1, 10, 10);
+    }
+
+    /**
+     * Compilation d'un nuanceur
+     */
+    private static int compile(GL2 gl, int type, String source) {
+        int shader = gl.glCreateShader(type);
+        gl.glShaderSource(shader, 1, new String[] { source }, null, 0);
+        gl.glCompileShader(shader);
+        int[] status = new int[1];
+        gl.glGetShaderiv(shader, GL2ES2.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == GL.GL_FALSE) {
+            String log = shaderLog(gl, shader);
+            gl.glDeleteShader(shader);
+            throw new GLException("echec de la compilation du shader : " + log);
+        }
+        return shader;
+    }
+
+    /**
+     * Edition des liens du programme, avec les attributs a leurs indices fixes
+     */
+    private static int link(GL2 gl, int vertexShader, int fragmentShader) {
+        int p = gl.glCreateProgram();
+        gl.glAttachShader(p, vertexShader);
+        gl.glAttachShader(p, fragmentShader);
+        gl.glBindAttribLocation(p, POSITION, "aPosition");
+        gl.glBindAttribLocation(p, NORMAL, "aNormal");
+        gl.glBindAttribLocation(p, COLOR, "aColor");
+        gl.glBindAttribLocation(p, POSE, "aPose");
+        gl.glBindAttribLocation(p, CONTROL, "aControl");
+        gl.glBindAttribLocation(p, INSTANCE_COLOR, "aInstanceColor");
+        gl.glLinkProgram(p);
+        gl.glDeleteShader(vertexShader);
+        gl.glDeleteShader(fragmentShader);
+        int[] status = new int[1];
+        gl.glGetProgramiv(p, GL2ES2.GL_LINK_STATUS, status, 0);
+        if (status[0] == GL.GL_FALSE) {
+            int[] length = new int[1];
+            gl.glGetProgramiv(p, GL2ES2.GL_INFO_LOG_LENGTH, length, 0);
+            byte[] log = new byte[Math.max(1, length[0])];
+            gl.glGetProgramInfoLog(p, log.length, length, 0, log, 0);
+            gl.glDeleteProgram(p);
+            throw new GLException("echec de l'edition de liens du shader : "
+                    + new String(log, 0, length[0], StandardCharsets.US_ASCII));
+        }
+        return p;
+    }
+
+    /**
+     * Journal de compilation d'un nuanceur
+     */
+    private static String shaderLog(GL2 gl, int shader) {
+        int[] length = new int[1];
+        gl.glGetShaderiv(shader, GL2ES2.GL_INFO_LOG_LENGTH, length, 0);
+        byte[] log = new byte[Math.max(1, length[0])];
+        gl.glGetShaderInfoLog(shader, log.length, length, 0, log, 0);
+        return new String(log, 0, length[0], StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Dessin d'une flotte : coques, safrans, greements et voiles, un appel par maillage
+     * @param gl contexte OpenGL
+     * @param boats instances des voiliers, envoyees auparavant par <code>upload</code>
+     */
+    public void drawBoats(GL2 gl, InstanceBuffer boats) {
+        gl.glUseProgram(this.program);
+        this.draw(gl, this.hull, boats, 0, 0, 0, 0, 0, false, false);
+        this.draw(gl, this.rudder, boats, -1, 0, 0, 1, 0, false, false);
+        this.draw(gl, this.rig, boats, 5, 0, 0, 0, 1, false, false);
+        this.draw(gl, this.sail, boats, 5, 0, 0, 0, 1, true, true);
+        gl.glUseProgram(0);
+    }
+
+    /**
+     * Dessin d'un champ de bouees dans la couleur de chaque instance
+     * @param gl contexte OpenGL
+     * @param buoys instances des bouees, envoyees auparavant par <code>upload</code>
+     */
+    public void drawBuoys(GL2 gl, InstanceBuffer buoys) {
+        gl.glUseProgram(this.program);
+        this.draw(gl, this.buoy, buoys, 0, 0, 0, 0, 0, false, true);
+        gl.glUseProgram(0);
+    }
+
+    /**
+     * Dessin d'un maillage pour toutes les instances
+     */
+    private void draw(GL2 gl, VertexBufferMesh mesh, InstanceBuffer instances, float px, float py, float pz,
+            float selectRudder, float selectSail, boolean curvedSail, boolean useInstanceColor) {
+        int count = instances.getCount();
+        if (count == 0) {
+            return;
+        }
+        gl.glUniform3f(this.pivot, px, py, pz);
+        gl.glUniform2f(this.select, selectRudder, selectSail);
+        gl.glUniform1f(this.curved, curvedSail ? 1 : 0);
+        gl.glUniform1f(this.instanceColor, useInstanceColor ? 1 : 0);
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, mesh.getBuffer());
+        gl.glEnableVertexAttribArray(POSITION);
+        gl.glEnableVertexAttribArray(NORMAL);
+        gl.glVertexAttribPointer(POSITION, 3, GL.GL_FLOAT, false, VertexBufferMesh.STRIDE,
+                MeshBuilder.POSITION * Float.BYTES);
+        gl.glVertexAttribPointer(NORMAL, 3, GL.GL_FLOAT, false, VertexBufferMesh.STRIDE,
+                MeshBuilder.NORMAL * Float.BYTES);
+        if (useInstanceColor) {
+            gl.glVertexAttrib4f(COLOR, 1, 1, 1, 1);
+        } else {
+            gl.glEnableVertexAttribArray(COLOR);
+            gl.glVertexAttribPointer(COLOR, 3, GL.GL_FLOAT, false, VertexBufferMesh.STRIDE,
+                    MeshBuilder.COLOR * Float.BYTES);
+        }
+        if (this.instanced) {
+            gl.glBindBuffer(GL.GL_ARRAY_BUFFER, instances.getBuffer());
+            this.instanceAttribute(gl, POSE, InstanceBuffer.X);
+            this.instanceAttribute(gl, CONTROL, InstanceBuffer.DELTAG);
+            this.instanceAttribute(gl, INSTANCE_COLOR, InstanceBuffer.RED);
+            gl.glDrawArraysInstanced(GL.GL_TRIANGLES, 0, mesh.getVertexCount(), count);
+            for (int attribute = POSE; attribute <= INSTANCE_COLOR; attribute++) {
+                gl.glVertexAttribDivisor(attribute, 0);
+                gl.glDisableVertexAttribArray(attribute);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                gl.glVertexAttrib4f(POSE, instances.get(i, InstanceBuffer.X), instances.get(i, InstanceBuffer.Y),
+                        instances.get(i, InstanceBuffer.PHI), instances.get(i, InstanceBuffer.THETA));
+                gl.glVertexAttrib4f(CONTROL, instances.get(i, InstanceBuffer.DELTAG),
+                        instances.get(i, InstanceBuffer.DELTAV), instances.get(i, InstanceBuffer.CURVATURE), 0);
+                gl.glVertexAttrib4f(INSTANCE_COLOR, instances.get(i, InstanceBuffer.RED),
+                        instances.get(i, InstanceBuffer.GREEN), instances.get(i, InstanceBuffer.BLUE), 1);
+                gl.glDrawArrays(GL.GL_TRIANGLES, 0, mesh.getVertexCount());
+            }
+        }
+        if (!useInstanceColor) {
+            gl.glDisableVertexAttribArray(COLOR);
+        }
+        gl.glDisableVertexAttribArray(NORMAL);
+        gl.glDisableVertexAttribArray(POSITION);
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Liaison d'un attribut de 4 reels au tampon des instances, avance d'une instance a la fois
+     */
+    private void instanceAttribute(GL2 gl, int attribute, int field) {
+        gl.glEnableVertexAttribArray(attribute);
+        gl.glVertexAttribPointer(attribute, 4, GL.GL_FLOAT, false, InstanceBuffer.STRIDE, field * Float.BYTES);
+        gl.glVertexAttribDivisor(attribute, 1);
+    }
+
+    public boolean isInstanced() {
+        return instanced;
+    }
+
+    /**
+     * Liberation du programme et des maillages propres ; la sphere reste au cache
+     * @param gl contexte OpenGL
+     */
+    public void dispose(GL2 gl) {
+        gl.glDeleteProgram(this.program);
+        this.hull.dispose(gl);
+        this.rudder.dispose(gl);
+        this.rig.dispose(gl);
+        this.sail.dispose(gl);
+    }
+}
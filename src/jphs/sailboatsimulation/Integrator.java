@@ -0,0 +1,63 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * L'interface <code>Integrator</code> decrit un schema d'integration
+ * numerique a pas fixe d'un systeme <code>StateDerivative</code>.
+ * <p>
+ * La derivee a l'instant initial est fournie par l'appelant, qui l'a en
+ * general deja calculee : tous les schemas commencent par cette evaluation.
+ * Les schemas qui exploitent la structure d'un systeme du second ordre
+ * supposent que la premiere moitie du vecteur d'etat contient les positions
+ * et la seconde moitie les vitesses correspondantes, comme dans
+ * <code>Sailboat</code>.
+ * <p>
+ * Les implementations conservent des tableaux de travail et ne sont pas
+ * partageables entre threads.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public interface Integrator {
+    /**
+     * Avance l'etat d'un pas de temps
+     * @param f systeme a integrer
+     * @param t instant initial
+     * @param state vecteur d'etat, mis a jour en place
+     * @param dState derivee de l'etat a l'instant initial
+     * @param dt pas de temps
+     */
+    void integrate(StateDerivative f, double t, double[] state, double[] dState, double dt);
+
+    /**
+     * Creation d'un integrateur de meme schema et de memes reglages, sans l'etat ni les tableaux de travail de
+     * celui-ci, par exemple pour integrer avec le meme schema depuis un autre thread
+     * @return un nouvel integrateur
+     */
+    Integrator copy();
+
+    /**
+     * Creation d'un integrateur a partir de son nom
+     * @param name <code>euler</code>, <code>semi-implicit-euler</code>, <code>heun</code>, <code>rk4</code> ou
+     *             <code>dopri5</code> (pas adaptatif regle pour <code>Sailboat</code>)
+     * @return un nouvel integrateur
+     */
+    static Integrator forName(String name) {
+        switch (name) {
+            case "euler":
+                return new EulerIntegrator();
+            case "semi-implicit-euler":
+                return new SemiImplicitEulerIntegrator();
+            case "heun":
+                return new HeunIntegrator();
+            case "rk4":
+                return new RungeKutta4Integrator();
+            case "dopri5":
+                return DormandPrinceIntegrator.forSailboat();
+            default:
+                throw new IllegalArgumentException("integrateur inconnu '" + name + "'");
+        }
+    }
+}
@@ -0,0 +1,454 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * La classe <code>IsochroneRouter</code> cherche la route la plus rapide
+ * entre deux marques dans un vent variable (<code>WindModel</code>) par la
+ * methode des isochrones : a partir du front des points atteints a
+ * l'instant t, chaque point est prolonge pendant <code>step</code>
+ * secondes selon <code>headings</code> caps repartis sur le cercle, et le
+ * front suivant ne garde que les points non domines.
+ * <p>
+ * Un point est domine s'il existe, dans le meme secteur angulaire vu du
+ * depart, un point plus eloigne du depart : l'index des secteurs est un
+ * tableau de <code>sectors</code> cases qui garde le meilleur point de
+ * chaque secteur. Le prolongement des points d'un front est fait en
+ * parallele ; l'elagage, sequentiel et dans l'ordre des points, rend le
+ * meme front quel que soit le nombre de threads.
+ * <p>
+ * La vitesse d'un segment est la vitesse etablie de la polaire, pour l'angle
+ * et la force du vent au debut du segment, ou bien celle d'un
+ * <code>Sailboat</code> simule sur tout le segment, voile et safran regles
+ * d'apres la polaire et cap tenu comme dans <code>PolarGenerator</code>.
+ * La simulation garde la vitesse du voilier d'un segment a l'autre mais
+ * coute <code>step / simulationDt</code> pas par segment.
+ * <p>
+ * L'arrivee est testee a chaque front, cap direct sur la marque : la
+ * premiere arrivee trouvee est la plus rapide a un pas pres.
+ * <pre>
+ * java -cp &lt;classes&gt; jphs.sailboatsimulation.IsochroneRouter polaire.txt scenario.txt x0 y0 x1 y1 [x2 y2 ...]
+ * </pre>
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class IsochroneRouter {
+    /**
+     * Valeurs par defaut du pas entre deux isochrones et de la duree maximale d'une route, en secondes
+     */
+    public static final double DEFAULT_STEP = 600., DEFAULT_HORIZON = 86400.;
+    /**
+     * Nombre de caps essayes et de secteurs par defaut
+     */
+    public static final int DEFAULT_HEADINGS = 72, DEFAULT_SECTORS = 360;
+    /**
+     * Pas d'integration par defaut des segments simules
+     */
+    public static final double DEFAULT_SIMULATION_DT = 0.05;
+
+    /**
+     * Polaire du voilier
+     */
+    private final PolarDiagram polar;
+    /**
+     * Vent
+     */
+    private final WindModel wind;
+    /**
+     * Pas entre deux isochrones et duree maximale d'une route
+     */
+    private double step = DEFAULT_STEP, horizon = DEFAULT_HORIZON;
+    /**
+     * Nombre de caps essayes par point et nombre de secteurs de l'elagage
+     */
+    private int headings = DEFAULT_HEADINGS, sectors = DEFAULT_SECTORS;
+    /**
+     * Vrai si les segments sont simules plutot que tires de la polaire
+     */
+    private boolean simulated;
+    /**
+     * Pas d'integration des segments simules
+     */
+    private double simulationDt = DEFAULT_SIMULATION_DT;
+    /**
+     * Voilier et vent de travail de chaque thread
+     */
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * Constructeur
+     * @param polar polaire du voilier
+     * @param wind vent
+     */
+    public IsochroneRouter(PolarDiagram polar, WindModel wind) {
+        this.polar = polar;
+        this.wind = wind;
+    }
+
+    /**
+     * Point d'un isochrone : position, vitesse et instant, cap du segment qui y mene et point precedent
+     */
+    private static final class Node {
+        final double x, y, vx, vy, t, heading;
+        final Node parent;
+
+        Node(double x, double y, double vx, double vy, double t, double heading, Node parent) {
+            this.x = x;
+            this.y = y;
+            this.vx = vx;
+            this.vy = vy;
+            this.t = t;
+            this.heading = heading;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * Espace de travail d'un thread
+     */
+    private static final class Workspace {
+        final Sailboat boat = new Sailboat();
+        final Wind wind = new Wind();
+        final double[] out = new double[4];
+    }
+
+    /**
+     * Route la plus rapide d'un point a un autre
+     * @param x0 depart selon Ox0
+     * @param y0 depart selon Oy0
+     * @param t0 instant du depart
+     * @param x1 arrivee selon Ox0
+     * @param y1 arrivee selon Oy0
+     * @return la route, null si l'arrivee n'est pas atteinte dans la duree maximale
+     */
+    public Route route(double x0, double y0, double t0, double x1, double y1) {
+        return this.route(new Node(x0, y0, 0, 0, t0, Double.NaN, null), x1, y1);
+    }
+
+    /**
+     * Route la plus rapide passant par une suite de marques, chaque bord partant a l'arrivee du precedent
+     * @param t0 instant du depart
+     * @param marks coordonnees des marques x0, y0, x1, y1..., la premiere etant le depart
+     * @return la route, null si une marque n'est pas atteinte dans la duree maximale
+     */
+    public Route route(double t0, double... marks) {
+        if (marks.length < 4 || marks.length % 2 != 0) {
+            throw new IllegalArgumentException("il faut au moins deux marques, en couples x y");
+        }
+        Node start = new Node(marks[0], marks[1], 0, 0, t0, Double.NaN, null);
+        Route route = null;
+        for (int m = 2; m < marks.length; m += 2) {
+            route = this.route(start, marks[m], marks[m + 1]);
+            if (route == null) {
+                return null;
+            }
+            start = route.last;
+        }
+        return route;
+    }
+
+    /**
+     * Propagation des isochrones depuis un point jusqu'a une marque
+     */
+    private Route route(Node start, double x1, double y1) {
+        Node[] front = { start };
+        double end = start.t + this.horizon;
+        int k = this.headings;
+        int isochrones = 0;
+        while (front.length > 0 && front[0].t < end) {
+            final Node[] current = front;
+            final double duration = Math.min(this.step, end - current[0].t);
+            Node[] candidates = new Node[current.length * (k + 1)];
+            IntStream.range(0, current.length).parallel().forEach(n -> {
+                Node from = current[n];
+                for (int h = 0; h < k; h++) {
+                    candidates[n * (k + 1) + h] = this.advance(from, 2 * Math.PI * h / k, duration);
+                }
+                candidates[n * (k + 1) + k] = this.arrival(from, x1, y1, duration);
+            });
+            Node best = null;
+            for (int n = 0; n < current.length; n++) {
+                Node a = candidates[n * (k + 1) + k];
+                if (a != null && (best == null || a.t < best.t)) {
+                    best = a;
+                }
+            }
+            isochrones++;
+            if (best != null) {
+                return new Route(best, isochrones);
+            }
+            front = this.prune(start, candidates);
+        }
+        return null;
+    }
+
+    /**
+     * Prolongement d'un point selon un cap
+     * @return le point atteint, null si la simulation diverge
+     */
+    private Node advance(Node from, double heading, double duration) {
+        Workspace w = this.workspaces.get();
+        if (!this.propagate(from, heading, duration, w)) {
+            return null;
+        }
+        double[] o = w.out;
+        return new Node(o[0], o[1], o[2], o[3], from.t + duration, heading, from);
+    }
+
+    /**
+     * Essai d'arrivee cap direct sur la marque
+     * @return le point d'arrivee a l'instant ou la marque est atteinte, null si elle ne l'est pas pendant le pas
+     */
+    private Node arrival(Node from, double x1, double y1, double duration) {
+        double dx = x1 - from.x;
+        double dy = y1 - from.y;
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        if (distance == 0) {
+            return from;
+        }
+        double heading = Math.atan2(dy, dx);
+        Workspace w = this.workspaces.get();
+        if (!this.propagate(from, heading, duration, w)) {
+            return null;
+        }
+        double progress = ((w.out[0] - from.x) * dx + (w.out[1] - from.y) * dy) / distance;
+        if (!(progress >= distance)) {
+            return null;
+        }
+        double fraction = distance / progress;
+        return new Node(x1, y1, w.out[2], w.out[3], from.t + fraction * duration, heading, from);
+    }
+
+    /**
+     * Segment a cap constant, resultat dans <code>w.out</code> : position puis vitesse
+     * @return faux si la simulation diverge
+     */
+    private boolean propagate(Node from, double heading, double duration, Workspace w) {
+        this.wind.sample(from.x, from.y, from.t, w.wind);
+        double tws = w.wind.getWindForce();
+        // le vent souffle vers psi et vient donc de psi + PI
+        double twa = PolarDiagram.normalizeAngle(heading - w.wind.getWindDir() - Math.PI);
+        double[] o = w.out;
+        if (!this.simulated) {
+            double v = this.polar.getSpeed(twa, tws);
+            double vx = v * Math.cos(heading);
+            double vy = v * Math.sin(heading);
+            o[0] = from.x + vx * duration;
+            o[1] = from.y + vy * duration;
+            o[2] = vx;
+            o[3] = vy;
+            return true;
+        }
+        double deltavmax = this.polar.getOptimalSail(twa, tws);
+        double deltag = this.polar.getHelm(twa, tws, deltavmax);
+        Sailboat boat = w.boat;
+        boat.setX(from.x);
+        boat.setY(from.y);
+        boat.setxPoint(from.vx);
+        boat.setyPoint(from.vy);
+        boat.setTheta(0);
+        boat.setThetaPoint(0);
+        boat.setPhi(heading);
+        boat.setPhiPoint(0);
+        double dt = this.simulationDt;
+        int steps = Math.max(1, (int) Math.round(duration / dt));
+        double t = from.t;
+        for (int s = 0; s < steps; s++) {
+            boat.update(duration / steps, deltag, deltavmax, this.wind, t);
+            boat.setPhi(heading);
+            boat.setPhiPoint(0.);
+            t += duration / steps;
+        }
+        o[0] = boat.getX();
+        o[1] = boat.getY();
+        o[2] = boat.getxPoint();
+        o[3] = boat.getyPoint();
+        return !Double.isNaN(o[0]) && !Double.isNaN(o[1]) && !Double.isInfinite(o[0]) && !Double.isInfinite(o[1]);
+    }
+
+    /**
+     * Elagage des points domines : dans chaque secteur vu du depart, seul le point le plus eloigne est garde
+     * @param start depart
+     * @param candidates points prolonges, null pour les segments abandonnes
+     * @return le nouveau front, dans l'ordre des secteurs
+     */
+    private Node[] prune(Node start, Node[] candidates) {
+        Node[] index = new Node[this.sectors];
+        double[] reach = new double[this.sectors];
+        Arrays.fill(reach, -1);
+        double scale = this.sectors / (2 * Math.PI);
+        for (Node c : candidates) {
+            if (c == null) {
+                continue;
+            }
+            double dx = c.x - start.x;
+            double dy = c.y - start.y;
+            double d = dx * dx + dy * dy;
+            int s = Math.min(this.sectors - 1, (int) ((Math.atan2(dy, dx) + Math.PI) * scale));
+            if (d > reach[s]) {
+                reach[s] = d;
+                index[s] = c;
+            }
+        }
+        int count = 0;
+        for (Node n : index) {
+            if (n != null) {
+                index[count++] = n;
+            }
+        }
+        return Arrays.copyOf(index, count);
+    }
+
+    /**
+     * Route calculee : points de passage du depart a l'arrivee
+     */
+    public static final class Route {
+        /**
+         * Point d'arrivee
+         */
+        private final Node last;
+        /**
+         * Points de passage du depart a l'arrivee
+         */
+        private final Node[] points;
+        /**
+         * Nombre d'isochrones du dernier bord
+         */
+        private final int isochrones;
+
+        Route(Node last, int isochrones) {
+            this.last = last;
+            this.isochrones = isochrones;
+            List<Node> path = new ArrayList<>();
+            for (Node n = last; n != null; n = n.parent) {
+                path.add(n);
+            }
+            this.points = new Node[path.size()];
+            for (int i = 0; i < this.points.length; i++) {
+                this.points[i] = path.get(this.points.length - 1 - i);
+            }
+        }
+
+        /**
+         * Nombre de points de passage, depart et arrivee compris
+         * @return le nombre de points
+         */
+        public int size() {
+            return this.points.length;
+        }
+
+        public double getX(int i) {
+            return this.points[i].x;
+        }
+
+        public double getY(int i) {
+            return this.points[i].y;
+        }
+
+        public double getTime(int i) {
+            return this.points[i].t;
+        }
+
+        /**
+         * Cap du segment qui mene a un point
+         * @param i indice du point
+         * @return le cap en radians, NaN pour le depart
+         */
+        public double getHeading(int i) {
+            return this.points[i].heading;
+        }
+
+        public double getArrivalTime() {
+            return this.last.t;
+        }
+
+        public int getIsochrones() {
+            return isochrones;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("t;x;y;heading\n");
+            for (Node n : this.points) {
+                sb.append(String.format(Locale.ROOT, "%.1f;%.2f;%.2f;%.4f%n", n.t, n.x, n.y, n.heading));
+            }
+            return sb.toString();
+        }
+    }
+
+    public double getStep() {
+        return step;
+    }
+
+    public void setStep(double step) {
+        if (!(step > 0)) {
+            throw new IllegalArgumentException("le pas des isochrones doit etre strictement positif");
+        }
+        this.step = step;
+    }
+
+    public double getHorizon() {
+        return horizon;
+    }
+
+    public void setHorizon(double horizon) {
+        this.horizon = horizon;
+    }
+
+    public void setHeadings(int headings) {
+        this.headings = Math.max(4, headings);
+    }
+
+    public void setSectors(int sectors) {
+        this.sectors = Math.max(1, sectors);
+    }
+
+    /**
+     * Choix de la vitesse des segments
+     * @param simulated vrai pour simuler chaque segment, faux pour la vitesse etablie de la polaire
+     */
+    public void setSimulated(boolean simulated) {
+        this.simulated = simulated;
+    }
+
+    public void setSimulationDt(double simulationDt) {
+        this.simulationDt = simulationDt;
+    }
+
+    /**
+     * Calcul et affichage d'une route passant par des marques, dans le vent d'un scenario
+     * @param args polaire, scenario, puis coordonnees des marques
+     * @throws IOException si la polaire ou le scenario ne peuvent pas etre lus
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 6 || args.length % 2 != 0) {
+            System.err.println("usage: IsochroneRouter polar scenario x0 y0 x1 y1 [x2 y2 ...]");
+            System.exit(2);
+        }
+        PolarDiagram polar = PolarDiagram.load(Paths.get(args[0]));
+        WindModel wind = Scenario.load(Paths.get(args[1])).createWindModel();
+        double[] marks = new double[args.length - 2];
+        for (int i = 0; i < marks.length; i++) {
+            marks[i] = Double.parseDouble(args[i + 2]);
+        }
+        long start = System.nanoTime();
+        Route route = new IsochroneRouter(polar, wind).route(0, marks);
+        long millis = (System.nanoTime() - start) / 1000000;
+        if (route == null) {
+            System.out.println("marque non atteinte (" + millis + " ms)");
+            System.exit(1);
+        }
+        System.out.print(route);
+        System.out.printf(Locale.ROOT, "arrivee a %.1f s, calculee en %d ms%n", route.getArrivalTime(), millis);
+    }
+}
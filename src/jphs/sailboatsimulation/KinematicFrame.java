@@ -0,0 +1,223 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * La classe <code>KinematicFrame</code> regroupe les grandeurs cinematiques
+ * d'un voilier pour un pas de simulation : vitesses, sinus et cosinus des
+ * angles phi et theta (passage de R0 a R1), de l'angle de la voile (passage
+ * de R1 a R2) et de l'angle du safran (passage de R1 a R3), ainsi que la
+ * projection de la vitesse dans R1.
+ * <p>
+ * Le repere est calcule une seule fois par pas puis transmis aux calculs de
+ * forces de la voile, de la coque et du safran, qui n'appellent plus
+ * <code>Math.sin</code> et <code>Math.cos</code> sur ces angles. Un meme
+ * objet est reutilise d'un pas a l'autre pour ne pas allouer de memoire.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class KinematicFrame {
+    /**
+     * Angle du voilier autour de l'axe Gz0 et ses sinus et cosinus
+     */
+    private double phi, sinPhi, cosPhi;
+    /**
+     * Angle du voilier autour de l'axe Gx1 et ses sinus et cosinus
+     */
+    private double theta, sinTheta, cosTheta;
+    /**
+     * Angle de la voile et ses sinus et cosinus
+     */
+    private double deltaV, sinDeltaV, cosDeltaV;
+    /**
+     * Angle du safran et ses sinus et cosinus
+     */
+    private double rudderAng, sinRudderAng, cosRudderAng;
+    /**
+     * Vitesses du voilier selon Ox0 et Oy0
+     */
+    private double xPoint, yPoint;
+    /**
+     * Vitesses de rotation du voilier autour des axes Gx1 et Gz0
+     */
+    private double thetaPoint, phiPoint;
+    /**
+     * Vitesses du voilier selon Gx1 et Gy1
+     */
+    private double vx1, vy1;
+
+    /**
+     * Calcul du repere pour un etat du voilier et des commandes
+     * @param theta angle du voilier autour de l'axe Gx1
+     * @param phi angle du voilier autour de l'axe Gz0
+     * @param xPoint vitesse du voilier selon Ox0
+     * @param yPoint vitesse du voilier selon Oy0
+     * @param thetaPoint vitesse de rotation du voilier autour de l'axe Gx1
+     * @param phiPoint vitesse de rotation du voilier autour de l'axe Gz0
+     * @param deltaV angle de la voile
+     * @param rudderAng angle du safran
+     */
+    public void set(double theta, double phi, double xPoint, double yPoint, double thetaPoint, double phiPoint,
+            double deltaV, double rudderAng) {
+        this.theta = theta;
+        this.sinTheta = Math.sin(theta);
+        this.cosTheta = Math.cos(theta);
+        this.phi = phi;
+        this.sinPhi = Math.sin(phi);
+        this.cosPhi = Math.cos(phi);
+        this.deltaV = deltaV;
+        this.sinDeltaV = Math.sin(deltaV);
+        this.cosDeltaV = Math.cos(deltaV);
+        this.rudderAng = rudderAng;
+        this.sinRudderAng = Math.sin(rudderAng);
+        this.cosRudderAng = Math.cos(rudderAng);
+        this.xPoint = xPoint;
+        this.yPoint = yPoint;
+        this.thetaPoint = thetaPoint;
+        this.phiPoint = phiPoint;
+        this.vx1 = xPoint * this.cosPhi + yPoint * this.sinPhi;
+        this.vy1 = yPoint * this.cosPhi * this.cosTheta;
+        this.vy1 -= xPoint * this.sinPhi * this.cosTheta;
+    }
+
+    /**
+     * Calcul du repere pour l'etat courant d'un voilier
+     * @param sailboat voilier a considerer
+     * @param deltaV angle de la voile
+     * @param rudderAng angle du safran
+     */
+    public void set(Sailboat sailboat, double deltaV, double rudderAng) {
+        this.set(sailboat.getTheta(), sailboat.getPhi(), sailboat.getxPoint(), sailboat.getyPoint(),
+                sailboat.getThetaPoint(), sailboat.getPhiPoint(), deltaV, rudderAng);
+    }
+
+    /**
+     * @return angle du voilier autour de l'axe Gz0
+     */
+    public double getPhi() {
+        return phi;
+    }
+
+    /**
+     * @return sinus de phi
+     */
+    public double getSinPhi() {
+        return sinPhi;
+    }
+
+    /**
+     * @return cosinus de phi
+     */
+    public double getCosPhi() {
+        return cosPhi;
+    }
+
+    /**
+     * @return angle du voilier autour de l'axe Gx1
+     */
+    public double getTheta() {
+        return theta;
+    }
+
+    /**
+     * @return sinus de theta
+     */
+    public double getSinTheta() {
+        return sinTheta;
+    }
+
+    /**
+     * @return cosinus de theta
+     */
+    public double getCosTheta() {
+        return cosTheta;
+    }
+
+    /**
+     * @return angle de la voile
+     */
+    public double getDeltaV() {
+        return deltaV;
+    }
+
+    /**
+     * @return sinus de l'angle de la voile
+     */
+    public double getSinDeltaV() {
+        return sinDeltaV;
+    }
+
+    /**
+     * @return cosinus de l'angle de la voile
+     */
+    public double getCosDeltaV() {
+        return cosDeltaV;
+    }
+
+    /**
+     * @return angle du safran
+     */
+    public double getRudderAng() {
+        return rudderAng;
+    }
+
+    /**
+     * @return sinus de l'angle du safran
+     */
+    public double getSinRudderAng() {
+        return sinRudderAng;
+    }
+
+    /**
+     * @return cosinus de l'angle du safran
+     */
+    public double getCosRudderAng() {
+        return cosRudderAng;
+    }
+
+    /**
+     * @return vitesse du voilier selon Ox0
+     */
+    public double getxPoint() {
+        return xPoint;
+    }
+
+    /**
+     * @return vitesse du voilier selon Oy0
+     */
+    public double getyPoint() {
+        return yPoint;
+    }
+
+    /**
+     * @return vitesse de rotation du voilier autour de l'axe Gx1
+     */
+    public double getThetaPoint() {
+        return thetaPoint;
+    }
+
+    /**
+     * @return vitesse de rotation du voilier autour de l'axe Gz0
+     */
+    public double getPhiPoint() {
+        return phiPoint;
+    }
+
+    /**
+     * Projection de la vitesse du voilier suivant l'axe Gx1
+     * @return composante selon Gx1 de la vitesse du voilier
+     */
+    public double getVx1() {
+        return vx1;
+    }
+
+    /**
+     * Projection de la vitesse du voilier suivant l'axe Gy1
+     * @return composante selon Gy1 de la vitesse du voilier
+     */
+    public double getVy1() {
+        return vy1;
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * La classe <code>LatencyHistogram</code> compte des durees en nanosecondes
+ * dans un histogramme de taille fixe, pour en tirer des quantiles (p50, p99,
+ * p99.9) et le maximum sans garder les mesures.
+ * <p>
+ * Les classes sont lineaires de 0 a 63 ns, puis chaque puissance de deux
+ * est divisee en <code>SUB_BUCKETS</code> classes egales : l'erreur relative
+ * sur un quantile est d'au plus 1/32 (3 %). Les durees au-dela de
+ * <code>MAX_VALUE</code> (environ 18 minutes) sont comptees dans la derniere
+ * classe. L'histogramme occupe <code>BUCKETS</code> entiers longs quel que
+ * soit le nombre de mesures.
+ * <p>
+ * Un seul thread doit enregistrer (<code>record</code>) : l'enregistrement
+ * n'utilise ni verrou ni instruction atomique couteuse. La lecture peut se
+ * faire depuis un autre thread ; elle donne alors un etat approche, a
+ * quelques mesures pres.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class LatencyHistogram {
+    /**
+     * Nombre de classes par puissance de deux, et son logarithme
+     */
+    public static final int SUB_BUCKET_BITS = 5, SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Plus grande duree distinguee, en nanosecondes
+     */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+    /**
+     * Nombre de classes
+     */
+    public static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    /**
+     * Nom de l'histogramme
+     */
+    private final String name;
+    /**
+     * Nombre de mesures par classe
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    /**
+     * Nombre de mesures, somme et maximum des durees
+     */
+    private final AtomicLong count = new AtomicLong(), sum = new AtomicLong(), max = new AtomicLong();
+
+    /**
+     * Constructeur
+     * @param name nom de l'histogramme
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Classe d'une duree
+     * @param nanos duree en nanosecondes
+     * @return l'indice de la classe
+     */
+    static int index(long nanos) {
+        long v = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        if (v < 2 * SUB_BUCKETS) {
+            return (int) v;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (v >>> shift);
+    }
+
+    /**
+     * Plus grande duree d'une classe
+     * @param index indice de la classe
+     * @return la borne superieure de la classe, en nanosecondes
+     */
+    static long upperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Enregistrement d'une duree, par le seul thread qui mesure
+     * @param nanos duree en nanosecondes
+     */
+    public void record(long nanos) {
+        int i = index(nanos);
+        this.counts.lazySet(i, this.counts.get(i) + 1);
+        this.count.lazySet(this.count.get() + 1);
+        this.sum.lazySet(this.sum.get() + nanos);
+        if (nanos > this.max.get()) {
+            this.max.lazySet(nanos);
+        }
+    }
+
+    /**
+     * Quantile des durees enregistrees
+     * @param q rang du quantile, dans [0, 1] (0.99 pour p99)
+     * @return la borne superieure de la classe du quantile en nanosecondes, au plus le maximum, 0 sans mesure
+     */
+    public long quantile(double q) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += this.counts.get(i);
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long cumulated = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulated += this.counts.get(i);
+            if (cumulated >= rank) {
+                return Math.min(upperBound(i), this.getMax());
+            }
+        }
+        return this.getMax();
+    }
+
+    /**
+     * Remise a zero, a faire par le thread qui mesure ou quand il est a l'arret
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.lazySet(i, 0);
+        }
+        this.count.set(0);
+        this.sum.set(0);
+        this.max.set(0);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Duree moyenne
+     * @return la moyenne en nanosecondes, 0 sans mesure
+     */
+    public double getMean() {
+        long n = this.count.get();
+        return n == 0 ? 0 : (double) this.sum.get() / n;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s n=%d p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus", this.name, this.getCount(),
+                this.quantile(0.5) * 1e-3, this.quantile(0.99) * 1e-3, this.quantile(0.999) * 1e-3,
+                this.getMax() * 1e-3);
+    }
+}
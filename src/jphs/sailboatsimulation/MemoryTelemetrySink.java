@@ -0,0 +1,97 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * La classe <code>MemoryTelemetrySink</code> conserve en memoire les
+ * <code>capacity</code> derniers echantillons de telemetrie, par exemple pour
+ * un affichage de courbes ou une verification. Les lectures peuvent etre
+ * faites depuis n'importe quel thread.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class MemoryTelemetrySink implements TelemetrySink {
+    /**
+     * Echantillons conserves, ranges de maniere circulaire
+     */
+    private final double[] samples;
+    /**
+     * Nombre maximal d'echantillons conserves
+     */
+    private final int capacity;
+    /**
+     * Nombre d'echantillons recus
+     */
+    private long count;
+
+    /**
+     * Constructeur
+     * @param capacity nombre maximal d'echantillons conserves
+     */
+    public MemoryTelemetrySink(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacite invalide : " + capacity);
+        }
+        this.capacity = capacity;
+        this.samples = new double[capacity * Telemetry.FIELDS];
+    }
+
+    @Override
+    public synchronized void write(double[] sample, int offset) {
+        int o = (int) (this.count % this.capacity) * Telemetry.FIELDS;
+        System.arraycopy(sample, offset, this.samples, o, Telemetry.FIELDS);
+        this.count++;
+    }
+
+    /**
+     * Nombre d'echantillons conserves
+     * @return le nombre d'echantillons disponibles, au plus la capacite
+     */
+    public synchronized int size() {
+        return (int) Math.min(this.count, this.capacity);
+    }
+
+    /**
+     * Nombre d'echantillons recus depuis la creation
+     * @return le nombre total d'echantillons recus
+     */
+    public synchronized long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Lecture d'un champ d'un echantillon conserve
+     * @param i indice de l'echantillon, 0 pour le plus ancien conserve
+     * @param field indice du champ selon les indices de <code>Telemetry</code>
+     * @return la valeur du champ
+     */
+    public synchronized double get(int i, int field) {
+        int n = this.size();
+        if (i < 0 || i >= n) {
+            throw new IndexOutOfBoundsException("echantillon " + i + " sur " + n);
+        }
+        long first = this.count - n;
+        return this.samples[(int) ((first + i) % this.capacity) * Telemetry.FIELDS + field];
+    }
+
+    /**
+     * Copie du dernier echantillon recu
+     * @param sample tableau d'au moins <code>Telemetry.FIELDS</code> valeurs qui recoit l'echantillon
+     * @return faux si aucun echantillon n'a ete recu
+     */
+    public synchronized boolean copyLatest(double[] sample) {
+        if (this.count == 0) {
+            return false;
+        }
+        int o = (int) ((this.count - 1) % this.capacity) * Telemetry.FIELDS;
+        System.arraycopy(this.samples, o, sample, 0, Telemetry.FIELDS);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "memoire";
+    }
+}
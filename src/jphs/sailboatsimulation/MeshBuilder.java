@@ -0,0 +1,326 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * La classe <code>MeshBuilder</code> construit en memoire un maillage de
+ * triangles a envoyer a OpenGL : pour chaque sommet, position, normale et
+ * couleur (9 reels entrelaces).
+ * <p>
+ * Elle reprend l'etat du dessin immediat : une couleur courante et une
+ * translation courante, ajoutee aux positions, qui remplacent les
+ * <code>glColor3f</code> et <code>glTranslatef</code> entre deux
+ * <code>glBegin</code>. Les polygones sont decoupes en eventail depuis leur
+ * premier sommet, comme le font les pilotes pour <code>GL_POLYGON</code>, et
+ * les triangles d'aire nulle sont ignores. Chaque triangle recoit sa normale,
+ * orientee si besoin vers l'exterieur d'un point central.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class MeshBuilder {
+    /**
+     * Nombre de reels par sommet et position des champs dans un sommet
+     */
+    public static final int FLOATS_PER_VERTEX = 9, POSITION = 0, NORMAL = 3, COLOR = 6;
+    /**
+     * Sommets construits
+     */
+    private float[] data = new float[64 * FLOATS_PER_VERTEX];
+    /**
+     * Nombre de sommets construits
+     */
+    private int vertexCount;
+    /**
+     * Couleur courante
+     */
+    private float red = 1, green = 1, blue = 1;
+    /**
+     * Translation courante
+     */
+    private float tx, ty, tz;
+    /**
+     * Point dont les normales s'eloignent, si <code>oriented</code>
+     */
+    private float cx, cy, cz;
+    /**
+     * Vrai si les normales sont orientees vers l'exterieur du point central
+     */
+    private boolean oriented;
+
+    /**
+     * Choix de la couleur des sommets suivants
+     * @param r composante rouge
+     * @param g composante verte
+     * @param b composante bleue
+     * @return ce constructeur
+     */
+    public MeshBuilder color(float r, float g, float b) {
+        this.red = r;
+        this.green = g;
+        this.blue = b;
+        return this;
+    }
+
+    /**
+     * Ajout d'une translation a la translation courante, comme <code>glTranslatef</code>
+     * @param dx translation selon x
+     * @param dy translation selon y
+     * @param dz translation selon z
+     * @return ce constructeur
+     */
+    public MeshBuilder translate(float dx, float dy, float dz) {
+        this.tx += dx;
+        this.ty += dy;
+        this.tz += dz;
+        return this;
+    }
+
+    /**
+     * Orientation des normales des triangles suivants vers l'exterieur d'un point
+     * @param x abscisse du point central
+     * @param y ordonnee du point central
+     * @param z cote du point central
+     * @return ce constructeur
+     */
+    public MeshBuilder orientFrom(float x, float y, float z) {
+        this.cx = x;
+        this.cy = y;
+        this.cz = z;
+        this.oriented = true;
+        return this;
+    }
+
+    /**
+     * Ajout d'un polygone decoupe en eventail, comme <code>GL_POLYGON</code> ou <code>GL_TRIANGLE_FAN</code>
+     * @param xyz coordonnees des sommets a la suite
+     * @return ce constructeur
+     */
+    public MeshBuilder polygon(float... xyz) {
+        for (int i = 3; i + 5 < xyz.length; i += 3) {
+            this.triangle(xyz[0], xyz[1], xyz[2], xyz[i], xyz[i + 1], xyz[i + 2], xyz[i + 3], xyz[i + 4], xyz[i + 5]);
+        }
+        return this;
+    }
+
+    /**
+     * Ajout de quadrilateres, comme <code>GL_QUADS</code> : les sommets sont pris par quatre, ceux qui restent
+     * sont ignores
+     * @param xyz coordonnees des sommets a la suite
+     * @return ce constructeur
+     */
+    public MeshBuilder quads(float... xyz) {
+        for (int q = 0; q + 11 < xyz.length; q += 12) {
+            this.triangle(xyz[q], xyz[q + 1], xyz[q + 2], xyz[q + 3], xyz[q + 4], xyz[q + 5],
+                    xyz[q + 6], xyz[q + 7], xyz[q + 8]);
+            this.triangle(xyz[q], xyz[q + 1], xyz[q + 2], xyz[q + 6], xyz[q + 7], xyz[q + 8],
+                    xyz[q + 9], xyz[q + 10], xyz[q + 11]);
+        }
+        return this;
+    }
+
+    /**
+     * Ajout d'un triangle avec sa normale, ignore si son aire est nulle
+     * @return ce constructeur
+     */
+    public MeshBuilder triangle(float x0, float y0, float z0, float x1, float y1, float z1,
+            float x2, float y2, float z2) {
+        float ux = x1 - x0, uy = y1 - y0, uz = z1 - z0;
+        float vx = x2 - x0, vy = y2 - y0, vz = z2 - z0;
+        float nx = uy * vz - uz * vy;
+        float ny = uz * vx - ux * vz;
+        float nz = ux * vy - uy * vx;
+        float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length < 1e-9f) {
+            return this;
+        }
+        nx /= length;
+        ny /= length;
+        nz /= length;
+        if (this.oriented) {
+            float mx = (x0 + x1 + x2) / 3 + this.tx - this.cx;
+            float my = (y0 + y1 + y2) / 3 + this.ty - this.cy;
+            float mz = (z0 + z1 + z2) / 3 + this.tz - this.cz;
+            if (nx * mx + ny * my + nz * mz < 0) {
+                nx = -nx;
+                ny = -ny;
+                nz = -nz;
+            }
+        }
+        this.vertex(x0, y0, z0, nx, ny, nz);
+        this.vertex(x1, y1, z1, nx, ny, nz);
+        this.vertex(x2, y2, z2, nx, ny, nz);
+        return this;
+    }
+
+    /**
+     * Ajout d'un sommet avec une normale donnee, dans la couleur et la translation courantes. Les sommets sont
+     * pris par trois pour former les triangles.
+     * @return ce constructeur
+     */
+    public MeshBuilder vertex(float x, float y, float z, float nx, float ny, float nz) {
+        int o = this.vertexCount * FLOATS_PER_VERTEX;
+        if (o + FLOATS_PER_VERTEX > this.data.length) {
+            this.data = Arrays.copyOf(this.data, 2 * this.data.length);
+        }
+        float[] d = this.data;
+        d[o] = x + this.tx;
+        d[o + 1] = y + this.ty;
+        d[o + 2] = z + this.tz;
+        d[o + 3] = nx;
+        d[o + 4] = ny;
+        d[o + 5] = nz;
+        d[o + 6] = this.red;
+        d[o + 7] = this.green;
+        d[o + 8] = this.blue;
+        this.vertexCount++;
+        return this;
+    }
+
+    /**
+     * Ajout d'une sphere centree sur l'origine, comme <code>gluSphere</code> : <code>slices</code> meridiens
+     * autour de l'axe z et <code>stacks</code> paralleles du pole nord au pole sud, avec les normales lissees
+     * @param radius rayon
+     * @param slices nombre de divisions autour de l'axe z
+     * @param stacks nombre de divisions le long de l'axe z
+     * @return ce constructeur
+     */
+    public MeshBuilder sphere(float radius, int slices, int stacks) {
+        for (int i = 0; i < stacks; i++) {
+            double rho0 = Math.PI * i / stacks, rho1 = Math.PI * (i + 1) / stacks;
+            for (int j = 0; j < slices; j++) {
+                double theta0 = 2 * Math.PI * j / slices, theta1 = 2 * Math.PI * (j + 1) / slices;
+                if (i < stacks - 1) {
+                    this.spherePoint(radius, rho0, theta0);
+                    this.spherePoint(radius, rho1, theta0);
+                    this.spherePoint(radius, rho1, theta1);
+                }
+                if (i > 0) {
+                    this.spherePoint(radius, rho0, theta0);
+                    this.spherePoint(radius, rho1, theta1);
+                    this.spherePoint(radius, rho0, theta1);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Ajout d'un sommet de sphere
+     */
+    private void spherePoint(float radius, double rho, double theta) {
+        float nx = (float) (Math.sin(rho) * Math.cos(theta));
+        float ny = (float) (Math.sin(rho) * Math.sin(theta));
+        float nz = (float) Math.cos(rho);
+        this.vertex(radius * nx, radius * ny, radius * nz, nx, ny, nz);
+    }
+
+    /**
+     * Ajout d'un cylindre ouvert d'axe z, de z = 0 a z = <code>height</code>, comme <code>gluCylinder</code>
+     * avec deux rayons egaux, avec les normales lissees
+     * @param radius rayon
+     * @param height hauteur
+     * @param slices nombre de divisions autour de l'axe z
+     * @param stacks nombre de divisions le long de l'axe z
+     * @return ce constructeur
+     */
+    public MeshBuilder cylinder(float radius, float height, int slices, int stacks) {
+        return this.cylinder(radius, 0, 0, 0, 0, 0, height, slices, stacks);
+    }
+
+    /**
+     * Ajout d'un cylindre ouvert d'axe quelconque, entre les centres de ses deux extremites
+     * @param radius rayon
+     * @param x0 abscisse du centre de depart
+     * @param y0 ordonnee du centre de depart
+     * @param z0 cote du centre de depart
+     * @param x1 abscisse du centre d'arrivee
+     * @param y1 ordonnee du centre d'arrivee
+     * @param z1 cote du centre d'arrivee
+     * @param slices nombre de divisions autour de l'axe
+     * @param stacks nombre de divisions le long de l'axe
+     * @return ce constructeur
+     */
+    public MeshBuilder cylinder(float radius, float x0, float y0, float z0, float x1, float y1, float z1,
+            int slices, int stacks) {
+        float wx = x1 - x0, wy = y1 - y0, wz = z1 - z0;
+        float length = (float) Math.sqrt(wx * wx + wy * wy + wz * wz);
+        wx /= length;
+        wy /= length;
+        wz /= length;
+        // base (u, v, w) directe, u = y ^ w, ou z ^ w si l'axe est proche de y
+        float ux, uy, uz;
+        if (Math.abs(wy) < 0.9f) {
+            ux = wz;
+            uy = 0;
+            uz = -wx;
+        } else {
+            ux = -wy;
+            uy = wx;
+            uz = 0;
+        }
+        float ul = (float) Math.sqrt(ux * ux + uy * uy + uz * uz);
+        ux /= ul;
+        uy /= ul;
+        uz /= ul;
+        float vx = wy * uz - wz * uy, vy = wz * ux - wx * uz, vz = wx * uy - wy * ux;
+        for (int k = 0; k < stacks; k++) {
+            float t0 = (float) k / stacks, t1 = (float) (k + 1) / stacks;
+            for (int j = 0; j < slices; j++) {
+                double theta0 = 2 * Math.PI * j / slices, theta1 = 2 * Math.PI * (j + 1) / slices;
+                float c0 = (float) Math.cos(theta0), s0 = (float) Math.sin(theta0);
+                float c1 = (float) Math.cos(theta1), s1 = (float) Math.sin(theta1);
+                float n0x = c0 * ux + s0 * vx, n0y = c0 * uy + s0 * vy, n0z = c0 * uz + s0 * vz;
+                float n1x = c1 * ux + s1 * vx, n1y = c1 * uy + s1 * vy, n1z = c1 * uz + s1 * vz;
+                float ax = x0 + (x1 - x0) * t0, ay = y0 + (y1 - y0) * t0, az = z0 + (z1 - z0) * t0;
+                float bx = x0 + (x1 - x0) * t1, by = y0 + (y1 - y0) * t1, bz = z0 + (z1 - z0) * t1;
+                this.vertex(ax + radius * n0x, ay + radius * n0y, az + radius * n0z, n0x, n0y, n0z);
+                this.vertex(ax + radius * n1x, ay + radius * n1y, az + radius * n1z, n1x, n1y, n1z);
+                this.vertex(bx + radius * n1x, by + radius * n1y, bz + radius * n1z, n1x, n1y, n1z);
+                this.vertex(ax + radius * n0x, ay + radius * n0y, az + radius * n0z, n0x, n0y, n0z);
+                this.vertex(bx + radius * n1x, by + radius * n1y, bz + radius * n1z, n1x, n1y, n1z);
+                this.vertex(bx + radius * n0x, by + radius * n0y, bz + radius * n0z, n0x, n0y, n0z);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Remise a zero des sommets, de la translation et de l'orientation, en gardant la memoire allouee
+     * @return ce constructeur
+     */
+    public MeshBuilder reset() {
+        this.vertexCount = 0;
+        this.tx = 0;
+        this.ty = 0;
+        this.tz = 0;
+        this.oriented = false;
+        return this;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Lecture d'une valeur d'un sommet
+     * @param vertex indice du sommet
+     * @param field indice du reel dans le sommet
+     * @return la valeur
+     */
+    public float get(int vertex, int field) {
+        return this.data[vertex * FLOATS_PER_VERTEX + field];
+    }
+
+    /**
+     * Copie des sommets dans un tampon, a partir de sa position courante
+     * @param buffer tampon qui recoit les sommets
+     */
+    public void writeTo(FloatBuffer buffer) {
+        buffer.put(this.data, 0, this.vertexCount * FLOATS_PER_VERTEX);
+    }
+}
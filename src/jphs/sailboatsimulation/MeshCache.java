@@ -0,0 +1,125 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.jogamp.opengl.GL2;
+
+/**
+ * La classe <code>MeshCache</code> remplace les quadriques GLU creees et
+ * detruites a chaque image : chaque sphere ou cylindre est decoupe une seule
+ * fois par jeu de dimensions et de divisions, garde dans un tampon de la
+ * carte graphique et reutilise ensuite.
+ * <p>
+ * Les maillages n'ont pas de couleur propre et sont dessines avec la couleur
+ * courante. La recherche alloue une cle : les objets dessines a chaque image
+ * gardent le maillage obtenu a l'initialisation plutot que de le chercher a
+ * chaque fois. Les methodes doivent etre appelees avec le contexte OpenGL
+ * courant.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class MeshCache {
+    /**
+     * Maillages deja construits
+     */
+    private final Map<Key, VertexBufferMesh> meshes = new HashMap<>();
+
+    /**
+     * Sphere centree sur l'origine, comme <code>gluSphere</code>
+     * @param gl contexte OpenGL
+     * @param radius rayon
+     * @param slices nombre de divisions autour de l'axe z
+     * @param stacks nombre de divisions le long de l'axe z
+     * @return le maillage, construit au premier appel
+     */
+    public VertexBufferMesh sphere(GL2 gl, float radius, int slices, int stacks) {
+        Key key = new Key(Key.SPHERE, radius, 0, slices, stacks);
+        VertexBufferMesh mesh = this.meshes.get(key);
+        if (mesh == null) {
+            mesh = new VertexBufferMesh(gl, new MeshBuilder().sphere(radius, slices, stacks), false);
+            this.meshes.put(key, mesh);
+        }
+        return mesh;
+    }
+
+    /**
+     * Cylindre ouvert d'axe z, comme <code>gluCylinder</code> avec deux rayons egaux
+     * @param gl contexte OpenGL
+     * @param radius rayon
+     * @param height hauteur
+     * @param slices nombre de divisions autour de l'axe z
+     * @param stacks nombre de divisions le long de l'axe z
+     * @return le maillage, construit au premier appel
+     */
+    public VertexBufferMesh cylinder(GL2 gl, float radius, float height, int slices, int stacks) {
+        Key key = new Key(Key.CYLINDER, radius, height, slices, stacks);
+        VertexBufferMesh mesh = this.meshes.get(key);
+        if (mesh == null) {
+            mesh = new VertexBufferMesh(gl, new MeshBuilder().cylinder(radius, height, slices, stacks), false);
+            this.meshes.put(key, mesh);
+        }
+        return mesh;
+    }
+
+    /**
+     * Nombre de maillages construits
+     * @return le nombre de maillages
+     */
+    public int size() {
+        return this.meshes.size();
+    }
+
+    /**
+     * Liberation de tous les maillages
+     * @param gl contexte OpenGL
+     */
+    public void dispose(GL2 gl) {
+        for (VertexBufferMesh mesh : this.meshes.values()) {
+            mesh.dispose(gl);
+        }
+        this.meshes.clear();
+    }
+
+    /**
+     * Cle d'un maillage : forme, dimensions et divisions
+     */
+    private static final class Key {
+        static final int SPHERE = 0, CYLINDER = 1;
+        private final int shape;
+        private final float radius, height;
+        private final int slices, stacks;
+
+        Key(int shape, float radius, float height, int slices, int stacks) {
+            this.shape = shape;
+            this.radius = radius;
+            this.height = height;
+            this.slices = slices;
+            this.stacks = stacks;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return this.shape == k.shape && Float.compare(this.radius, k.radius) == 0
+                    && Float.compare(this.height, k.height) == 0 && this.slices == k.slices
+                    && this.stacks == k.stacks;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = this.shape;
+            h = 31 * h + Float.floatToIntBits(this.radius);
+            h = 31 * h + Float.floatToIntBits(this.height);
+            h = 31 * h + this.slices;
+            return 31 * h + this.stacks;
+        }
+    }
+}
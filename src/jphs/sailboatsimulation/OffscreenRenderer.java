@@ -0,0 +1,300 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.GL2GL3;
+import com.jogamp.opengl.GLAutoDrawable;
+import com.jogamp.opengl.GLCapabilities;
+import com.jogamp.opengl.GLDrawableFactory;
+import com.jogamp.opengl.GLEventListener;
+import com.jogamp.opengl.GLOffscreenAutoDrawable;
+import com.jogamp.opengl.GLProfile;
+
+/**
+ * La classe <code>OffscreenRenderer</code> dessine une simulation hors
+ * ecran, dans un FBO de taille quelconque, et ecrit chaque image dans un
+ * fichier PNG (<code>frame000000.png</code>, <code>frame000001.png</code>...)
+ * pour en faire une video. Le rendu n'est pas cadence par un
+ * <code>FPSAnimator</code> : la simulation avance d'un nombre fixe de pas par
+ * image et les images sont dessinees aussi vite que possible.
+ * <p>
+ * Les pixels sont relus par deux tampons de pixels (PBO) utilises en
+ * alternance : la lecture de l'image n est lancee de facon asynchrone, et
+ * c'est l'image n - 1, deja arrivee dans l'autre tampon, qui est recopiee
+ * pendant que la carte graphique termine l'image n. Le codage PNG est fait
+ * par un groupe de threads ; le nombre d'images en attente est borne par
+ * une reserve d'images, ce qui ralentit le rendu si le codage ne suit pas.
+ * <p>
+ * Des appels successifs de <code>render</code> continuent la numerotation
+ * des fichiers : chaque appel relit sa derniere image avant de rendre la
+ * main, et le suivant repart d'une alternance vide.
+ * <pre>
+ * java -cp &lt;classes&gt; jphs.sailboatsimulation.OffscreenRenderer repertoire [images [largeur hauteur [pas]]]
+ * </pre>
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class OffscreenRenderer implements GLEventListener, AutoCloseable {
+    /**
+     * Taille par defaut des images
+     */
+    public static final int DEFAULT_WIDTH = 1280, DEFAULT_HEIGHT = 720;
+    /**
+     * Nombre d'images par defaut
+     */
+    public static final int DEFAULT_FRAMES = 500;
+
+    /**
+     * Visualisation dessinee, avancee image par image
+     */
+    private final SailboatVisualization visualization;
+    /**
+     * Taille des images
+     */
+    private final int width, height;
+    /**
+     * Repertoire des images
+     */
+    private final Path directory;
+    /**
+     * Surface de dessin hors ecran
+     */
+    private final GLOffscreenAutoDrawable drawable;
+    /**
+     * Threads de codage PNG
+     */
+    private final ExecutorService encoders;
+    /**
+     * Images libres, a remplir par la relecture
+     */
+    private final ArrayBlockingQueue<BufferedImage> freeImages;
+    /**
+     * Premiere erreur d'ecriture d'une image
+     */
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+    /**
+     * Tampons de relecture des pixels, utilises en alternance
+     */
+    private final int[] pixelBuffers = new int[2];
+    /**
+     * Indice de l'image dessinee suivante
+     */
+    private int frame;
+    /**
+     * Indice de la premiere image de l'appel de <code>render</code> en cours, qui n'a pas d'image precedente
+     * a relire
+     */
+    private int firstFrame;
+    /**
+     * Indice de la derniere image a dessiner, relue des la fin de son dessin
+     */
+    private int lastFrame = -1;
+
+    /**
+     * Constructeur
+     * @param visualization visualisation a dessiner
+     * @param width largeur des images
+     * @param height hauteur des images
+     * @param directory repertoire des images, cree si besoin
+     * @param threads nombre de threads de codage PNG
+     * @throws IOException si le repertoire ne peut pas etre cree
+     */
+    public OffscreenRenderer(SailboatVisualization visualization, int width, int height, Path directory,
+            int threads) throws IOException {
+        this.visualization = visualization;
+        this.width = width;
+        this.height = height;
+        this.directory = Files.createDirectories(directory);
+        visualization.setRealTime(false);
+        this.encoders = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "png-encoder");
+            t.setDaemon(true);
+            return t;
+        });
+        this.freeImages = new ArrayBlockingQueue<>(threads + 2);
+        for (int i = 0; i < threads + 2; i++) {
+            this.freeImages.add(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+        }
+        GLProfile profile = GLProfile.getDefault();
+        GLCapabilities caps = new GLCapabilities(profile);
+        caps.setOnscreen(false);
+        caps.setFBO(true);
+        caps.setDepthBits(24);
+        this.drawable = GLDrawableFactory.getFactory(profile).createOffscreenAutoDrawable(null, caps, null, width,
+                height);
+        this.drawable.addGLEventListener(this);
+    }
+
+    /**
+     * Dessin et ecriture d'une suite d'images. La simulation est lancee si elle est a l'arret.
+     * @param frames nombre d'images
+     * @param stepsPerFrame nombre de pas de simulation entre deux images
+     * @throws IOException si une image n'a pas pu etre ecrite
+     */
+    public void render(int frames, int stepsPerFrame) throws IOException {
+        SimulationLoop simulation = this.visualization.getSimulation();
+        if (!simulation.isRunning()) {
+            simulation.post(SimulationCommand.Type.TOGGLE_RUN, 0);
+        }
+        this.firstFrame = this.frame;
+        this.lastFrame = this.frame + frames - 1;
+        for (int f = 0; f < frames; f++) {
+            for (int s = 0; s < stepsPerFrame; s++) {
+                simulation.tick(System.nanoTime());
+            }
+            this.drawable.display();
+            IOException e = this.failure.get();
+            if (e != null) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void init(GLAutoDrawable d) {
+        GL2 gl = d.getGL().getGL2();
+        this.visualization.init(d);
+        this.visualization.reshape(d, 0, 0, this.width, this.height);
+        gl.glGenBuffers(2, this.pixelBuffers, 0);
+        for (int buffer : this.pixelBuffers) {
+            gl.glBindBuffer(GL2GL3.GL_PIXEL_PACK_BUFFER, buffer);
+            gl.glBufferData(GL2GL3.GL_PIXEL_PACK_BUFFER, (long) this.width * this.height * Integer.BYTES, null,
+                    GL2GL3.GL_STREAM_READ);
+        }
+        gl.glBindBuffer(GL2GL3.GL_PIXEL_PACK_BUFFER, 0);
+        gl.glPixelStorei(GL.GL_PACK_ALIGNMENT, 4);
+    }
+
+    @Override
+    public void dispose(GLAutoDrawable d) {
+        d.getGL().glDeleteBuffers(2, this.pixelBuffers, 0);
+        this.visualization.dispose(d);
+    }
+
+    @Override
+    public void display(GLAutoDrawable d) {
+        GL2 gl = d.getGL().getGL2();
+        this.visualization.display(d);
+        int f = this.frame++;
+        gl.glBindBuffer(GL2GL3.GL_PIXEL_PACK_BUFFER, this.pixelBuffers[f & 1]);
+        gl.glReadPixels(0, 0, this.width, this.height, GL.GL_BGRA, GL2GL3.GL_UNSIGNED_INT_8_8_8_8_REV, 0);
+        if (f > this.firstFrame) {
+            this.readBack(gl, f - 1);
+        }
+        if (f == this.lastFrame) {
+            this.readBack(gl, f);
+        }
+        gl.glBindBuffer(GL2GL3.GL_PIXEL_PACK_BUFFER, 0);
+    }
+
+    /**
+     * Recopie d'une image relue dans une image libre, retournee verticalement, puis envoi au codage
+     */
+    private void readBack(GL2 gl, int f) {
+        BufferedImage image;
+        try {
+            image = this.freeImages.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        gl.glBindBuffer(GL2GL3.GL_PIXEL_PACK_BUFFER, this.pixelBuffers[f & 1]);
+        IntBuffer pixels = gl.glMapBuffer(GL2GL3.GL_PIXEL_PACK_BUFFER, GL2GL3.GL_READ_ONLY)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < this.height; y++) {
+            pixels.position((this.height - 1 - y) * this.width);
+            pixels.get(data, y * this.width, this.width);
+        }
+        gl.glUnmapBuffer(GL2GL3.GL_PIXEL_PACK_BUFFER);
+        final Path file = this.directory.resolve(String.format("frame%06d.png", f));
+        this.encoders.execute(() -> {
+            try {
+                if (!ImageIO.write(image, "png", file.toFile())) {
+                    throw new IOException("aucun encodeur PNG disponible");
+                }
+            } catch (IOException e) {
+                this.failure.compareAndSet(null, e);
+            } finally {
+                this.freeImages.add(image);
+            }
+        });
+    }
+
+    @Override
+    public void reshape(GLAutoDrawable d, int x, int y, int width, int height) {
+        this.visualization.reshape(d, x, y, width, height);
+    }
+
+    public int getFrameCount() {
+        return frame;
+    }
+
+    /**
+     * Liberation de la surface de dessin et attente de l'ecriture des dernieres images
+     * @throws IOException si une image n'a pas pu etre ecrite
+     */
+    @Override
+    public void close() throws IOException {
+        this.drawable.destroy();
+        this.encoders.shutdown();
+        try {
+            this.encoders.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IOException e = this.failure.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * Rendu hors ecran d'une simulation
+     * @param args repertoire des images, nombre d'images, largeur et hauteur, pas de simulation par image
+     * @throws IOException si une image n'a pas pu etre ecrite
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: OffscreenRenderer directory [frames [width height [steps]]]");
+            System.exit(2);
+        }
+        Path directory = Paths.get(args[0]);
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_FRAMES;
+        int width = args.length > 3 ? Integer.parseInt(args[2]) : DEFAULT_WIDTH;
+        int height = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_HEIGHT;
+        int steps = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+        SailboatVisualization visu = new SailboatVisualization(new Telemetry());
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        long start = System.nanoTime();
+        try (OffscreenRenderer renderer = new OffscreenRenderer(visu, width, height, directory, threads)) {
+            renderer.render(frames, steps);
+        } finally {
+            visu.getTelemetry().close();
+        }
+        double seconds = (System.nanoTime() - start) * 1e-9;
+        System.out.printf(Locale.ROOT, "%d images %dx%d en %.2f s (%.1f images/s)%n", frames, width, height,
+                seconds, frames / seconds);
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * La classe <code>PolarDiagram</code> est la polaire de vitesse du voilier :
+ * la vitesse etablie en fonction de l'angle du vent reel, de la force du vent
+ * et de l'angle de la voile, tabulee sur des axes a pas constant par un
+ * <code>PolarGenerator</code>.
+ * <p>
+ * L'angle du vent reel (TWA) est l'angle entre le cap du voilier et la
+ * direction d'ou vient le vent, dans [-PI, PI] : 0 face au vent, PI vent
+ * arriere. Pour chaque triplet, la table garde aussi l'angle du safran qui
+ * donne cette vitesse. Les vitesses au meilleur reglage de voile sont
+ * precalculees : les recherches sont en temps constant, par interpolation
+ * bilineaire (ou trilineaire pour un reglage de voile donne), et ne
+ * resimulent jamais le voilier.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class PolarDiagram {
+    /**
+     * Axes des angles du vent reel, des forces de vent et des angles de voile
+     */
+    private final UniformAxis twaAxis, twsAxis, sailAxis;
+    /**
+     * Vitesses etablies, indicees par (twa, tws, voile)
+     */
+    private final double[] speed;
+    /**
+     * Angles du safran correspondants, indices par (twa, tws, voile)
+     */
+    private final double[] helm;
+    /**
+     * Meilleures vitesses, indicees par (twa, tws)
+     */
+    private final double[] bestSpeed;
+    /**
+     * Angles de voile donnant les meilleures vitesses, indices par (twa, tws)
+     */
+    private final double[] bestSail;
+
+    /**
+     * Constructeur d'une polaire vide
+     * @param twaAxis axe des angles du vent reel
+     * @param twsAxis axe des forces de vent
+     * @param sailAxis axe des angles de voile
+     */
+    public PolarDiagram(UniformAxis twaAxis, UniformAxis twsAxis, UniformAxis sailAxis) {
+        this.twaAxis = twaAxis;
+        this.twsAxis = twsAxis;
+        this.sailAxis = sailAxis;
+        int n = twaAxis.getCount() * twsAxis.getCount();
+        this.speed = new double[n * sailAxis.getCount()];
+        this.helm = new double[n * sailAxis.getCount()];
+        this.bestSpeed = new double[n];
+        this.bestSail = new double[n];
+    }
+
+    /**
+     * Indice d'un couple (twa, tws)
+     */
+    private int index(int twa, int tws) {
+        return twa * this.twsAxis.getCount() + tws;
+    }
+
+    /**
+     * Indice d'un triplet (twa, tws, voile)
+     */
+    private int index(int twa, int tws, int sail) {
+        return this.index(twa, tws) * this.sailAxis.getCount() + sail;
+    }
+
+    /**
+     * Enregistrement d'un point de la polaire
+     * @param twa indice de l'angle du vent reel
+     * @param tws indice de la force du vent
+     * @param sail indice de l'angle de voile
+     * @param v vitesse etablie
+     * @param deltag angle du safran correspondant
+     */
+    public void set(int twa, int tws, int sail, double v, double deltag) {
+        this.speed[this.index(twa, tws, sail)] = v;
+        this.helm[this.index(twa, tws, sail)] = deltag;
+    }
+
+    /**
+     * Calcul des meilleures vitesses sur les angles de voile, a appeler apres le remplissage de la table
+     */
+    public void computeBest() {
+        int sails = this.sailAxis.getCount();
+        for (int i = 0; i < this.twaAxis.getCount(); i++) {
+            for (int j = 0; j < this.twsAxis.getCount(); j++) {
+                int best = 0;
+                int base = this.index(i, j, 0);
+                for (int k = 1; k < sails; k++) {
+                    if (this.speed[base + k] > this.speed[base + best]) {
+                        best = k;
+                    }
+                }
+                this.bestSpeed[this.index(i, j)] = this.speed[base + best];
+                this.bestSail[this.index(i, j)] = this.sailAxis.getValue(best);
+            }
+        }
+    }
+
+    /**
+     * Ramene un angle dans [-PI, PI]
+     * @param angle angle en radians
+     * @return l'angle equivalent dans [-PI, PI]
+     */
+    public static double normalizeAngle(double angle) {
+        return angle - 2. * Math.PI * Math.floor((angle + Math.PI) / (2. * Math.PI));
+    }
+
+    /**
+     * Vitesse etablie au meilleur reglage de voile, par interpolation bilineaire
+     * @param twa angle du vent reel en radians
+     * @param tws force du vent
+     * @return la vitesse etablie
+     */
+    public double getSpeed(double twa, double tws) {
+        double pa = this.twaAxis.position(normalizeAngle(twa));
+        double pw = this.twsAxis.position(tws);
+        int i = this.twaAxis.cell(pa);
+        int j = this.twsAxis.cell(pw);
+        double u = pa - i;
+        double w = pw - j;
+        int i1 = Math.min(i + 1, this.twaAxis.getCount() - 1);
+        int j1 = Math.min(j + 1, this.twsAxis.getCount() - 1);
+        double v00 = this.bestSpeed[this.index(i, j)];
+        double v01 = this.bestSpeed[this.index(i, j1)];
+        double v10 = this.bestSpeed[this.index(i1, j)];
+        double v11 = this.bestSpeed[this.index(i1, j1)];
+        return (1 - u) * ((1 - w) * v00 + w * v01) + u * ((1 - w) * v10 + w * v11);
+    }
+
+    /**
+     * Vitesse etablie pour un angle de voile donne, par interpolation trilineaire
+     * @param twa angle du vent reel en radians
+     * @param tws force du vent
+     * @param deltavmax angle de la voile
+     * @return la vitesse etablie
+     */
+    public double getSpeed(double twa, double tws, double deltavmax) {
+        double pa = this.twaAxis.position(normalizeAngle(twa));
+        double pw = this.twsAxis.position(tws);
+        double ps = this.sailAxis.position(deltavmax);
+        int i = this.twaAxis.cell(pa);
+        int j = this.twsAxis.cell(pw);
+        int k = this.sailAxis.cell(ps);
+        double u = pa - i;
+        double w = pw - j;
+        double s = ps - k;
+        int i1 = Math.min(i + 1, this.twaAxis.getCount() - 1);
+        int j1 = Math.min(j + 1, this.twsAxis.getCount() - 1);
+        int k1 = Math.min(k + 1, this.sailAxis.getCount() - 1);
+        double v0 = (1 - w) * this.lerpSail(i, j, k, k1, s) + w * this.lerpSail(i, j1, k, k1, s);
+        double v1 = (1 - w) * this.lerpSail(i1, j, k, k1, s) + w * this.lerpSail(i1, j1, k, k1, s);
+        return (1 - u) * v0 + u * v1;
+    }
+
+    /**
+     * Interpolation lineaire selon l'angle de voile
+     */
+    private double lerpSail(int i, int j, int k, int k1, double s) {
+        int base = this.index(i, j, 0);
+        return (1 - s) * this.speed[base + k] + s * this.speed[base + k1];
+    }
+
+    /**
+     * Angle de voile donnant la meilleure vitesse au point de la table le plus proche
+     * @param twa angle du vent reel en radians
+     * @param tws force du vent
+     * @return l'angle de voile optimal
+     */
+    public double getOptimalSail(double twa, double tws) {
+        return this.bestSail[this.index(this.twaAxis.nearest(normalizeAngle(twa)), this.twsAxis.nearest(tws))];
+    }
+
+    /**
+     * Angle du safran au point de la table le plus proche
+     * @param twa angle du vent reel en radians
+     * @param tws force du vent
+     * @param deltavmax angle de la voile
+     * @return l'angle du safran qui donne la vitesse etablie
+     */
+    public double getHelm(double twa, double tws, double deltavmax) {
+        return this.helm[this.index(this.twaAxis.nearest(normalizeAngle(twa)), this.twsAxis.nearest(tws),
+                this.sailAxis.nearest(deltavmax))];
+    }
+
+    public UniformAxis getTwaAxis() {
+        return twaAxis;
+    }
+
+    public UniformAxis getTwsAxis() {
+        return twsAxis;
+    }
+
+    public UniformAxis getSailAxis() {
+        return sailAxis;
+    }
+
+    /**
+     * Ecriture de la polaire dans un fichier texte : les trois axes (minimum, pas, nombre de valeurs) puis une
+     * ligne par couple (twa, tws) avec, pour chaque angle de voile, la vitesse et l'angle du safran
+     * @param file fichier a ecrire
+     * @throws IOException si l'ecriture echoue
+     */
+    public void save(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# polaire : vitesse etablie et angle du safran par angle de voile\n");
+            out.write("twa " + this.twaAxis + "\n");
+            out.write("tws " + this.twsAxis + "\n");
+            out.write("sail " + this.sailAxis + "\n");
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < this.twaAxis.getCount(); i++) {
+                for (int j = 0; j < this.twsAxis.getCount(); j++) {
+                    line.setLength(0);
+                    int base = this.index(i, j, 0);
+                    for (int k = 0; k < this.sailAxis.getCount(); k++) {
+                        if (k > 0) {
+                            line.append(' ');
+                        }
+                        line.append(this.speed[base + k]).append(' ').append(this.helm[base + k]);
+                    }
+                    out.append(line).append('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * Lecture d'une polaire ecrite par <code>save</code>
+     * @param file fichier a lire
+     * @return la polaire lue
+     * @throws IOException si la lecture echoue
+     */
+    public static PolarDiagram load(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            while (line != null && line.startsWith("#")) {
+                line = in.readLine();
+            }
+            UniformAxis twa = readAxis(line, "twa");
+            UniformAxis tws = readAxis(in.readLine(), "tws");
+            UniformAxis sail = readAxis(in.readLine(), "sail");
+            PolarDiagram polar = new PolarDiagram(twa, tws, sail);
+            for (int i = 0; i < twa.getCount(); i++) {
+                for (int j = 0; j < tws.getCount(); j++) {
+                    line = in.readLine();
+                    if (line == null) {
+                        throw new IOException(file + " : polaire incomplete");
+                    }
+                    String[] tokens = line.trim().split("\\s+");
+                    if (tokens.length != 2 * sail.getCount()) {
+                        throw new IOException(file + " : " + tokens.length + " valeurs au lieu de "
+                                + 2 * sail.getCount());
+                    }
+                    for (int k = 0; k < sail.getCount(); k++) {
+                        polar.set(i, j, k, Double.parseDouble(tokens[2 * k]), Double.parseDouble(tokens[2 * k + 1]));
+                    }
+                }
+            }
+            polar.computeBest();
+            return polar;
+        }
+    }
+
+    /**
+     * Lecture d'une ligne d'axe
+     */
+    private static UniformAxis readAxis(String line, String name) throws IOException {
+        String[] tokens = line == null ? new String[0] : line.trim().split("\\s+");
+        if (tokens.length != 4 || !name.equals(tokens[0])) {
+            throw new IOException("axe '" + name + "' attendu");
+        }
+        return UniformAxis.parse(tokens, 1);
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.IntStream;
+
+/**
+ * La classe <code>PolarGenerator</code> construit la polaire de vitesse
+ * (<code>PolarDiagram</code>) du voilier en simulant un voilier par point de
+ * la table : angle du vent reel, force du vent, angle de la voile et angle du
+ * safran. Les points sont independants et simules en parallele.
+ * <p>
+ * Chaque simulation garde le voilier a cap constant (phi et sa derivee sont
+ * reimposes apres chaque pas) : le safran n'a presque pas d'effet aux faibles
+ * vitesses et ne suffit pas a tenir un cap. La vitesse est moyennee sur des
+ * fenetres successives jusqu'a ce que deux moyennes consecutives ne
+ * different plus que de la tolerance relative, ou jusqu'a la duree maximale.
+ * Une simulation qui diverge donne une vitesse nulle.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class PolarGenerator {
+    /**
+     * Valeurs par defaut du pas de temps, de la fenetre de moyenne, de la duree maximale et de la tolerance
+     */
+    public static final double DEFAULT_DT = 0.02, DEFAULT_WINDOW = 10., DEFAULT_MAX_TIME = 300.,
+            DEFAULT_TOLERANCE = 0.01;
+    /**
+     * Axes de la polaire a construire
+     */
+    private UniformAxis twaAxis, twsAxis, sailAxis;
+    /**
+     * Angles du safran essayes pour chaque point
+     */
+    private double[] helms = { 0. };
+    /**
+     * Pas de temps de la simulation
+     */
+    private double dt = DEFAULT_DT;
+    /**
+     * Duree d'une fenetre de moyenne de la vitesse
+     */
+    private double window = DEFAULT_WINDOW;
+    /**
+     * Duree maximale d'une simulation
+     */
+    private double maxTime = DEFAULT_MAX_TIME;
+    /**
+     * Ecart relatif maximal entre deux moyennes consecutives pour considerer la vitesse etablie
+     */
+    private double tolerance = DEFAULT_TOLERANCE;
+
+    /**
+     * Constructeur avec les axes par defaut : angle du vent reel de -180 a 180 degres par pas de 10 degres, force
+     * du vent de 1 a 8, angle de voile de -1.5 a 1.5 radians par pas de 0.1
+     */
+    public PolarGenerator() {
+        this(UniformAxis.between(-Math.PI, Math.PI, 37), UniformAxis.between(1., 8., 8),
+                UniformAxis.between(-1.5, 1.5, 31));
+    }
+
+    /**
+     * Constructeur
+     * @param twaAxis axe des angles du vent reel, dans [-PI, PI]
+     * @param twsAxis axe des forces de vent
+     * @param sailAxis axe des angles de voile
+     */
+    public PolarGenerator(UniformAxis twaAxis, UniformAxis twsAxis, UniformAxis sailAxis) {
+        this.twaAxis = twaAxis;
+        this.twsAxis = twsAxis;
+        this.sailAxis = sailAxis;
+    }
+
+    /**
+     * Construction de la polaire, les points etant simules en parallele
+     * @return la polaire
+     */
+    public PolarDiagram generate() {
+        final PolarDiagram polar = new PolarDiagram(this.twaAxis, this.twsAxis, this.sailAxis);
+        final int tws = this.twsAxis.getCount();
+        final int sails = this.sailAxis.getCount();
+        IntStream.range(0, this.twaAxis.getCount() * tws * sails).parallel().forEach(n -> {
+            int i = n / (tws * sails);
+            int j = (n / sails) % tws;
+            int k = n % sails;
+            double best = Double.NEGATIVE_INFINITY;
+            double bestHelm = 0.;
+            for (double deltag : this.helms) {
+                double v = this.settledSpeed(this.twaAxis.getValue(i), this.twsAxis.getValue(j),
+                        this.sailAxis.getValue(k), deltag);
+                if (v > best) {
+                    best = v;
+                    bestHelm = deltag;
+                }
+            }
+            polar.set(i, j, k, best, bestHelm);
+        });
+        polar.computeBest();
+        return polar;
+    }
+
+    /**
+     * Simulation d'un voilier a cap constant jusqu'a l'etablissement de sa vitesse
+     * @param twa angle du vent reel en radians
+     * @param tws force du vent
+     * @param deltavmax angle de la voile
+     * @param deltag angle du safran
+     * @return la vitesse etablie, nulle si la simulation diverge
+     */
+    public double settledSpeed(double twa, double tws, double deltavmax, double deltag) {
+        // le vent souffle vers psi = 0 et vient donc de PI
+        Wind wind = new Wind(tws, 0.);
+        double heading = PolarDiagram.normalizeAngle(Math.PI + twa);
+        Sailboat boat = new Sailboat();
+        boat.setPhi(heading);
+        int steps = Math.max(1, (int) Math.round(this.window / this.dt));
+        int windows = Math.max(2, (int) Math.round(this.maxTime / this.window));
+        double previous = Double.NaN;
+        double mean = 0.;
+        for (int w = 0; w < windows; w++) {
+            double sum = 0.;
+            for (int s = 0; s < steps; s++) {
+                boat.update(this.dt, deltag, deltavmax, wind);
+                boat.setPhi(heading);
+                boat.setPhiPoint(0.);
+                sum += Math.hypot(boat.getxPoint(), boat.getyPoint());
+            }
+            mean = sum / steps;
+            if (Double.isNaN(mean) || Double.isInfinite(mean)) {
+                return 0.;
+            }
+            if (Math.abs(mean - previous) <= this.tolerance * Math.max(mean, 0.01)) {
+                break;
+            }
+            previous = mean;
+        }
+        return mean;
+    }
+
+    public double[] getHelms() {
+        return helms;
+    }
+
+    /**
+     * Setter des angles du safran essayes pour chaque point
+     * @param helms angles du safran, au moins un
+     */
+    public void setHelms(double... helms) {
+        if (helms.length == 0) {
+            throw new IllegalArgumentException("au moins un angle de safran est necessaire");
+        }
+        this.helms = helms.clone();
+    }
+
+    public double getDt() {
+        return dt;
+    }
+
+    public void setDt(double dt) {
+        this.dt = dt;
+    }
+
+    public double getWindow() {
+        return window;
+    }
+
+    public void setWindow(double window) {
+        this.window = window;
+    }
+
+    public double getMaxTime() {
+        return maxTime;
+    }
+
+    public void setMaxTime(double maxTime) {
+        this.maxTime = maxTime;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Construction de la polaire par defaut et ecriture dans un fichier
+     * @param args fichier a ecrire (polar.txt par defaut)
+     * @throws IOException si l'ecriture echoue
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Paths.get(args.length > 0 ? args[0] : "polar.txt");
+        long start = System.nanoTime();
+        PolarDiagram polar = new PolarGenerator().generate();
+        polar.save(file);
+        System.out.println(file + " ecrit en " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.Arrays;
+
+/**
+ * La classe <code>ProximityDetector</code> detecte a chaque pas les
+ * collisions entre les voiliers d'une <code>SailboatFleet</code>, les
+ * contacts avec les marques du parcours et le passage des marques.
+ * <p>
+ * La phase large range le centre de la coque de chaque voilier dans une
+ * <code>SpatialHashGrid</code> mise a jour de facon incrementale ; seules
+ * les paires de cases voisines sont testees, au lieu des N x N paires. La
+ * phase fine represente la coque par une capsule (segment de l'arriere a
+ * l'etrave elargi de la demi-largeur de <code>BoatGeometry</code>) et teste
+ * la distance entre segments.
+ * <p>
+ * Les voiliers passent les marques dans l'ordre de leur ajout. Un voilier
+ * entre dans la zone de sa marque suivante quand il s'en approche a moins de
+ * <code>zoneRadius</code> ; l'angle qu'il decrit autour de la marque est
+ * cumule tant qu'il est dans la zone, et la marque est passee s'il en sort
+ * apres l'avoir contournee d'au moins <code>roundingAngle</code>.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class ProximityDetector implements SpatialHashGrid.PairVisitor {
+    /**
+     * Rayon par defaut de la zone d'une marque et angle minimal de contournement
+     */
+    public static final double DEFAULT_ZONE_RADIUS = 5., DEFAULT_ROUNDING_ANGLE = 0.5 * Math.PI;
+    /**
+     * Rayon des marques, celui des bouees dessinees
+     */
+    public static final double MARK_RADIUS = 1.;
+    /**
+     * Rayon de la capsule de la coque
+     */
+    private static final double HULL_RADIUS = BoatGeometry.HULL_HALF_BEAM;
+    /**
+     * Abscisses, dans le repere du voilier, du centre de la capsule et demi-longueur de son segment
+     */
+    private static final double HULL_CENTER = 0.5 * (BoatGeometry.HULL_STERN + BoatGeometry.HULL_BOW),
+            HULL_HALF_LENGTH = 0.5 * (BoatGeometry.HULL_BOW - BoatGeometry.HULL_STERN) - HULL_RADIUS;
+
+    /**
+     * Flotte surveillee
+     */
+    private final SailboatFleet fleet;
+    /**
+     * Destinataire des evenements
+     */
+    private final ProximityListener listener;
+    /**
+     * Phase large sur les centres des coques
+     */
+    private final SpatialHashGrid grid;
+    /**
+     * Centre et direction de la capsule de chaque voilier au pas courant
+     */
+    private final double[] cx, cy, ux, uy;
+    /**
+     * Marques : positions
+     */
+    private double[] markX = new double[4], markY = new double[4];
+    /**
+     * Nombre de marques
+     */
+    private int markCount;
+    /**
+     * Marque suivante de chaque voilier, <code>markCount</code> une fois le parcours fini
+     */
+    private final int[] nextMark;
+    /**
+     * Angle decrit autour de la marque suivante depuis l'entree dans sa zone, NaN hors de la zone
+     */
+    private final double[] swept;
+    /**
+     * Relevement de la marque suivante au pas precedent
+     */
+    private final double[] bearing;
+    /**
+     * Voiliers proches d'une marque, tampon reutilise
+     */
+    private int[] nearMark = new int[64];
+    /**
+     * Rayon de la zone d'une marque et angle minimal de contournement
+     */
+    private double zoneRadius = DEFAULT_ZONE_RADIUS, roundingAngle = DEFAULT_ROUNDING_ANGLE;
+    /**
+     * Instant du pas en cours
+     */
+    private double time;
+
+    /**
+     * Constructeur
+     * @param fleet flotte surveillee
+     * @param listener destinataire des evenements
+     */
+    public ProximityDetector(SailboatFleet fleet, ProximityListener listener) {
+        int n = fleet.getSize();
+        this.fleet = fleet;
+        this.listener = listener;
+        this.grid = new SpatialHashGrid(n, 2 * (HULL_HALF_LENGTH + HULL_RADIUS));
+        this.cx = new double[n];
+        this.cy = new double[n];
+        this.ux = new double[n];
+        this.uy = new double[n];
+        this.nextMark = new int[n];
+        this.swept = new double[n];
+        this.bearing = new double[n];
+        Arrays.fill(this.swept, Double.NaN);
+    }
+
+    /**
+     * Ajout d'une marque a la fin du parcours
+     * @param x position selon Ox0
+     * @param y position selon Oy0
+     * @return l'indice de la marque
+     */
+    public int addMark(double x, double y) {
+        if (this.markCount == this.markX.length) {
+            this.markX = Arrays.copyOf(this.markX, 2 * this.markCount);
+            this.markY = Arrays.copyOf(this.markY, 2 * this.markCount);
+        }
+        this.markX[this.markCount] = x;
+        this.markY[this.markCount] = y;
+        return this.markCount++;
+    }
+
+    /**
+     * Detection apres un pas de la flotte
+     * @param t instant simule
+     */
+    public void update(double t) {
+        this.time = t;
+        SailboatFleet f = this.fleet;
+        int n = f.getSize();
+        for (int i = 0; i < n; i++) {
+            double phi = f.getPhi(i);
+            double c = Math.cos(phi);
+            double s = Math.sin(phi);
+            this.ux[i] = c;
+            this.uy[i] = s;
+            this.cx[i] = f.getX(i) + HULL_CENTER * c;
+            this.cy[i] = f.getY(i) + HULL_CENTER * s;
+            this.grid.update(i, this.cx[i], this.cy[i]);
+        }
+        this.grid.forEachPair(this);
+        for (int m = 0; m < this.markCount; m++) {
+            this.detectMarkContacts(m);
+        }
+        for (int i = 0; i < n; i++) {
+            if (this.grid.contains(i)) {
+                this.trackRounding(i);
+            }
+        }
+    }
+
+    /**
+     * Phase fine d'une paire candidate : distance entre les segments des deux capsules
+     */
+    @Override
+    public void visit(int a, int b) {
+        double reach = 2 * HULL_RADIUS;
+        double dx = this.cx[b] - this.cx[a];
+        double dy = this.cy[b] - this.cy[a];
+        double bound = reach + 2 * HULL_HALF_LENGTH;
+        if (dx * dx + dy * dy > bound * bound) {
+            return;
+        }
+        if (segmentDistance2(this.cx[a], this.cy[a], this.ux[a], this.uy[a], this.cx[b], this.cy[b],
+                this.ux[b], this.uy[b], HULL_HALF_LENGTH) <= reach * reach) {
+            this.listener.collision(a, b, this.time);
+        }
+    }
+
+    /**
+     * Contacts d'une marque avec les coques proches
+     */
+    private void detectMarkContacts(int m) {
+        double mx = this.markX[m];
+        double my = this.markY[m];
+        double reach = HULL_RADIUS + MARK_RADIUS;
+        int count;
+        while ((count = this.grid.query(mx, my, reach + HULL_HALF_LENGTH, this.nearMark)) == this.nearMark.length) {
+            this.nearMark = new int[2 * this.nearMark.length];
+        }
+        Arrays.sort(this.nearMark, 0, count);
+        for (int k = 0; k < count; k++) {
+            int i = this.nearMark[k];
+            if (pointDistance2(mx, my, this.cx[i], this.cy[i], this.ux[i], this.uy[i], HULL_HALF_LENGTH)
+                    <= reach * reach) {
+                this.listener.markContact(i, m, this.time);
+            }
+        }
+    }
+
+    /**
+     * Suivi du contournement de la marque suivante d'un voilier
+     */
+    private void trackRounding(int i) {
+        int m = this.nextMark[i];
+        if (m >= this.markCount) {
+            return;
+        }
+        double dx = this.fleet.getX(i) - this.markX[m];
+        double dy = this.fleet.getY(i) - this.markY[m];
+        boolean inside = dx * dx + dy * dy <= this.zoneRadius * this.zoneRadius;
+        double b = Math.atan2(dy, dx);
+        if (Double.isNaN(this.swept[i])) {
+            if (inside) {
+                this.swept[i] = 0;
+                this.bearing[i] = b;
+            }
+            return;
+        }
+        this.swept[i] += PolarDiagram.normalizeAngle(b - this.bearing[i]);
+        this.bearing[i] = b;
+        if (!inside) {
+            boolean rounded = Math.abs(this.swept[i]) >= this.roundingAngle;
+            this.swept[i] = Double.NaN;
+            if (rounded) {
+                this.nextMark[i]++;
+                this.listener.markRounded(i, m, this.time);
+            }
+        }
+    }
+
+    /**
+     * Carre de la distance entre deux segments centres, de directions unitaires et de meme demi-longueur
+     */
+    static double segmentDistance2(double ax, double ay, double aux, double auy, double bx, double by, double bux,
+            double buy, double h) {
+        // points les plus proches de a + s au et b + u bu, s et u dans [-h, h]
+        double rx = ax - bx;
+        double ry = ay - by;
+        double d = aux * bux + auy * buy;
+        double e = aux * rx + auy * ry;
+        double g = bux * rx + buy * ry;
+        double denom = 1 - d * d;
+        double s = denom > 1e-12 ? clamp((d * g - e) / denom, h) : 0;
+        double u = clamp(d * s + g, h);
+        s = clamp(d * u - e, h);
+        double px = rx + s * aux - u * bux;
+        double py = ry + s * auy - u * buy;
+        return px * px + py * py;
+    }
+
+    /**
+     * Carre de la distance entre un point et un segment centre de direction unitaire
+     */
+    static double pointDistance2(double x, double y, double sx, double sy, double ux, double uy, double h) {
+        double s = clamp((x - sx) * ux + (y - sy) * uy, h);
+        double px = x - sx - s * ux;
+        double py = y - sy - s * uy;
+        return px * px + py * py;
+    }
+
+    private static double clamp(double v, double h) {
+        return Math.max(-h, Math.min(h, v));
+    }
+
+    /**
+     * Marque suivante d'un voilier
+     * @param i indice du voilier
+     * @return l'indice de la marque, le nombre de marques si le parcours est fini
+     */
+    public int getNextMark(int i) {
+        return this.nextMark[i];
+    }
+
+    public int getMarkCount() {
+        return markCount;
+    }
+
+    public double getZoneRadius() {
+        return zoneRadius;
+    }
+
+    public void setZoneRadius(double zoneRadius) {
+        this.zoneRadius = zoneRadius;
+    }
+
+    public double getRoundingAngle() {
+        return roundingAngle;
+    }
+
+    public void setRoundingAngle(double roundingAngle) {
+        this.roundingAngle = roundingAngle;
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * L'interface <code>ProximityListener</code> recoit les evenements de
+ * proximite detectes par <code>ProximityDetector</code>. Ses methodes sont
+ * appelees par le thread qui appelle <code>ProximityDetector.update</code>,
+ * dans l'ordre des indices de voiliers.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public interface ProximityListener {
+    /**
+     * Chevauchement des coques de deux voiliers, signale a chaque pas tant qu'il dure
+     * @param a indice du premier voilier
+     * @param b indice du second voilier, plus grand que <code>a</code>
+     * @param t instant simule
+     */
+    default void collision(int a, int b, double t) {
+    }
+
+    /**
+     * Contact entre la coque d'un voilier et une marque, signale a chaque pas tant qu'il dure
+     * @param boat indice du voilier
+     * @param mark indice de la marque
+     * @param t instant simule
+     */
+    default void markContact(int boat, int mark, double t) {
+    }
+
+    /**
+     * Passage d'une marque du parcours, signale une fois
+     * @param boat indice du voilier
+     * @param mark indice de la marque passee
+     * @param t instant simule
+     */
+    default void markRounded(int boat, int mark, double t) {
+    }
+}
@@ -43,6 +43,17 @@ public class Rudder {
         this.hauteurSafran = 1.0;
 	}
 
+    /**
+     * Constructeur : copie d'un safran
+     * @param other safran copie
+     */
+    public Rudder(Rudder other) {
+        this.rudderAng = other.rudderAng;
+        this.surfaceSafran = other.surfaceSafran;
+        this.longueurSafran = other.longueurSafran;
+        this.hauteurSafran = other.hauteurSafran;
+    }
+
     /**
      * Getter de l'attribut longueurSafran
      * @return la longueur du safran
@@ -59,6 +70,14 @@ public class Rudder {
         return hauteurSafran;
     }
 
+    /**
+     * Getter de l'attribut surfaceSafran
+     * @return la surface du safran
+     */
+    public double getSurfaceSafran() {
+        return surfaceSafran;
+    }
+
     /**
      * Getter de l'attribut rudderAng
      * @return l'angle du safran en radians
@@ -84,12 +103,47 @@ public class Rudder {
      */
 	public double fDeviation(double vx1, double vy1, double deltag) {
         this.rudderAng = deltag;
-		double vx3 = vx1 * Math.cos(this.rudderAng) + vy1 * Math.sin(this.rudderAng);
-        double vy3 = vy1 * Math.cos(this.rudderAng) - vx1 * Math.sin(this.rudderAng);
+        return this.computeFDeviation(vx1, vy1, this.rudderAng);
+    }
+
+    /**
+     * Calcul de la force de deviation sur le safran selon l'axe O3z3 sans modifier l'angle du safran
+     * @param vx1 vitesse du voilier selon Gx1
+     * @param vy1 vitesse du voilier selon Gy1
+     * @param rudderAng angle du safran
+     * @return valeur de la force de deviation suivant O3z3
+     */
+    public double computeFDeviation(double vx1, double vy1, double rudderAng) {
+        return this.computeFDeviation(vx1, vy1, Math.sin(rudderAng), Math.cos(rudderAng));
+    }
+
+    /**
+     * Calcul de la force de deviation sur le safran selon l'axe O3z3 a partir du repere du pas courant
+     * @param vx1 vitesse du voilier selon Gx1
+     * @param vy1 vitesse du voilier selon Gy1
+     * @param frame repere cinematique du voilier, contenant l'angle du safran
+     * @return valeur de la force de deviation suivant O3z3
+     */
+    public double computeFDeviation(double vx1, double vy1, KinematicFrame frame) {
+        return this.computeFDeviation(vx1, vy1, frame.getSinRudderAng(), frame.getCosRudderAng());
+    }
+
+    /**
+     * Calcul de la force de deviation sur le safran selon l'axe O3z3, commun aux deux surcharges
+     * @param vx1 vitesse du voilier selon Gx1
+     * @param vy1 vitesse du voilier selon Gy1
+     * @param sinRudderAng sinus de l'angle du safran
+     * @param cosRudderAng cosinus de l'angle du safran
+     * @return valeur de la force de deviation suivant O3z3
+     */
+    private double computeFDeviation(double vx1, double vy1, double sinRudderAng, double cosRudderAng) {
+        double vx3 = vx1 * cosRudderAng + vy1 * sinRudderAng;
+        double vy3 = vy1 * cosRudderAng - vx1 * sinRudderAng;
         double v2 = Math.pow(vx1, 2.) + Math.pow(vy1, 2.);
         double ang = Math.atan2(vy3, vx3);
-        double fDev = this.surfaceSafran * v2 * Math.sin(ang) * 0.9;
-        fDev /= (0.2 + 0.3 * Math.sin(ang));
+        double sinAng = Math.sin(ang);
+        double fDev = this.surfaceSafran * v2 * sinAng * 0.9;
+        fDev /= (0.2 + 0.3 * sinAng);
         return fDev;
     }
 }
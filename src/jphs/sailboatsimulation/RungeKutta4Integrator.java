@@ -0,0 +1,55 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * La classe <code>RungeKutta4Integrator</code> implemente la methode de
+ * Runge-Kutta classique a quatre etages. Ordre 4.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class RungeKutta4Integrator implements Integrator {
+    /**
+     * Etat intermediaire
+     */
+    private double[] stage;
+    /**
+     * Derivees aux etages 2, 3 et 4
+     */
+    private double[] k2, k3, k4;
+
+    @Override
+    public Integrator copy() {
+        return new RungeKutta4Integrator();
+    }
+
+    @Override
+    public void integrate(StateDerivative f, double t, double[] state, double[] dState, double dt) {
+        int n = state.length;
+        if (this.stage == null || this.stage.length != n) {
+            this.stage = new double[n];
+            this.k2 = new double[n];
+            this.k3 = new double[n];
+            this.k4 = new double[n];
+        }
+        double halfDt = 0.5 * dt;
+        for (int i = 0; i < n; i++) {
+            this.stage[i] = state[i] + halfDt * dState[i];
+        }
+        f.computeDerivative(t + halfDt, this.stage, this.k2);
+        for (int i = 0; i < n; i++) {
+            this.stage[i] = state[i] + halfDt * this.k2[i];
+        }
+        f.computeDerivative(t + halfDt, this.stage, this.k3);
+        for (int i = 0; i < n; i++) {
+            this.stage[i] = state[i] + dt * this.k3[i];
+        }
+        f.computeDerivative(t + dt, this.stage, this.k4);
+        double sixthDt = dt / 6.;
+        for (int i = 0; i < n; i++) {
+            state[i] = state[i] + sixthDt * (dState[i] + 2. * this.k2[i] + 2. * this.k3[i] + this.k4[i]);
+        }
+    }
+}
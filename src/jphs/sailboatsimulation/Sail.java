@@ -36,6 +36,14 @@ public class Sail {
      * Force velique
      */
     private double fV;
+    /**
+     * Coefficients aerodynamiques de la voile
+     */
+    private SailProfile profile;
+    /**
+     * Repere reutilise par la surcharge prenant le voilier
+     */
+    private final KinematicFrame legacyFrame = new KinematicFrame();
 
     /**
      * Constructeur
@@ -51,8 +59,22 @@ public class Sail {
 		this.hV = hV;
 		this.l = l;
         this.fV = 0;
+        this.profile = SailProfile.DEFAULT;
 	}
 
+    /**
+     * Constructeur : copie d'une voile, qui partage le profil de l'autre
+     * @param other voile copiee
+     */
+    public Sail(Sail other) {
+        this.deltaV = other.deltaV;
+        this.surfaceVoile = other.surfaceVoile;
+        this.hV = other.hV;
+        this.l = other.l;
+        this.fV = other.fV;
+        this.profile = other.profile;
+    }
+
     /**
      * Getter de l'attribut deltaV
      * @return la valeur de l'angle de la voile en radians
@@ -69,6 +91,14 @@ public class Sail {
 		this.deltaV = deltaV;
 	}
 
+    /**
+     * Getter de l'attribut surfaceVoile
+     * @return la surface de la voile
+     */
+    public double getSurfaceVoile() {
+        return surfaceVoile;
+    }
+
     /**
      * Getter de l'attribut hV
      * @return la valeur de la hauteur du centre de poussee de la voile
@@ -101,34 +131,42 @@ public class Sail {
         return this.fV;
     }
 
+    /**
+     * Setter de l'attribut fV
+     * @param fV nouvelle valeur de la force velique suivant l'axe O2y2
+     */
+    public void setfV(double fV) {
+        this.fV = fV;
+    }
+
+    /**
+     * Getter de l'attribut profile
+     * @return les coefficients aerodynamiques de la voile
+     */
+    public SailProfile getProfile() {
+        return this.profile;
+    }
+
+    /**
+     * Setter de l'attribut profile
+     * @param profile nouveaux coefficients aerodynamiques de la voile
+     */
+    public void setProfile(SailProfile profile) {
+        this.profile = profile;
+    }
+
     /**
      * Calcul du coefficient de portance
-     * @param psiv angle du vent par rapport à la voile
+     * @param psiv angle du vent par rapport à la voile en radians
      * @return coefficient de portance
      */
 	public double computeCx(double psiv) {
-        double a = 0;
-        double b = 0;
-        double ang = Math.toDegrees(Math.abs(psiv));
-        if (ang <= 15.) {
-            a = 0.9 / 15.;
-        } else if (ang <= 90.) {
-            a = -0.9 / 75.;
-            b = 0.9;
-            ang -= 15.;
-        } else if (ang <= 165.) {
-            a = 0.9 / 75.;
-            ang -= 90.;
-        } else if (ang <= 180.) {
-            a = -0.9 / 75.;
-            b = 0.9;
-            ang -= 165.;
-        }
-        return a * ang + b;
+        return this.profile.getLift(psiv);
     }
 
     /**
-     * Calcul de la force velique sur la voile selon O2z2
+     * Calcul de la force velique sur la voile selon O2z2 ; le repere est recalcule dans un objet reutilise par
+     * cette voile, la surcharge prenant un <code>KinematicFrame</code> evite ce calcul
      * @param deltavmax angle de la voile
      * @param a intensite du vent
      * @param psiv angle du vent  dans R0
@@ -136,26 +174,51 @@ public class Sail {
      * @return la valeur de la force velique sur la voile selon 02z2
      */
 	public double update(double deltavmax, double a, double psiv, Sailboat sailboat) {
-		this.deltaV = deltavmax;
-		double wappx2 = (a * Math.cos(psiv) - sailboat.getxPoint()) * (Math.cos(sailboat.getPhi()) *
-                Math.cos(this.deltaV) - Math.sin(sailboat.getPhi()) * Math.cos(sailboat.getTheta()) *
-                Math.sin(this.deltaV));
-        wappx2 += (a * Math.sin(psiv) - sailboat.getyPoint()) * (Math.sin(sailboat.getPhi()) *
-                Math.cos(this.deltaV) + Math.cos(sailboat.getPhi()) * Math.cos(sailboat.getTheta()) *
-                Math.sin(this.deltaV));
-        double wappy2 = -(a * Math.cos(psiv) - sailboat.getxPoint()) * (Math.cos(sailboat.getPhi()) *
-                Math.sin(deltaV) + Math.sin(sailboat.getPhi()) * Math.cos(sailboat.getTheta()) *
-                Math.cos(this.deltaV));
-        wappy2 += (a * Math.sin(psiv) - sailboat.getyPoint()) * (Math.cos(sailboat.getPhi()) *
-                Math.cos(sailboat.getTheta()) * Math.cos(this.deltaV) - Math.sin(sailboat.getPhi() *
-                Math.sin(this.deltaV)));
-        double wappz2 = (a * Math.cos(psiv) - sailboat.getxPoint()) * Math.sin(sailboat.getPhi()) *
-                Math.sin(sailboat.getTheta());
-        wappz2 -= (a * Math.sin(psiv) - sailboat.getyPoint()) * Math.cos(sailboat.getPhi()) *
-                Math.cos(sailboat.getTheta());
+        KinematicFrame frame = this.legacyFrame;
+        frame.set(sailboat, deltavmax, sailboat.getDeltag());
+        return this.update(a, psiv, frame);
+	}
+
+    /**
+     * Calcul de la force velique sur la voile selon O2z2 a partir du repere du pas courant
+     * @param a intensite du vent
+     * @param psiv angle du vent  dans R0
+     * @param frame repere cinematique du voilier, contenant l'angle de la voile
+     * @return la valeur de la force velique sur la voile selon 02z2
+     */
+    public double update(double a, double psiv, KinematicFrame frame) {
+        this.deltaV = frame.getDeltaV();
+        this.fV = this.computeFVelique(a, psiv, frame);
+        return this.fV;
+    }
+
+    /**
+     * Calcul de la force velique sur la voile selon O2z2 sans modifier l'etat de la voile
+     * @param a intensite du vent
+     * @param psiv angle du vent dans R0
+     * @param frame repere cinematique du voilier, contenant l'angle de la voile
+     * @return la valeur de la force velique sur la voile selon 02z2
+     */
+    public double computeFVelique(double a, double psiv, KinematicFrame frame) {
+        double sinPhi = frame.getSinPhi();
+        double cosPhi = frame.getCosPhi();
+        double sinTheta = frame.getSinTheta();
+        double cosTheta = frame.getCosTheta();
+        double sinDeltaV = frame.getSinDeltaV();
+        double cosDeltaV = frame.getCosDeltaV();
+        /*
+            Vent reel moins vitesse du voilier dans R0
+         */
+        double wx0 = a * Math.cos(psiv) - frame.getxPoint();
+        double wy0 = a * Math.sin(psiv) - frame.getyPoint();
+		double wappx2 = wx0 * (cosPhi * cosDeltaV - sinPhi * cosTheta * sinDeltaV);
+        wappx2 += wy0 * (sinPhi * cosDeltaV + cosPhi * cosTheta * sinDeltaV);
+        double wappy2 = -wx0 * (cosPhi * sinDeltaV + sinPhi * cosTheta * cosDeltaV);
+        wappy2 += wy0 * (cosPhi * cosTheta * cosDeltaV - Math.sin(frame.getPhi() * sinDeltaV));
+        double wappz2 = wx0 * sinPhi * sinTheta;
+        wappz2 -= wy0 * cosPhi * cosTheta;
         double a_ap2 = Math.pow(wappx2, 2.) + Math.pow(wappy2, 2.) + Math.pow(wappz2, 2.);
         double psiv2 = Math.atan2(wappy2, wappx2);
-		this.fV =  0.5 * Sail.RHO_AIR * this.surfaceVoile * a_ap2 * this.computeCx(psiv2)*Math.signum(wappy2);
-        return this.fV;
+		return 0.5 * Sail.RHO_AIR * this.surfaceVoile * a_ap2 * this.computeCx(psiv2)*Math.signum(wappy2);
 	}
 }
@@ -0,0 +1,232 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * La classe <code>SailProfile</code> decrit le coefficient de portance d'une
+ * voile en fonction de l'angle entre le vent apparent et la voile.
+ * <p>
+ * Le coefficient est donne par des points (angle, portance) et
+ * reechantillonne a la construction sur un axe a pas constant de 0 a PI
+ * radians. Une recherche ne fait ni conversion en degres ni test sur les
+ * branches : position sur l'axe, case, puis interpolation lineaire avec la
+ * pente precalculee de la case. Le profil est symetrique : seule la valeur
+ * absolue de l'angle compte.
+ * <p>
+ * Fichier de profils : une directive par ligne, les lignes vides et celles
+ * commencant par <code>#</code> sont ignorees. Un fichier peut contenir
+ * plusieurs profils :
+ * <pre>
+ * profile default
+ * # pas de la table en degres (1 par defaut)
+ * step 15
+ * # angle en degres, portance
+ * 0 0
+ * 15 0.9
+ * 90 0
+ * 165 0.9
+ * 180 0.72
+ * </pre>
+ * Les angles doivent etre croissants, multiples du pas et couvrir 0 a 180
+ * degres ; deux profils d'un meme fichier ne peuvent pas porter le meme nom.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class SailProfile {
+    /**
+     * Profil historique de la voile : portance lineaire par morceaux, nulle a 0 et 90 degres, maximale a 15 et
+     * 165 degres puis decroissant de 0.9 / 75 par degre jusqu'a 180 degres
+     */
+    public static final SailProfile DEFAULT = new SailProfile("default", 15.,
+            new double[] { 0., 15., 90., 165., 180. },
+            new double[] { 0., 0.9, 0., 0.9, 0.72 });
+    /**
+     * Nom du profil
+     */
+    private final String name;
+    /**
+     * Axe des angles en radians, de 0 a PI
+     */
+    private final UniformAxis axis;
+    /**
+     * Coefficients de portance aux angles de l'axe
+     */
+    private final double[] lift;
+    /**
+     * Ecarts du coefficient entre un angle de l'axe et le suivant
+     */
+    private final double[] liftSlope;
+
+    /**
+     * Constructeur a partir de points, reechantillonnes sur un axe a pas constant
+     * @param name nom du profil
+     * @param step pas de la table en degres, qui doit diviser 180
+     * @param angles angles des points en degres, croissants, multiples du pas, de 0 a 180
+     * @param lift coefficients de portance des points
+     */
+    public SailProfile(String name, double step, double[] angles, double[] lift) {
+        if (angles.length < 2 || angles.length != lift.length) {
+            throw new IllegalArgumentException(name + " : au moins deux points complets sont necessaires");
+        }
+        if (angles[0] != 0. || angles[angles.length - 1] != 180.) {
+            throw new IllegalArgumentException(name + " : les angles doivent aller de 0 a 180 degres");
+        }
+        for (int i = 1; i < angles.length; i++) {
+            if (!(angles[i] > angles[i - 1])) {
+                throw new IllegalArgumentException(name + " : angles non croissants a " + angles[i] + " degres");
+            }
+        }
+        long count = Math.round(180. / step);
+        if (!(step > 0) || Math.abs(count * step - 180.) > 1e-9) {
+            throw new IllegalArgumentException(name + " : le pas " + step + " ne divise pas 180 degres");
+        }
+        for (double angle : angles) {
+            if (Math.abs(angle - Math.round(angle / step) * step) > 1e-9) {
+                throw new IllegalArgumentException(name + " : l'angle " + angle
+                        + " degres n'est pas un multiple du pas " + step);
+            }
+        }
+        this.name = name;
+        this.axis = new UniformAxis(0., Math.toRadians(step), (int) count + 1);
+        int n = this.axis.getCount();
+        this.lift = new double[n];
+        int segment = 0;
+        for (int i = 0; i < n; i++) {
+            double ang = i * step;
+            while (segment < angles.length - 2 && ang > angles[segment + 1]) {
+                segment++;
+            }
+            double t = (ang - angles[segment]) / (angles[segment + 1] - angles[segment]);
+            this.lift[i] = lift[segment] + t * (lift[segment + 1] - lift[segment]);
+        }
+        this.liftSlope = new double[n];
+        for (int i = 0; i < n - 1; i++) {
+            this.liftSlope[i] = this.lift[i + 1] - this.lift[i];
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public UniformAxis getAxis() {
+        return axis;
+    }
+
+    /**
+     * Calcul du coefficient de portance
+     * @param psiv angle du vent par rapport a la voile en radians, dans [-PI, PI]
+     * @return coefficient de portance
+     */
+    public double getLift(double psiv) {
+        double p = this.axis.position(Math.abs(psiv));
+        int i = this.axis.cell(p);
+        return this.lift[i] + this.liftSlope[i] * (p - i);
+    }
+
+    /**
+     * Lecture des profils d'un fichier
+     * @param file fichier a lire
+     * @return les profils lus, par nom, dans l'ordre du fichier
+     * @throws IOException si la lecture echoue
+     */
+    public static Map<String, SailProfile> load(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(file.toString(), in);
+        }
+    }
+
+    /**
+     * Lecture de profils
+     * @param source nom de la source, pour les messages d'erreur
+     * @param in texte des profils
+     * @return les profils lus, par nom, dans l'ordre de lecture
+     * @throws IOException si la lecture echoue
+     */
+    public static Map<String, SailProfile> parse(String source, BufferedReader in) throws IOException {
+        Map<String, SailProfile> profiles = new LinkedHashMap<>();
+        String name = null;
+        double step = 1.;
+        int n = 0;
+        double[] points = new double[2 * 16];
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] tokens = line.split("\\s+");
+            try {
+                if ("profile".equals(tokens[0])) {
+                    if (name != null) {
+                        profiles.put(name, create(name, step, points, n));
+                    }
+                    if (tokens.length != 2) {
+                        throw new IllegalArgumentException("'profile <nom>' attendu");
+                    }
+                    if (profiles.containsKey(tokens[1])) {
+                        throw new IllegalArgumentException("profil '" + tokens[1] + "' deja defini");
+                    }
+                    name = tokens[1];
+                    step = 1.;
+                    n = 0;
+                } else if (name == null) {
+                    throw new IllegalArgumentException("'profile <nom>' attendu avant les points");
+                } else if ("step".equals(tokens[0]) && tokens.length == 2) {
+                    step = Double.parseDouble(tokens[1]);
+                } else if (tokens.length == 2) {
+                    if (2 * n == points.length) {
+                        points = Arrays.copyOf(points, 2 * points.length);
+                    }
+                    for (int k = 0; k < 2; k++) {
+                        points[2 * n + k] = Double.parseDouble(tokens[k]);
+                    }
+                    n++;
+                } else {
+                    throw new IllegalArgumentException("directive inconnue '" + line + "'");
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(source + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        if (name != null) {
+            try {
+                profiles.put(name, create(name, step, points, n));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(source + ": " + e.getMessage(), e);
+            }
+        }
+        return profiles;
+    }
+
+    /**
+     * Creation d'un profil a partir des points lus
+     */
+    private static SailProfile create(String name, double step, double[] points, int n) {
+        double[] angles = new double[n];
+        double[] lift = new double[n];
+        for (int i = 0; i < n; i++) {
+            angles[i] = points[2 * i];
+            lift[i] = points[2 * i + 1];
+        }
+        return new SailProfile(name, step, angles, lift);
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
@@ -17,6 +17,15 @@ package jphs.sailboatsimulation;
  * @author Bruno Aizier
  */
 public class Sailboat {
+    /**
+     * Indices des variables dans le vecteur d'etat : les positions puis les vitesses correspondantes
+     */
+    public static final int X = 0, Y = 1, THETA = 2, PHI = 3, X_POINT = 4, Y_POINT = 5, THETA_POINT = 6,
+            PHI_POINT = 7;
+    /**
+     * Taille du vecteur d'etat
+     */
+    public static final int STATE_SIZE = 8;
 
     /**
      * Position du voilier selon Ox0
@@ -74,6 +83,30 @@ public class Sailboat {
      * Safran
      */
 	private Rudder theRudder;
+    /**
+     * Repere cinematique du pas courant, reutilise d'un pas a l'autre
+     */
+    private final KinematicFrame frame;
+    /**
+     * Schema d'integration numerique
+     */
+    private Integrator integrator;
+    /**
+     * Systeme integre par le schema numerique
+     */
+    private final StateDerivative derivative;
+    /**
+     * Vecteur d'etat et sa derivee, reutilises d'un pas a l'autre
+     */
+    private final double[] state, dState;
+    /**
+     * Angle du safran, force et direction du vent du pas courant
+     */
+    private double stepDeltag, stepWindForce, stepWindDir;
+    /**
+     * Vent echantillonne a la position du voilier, reutilise d'un pas a l'autre
+     */
+    private final Wind localWind = new Wind();
 
     /**
      * Constructeur
@@ -113,8 +146,40 @@ public class Sailboat {
 		 * Gouvernail : surfaceSafran = 0.2
 		 */
 		this.theRudder = new Rudder(0, 0.2);
+        this.frame = new KinematicFrame();
+        this.integrator = new SemiImplicitEulerIntegrator();
+        this.derivative = new Derivative();
+        this.state = new double[STATE_SIZE];
+        this.dState = new double[STATE_SIZE];
 	}
 
+    /**
+     * Constructeur : copie d'un voilier, de son etat et de ses parametres, avec ses propres coque, voile,
+     * safran et schema d'integration (<code>Integrator.copy</code>)
+     * @param other voilier copie
+     */
+    public Sailboat(Sailboat other) {
+        this.deltavmax = other.deltavmax;
+        this.x = other.x;
+        this.y = other.y;
+        this.phi = other.phi;
+        this.theta = other.theta;
+        this.xPoint = other.xPoint;
+        this.yPoint = other.yPoint;
+        this.thetaPoint = other.thetaPoint;
+        this.phiPoint = other.phiPoint;
+        this.dcgCcMax = other.dcgCcMax;
+        this.lgCcz1 = other.lgCcz1;
+        this.theHull = new Hull(other.theHull);
+        this.theSail = new Sail(other.theSail);
+        this.theRudder = new Rudder(other.theRudder);
+        this.frame = new KinematicFrame();
+        this.integrator = other.integrator.copy();
+        this.derivative = new Derivative();
+        this.state = new double[STATE_SIZE];
+        this.dState = new double[STATE_SIZE];
+    }
+
     /**
      * Getter de l'attribut deltavmax
      * @return valeur de l'angle de la voile
@@ -123,6 +188,14 @@ public class Sailboat {
 		return deltavmax;
 	}
 
+    /**
+     * Setter de l'attribut deltavmax
+     * @param deltavmax valeur de l'angle de la voile commande
+     */
+    public void setDeltavmax(double deltavmax) {
+        this.deltavmax = deltavmax;
+    }
+
     /**
      * Recuperation de l'angle du safran
      * @return valeur de l'angle du safran en radian
@@ -219,6 +292,54 @@ public class Sailboat {
         return phiPoint;
     }
 
+    /**
+     * Setter de l'attribut theta
+     * @param theta nouvelle valeur de l'angle du voilier autour de l'axe Gx1
+     */
+    public void setTheta(double theta) {
+        this.theta = theta;
+    }
+
+    /**
+     * Setter de l'attribut phi
+     * @param phi nouvelle valeur de l'angle du voilier autour de l'axe Gz0
+     */
+    public void setPhi(double phi) {
+        this.phi = phi;
+    }
+
+    /**
+     * Setter de l'attribut xPoint
+     * @param xPoint nouvelle valeur de la vitesse du voilier selon l'axe Ox0
+     */
+    public void setxPoint(double xPoint) {
+        this.xPoint = xPoint;
+    }
+
+    /**
+     * Setter de l'attribut yPoint
+     * @param yPoint nouvelle valeur de la vitesse du voilier selon l'axe Oy0
+     */
+    public void setyPoint(double yPoint) {
+        this.yPoint = yPoint;
+    }
+
+    /**
+     * Setter de l'attribut thetaPoint
+     * @param thetaPoint nouvelle valeur de la vitesse de rotation du voilier autour de l'axe Gx1
+     */
+    public void setThetaPoint(double thetaPoint) {
+        this.thetaPoint = thetaPoint;
+    }
+
+    /**
+     * Setter de l'attribut phiPoint
+     * @param phiPoint nouvelle valeur de la vitesse de rotation du voilier autour de l'axe Gz0
+     */
+    public void setPhiPoint(double phiPoint) {
+        this.phiPoint = phiPoint;
+    }
+
     /**
      * Getter de l'attribut theSail
      * @return l'objet decrivant la voile du voilier
@@ -228,68 +349,113 @@ public class Sailboat {
     }
 
     /**
-     * Calcul de la force velique
-     * @param theWind vent auquel le voilier est soumis
-     * @return valeur de la force velique selon O2x2
+     * Getter de l'attribut integrator
+     * @return le schema d'integration numerique
      */
-    private double fVelique(Wind theWind) {
-        //Force du vent dans 0
-        double a = theWind.getWindForce();
-        //Angle du vent dans 0
-        double psi0 = theWind.getWindDir();
-        //Composante de la force velique selon y2
-        return this.theSail.update(deltavmax, a, psi0, this);
+    public Integrator getIntegrator() {
+        return this.integrator;
+    }
+
+    /**
+     * Setter de l'attribut integrator
+     * @param integrator nouveau schema d'integration numerique, Euler semi-implicite par defaut
+     */
+    public void setIntegrator(Integrator integrator) {
+        this.integrator = integrator;
+    }
+
+    /**
+     * Getter de l'attribut theHull
+     * @return l'objet decrivant la coque du voilier
+     */
+    public Hull getTheHull() {
+        return this.theHull;
     }
 
     /**
-     * Projection de la vitesse du voilier suivant l'axe Gx1
-     * @return composante selon Gx1 de la vitesse du voilier
+     * Getter de l'attribut theRudder
+     * @return l'objet decrivant le safran du voilier
      */
-    private double getVx1() {
-        return this.xPoint * Math.cos(this.phi) + this.yPoint * Math.sin(this.phi);
+    public Rudder getTheRudder() {
+        return this.theRudder;
     }
 
     /**
-     * Projection de la vitesse du voilier suivant l'axe Gy1
-     * @return composante selon Gy1 de la vitesse du voilier
+     * Getter de l'attribut dcgCcMax
+     * @return la distance maximum entre le centre de carene et le centre de gravite selon Gy1
      */
-    private double getVy1() {
-        double vy1 = this.yPoint * Math.cos(this.phi) * Math.cos(this.theta);
-        vy1 -= this.xPoint * Math.sin(this.phi) * Math.cos(this.theta);
-        return vy1;
+    public double getDcgCcMax() {
+        return this.dcgCcMax;
+    }
+
+    /**
+     * Getter de l'attribut lgCcz1
+     * @return la distance maximum entre le centre de carene et le centre de gravite selon Gz1
+     */
+    public double getLgCcz1() {
+        return this.lgCcz1;
+    }
+
+    /**
+     * Calcul de la force velique
+     * @param a force du vent dans R0
+     * @param psi0 direction du vent dans R0
+     * @param f repere cinematique du voilier
+     * @return valeur de la force velique selon O2x2
+     */
+    private double fVelique(double a, double psi0, KinematicFrame f) {
+        //Composante de la force velique selon y2
+        return this.theSail.computeFVelique(a, psi0, f);
     }
 
     /**
      * Calcul de la force anti-derive
+     * @param f repere cinematique du voilier
      * @return force anti-derive selon l'axe Gy1
      */
-    private double fAntiDerive() {
-        return  this.theHull.fAntiDerive(-this.getVx1(), -this.getVy1());
+    private double fAntiDerive(KinematicFrame f) {
+        return  this.theHull.fAntiDerive(-f.getVx1(), -f.getVy1());
     }
 
     /**
      * Calcul de la force de deviation sur le safran
-     * @param deltag angle du safran
+     * @param f repere cinematique du voilier, contenant l'angle du safran
      * @return la force de de deviation sur le safran selon O3y3
      */
-    private double fDeviation(double deltag) {
-        return this.theRudder.fDeviation(-this.getVx1(), -this.getVy1(), deltag);
+    private double fDeviation(KinematicFrame f) {
+        return this.theRudder.computeFDeviation(-f.getVx1(), -f.getVy1(), f);
     }
 
     /**
      * Calcul de la project de la force de resistance a l'avancement sur l'axe Gx1
+     * @param f repere cinematique du voilier
      * @return la valeur de la force de resistance a l'avancement selon l'axe Gx1
      */
-    private double fResistanceX1() {
-        return this.theHull.fResistance(this.getVx1());
+    private double fResistanceX1(KinematicFrame f) {
+        return this.theHull.fResistance(f.getVx1());
     }
 
     /**
      * Calcul de la project de la force de resistance a l'avancement sur l'axe Gy1
+     * @param f repere cinematique du voilier
      * @return la valeur de la force de resistance a l'avancement selon l'axe Gy1
      */
-    private double fResistanceY1() {
-        return this.theHull.fResistance(this.getVy1());
+    private double fResistanceY1(KinematicFrame f) {
+        return this.theHull.fResistance(f.getVy1());
+    }
+
+    /**
+     * Pas de simulation dans un vent variable : le vent est echantillonne a la position du voilier au debut
+     * du pas puis garde constant pendant le pas
+     * @param dt intervalle de temps pour l'integration
+     * @param deltag angle du safran
+     * @param deltavmax angle de la voile
+     * @param wind modele de vent auquel le voilier est soumis
+     * @param t instant simule au debut du pas
+     */
+    public void update(double dt, double deltag, double deltavmax, WindModel wind, double t) {
+        wind.sample(this.x, this.y, t, this.localWind);
+        this.update(dt, deltag, deltavmax, this.localWind);
     }
 
     /**
@@ -301,24 +467,83 @@ public class Sailboat {
      */
 	public void update(double dt, double deltag, double deltavmax, Wind theWind) {
         this.deltavmax = deltavmax;
+        this.stepDeltag = deltag;
+        this.stepWindForce = theWind.getWindForce();
+        this.stepWindDir = theWind.getWindDir();
+        double[] s = this.state;
+        s[X] = this.x;
+        s[Y] = this.y;
+        s[THETA] = this.theta;
+        s[PHI] = this.phi;
+        s[X_POINT] = this.xPoint;
+        s[Y_POINT] = this.yPoint;
+        s[THETA_POINT] = this.thetaPoint;
+        s[PHI_POINT] = this.phiPoint;
+        /*
+            Derivee au debut du pas : la force velique correspondante est conservee par la voile
+         */
+        double fvy2 = this.computeDerivative(s, deltag, deltavmax, this.stepWindForce, this.stepWindDir, this.frame,
+                this.dState);
+        this.theSail.setDeltaV(deltavmax);
+        this.theSail.setfV(fvy2);
+        this.theRudder.setRudderAng(deltag);
+        /*
+            Integration selon le schema choisi
+         */
+        this.integrator.integrate(this.derivative, 0, s, this.dState, dt);
+        this.x = s[X];
+        this.y = s[Y];
+        this.theta = s[THETA];
+        this.phi = s[PHI];
+        this.xPoint = s[X_POINT];
+        this.yPoint = s[Y_POINT];
+        this.thetaPoint = s[THETA_POINT];
+        this.phiPoint = s[PHI_POINT];
+	}
+
+    /**
+     * Calcul des forces et des moments pour obtenir la derivee de l'etat du voilier. Cette methode ne modifie
+     * ni le voilier, ni sa coque, sa voile ou son safran, et peut etre appelee depuis plusieurs threads avec
+     * des reperes differents.
+     * @param state vecteur d'etat (x, y, theta, phi, xPoint, yPoint, thetaPoint, phiPoint)
+     * @param deltag angle du safran
+     * @param deltavmax angle de la voile
+     * @param a force du vent dans R0
+     * @param psi0 direction du vent dans R0
+     * @param f repere cinematique de travail
+     * @param dState vecteur qui recoit la derivee de l'etat
+     * @return valeur de la force velique selon O2y2
+     */
+    public double computeDerivative(double[] state, double deltag, double deltavmax, double a, double psi0,
+            KinematicFrame f, double[] dState) {
+        double thetaPoint = state[THETA_POINT];
+        double phiPoint = state[PHI_POINT];
+        /*
+            Repere du pas courant : les sinus et cosinus des angles sont calcules une seule fois
+         */
+        f.set(state[THETA], state[PHI], state[X_POINT], state[Y_POINT], thetaPoint, phiPoint, deltavmax, deltag);
+        double sinPhi = f.getSinPhi();
+        double cosPhi = f.getCosPhi();
+        double sinTheta = f.getSinTheta();
+        double cosTheta = f.getCosTheta();
 
         /*
             Force velique sur 2 dans R2.
          */
-        double fvy2 = this.fVelique(theWind);
+        double fvy2 = this.fVelique(a, psi0, f);
         /*
             Force anti-derive sur 1 dans R1.
          */
-        double fady1 = this.fAntiDerive();
+        double fady1 = this.fAntiDerive(f);
         /*
             Force de deviation du gouvernail sur 3 dans R3
          */
-        double fdevy3 = this.fDeviation(deltag);
+        double fdevy3 = this.fDeviation(f);
         /*
             Force de resistance a l'avancement sur 1 dans R1
          */
-        double frx1 = this.fResistanceX1();
-        double fry1 = this.fResistanceY1();
+        double frx1 = this.fResistanceX1(f);
+        double fry1 = this.fResistanceY1(f);
         /*
             Poids dans sur 1 dans R0
          */
@@ -326,34 +551,32 @@ public class Sailboat {
         /*
             Force velique dans sur 2 dans R0
          */
-        double deltav = this.theSail.getDeltaV();
-        double fvx0 = -(Math.sin(deltav) * Math.cos(this.phi) + Math.cos(deltav) * Math.sin(this.phi) *
-                Math.sin(this.theta)) * fvy2;
-        double fvy0 = (Math.cos(deltav) * Math.cos(this.theta) * Math.cos(this.phi) - Math.sin(deltav) *
-                Math.sin(this.phi)) * fvy2;
-        double fvz0 = Math.cos(deltav) * Math.sin(this.theta) *fvy2;
+        double sinDeltav = f.getSinDeltaV();
+        double cosDeltav = f.getCosDeltaV();
+        double fvx0 = -(sinDeltav * cosPhi + cosDeltav * sinPhi * sinTheta) * fvy2;
+        double fvy0 = (cosDeltav * cosTheta * cosPhi - sinDeltav * sinPhi) * fvy2;
+        double fvz0 = cosDeltav * sinTheta *fvy2;
         /*
             Force anti-derive sur 1 dans R0
          */
-        double fadx0 = -(Math.cos(this.theta) * Math.sin(this.phi) * fady1);
-        double fady0 = Math.cos(this.theta) * Math.sin(this.phi) * fady1;
-        double fadz0 = Math.sin(this.theta) * fady1;
+        double fadx0 = -(cosTheta * sinPhi * fady1);
+        double fady0 = cosTheta * sinPhi * fady1;
+        double fadz0 = sinTheta * fady1;
         /*
             Force de deviation sur 3 dans R0
          */
-        double rudderAng = this.theRudder.getRudderAng();
-        double fdevx0 = -(Math.sin(rudderAng) * Math.cos(this.phi) + Math.cos(rudderAng) * Math.sin(this.phi) *
-                Math.cos(this.theta)) * fdevy3;
-        double fdevy0 = (Math.cos(rudderAng) * Math.cos(this.theta) * Math.cos(this.phi) - Math.sin(rudderAng) *
-                Math.sin(this.phi) * fdevy3);
-        double fdevz0 = Math.cos(rudderAng) * Math.sin(this.theta) * fdevy3;
+        double sinRudderAng = f.getSinRudderAng();
+        double cosRudderAng = f.getCosRudderAng();
+        double fdevx0 = -(sinRudderAng * cosPhi + cosRudderAng * sinPhi * cosTheta) * fdevy3;
+        double fdevy0 = (cosRudderAng * cosTheta * cosPhi - sinRudderAng * sinPhi * fdevy3);
+        double fdevz0 = cosRudderAng * sinTheta * fdevy3;
 
         /*
             Force de resistance sur 1 dans R0
          */
-        double frx0 = Math.cos(this.phi) * frx1 - Math.cos(this.theta) * Math.sin(this.phi) * fry1;
-        double fry0 = Math.sin(this.phi) * frx1 + Math.cos(this.theta) * Math.cos(this.phi) * fry1;
-        double frz0 = Math.sin(this.theta) * fry1;
+        double frx0 = cosPhi * frx1 - cosTheta * sinPhi * fry1;
+        double fry0 = sinPhi * frx1 + cosTheta * cosPhi * fry1;
+        double frz0 = sinTheta * fry1;
         /*
             Poussee d'archimede sur 1 dans R0
          */
@@ -368,7 +591,7 @@ public class Sailboat {
             Moment de la force velique en G dans R2
          */
         double mfvx2 = -this.theSail.gethV() * fvy2;
-        double mfvz2 = fvy2 * (this.theHull.getrV() * Math.cos(deltav) - this.theSail.getL());
+        double mfvz2 = fvy2 * (this.theHull.getrV() * cosDeltav - this.theSail.getL());
         /*
             Moment de la force anti-derive en G dans 1
          */
@@ -381,53 +604,65 @@ public class Sailboat {
         /*
             Moment de la poussee d'Archimede en G dans 1
          */
-        double mfax1 = -this.dcgCcMax * Math.sin(this.theta) * Math.cos(this.theta) * faz0;
-        mfax1 -= this.lgCcz1 * faz0 * Math.sin(this.theta);
+        double mfax1 = -this.dcgCcMax * sinTheta * cosTheta * faz0;
+        mfax1 -= this.lgCcz1 * faz0 * sinTheta;
         /*
             Moment du couple de frottement dans 0
          */
-        double mcfz0 = -this.theHull.getAlphaPhi() * this.phiPoint;
-        double mcfx1 = -this.theHull.getAlphaPhi() * this.thetaPoint;
+        double mcfz0 = -this.theHull.getAlphaPhi() * phiPoint;
+        double mcfx1 = -this.theHull.getAlphaPhi() * thetaPoint;
         /*
             Moment de la force velique en G dans 1
          */
-        double mfvx1 = mfvx2 * Math.cos(deltav);
-        double mfvy1 = mfvx2 * Math.sin(deltav);
+        double mfvx1 = mfvx2 * cosDeltav;
+        double mfvy1 = mfvx2 * sinDeltav;
         double mfvz1 = mfvz2;
         /*
             Moment de la force de deviation en G dans 1
          */
-        double mfdevx1 = mfdevx3 * Math.cos(rudderAng);
-        double mfdevy1 = mfdevx3 * Math.sin(rudderAng);
+        double mfdevx1 = mfdevx3 * cosRudderAng;
+        double mfdevy1 = mfdevx3 * sinRudderAng;
         double mfdevz1 = mfdevz3;
         /*
             Moment du couple de frottement en G dans 1
          */
-        double mcfy1 = mcfz0 * Math.sin(this.theta);
-        double mcfz1 = mcfz0 * Math.cos(this.theta);
+        double mcfy1 = mcfz0 * sinTheta;
+        double mcfz1 = mcfz0 * cosTheta;
         /*
          * Derivee du vecteur rotation dans 1
          */
         double jx1 = this.theHull.getJx();
         double jz1 = this.theHull.getJz();
-        double jy1 = this.theHull.getJy(this, mfvy1, mfdevy1, mcfy1, mfvz1, mfdevz1, mcfz1);
+        double jy1 = this.theHull.getJy(f, mfvy1, mfdevy1, mcfy1, mfvz1, mfdevz1, mcfz1);
 
 
-        double thetaPointPoint = (1. / jx1) * (mfvx1 + mfadx1 + mfdevx1 + mfax1 + mcfx1 - Math.pow(this.phiPoint, 2.) *
-                Math.cos(this.theta) * Math.sin(this.theta) * (jz1 - jy1));
-        double phiPointPoint = (1. / (jz1 * Math.cos(this.theta))) *
-                ( mfvz1  + mfdevz1 + mcfz1 - this.thetaPoint * this.phiPoint * Math.sin(this.theta) * (jy1 - jx1 - jz1));
+        double thetaPointPoint = (1. / jx1) * (mfvx1 + mfadx1 + mfdevx1 + mfax1 + mcfx1 - Math.pow(phiPoint, 2.) *
+                cosTheta * sinTheta * (jz1 - jy1));
+        double phiPointPoint = (1. / (jz1 * cosTheta)) *
+                ( mfvz1  + mfdevz1 + mcfz1 - thetaPoint * phiPoint * sinTheta * (jy1 - jx1 - jz1));
         /*
-            Integration selon schema d'Euler
+            Derivee de l'etat
          */
-        this.xPoint = this.xPoint + xPointPoint * dt;
-        this.yPoint = this.yPoint + yPointPoint * dt;
-        this.x = this.x + this.xPoint * dt;
-        this.y = this.y + this.yPoint * dt;
-        this.thetaPoint = this.thetaPoint + thetaPointPoint * dt;
-        this.phiPoint = this.phiPoint + phiPointPoint * dt;
-        this.theta = this.theta + this.thetaPoint * dt;
-        this.phi = this.phi + this.phiPoint * dt;
-	}
+        dState[X] = state[X_POINT];
+        dState[Y] = state[Y_POINT];
+        dState[THETA] = thetaPoint;
+        dState[PHI] = phiPoint;
+        dState[X_POINT] = xPointPoint;
+        dState[Y_POINT] = yPointPoint;
+        dState[THETA_POINT] = thetaPointPoint;
+        dState[PHI_POINT] = phiPointPoint;
+        return fvy2;
+    }
+
+    /**
+     * Systeme integre par le schema numerique : derivee de l'etat pour les commandes et le vent du pas courant
+     */
+    private final class Derivative implements StateDerivative {
+        @Override
+        public void computeDerivative(double t, double[] state, double[] dState) {
+            Sailboat.this.computeDerivative(state, Sailboat.this.stepDeltag, Sailboat.this.deltavmax,
+                    Sailboat.this.stepWindForce, Sailboat.this.stepWindDir, Sailboat.this.frame, dState);
+        }
+    }
 }
  
\ No newline at end of file
@@ -0,0 +1,596 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * La classe <code>SailboatFleet</code> simule une flotte de voiliers
+ * identiques. L'etat de chaque voilier est range par colonnes dans des
+ * tableaux de <code>double</code> (une colonne par variable d'etat) et les
+ * equations de <code>Sailboat.update</code> sont appliquees par plages
+ * d'indices, reparties sur les coeurs avec fork/join.
+ * <p>
+ * La coque, la voile et le safran du voilier modele sont partages par tous
+ * les voiliers de la flotte : seule <code>Sailboat.computeDerivative</code>,
+ * sans effet de bord, est utilisee. L'integration suit le schema du voilier
+ * modele a la construction de la flotte ; chaque thread en utilise une copie
+ * (<code>Integrator.copy</code>) et, pour un
+ * <code>DormandPrinceIntegrator</code>, le pas propose est garde par
+ * voilier. Pour un meme etat initial, un meme vent et les memes commandes,
+ * les resultats sont identiques au bit pres a ceux obtenus en integrant
+ * chaque <code>Sailboat</code> separement avec le meme schema.
+ * <p>
+ * Dans un vent variable (<code>WindModel</code>), le vent de chaque voilier
+ * est echantillonne en bloc au debut du pas, plage par plage, par la tache
+ * qui integre la plage.
+ * <p>
+ * Avec une <code>WindShadow</code> (<code>setWindShadow</code>), le vent de
+ * toute la flotte est echantillonne puis abrite avant le pas, et les taches
+ * n'integrent qu'avec le vent ainsi calcule : l'ombre d'un voilier depend de
+ * la position de tous les autres au debut du pas. Les pas d'une plage de
+ * voiliers (<code>from</code>, <code>to</code>) appliquent aussi l'ombre : le
+ * vent de toute la flotte est alors echantillonne et abrite a chaque appel,
+ * depuis la position courante de tous les voiliers.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class SailboatFleet {
+    /**
+     * Nombre minimum de voiliers traites par une tache fork/join
+     */
+    public static final int DEFAULT_GRAIN = 256;
+
+    /**
+     * Nombre de voiliers
+     */
+    private final int size;
+    /**
+     * Positions selon Ox0 et Oy0
+     */
+    private final double[] x, y;
+    /**
+     * Angles autour des axes Gx1 et Gz0
+     */
+    private final double[] theta, phi;
+    /**
+     * Vitesses selon Ox0 et Oy0
+     */
+    private final double[] xPoint, yPoint;
+    /**
+     * Vitesses de rotation autour des axes Gx1 et Gz0
+     */
+    private final double[] thetaPoint, phiPoint;
+    /**
+     * Angles du safran commandes
+     */
+    private final double[] deltag;
+    /**
+     * Angles de la voile commandes
+     */
+    private final double[] deltavmax;
+    /**
+     * Forces veliques du dernier pas
+     */
+    private final double[] fV;
+    /**
+     * Force et direction du vent de chaque voilier au dernier pas dans un vent variable
+     */
+    private final double[] windForce, windDir;
+    /**
+     * Voilier modele dont la coque, la voile et le safran sont communs a tous les voiliers
+     */
+    private final Sailboat model;
+    /**
+     * Deventement entre les voiliers, null sans deventement
+     */
+    private WindShadow shadow;
+    /**
+     * Pool de threads utilise pour les pas de simulation
+     */
+    private ForkJoinPool pool;
+    /**
+     * Nombre minimum de voiliers traites par une tache
+     */
+    private int grain;
+    /**
+     * Schema d'integration du voilier modele, copie par chaque thread
+     */
+    private final Integrator integrator;
+    /**
+     * Pas propose par le schema de chaque voilier, null si le schema n'est pas a pas adaptatif
+     */
+    private final double[] integratorStep;
+    /**
+     * Espace de travail de chaque thread, reutilise d'un pas a l'autre
+     */
+    private final ThreadLocal<Workspace> workspaces;
+
+    /**
+     * Constructeur : flotte de voiliers par defaut
+     * @param size nombre de voiliers
+     */
+    public SailboatFleet(int size) {
+        this(size, new Sailboat());
+    }
+
+    /**
+     * Constructeur : tous les voiliers partent de l'etat du voilier modele et
+     * partagent sa coque, sa voile, son safran et son schema d'integration
+     * @param size nombre de voiliers
+     * @param template voilier modele
+     */
+    public SailboatFleet(int size, Sailboat template) {
+        this.size = size;
+        this.x = new double[size];
+        this.y = new double[size];
+        this.theta = new double[size];
+        this.phi = new double[size];
+        this.xPoint = new double[size];
+        this.yPoint = new double[size];
+        this.thetaPoint = new double[size];
+        this.phiPoint = new double[size];
+        this.deltag = new double[size];
+        this.deltavmax = new double[size];
+        this.fV = new double[size];
+        this.windForce = new double[size];
+        this.windDir = new double[size];
+        this.model = template;
+        this.integrator = template.getIntegrator();
+        this.integratorStep = this.integrator instanceof DormandPrinceIntegrator ? new double[size] : null;
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(template, this.integrator));
+        this.pool = ForkJoinPool.commonPool();
+        this.grain = DEFAULT_GRAIN;
+        for (int i = 0; i < size; i++) {
+            this.load(i, template);
+        }
+    }
+
+    /**
+     * Copie de l'etat d'un voilier dans la flotte
+     * @param i indice du voilier dans la flotte
+     * @param sailboat voilier dont l'etat est copie
+     */
+    public void load(int i, Sailboat sailboat) {
+        this.x[i] = sailboat.getX();
+        this.y[i] = sailboat.getY();
+        this.theta[i] = sailboat.getTheta();
+        this.phi[i] = sailboat.getPhi();
+        this.xPoint[i] = sailboat.getxPoint();
+        this.yPoint[i] = sailboat.getyPoint();
+        this.thetaPoint[i] = sailboat.getThetaPoint();
+        this.phiPoint[i] = sailboat.getPhiPoint();
+        this.deltag[i] = sailboat.getDeltag();
+        this.deltavmax[i] = sailboat.getDeltavmax();
+        this.fV[i] = sailboat.getTheSail().getfV();
+        if (this.integratorStep != null) {
+            Integrator integrator = sailboat.getIntegrator();
+            this.integratorStep[i] = integrator instanceof DormandPrinceIntegrator
+                    ? ((DormandPrinceIntegrator) integrator).getStep() : 0;
+        }
+    }
+
+    /**
+     * Copie de l'etat cinematique d'un voilier de la flotte dans un voilier
+     * @param i indice du voilier dans la flotte
+     * @param sailboat voilier qui recoit l'etat
+     */
+    public void store(int i, Sailboat sailboat) {
+        sailboat.setX(this.x[i]);
+        sailboat.setY(this.y[i]);
+        sailboat.setTheta(this.theta[i]);
+        sailboat.setPhi(this.phi[i]);
+        sailboat.setxPoint(this.xPoint[i]);
+        sailboat.setyPoint(this.yPoint[i]);
+        sailboat.setThetaPoint(this.thetaPoint[i]);
+        sailboat.setPhiPoint(this.phiPoint[i]);
+        if (this.integratorStep != null && sailboat.getIntegrator() instanceof DormandPrinceIntegrator) {
+            ((DormandPrinceIntegrator) sailboat.getIntegrator()).setStep(this.integratorStep[i]);
+        }
+    }
+
+    /**
+     * Reglage des commandes d'un voilier
+     * @param i indice du voilier
+     * @param deltag angle du safran
+     * @param deltavmax angle de la voile
+     */
+    public void setControl(int i, double deltag, double deltavmax) {
+        this.deltag[i] = deltag;
+        this.deltavmax[i] = deltavmax;
+    }
+
+    /**
+     * Reglage des memes commandes pour tous les voiliers
+     * @param deltag angle du safran
+     * @param deltavmax angle de la voile
+     */
+    public void setControls(double deltag, double deltavmax) {
+        Arrays.fill(this.deltag, deltag);
+        Arrays.fill(this.deltavmax, deltavmax);
+    }
+
+    /**
+     * Setter du pool de threads
+     * @param pool pool fork/join utilise pour les pas de simulation
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Setter de l'attribut grain
+     * @param grain nombre minimum de voiliers traites par une tache
+     */
+    public void setGrain(int grain) {
+        this.grain = Math.max(1, grain);
+    }
+
+    /**
+     * Setter du deventement entre les voiliers
+     * @param shadow modele d'ombre, d'une capacite au moins egale a la taille de la flotte, null pour le desactiver
+     */
+    public void setWindShadow(WindShadow shadow) {
+        this.shadow = shadow;
+    }
+
+    /**
+     * Getter du deventement entre les voiliers
+     * @return modele d'ombre, null s'il est desactive
+     */
+    public WindShadow getWindShadow() {
+        return shadow;
+    }
+
+    /**
+     * Pas de simulation de toute la flotte en parallele
+     * @param dt intervalle de temps pour l'integration
+     * @param theWind vent auquel les voiliers sont soumis
+     */
+    public void update(double dt, Wind theWind) {
+        if (this.shadow != null) {
+            this.update(dt, (WindModel) theWind, 0);
+        } else if (this.size <= this.grain) {
+            this.update(dt, theWind, 0, this.size);
+        } else {
+            this.pool.invoke(new UpdateTask(dt, theWind.getWindForce(), theWind.getWindDir(), null, 0, 0,
+                    this.size, false));
+        }
+    }
+
+    /**
+     * Pas de simulation de toute la flotte en parallele dans un vent variable
+     * @param dt intervalle de temps pour l'integration
+     * @param wind modele de vent, echantillonne a la position de chaque voilier
+     * @param t instant simule au debut du pas
+     */
+    public void update(double dt, WindModel wind, double t) {
+        if (this.shadow != null) {
+            this.sampleWind(wind, t);
+            if (this.size <= this.grain) {
+                this.integrate(dt, 0, this.size);
+            } else {
+                this.pool.invoke(new UpdateTask(dt, 0, 0, null, t, 0, this.size, true));
+            }
+        } else if (this.size <= this.grain) {
+            this.update(dt, wind, t, 0, this.size);
+        } else {
+            this.pool.invoke(new UpdateTask(dt, 0, 0, wind, t, 0, this.size, false));
+        }
+    }
+
+    /**
+     * Pas de simulation sequentiel d'une plage de voiliers dans un vent variable, abrite par toute la
+     * flotte si le deventement est active
+     * @param dt intervalle de temps pour l'integration
+     * @param wind modele de vent, echantillonne a la position de chaque voilier
+     * @param t instant simule au debut du pas
+     * @param from indice du premier voilier (inclus)
+     * @param to indice du dernier voilier (exclu)
+     */
+    public void update(double dt, WindModel wind, double t, int from, int to) {
+        if (this.shadow != null) {
+            this.sampleWind(wind, t);
+        } else {
+            wind.sample(this.x, this.y, t, from, to, this.windForce, this.windDir);
+        }
+        this.integrate(dt, from, to);
+    }
+
+    /**
+     * Pas de simulation sequentiel d'une plage de voiliers avec le vent deja echantillonne
+     * @param dt intervalle de temps pour l'integration
+     * @param from indice du premier voilier (inclus)
+     * @param to indice du dernier voilier (exclu)
+     */
+    private void integrate(double dt, int from, int to) {
+        Workspace w = this.workspaces.get();
+        for (int i = from; i < to; i++) {
+            this.update(i, dt, this.windForce[i], this.windDir[i], w);
+        }
+    }
+
+    /**
+     * Echantillonnage d'un modele de vent a la position de chaque voilier, sans pas de simulation,
+     * puis deventement s'il est active
+     * @param wind modele de vent
+     * @param t instant simule
+     */
+    public void sampleWind(WindModel wind, double t) {
+        wind.sample(this.x, this.y, t, 0, this.size, this.windForce, this.windDir);
+        if (this.shadow != null) {
+            this.shadow.apply(this.x, this.y, this.size, this.windForce, this.windDir);
+        }
+    }
+
+    /**
+     * Pas de simulation sequentiel d'une plage de voiliers, dans le vent abrite par toute la flotte si le
+     * deventement est active
+     * @param dt intervalle de temps pour l'integration
+     * @param theWind vent auquel les voiliers sont soumis
+     * @param from indice du premier voilier (inclus)
+     * @param to indice du dernier voilier (exclu)
+     */
+    public void update(double dt, Wind theWind, int from, int to) {
+        if (this.shadow != null) {
+            this.update(dt, (WindModel) theWind, 0, from, to);
+            return;
+        }
+        double a = theWind.getWindForce();
+        double psi0 = theWind.getWindDir();
+        Workspace w = this.workspaces.get();
+        for (int i = from; i < to; i++) {
+            this.update(i, dt, a, psi0, w);
+        }
+    }
+
+    /**
+     * Pas de simulation d'un voilier : derivee de l'etat calculee par <code>Sailboat.computeDerivative</code>
+     * puis integration par la copie du schema du voilier modele, comme <code>Sailboat.update</code>.
+     * @param i indice du voilier
+     * @param dt intervalle de temps pour l'integration
+     * @param a force du vent
+     * @param psi0 direction du vent
+     * @param w espace de travail reutilise par le thread appelant
+     */
+    private void update(int i, double dt, double a, double psi0, Workspace w) {
+        double[] s = w.state;
+        double[] ds = w.dState;
+        s[Sailboat.X] = this.x[i];
+        s[Sailboat.Y] = this.y[i];
+        s[Sailboat.THETA] = this.theta[i];
+        s[Sailboat.PHI] = this.phi[i];
+        s[Sailboat.X_POINT] = this.xPoint[i];
+        s[Sailboat.Y_POINT] = this.yPoint[i];
+        s[Sailboat.THETA_POINT] = this.thetaPoint[i];
+        s[Sailboat.PHI_POINT] = this.phiPoint[i];
+        w.deltag = this.deltag[i];
+        w.deltavmax = this.deltavmax[i];
+        w.a = a;
+        w.psi0 = psi0;
+        this.fV[i] = this.model.computeDerivative(s, w.deltag, w.deltavmax, a, psi0, w.frame, ds);
+        if (this.integratorStep != null) {
+            ((DormandPrinceIntegrator) w.integrator).setStep(this.integratorStep[i]);
+        }
+        w.integrator.integrate(w, 0, s, ds, dt);
+        if (this.integratorStep != null) {
+            this.integratorStep[i] = ((DormandPrinceIntegrator) w.integrator).getStep();
+        }
+        this.x[i] = s[Sailboat.X];
+        this.y[i] = s[Sailboat.Y];
+        this.theta[i] = s[Sailboat.THETA];
+        this.phi[i] = s[Sailboat.PHI];
+        this.xPoint[i] = s[Sailboat.X_POINT];
+        this.yPoint[i] = s[Sailboat.Y_POINT];
+        this.thetaPoint[i] = s[Sailboat.THETA_POINT];
+        this.phiPoint[i] = s[Sailboat.PHI_POINT];
+    }
+
+    /**
+     * Espace de travail d'un thread : repere cinematique, vecteur d'etat, derivee, copie du schema
+     * d'integration et systeme integre pour les commandes et le vent du voilier en cours
+     */
+    private static final class Workspace implements StateDerivative {
+        final Sailboat model;
+        final Integrator integrator;
+        final KinematicFrame frame = new KinematicFrame();
+        final double[] state = new double[Sailboat.STATE_SIZE];
+        final double[] dState = new double[Sailboat.STATE_SIZE];
+        double deltag, deltavmax, a, psi0;
+
+        Workspace(Sailboat model, Integrator integrator) {
+            this.model = model;
+            this.integrator = integrator.copy();
+        }
+
+        @Override
+        public void computeDerivative(double t, double[] state, double[] dState) {
+            this.model.computeDerivative(state, this.deltag, this.deltavmax, this.a, this.psi0, this.frame, dState);
+        }
+    }
+
+    /**
+     * Tache fork/join qui decoupe une plage de voiliers jusqu'au grain
+     */
+    private final class UpdateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double dt;
+        private final double a;
+        private final double psi0;
+        /**
+         * Modele de vent variable, null pour le vent constant (a, psi0)
+         */
+        private final WindModel wind;
+        private final double t;
+        private final int from;
+        private final int to;
+        /**
+         * Vrai si le vent de chaque voilier est deja dans windForce et windDir
+         */
+        private final boolean sampled;
+
+        UpdateTask(double dt, double a, double psi0, WindModel wind, double t, int from, int to, boolean sampled) {
+            this.dt = dt;
+            this.a = a;
+            this.psi0 = psi0;
+            this.wind = wind;
+            this.t = t;
+            this.from = from;
+            this.to = to;
+            this.sampled = sampled;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= SailboatFleet.this.grain) {
+                if (this.sampled) {
+                    SailboatFleet.this.integrate(this.dt, this.from, this.to);
+                    return;
+                }
+                if (this.wind != null) {
+                    SailboatFleet.this.update(this.dt, this.wind, this.t, this.from, this.to);
+                    return;
+                }
+                Workspace w = SailboatFleet.this.workspaces.get();
+                for (int i = this.from; i < this.to; i++) {
+                    SailboatFleet.this.update(i, this.dt, this.a, this.psi0, w);
+                }
+            } else {
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new UpdateTask(this.dt, this.a, this.psi0, this.wind, this.t, this.from, mid, this.sampled),
+                        new UpdateTask(this.dt, this.a, this.psi0, this.wind, this.t, mid, this.to, this.sampled));
+            }
+        }
+    }
+
+    /**
+     * Getter de l'attribut size
+     * @return le nombre de voiliers de la flotte
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Position d'un voilier selon Ox0
+     * @param i indice du voilier
+     * @return la position du voilier selon Ox0
+     */
+    public double getX(int i) {
+        return this.x[i];
+    }
+
+    /**
+     * Position d'un voilier selon Oy0
+     * @param i indice du voilier
+     * @return la position du voilier selon Oy0
+     */
+    public double getY(int i) {
+        return this.y[i];
+    }
+
+    /**
+     * Angle d'un voilier autour de l'axe Gx1
+     * @param i indice du voilier
+     * @return l'angle du voilier autour de l'axe Gx1
+     */
+    public double getTheta(int i) {
+        return this.theta[i];
+    }
+
+    /**
+     * Angle d'un voilier autour de l'axe Gz0
+     * @param i indice du voilier
+     * @return l'angle du voilier autour de l'axe Gz0
+     */
+    public double getPhi(int i) {
+        return this.phi[i];
+    }
+
+    /**
+     * Vitesse d'un voilier selon Ox0
+     * @param i indice du voilier
+     * @return la vitesse du voilier selon Ox0
+     */
+    public double getxPoint(int i) {
+        return this.xPoint[i];
+    }
+
+    /**
+     * Vitesse d'un voilier selon Oy0
+     * @param i indice du voilier
+     * @return la vitesse du voilier selon Oy0
+     */
+    public double getyPoint(int i) {
+        return this.yPoint[i];
+    }
+
+    /**
+     * Vitesse de rotation d'un voilier autour de l'axe Gx1
+     * @param i indice du voilier
+     * @return la vitesse de rotation du voilier autour de l'axe Gx1
+     */
+    public double getThetaPoint(int i) {
+        return this.thetaPoint[i];
+    }
+
+    /**
+     * Vitesse de rotation d'un voilier autour de l'axe Gz0
+     * @param i indice du voilier
+     * @return la vitesse de rotation du voilier autour de l'axe Gz0
+     */
+    public double getPhiPoint(int i) {
+        return this.phiPoint[i];
+    }
+
+    /**
+     * Angle du safran d'un voilier
+     * @param i indice du voilier
+     * @return l'angle du safran en radians
+     */
+    public double getDeltag(int i) {
+        return this.deltag[i];
+    }
+
+    /**
+     * Angle de la voile d'un voilier
+     * @param i indice du voilier
+     * @return l'angle de la voile en radians
+     */
+    public double getDeltav(int i) {
+        return this.deltavmax[i];
+    }
+
+    /**
+     * Force velique d'un voilier au dernier pas
+     * @param i indice du voilier
+     * @return la force velique selon O2y2
+     */
+    public double getfV(int i) {
+        return this.fV[i];
+    }
+
+    /**
+     * Force du vent d'un voilier, echantillonnee au dernier pas dans un vent variable ou par
+     * <code>sampleWind</code>
+     * @param i indice du voilier
+     * @return la force du vent
+     */
+    public double getWindForce(int i) {
+        return this.windForce[i];
+    }
+
+    /**
+     * Direction du vent d'un voilier, echantillonnee au dernier pas dans un vent variable ou par
+     * <code>sampleWind</code>
+     * @param i indice du voilier
+     * @return la direction du vent en radians
+     */
+    public double getWindDir(int i) {
+        return this.windDir[i];
+    }
+}
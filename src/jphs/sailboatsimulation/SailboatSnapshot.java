@@ -0,0 +1,221 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * La classe <code>SailboatSnapshot</code> garde l'etat mutable d'un
+ * <code>Sailboat</code> dans un seul tableau de <code>double</code> : les
+ * huit variables d'etat (aux indices de <code>Sailboat</code>), l'angle de
+ * la voile commande, l'angle et la force de la voile, l'angle du safran, le
+ * pas propose par un <code>DormandPrinceIntegrator</code> et l'instant
+ * simule.
+ * <p>
+ * <code>capture</code> et <code>restore</code> ne creent aucun objet : une
+ * simulation peut revenir en arriere ou partir sur plusieurs branches en
+ * reutilisant les memes instantanes, et un voilier restaure suit exactement
+ * la trajectoire du voilier capture. La coque, la voile et le safran ne sont
+ * pas copies : l'instantane doit etre restaure dans un voilier de memes
+ * parametres et de meme schema d'integration.
+ * <p>
+ * <code>encode</code> et <code>decode</code> ecrivent et lisent les
+ * <code>SIZE</code> reels bruts, dans l'ordre des octets du tampon ;
+ * <code>save</code> et <code>load</code> ajoutent un entete pour reprendre
+ * une longue simulation depuis un fichier :
+ * <pre>
+ * int    MAGIC, int VERSION, int SIZE
+ * double valeurs[SIZE]
+ * </pre>
+ * en petit-boutiste.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class SailboatSnapshot {
+    /**
+     * Indices des valeurs qui suivent l'etat du voilier
+     */
+    public static final int DELTAVMAX = Sailboat.STATE_SIZE, DELTAV = DELTAVMAX + 1, FV = DELTAV + 1,
+            RUDDER_ANG = FV + 1, INTEGRATOR_STEP = RUDDER_ANG + 1, TIME = INTEGRATOR_STEP + 1;
+    /**
+     * Nombre de valeurs et taille encodee en octets
+     */
+    public static final int SIZE = TIME + 1, BYTES = SIZE * Double.BYTES;
+    /**
+     * Signature et version des fichiers d'instantane
+     */
+    public static final int MAGIC = 0x4a505753, VERSION = 1;
+    /**
+     * Taille de l'entete d'un fichier d'instantane en octets
+     */
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    /**
+     * Valeurs de l'instantane
+     */
+    private final double[] values = new double[SIZE];
+
+    /**
+     * Constructeur : instantane vide, a remplir par <code>capture</code> ou <code>decode</code>
+     */
+    public SailboatSnapshot() {
+    }
+
+    /**
+     * Constructeur : copie d'un instantane
+     * @param other instantane copie
+     */
+    public SailboatSnapshot(SailboatSnapshot other) {
+        this.copyFrom(other);
+    }
+
+    /**
+     * Capture de l'etat d'un voilier
+     * @param sailboat voilier capture
+     * @param time instant simule
+     * @return cet instantane
+     */
+    public SailboatSnapshot capture(Sailboat sailboat, double time) {
+        double[] v = this.values;
+        v[Sailboat.X] = sailboat.getX();
+        v[Sailboat.Y] = sailboat.getY();
+        v[Sailboat.THETA] = sailboat.getTheta();
+        v[Sailboat.PHI] = sailboat.getPhi();
+        v[Sailboat.X_POINT] = sailboat.getxPoint();
+        v[Sailboat.Y_POINT] = sailboat.getyPoint();
+        v[Sailboat.THETA_POINT] = sailboat.getThetaPoint();
+        v[Sailboat.PHI_POINT] = sailboat.getPhiPoint();
+        v[DELTAVMAX] = sailboat.getDeltavmax();
+        v[DELTAV] = sailboat.getTheSail().getDeltaV();
+        v[FV] = sailboat.getTheSail().getfV();
+        v[RUDDER_ANG] = sailboat.getTheRudder().getRudderAng();
+        Integrator integrator = sailboat.getIntegrator();
+        v[INTEGRATOR_STEP] = integrator instanceof DormandPrinceIntegrator
+                ? ((DormandPrinceIntegrator) integrator).getStep() : 0;
+        v[TIME] = time;
+        return this;
+    }
+
+    /**
+     * Restauration de l'etat capture dans un voilier
+     * @param sailboat voilier restaure, de memes parametres que le voilier capture
+     */
+    public void restore(Sailboat sailboat) {
+        double[] v = this.values;
+        sailboat.setX(v[Sailboat.X]);
+        sailboat.setY(v[Sailboat.Y]);
+        sailboat.setTheta(v[Sailboat.THETA]);
+        sailboat.setPhi(v[Sailboat.PHI]);
+        sailboat.setxPoint(v[Sailboat.X_POINT]);
+        sailboat.setyPoint(v[Sailboat.Y_POINT]);
+        sailboat.setThetaPoint(v[Sailboat.THETA_POINT]);
+        sailboat.setPhiPoint(v[Sailboat.PHI_POINT]);
+        sailboat.setDeltavmax(v[DELTAVMAX]);
+        sailboat.getTheSail().setDeltaV(v[DELTAV]);
+        sailboat.getTheSail().setfV(v[FV]);
+        sailboat.getTheRudder().setRudderAng(v[RUDDER_ANG]);
+        Integrator integrator = sailboat.getIntegrator();
+        if (integrator instanceof DormandPrinceIntegrator) {
+            ((DormandPrinceIntegrator) integrator).setStep(v[INTEGRATOR_STEP]);
+        }
+    }
+
+    /**
+     * Copie d'un autre instantane
+     * @param other instantane copie
+     */
+    public void copyFrom(SailboatSnapshot other) {
+        System.arraycopy(other.values, 0, this.values, 0, SIZE);
+    }
+
+    /**
+     * Ecriture des valeurs brutes a la position courante d'un tampon, dans son ordre des octets
+     * @param out tampon, avec au moins <code>BYTES</code> octets disponibles
+     */
+    public void encode(ByteBuffer out) {
+        for (int k = 0; k < SIZE; k++) {
+            out.putDouble(this.values[k]);
+        }
+    }
+
+    /**
+     * Lecture des valeurs brutes a la position courante d'un tampon, dans son ordre des octets
+     * @param in tampon, avec au moins <code>BYTES</code> octets disponibles
+     * @return cet instantane
+     */
+    public SailboatSnapshot decode(ByteBuffer in) {
+        for (int k = 0; k < SIZE; k++) {
+            this.values[k] = in.getDouble();
+        }
+        return this;
+    }
+
+    /**
+     * Sauvegarde dans un fichier, remplace s'il existe
+     * @param file fichier d'instantane
+     * @throws IOException si le fichier ne peut pas etre ecrit
+     */
+    public void save(Path file) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(HEADER_SIZE + BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(MAGIC).putInt(VERSION).putInt(SIZE);
+        this.encode(b);
+        b.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (b.hasRemaining()) {
+                channel.write(b);
+            }
+        }
+    }
+
+    /**
+     * Lecture d'un fichier d'instantane
+     * @param file fichier d'instantane
+     * @return l'instantane lu
+     * @throws IOException si le fichier ne peut pas etre lu ou n'est pas un fichier d'instantane
+     */
+    public static SailboatSnapshot load(Path file) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(HEADER_SIZE + BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (b.hasRemaining() && channel.read(b) >= 0) {
+                continue;
+            }
+        }
+        b.flip();
+        if (b.remaining() < HEADER_SIZE || b.getInt() != MAGIC) {
+            throw new IOException(file + " n'est pas un fichier d'instantane");
+        }
+        int version = b.getInt();
+        if (version != VERSION) {
+            throw new IOException(file + " : version " + version + " non geree");
+        }
+        if (b.getInt() != SIZE || b.remaining() < BYTES) {
+            throw new IOException(file + " : fichier tronque ou invalide");
+        }
+        return new SailboatSnapshot().decode(b);
+    }
+
+    /**
+     * Valeur de l'instantane
+     * @param index indice de la valeur, <code>Sailboat.X</code> a <code>TIME</code>
+     * @return la valeur
+     */
+    public double get(int index) {
+        return this.values[index];
+    }
+
+    /**
+     * Getter de l'instant simule capture
+     * @return l'instant simule
+     */
+    public double getTime() {
+        return this.values[TIME];
+    }
+}
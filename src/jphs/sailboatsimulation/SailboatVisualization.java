@@ -3,11 +3,14 @@ package jphs.sailboatsimulation;
 import com.jogamp.opengl.*;
 import com.jogamp.opengl.awt.GLCanvas;
 import com.jogamp.opengl.glu.GLU;
-import com.jogamp.opengl.glu.GLUquadric;
 import com.jogamp.opengl.util.FPSAnimator;
+import com.jogamp.opengl.util.gl2.GLUT;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 /**
  * La classe <code>SailboatVisualization</code> permet de decrire l'affichage
@@ -45,14 +48,6 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
      * angle de la camera suivant l'axe Oz0
      */
     private int angleZ;
-    /**
-     * angle de la voile
-     */
-    private double deltavmax;
-    /**
-     * angle du safran
-     */
-    private double deltag;
     /**
      * position de la lumiere
      */
@@ -69,10 +64,6 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
      * voilier a simuler
      */
     private Sailboat sailboat;
-    /**
-     * simulation en cours
-     */
-    private boolean isStarted;
     /**
      * animation
      */
@@ -81,6 +72,96 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
      * vent pour la simulation
      */
     private Wind theWind;
+    /**
+     * boucle de simulation, dans son propre thread
+     */
+    private SimulationLoop simulation;
+    /**
+     * telemetrie de la simulation
+     */
+    private Telemetry telemetry;
+    /**
+     * etat affiche, interpole entre les deux derniers etats publies, et etat precedent
+     */
+    private final double[] view = new double[Telemetry.FIELDS], previousView = new double[Telemetry.FIELDS];
+    /**
+     * maillages de la coque, du safran et de la voile, crees dans <code>init</code>
+     */
+    private VertexBufferMesh hullMesh, rudderMesh, sailMesh;
+    /**
+     * sommets de la voile, reconstruits a chaque image
+     */
+    private final MeshBuilder sailBuilder = new MeshBuilder();
+    /**
+     * spheres et cylindres decoupes une seule fois
+     */
+    private final MeshCache meshes = new MeshCache();
+    /**
+     * maillages de la barre, du mat et de la bome, pris dans le cache
+     */
+    private VertexBufferMesh tillerMesh, mastMesh, boomMesh;
+    /**
+     * dessin par instances des bouees
+     */
+    private InstancedRenderer instancedRenderer;
+    /**
+     * positions et couleurs des bouees
+     */
+    private final InstanceBuffer buoys = new InstanceBuffer(3);
+    /**
+     * utilitaires GLU, crees avec le contexte
+     */
+    private GLU glu;
+    /**
+     * vrai si la simulation tourne sur son thread au rythme de l'horloge, faux si elle est avancee image par
+     * image par l'appelant (rendu hors ecran)
+     */
+    private boolean realTime = true;
+    /**
+     * mesure de la duree des phases de l'image et des pas de simulation
+     */
+    private final FrameProfiler profiler = new FrameProfiler();
+    /**
+     * affichage des durees mesurees par dessus la scene
+     */
+    private boolean showProfile;
+    /**
+     * lignes affichees, recalculees toutes les <code>PROFILE_REFRESH</code> nanosecondes
+     */
+    private final String[] profileLines = new String[FrameProfiler.PHASES];
+    /**
+     * date du dernier calcul des lignes affichees
+     */
+    private long profileRefresh;
+    /**
+     * periode de calcul des lignes affichees, en nanosecondes
+     */
+    private static final long PROFILE_REFRESH = 500_000_000L;
+    /**
+     * hauteur de la fenetre, pour placer le texte
+     */
+    private int viewportHeight;
+    /**
+     * dessin du texte
+     */
+    private final GLUT glut = new GLUT();
+    /**
+     * apercu des trajectoires pour le reglage courant et les reglages voisins
+     */
+    private final GhostPreview ghosts;
+    /**
+     * affichage de l'apercu et nombre d'images depuis la derniere demande
+     */
+    private boolean showGhosts;
+    private int ghostFrames;
+    /**
+     * nombre d'images entre deux demandes d'apercu
+     */
+    private static final int GHOST_FRAMES = 10;
+    /**
+     * pilote automatique, engage par les touches A (tenue du cap) et V (remontee au vent)
+     */
+    private final Autopilot autopilot;
 
     /**
      * Constructeur
@@ -90,22 +171,75 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
         this.angleZ = 0;
         this.yCam = -10;
         this.angleX = 5;
-        this.deltag = 0;
-        this.deltavmax = 0.3;
         this.sailboat = new Sailboat();
-        this.isStarted = false;
 		/*
 		 * Vent : a = 4
 		 * Vent : psi = 0*PI
 		 */
         this.theWind = new Wind(4, 0*Math.PI);
+        this.simulation = new SimulationLoop(this.sailboat, this.theWind);
+        this.telemetry = new Telemetry(new ConsoleTelemetrySink(50));
+        this.simulation.setTelemetry(this.telemetry);
+        this.simulation.setProfiler(this.profiler);
+        this.ghosts = new GhostPreview(this.sailboat, this.theWind, this.simulation.getDt());
+        this.simulation.setPreview(this.ghosts);
+        this.autopilot = new Autopilot(this.sailboat, this.theWind, this.simulation.getDt(), 0);
+        this.simulation.setAutopilot(this.autopilot);
+        Telemetry.sample(0, this.sailboat, this.view, 0);
+    }
+
+    /**
+     * Constructeur avec une telemetrie choisie
+     * @param telemetry telemetrie recevant l'etat du voilier a chaque pas
+     */
+    public SailboatVisualization(Telemetry telemetry) {
+        this();
+        this.telemetry.close();
+        this.telemetry = telemetry;
+        this.simulation.setTelemetry(telemetry);
+    }
+
+    public Telemetry getTelemetry() {
+        return telemetry;
+    }
+
+    public SimulationLoop getSimulation() {
+        return simulation;
+    }
+
+    public FrameProfiler getProfiler() {
+        return profiler;
     }
 
     public void setFpsAnimator(FPSAnimator fpsAnimator) {
         this.fpsAnimator = fpsAnimator;
     }
 
-    public static void main(String args[]) {
+    public boolean isRealTime() {
+        return realTime;
+    }
+
+    /**
+     * Choix du mode d'avance de la simulation, avant <code>init</code>
+     * @param realTime vrai pour le thread de simulation, faux pour une simulation avancee par
+     * <code>getSimulation().tick</code> entre deux images
+     */
+    public void setRealTime(boolean realTime) {
+        this.realTime = realTime;
+    }
+
+    /**
+     * Lancement de la visualisation
+     * @param args fichier CSV optionnel recevant la telemetrie en plus de la console, puis fichier CSV optionnel
+     * recevant les durees mesurees toutes les 10 secondes ; ou <code>--offscreen</code> suivi des arguments de
+     * <code>OffscreenRenderer</code>
+     * @throws IOException si un fichier ou une image ne peut pas etre cree
+     */
+    public static void main(String args[]) throws IOException {
+        if (args.length > 0 && args[0].equals("--offscreen")) {
+            OffscreenRenderer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         GLProfile glp = GLProfile.getDefault();
         GLCapabilities caps = new GLCapabilities(glp);
         GLCanvas canvas = new GLCanvas(caps);
@@ -114,7 +248,16 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
         frame.setSize(300, 300);
         frame.add(canvas);
         frame.setVisible(true);
-        SailboatVisualization visu = new SailboatVisualization();
+        final SailboatVisualization visu;
+        if (args.length > 0) {
+            visu = new SailboatVisualization(new Telemetry(new ConsoleTelemetrySink(50),
+                    new FileTelemetrySink(Paths.get(args[0]))));
+        } else {
+            visu = new SailboatVisualization();
+        }
+        if (args.length > 1) {
+            visu.getProfiler().startExport(Paths.get(args[1]), 10_000);
+        }
 
         canvas.setFocusable(true);
         canvas.requestFocus();
@@ -128,6 +271,9 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
         // the window is asked to close
         frame.addWindowListener(new WindowAdapter() {
             public void windowClosing(WindowEvent e) {
+                visu.getSimulation().stop();
+                visu.getTelemetry().close();
+                visu.getProfiler().close();
                 System.exit(0);
             }
         });
@@ -149,42 +295,94 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
         gl.glDepthFunc(GL2.GL_LEQUAL);
         gl.glHint(GL2.GL_PERSPECTIVE_CORRECTION_HINT, GL2.GL_NICEST);
         gl.glEnable(GL2.GL_COLOR_MATERIAL);
+        this.hullMesh = new VertexBufferMesh(gl, BoatGeometry.hull());
+        this.rudderMesh = new VertexBufferMesh(gl, BoatGeometry.rudder());
+        this.sailMesh = new VertexBufferMesh(gl, BoatGeometry.SAIL_VERTICES, GL2.GL_STREAM_DRAW);
+        this.tillerMesh = this.meshes.cylinder(gl, 0.05f, 3, 10, 10);
+        this.mastMesh = this.meshes.cylinder(gl, 0.08f, 14, 10, 10);
+        this.boomMesh = this.meshes.cylinder(gl, 0.1f, 5.5f, 10, 10);
+        this.glu = GLU.createGLU(gl);
+        this.instancedRenderer = new InstancedRenderer(gl, this.meshes);
+        for (int i = 0; i < this.buoys.getCapacity(); i++) {
+            this.buoys.setPosition(i, 10.0 * (i + 1), 0);
+            this.buoys.setColor(i, 1.0f, 0.0f, 0.0f);
+        }
+        this.buoys.setCount(this.buoys.getCapacity());
+        this.buoys.upload(gl);
+        if (this.realTime) {
+            this.simulation.start();
+        }
     }
 
     @Override
     public void dispose(GLAutoDrawable glAutoDrawable) {
-
+        this.simulation.stop();
+        this.ghosts.close();
+        this.autopilot.close();
+        GL2 gl = glAutoDrawable.getGL().getGL2();
+        this.hullMesh.dispose(gl);
+        this.rudderMesh.dispose(gl);
+        this.sailMesh.dispose(gl);
+        this.instancedRenderer.dispose(gl);
+        this.buoys.dispose(gl);
+        this.meshes.dispose(gl);
     }
 
     @Override
     public void display(GLAutoDrawable glAutoDrawable) {
-        double dt = this.isStarted?0.020:0.0;
-        update(dt);
-        render(glAutoDrawable.getGL().getGL2());
+        GL2 gl = glAutoDrawable.getGL().getGL2();
+        long start = this.profiler.startFrame();
+        update();
+        if (this.showGhosts && ++this.ghostFrames >= GHOST_FRAMES) {
+            this.ghostFrames = 0;
+            this.ghosts.request();
+        }
+        long t = this.profiler.stop(FrameProfiler.UPDATE, start);
+        render(gl);
+        this.profiler.stop(FrameProfiler.RENDER, t);
+        this.profiler.stop(FrameProfiler.DISPLAY, start);
+        if (this.showProfile) {
+            drawProfile(gl);
+        }
     }
 
-    private void update(double dt) {
-        this.sailboat.update(dt, this.deltag, this.deltavmax, this.theWind);
-        System.out.println("xPoint " + this.sailboat.getxPoint());
+    /**
+     * Lecture de l'etat a afficher, interpole entre les deux derniers pas de la simulation en temps reel, ou
+     * dernier etat publie sinon
+     */
+    private void update() {
+        if (this.realTime) {
+            this.simulation.getSnapshots().interpolate(System.nanoTime(), this.simulation.getPeriodNanos(),
+                    this.previousView, this.view);
+        } else {
+            this.simulation.getSnapshots().read(this.previousView, this.view);
+        }
     }
 
     private void render(GL2 gl) {
-        GLU glu = GLU.createGLU(gl);
         gl.glClear(GL2.GL_COLOR_BUFFER_BIT|GL2.GL_DEPTH_BUFFER_BIT);
         gl.glMatrixMode(GL2.GL_MODELVIEW);
         gl.glLoadIdentity();
-        glu.gluLookAt(-this.yCam, 0, 0, 0, 0, 0, 0, 0, 1);
+        this.glu.gluLookAt(-this.yCam, 0, 0, 0, 0, 0, 0, 0, 1);
         //enables to have x-axis pointing to the right, y-axis back and z-axis up
         gl.glRotatef((float)90., 0.f, 0.f, 1.f);
         gl.glRotatef((float)this.angleX, 1.f, 0.f, 0.f);
         gl.glRotatef((float)this.angleZ, 0.f, 0.f, 1.f);
         gl.glScalef(this.zoom, this.zoom, this.zoom);
         gl.glPushMatrix();
+        long t = this.profiler.start();
         drawSea(gl);
+        t = this.profiler.stop(FrameProfiler.DRAW_SEA, t);
         drawBuoys(gl);
+        t = this.profiler.stop(FrameProfiler.DRAW_BUOYS, t);
+        if (this.showGhosts) {
+            drawGhosts(gl);
+            t = this.profiler.stop(FrameProfiler.DRAW_GHOSTS, t);
+        }
         gl.glPopMatrix();
-        gl.glTranslated(this.sailboat.getX(), this.sailboat.getY(), 0.0);
+        gl.glTranslated(this.view[Telemetry.X], this.view[Telemetry.Y], 0.0);
         drawBoat(gl);
+        this.profiler.stop(FrameProfiler.DRAW_BOAT, t);
         drawWind(gl);
     }
 
@@ -214,6 +412,28 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
     }
 
 
+    /**
+     * Affichage des durees mesurees en haut a gauche de la fenetre
+     */
+    private void drawProfile(GL2 gl) {
+        long now = System.nanoTime();
+        if (now - this.profileRefresh > PROFILE_REFRESH || this.profileLines[0] == null) {
+            for (int i = 0; i < FrameProfiler.PHASES; i++) {
+                this.profileLines[i] = this.profiler.get(i).toString();
+            }
+            this.profileRefresh = now;
+        }
+        gl.glDisable(GL2.GL_LIGHTING);
+        gl.glDisable(GL2.GL_DEPTH_TEST);
+        gl.glColor3f(0.0f, 0.0f, 0.0f);
+        for (int i = 0; i < this.profileLines.length; i++) {
+            gl.glWindowPos2i(10, this.viewportHeight - 20 - 15 * i);
+            this.glut.glutBitmapString(GLUT.BITMAP_8_BY_13, this.profileLines[i]);
+        }
+        gl.glEnable(GL2.GL_DEPTH_TEST);
+        gl.glEnable(GL2.GL_LIGHTING);
+    }
+
     private void drawAxis(GL2 gl, float echelle) {
         gl.glPushMatrix();
         gl.glScalef(echelle, echelle, echelle);
@@ -234,10 +454,10 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
     @Override
     public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) {
         GL2 gl = drawable.getGL().getGL2();
-        GLU glu = GLU.createGLU(gl);
+        this.viewportHeight = height;
         gl.glMatrixMode(GL2.GL_PROJECTION);
         gl.glLoadIdentity();
-        glu.gluPerspective(70, width / height, 1, 1000);
+        this.glu.gluPerspective(70, (double) width / Math.max(1, height), 1, 1000);
     }
 
     private void drawSea(GL2 gl) {
@@ -251,161 +471,71 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
     }
 
     private void drawBuoys(GL2 gl) {
-        for (int i = 0; i < 3; i++) {
-
-            gl.glTranslatef(10.0f, 0.0f, 0.0f);
-            gl.glColor3f(1.0f, 0.0f, 0.0f);
-            GLU glu = new GLU();
-            GLUquadric q = glu.gluNewQuadric();
-            glu.gluQuadricDrawStyle(q, GLU.GLU_FILL);
-            glu.gluSphere(q, 1.0, 10, 10);
-            glu.gluDeleteQuadric(q);
+        this.instancedRenderer.drawBuoys(gl, this.buoys);
+    }
+
+    /**
+     * Trajectoires fantomes en lignes translucides au ras de l'eau, celle du reglage courant plus marquee
+     */
+    private void drawGhosts(GL2 gl) {
+        GhostPreview.Paths paths = this.ghosts.getPaths();
+        if (paths == null) {
+            return;
+        }
+        gl.glDisable(GL2.GL_LIGHTING);
+        gl.glEnable(GL.GL_BLEND);
+        gl.glBlendFunc(GL.GL_SRC_ALPHA, GL.GL_ONE_MINUS_SRC_ALPHA);
+        gl.glDepthMask(false);
+        for (int c = 0; c < GhostPreview.CANDIDATES; c++) {
+            if (c == GhostPreview.CURRENT) {
+                gl.glLineWidth(3f);
+                gl.glColor4f(1f, 1f, 1f, 0.8f);
+            } else {
+                gl.glLineWidth(1.5f);
+                gl.glColor4f(1f, 0.6f, 0.2f, 0.35f);
+            }
+            gl.glBegin(GL.GL_LINE_STRIP);
+            for (int k = 0; k < paths.getCount(c); k++) {
+                gl.glVertex3f(paths.getX(c, k), paths.getY(c, k), 0.1f);
+            }
+            gl.glEnd();
         }
+        gl.glLineWidth(1f);
+        gl.glDepthMask(true);
+        gl.glDisable(GL.GL_BLEND);
+        gl.glEnable(GL2.GL_LIGHTING);
     }
 
     private void drawBoat(GL2 gl) {
-        gl.glRotatef((float)(this.sailboat.getPhi()*180.0/Math.PI), 0.0f, 0.0f,1.0f);
-        gl.glRotatef((float)(this.sailboat.getTheta()*180.0/Math.PI), 1.0f, 0.f, 0.0f);
+        gl.glRotatef((float)(this.view[Telemetry.PHI]*180.0/Math.PI), 0.0f, 0.0f,1.0f);
+        gl.glRotatef((float)(this.view[Telemetry.THETA]*180.0/Math.PI), 1.0f, 0.f, 0.0f);
         gl.glPushMatrix();
 
-        {
-            gl.glBegin(GL2.GL_QUADS);   //plancher
-            gl.glVertex3f(-1,-1.5f,0.1f);        gl.glVertex3f(3,-1.5f, 0.1f);
-            gl.glVertex3f(3,1.5f,0.1f);          gl.glVertex3f(-1,1.5f,0.1f);
-            gl.glVertex3f(4.5f,-0.75f, 0.1f);     gl.glVertex3f(5.06f,-0.375f, 0.1f);
-            gl.glVertex3f(5.25f,0, 0.1f);       gl.glVertex3f(5.06f,0.375f, 0.1f);
-            gl.glVertex3f(4.5f,0.75f, 0.1f);
-            gl.glEnd();
-            // ---------------------------- dessus avant ----------------------------------------------------------------------
-            gl.glTranslatef(0.01f,0,0.01f);
-            gl.glBegin(GL2.GL_POLYGON);  //dessus avant
-            gl.glColor3f(0.8f,0.2f,0.2f);            gl.glVertex3f(3,-2,1.0f);
-            gl.glVertex3f(3.1f,-1.9f,1.01f);         gl.glVertex3f(3.75f,-1.6f, 1.01f);
-            gl.glVertex3f(5.0f,-1,1.01f);           gl.glVertex3f(5.75f,-0.5f,1.01f);
-            gl.glVertex3f(6.0f, 0, 1.01f);          gl.glVertex3f(5.75f,0.5f,1.01f);
-            gl.glVertex3f(5.0f,1,1.01f);            gl.glVertex3f(3.75f,1.6f,1.01f);
-            gl.glVertex3f(3.1f,1.9f,1.01f);          gl.glVertex3f(3,2,1.01f);
-            gl.glEnd();
-
-            //--------------------------- faces lat�rales ---------------------------------------------------------------------
-            gl.glTranslatef(-0.01f,0,0);
-            gl.glBegin(GL2.GL_POLYGON); //faces lat�rales droite
-            gl.glColor3f(0,1,0);
-            gl.glVertex3f(-1,-1.5f,0);       gl.glVertex3f(-1, -1.9f, 0.5f);
-            gl.glVertex3f(-1,-2,1.0f);       gl.glVertex3f(3,-2,1.0f);
-            gl.glVertex3f(3, -1.9f, 0.5f);    gl.glVertex3f(3,-1.5f,0);
-            gl.glVertex3f(-1,-1.5f,0);
-            gl.glEnd();
-            gl.glBegin(GL2.GL_POLYGON); //faces lat�rales gauche
-            gl.glColor3f(0,0,1);
-            gl.glVertex3f(-1,1.5f,0);        gl.glVertex3f(-1, 1.9f, 0.5f);
-            gl.glVertex3f(-1,2,1.0f);        gl.glVertex3f(3,2,1.0f);
-            gl.glVertex3f(3, 1.9f, 0.5f);     gl.glVertex3f(3,1.5f,0);
-            gl.glVertex3f(-1,1.5f,0);
-            gl.glEnd();
-            //--------------------------- banc ----------------------------------------------------------------------------------
-            gl.glTranslatef(0,-0.01f,0);
-            gl.glBegin(GL2.GL_QUADS);              //banc
-            gl.glColor3f(1,1,1);
-            gl.glVertex3f(-1,2,1.0f);         gl.glVertex3f(-1, 1.3f, 1.0f);
-            gl.glVertex3f(3, 1.3f, 1.0f);      gl.glVertex3f(3,2,1.0f);
-            gl.glVertex3f(-1, 1.3f, 1.0f);     gl.glVertex3f(-1, 1.1f, (float)(4*1.0/5));
-            gl.glVertex3f(3, 1.1f, (float)(4*1.0/5));  gl.glVertex3f(3, 1.3f, 1.0f);
-            gl.glVertex3f(-1, 1.1f, (float)(4*1.0/5)); gl.glVertex3f(-1, 0.9f, (float)(3*1.0/5));
-            gl.glVertex3f(3, 0.9f, (float)(3*1.0/5));  gl.glVertex3f(3, 1.1f, (float)(4*1.0/5));
-            gl.glVertex3f(-1, 0.9f, (float)(3*1.0/5)); gl.glVertex3f(-1,0.8f,0);
-            gl.glVertex3f(3,0.8f,0);          gl.glVertex3f(3, 0.9f, (float)(3*1.0/5));
-            gl.glEnd();
-            gl.glTranslatef(0,0.01f,0);
-
-            // -------------------------------- autre banc ----------------------------------------------------------------
-            gl.glBegin(GL2.GL_QUADS);              //banc
-            gl.glColor3f(1,1,1);
-            gl.glVertex3f(-1,-2,1.0f);        gl.glVertex3f(-1, -1.3f, 1.0f);
-            gl.glVertex3f(3, -1.3f, 1.0f);     gl.glVertex3f(3,-2,1.0f);
-            gl.glVertex3f(-1, -1.3f, 1.0f);    gl.glVertex3f(-1, -1.1f, (float)(4*1.0/5));
-            gl.glVertex3f(3, -1.1f, (float)(4*1.0/5)); gl.glVertex3f(3, -1.3f, 1.0f);
-            gl.glVertex3f(-1, -1.1f, (float)(4*1.0/5));gl.glVertex3f(-1, -0.9f, (float)(3*1.0/5));
-            gl.glVertex3f(3, -0.9f, (float)(3*1.0/5)); gl.glVertex3f(3, -1.1f, (float)(4*1.0/5));
-            gl.glVertex3f(-1, -0.9f, (float)(3*1.0/5));gl.glVertex3f(-1,-0.8f,0);
-            gl.glVertex3f(3,-0.8f,0);         gl.glVertex3f(3, -0.9f, (float)(3*1.0/5));
-            gl.glEnd();
-            gl.glTranslatef(0,-0.01f,0);
-            // ---------------------- face avant mat --------------------------------
-            gl.glBegin(GL2.GL_POLYGON); //face "avant mat"
-            gl.glColor3f(0,0,1);
-            gl.glNormal3f(-1,0,0);
-            gl.glVertex3f(3+0,-1.5f+0.4f,0);
-            gl.glVertex3f(3+0, -1.9f+0.4f, 0.5f);    gl.glVertex3f(3+0,-2+0.4f,1.0f);
-            gl.glVertex3f(3+0,2-0.4f,1.0f);         gl.glVertex3f(3+0, 1.9f-0.4f, 0.5f);
-            gl.glVertex3f(3+0,1.5f-0.4f,0);         gl.glVertex3f(3+0,-1.5f+0.4f,0);
-            gl.glEnd();
-            // ------------------------ face arri�re -----------------------------------------------
-            gl.glTranslatef(-0.01f,0,0);
-            gl.glBegin(GL2.GL_POLYGON); //face arri�re
-            gl.glColor3f(0.5f,1,0);
-            gl.glNormal3f(-1,0,0);
-            gl.glVertex3f(-1,-1.5f,0);           gl.glVertex3f(-1, -1.9f, 0.5f);
-            gl.glVertex3f(-1,-2,1.0f);           gl.glVertex3f(-1,2,1.0f);
-            gl.glVertex3f(-1, 1.9f, 0.5f);        gl.glVertex3f(-1,1.5f,0);
-            gl.glVertex3f(-1,-1.5f,0);
-            gl.glEnd();
-            gl.glTranslatef(0.01f,-0.01f,0);
-            // ----------------------------- face avant ------------------------------------------
-            gl.glBegin(GL2.GL_POLYGON);
-            gl.glVertex3f(3,-2,1.0f);           gl.glVertex3f(3.1f,-1.7f,1.0f);
-            gl.glVertex3f(3.75f,-1.5f, 1.0f);     gl.glVertex3f(5.0f,-1,1.0f);
-            gl.glVertex3f(5.75f,-0.5f,1.0f);      gl.glVertex3f(6.0f, 0, 1.0f);
-            gl.glVertex3f(5.25f,0, 0);          gl.glVertex3f(5.06f,-0.375f, 0);
-            gl.glVertex3f(4.5f,-0.75f, 0);       gl.glVertex3f(3,-1.5f,0);
-            gl.glVertex3f(3, -1.9f, 0.5f);       gl.glVertex3f(3,-2,1.0f);
-            gl.glVertex3f(3,2,1.0f);            gl.glVertex3f(3.1f,1.7f,1.0f);
-            gl.glVertex3f(3.75f,1.5f, 1.0f);      gl.glVertex3f(5.0f,1,1.0f);
-            gl.glVertex3f(5.75f,0.5f,1.0f);       gl.glVertex3f(6.0f, 0, 1.0f);
-            gl.glVertex3f(5.25f,0, 0);          gl.glVertex3f(5.06f,0.375f, 0);
-            gl.glVertex3f(4.5f,0.75f, 0);        gl.glVertex3f(3,1.5f,0);
-            gl.glVertex3f(3, 1.9f, 0.5f);        gl.glVertex3f(3,2,1.0f);
-            gl.glEnd();
-        }
+        this.hullMesh.draw(gl);
         gl.glPopMatrix();
 
         gl.glPushMatrix();
 
         gl.glTranslatef(-1,0,0);
-        gl.glRotatef((float)(this.sailboat.getDeltag()*180.0/Math.PI),0,0,1);
+        gl.glRotatef((float)(this.view[Telemetry.DELTAG]*180.0/Math.PI),0,0,1);
 
         // ***************************************
         //       RUDDER
         // ***************************************
         {
+            this.rudderMesh.draw(gl);
             gl.glColor3f(0,0,1);
-            gl.glBegin(GL2.GL_POLYGON);
-            gl.glVertex3f(0,-0.05f,1);       gl.glVertex3f(0,-0.05f,0);      gl.glVertex3f(-0.6f,-0.05f,0);
-            gl.glVertex3f(-0.3f,-0.05f,1);    gl.glVertex3f(0,-0.05f,1);      gl.glVertex3f(0,0.05f,1);
-            gl.glVertex3f(0,0.05f,0);       gl.glVertex3f(-0.6f,0.05f,0);    gl.glVertex3f(-0.3f,0.05f,1);
-            gl.glVertex3f(0,0.05f,1);
-            gl.glVertex3f(0,-0.05f,1);       gl.glVertex3f(0,0.05f,1);       gl.glVertex3f(0,-0.05f,0);
-            gl.glVertex3f(0,0.05f,0);        gl.glVertex3f(-0.6f,-0.05f,0);   gl.glVertex3f(-0.6f,0.05f,0);
-            gl.glVertex3f(-0.3f,-0.05f,1);    gl.glVertex3f(-0.3f,0.05f,1);    gl.glVertex3f(0,-0.05f,1);
-            gl.glVertex3f(0,0.05f,1);
-            gl.glEnd();
             gl.glDisable(GL2.GL_TEXTURE_2D);
             gl.glTranslatef(-0.6f,0,1);
             gl.glRotatef(90,0,1,0);
-
-            GLU glu = new GLU();
-            GLUquadric q1 = glu.gluNewQuadric();
-            glu.gluQuadricDrawStyle(q1, GLU.GLU_FILL);
-            glu.gluQuadricOrientation(q1, GLU.GLU_OUTSIDE);
-            glu.gluCylinder(q1, 0.05, 0.05, 3, 10, 10);
-            glu.gluDeleteQuadric(q1);
+            this.tillerMesh.draw(gl);
 
         }
 
         gl.glPopMatrix();
         gl.glPushMatrix();
         gl.glTranslatef(5,0,0);
-        gl.glRotatef((float)(this.sailboat.getDeltav()*180.0/Math.PI),0,0,1);
+        gl.glRotatef((float)(this.view[Telemetry.DELTAV]*180.0/Math.PI),0,0,1);
 
         // ***************************************
         //       SAIL
@@ -413,23 +543,15 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
 
         {
             gl.glColor3f(0.9f,0.9f,0.9f);
-            GLU glu = new GLU();
-            GLUquadric q1 = glu.gluNewQuadric();  //m�t
-            glu.gluQuadricOrientation(q1, GLU.GLU_OUTSIDE);
-            glu.gluQuadricTexture(q1, true);
-            glu.gluCylinder(q1,0.08,0.08,14, 10,10);
-            glu.gluDeleteQuadric(q1);
+            this.mastMesh.draw(gl);
 
             gl.glDisable(GL.GL_TEXTURE_2D);
 
-            gl.glColor3f(1,1,0);
-            float b=(float)-Math.atan(this.sailboat.getTheSail().getfV() / 500.);  // courbure de la voile
+            BoatGeometry.sail(this.sailBuilder, this.view[Telemetry.FV]);
+            this.sailMesh.update(gl, this.sailBuilder);
             gl.glEnable(GL.GL_TEXTURE_2D);
-            gl.glBegin(GL.GL_TRIANGLE_FAN);
-            gl.glVertex3f(0,0,2);     gl.glVertex3f(0,0,12);    gl.glVertex3f(-1,b*1.5f,10);
-            gl.glVertex3f(-2,b*2,8);  gl.glVertex3f(-3,b*2,6);  gl.glVertex3f(-4,b*1.5f,4);
-            gl.glVertex3f(-5,0,2);
-            gl.glEnd();
+            this.sailMesh.draw(gl);
+            gl.glColor3f(1,1,0);
 
             gl.glDisable(GL.GL_BLEND);
             gl.glDisable(GL.GL_TEXTURE_2D);
@@ -438,11 +560,7 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
             gl.glEnable(GL.GL_TEXTURE_2D);         //bome
             gl.glBindTexture(GL.GL_TEXTURE_2D,5);
 
-            q1=glu.gluNewQuadric();
-            glu.gluQuadricOrientation(q1, GLU.GLU_OUTSIDE);
-            glu.gluQuadricTexture(q1, true);
-            glu.gluCylinder(q1,0.1,0.1,5.5, 10,10);
-            glu.gluDeleteQuadric(q1);
+            this.boomMesh.draw(gl);
             gl.glDisable(GL.GL_TEXTURE_2D);
         }
         gl.glPopMatrix();
@@ -464,19 +582,42 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
                 this.zoom /= 1.1;
                 break;
             case KeyEvent.VK_UP:
-                this.deltavmax = Math.max(-1.57, this.sailboat.getDeltavmax()-0.05);
+                this.simulation.post(SimulationCommand.Type.ADJUST_SAIL, -0.05);
                 break;
             case KeyEvent.VK_DOWN:
-                this.deltavmax = Math.min(1.57, this.sailboat.getDeltavmax()+0.05);
+                this.simulation.post(SimulationCommand.Type.ADJUST_SAIL, 0.05);
                 break;
             case KeyEvent.VK_RIGHT:
-                this.deltag = Math.min(this.sailboat.getDeltag()+0.05, 0.5);
+                if (this.autopilot.isEngaged()) {
+                    this.simulation.post(SimulationCommand.Type.ADJUST_TARGET, -0.05);
+                } else {
+                    this.simulation.post(SimulationCommand.Type.ADJUST_HELM, 0.05);
+                }
                 break;
             case KeyEvent.VK_LEFT:
-                this.deltag = Math.max(this.sailboat.getDeltag()-0.05, -0.5);
+                if (this.autopilot.isEngaged()) {
+                    this.simulation.post(SimulationCommand.Type.ADJUST_TARGET, 0.05);
+                } else {
+                    this.simulation.post(SimulationCommand.Type.ADJUST_HELM, -0.05);
+                }
+                break;
+            case KeyEvent.VK_A:
+                if (this.autopilot.isEngaged()) {
+                    this.simulation.post(SimulationCommand.Type.AUTOPILOT_OFF, 0);
+                } else {
+                    this.simulation.post(SimulationCommand.Type.AUTOPILOT_HEADING, Double.NaN);
+                }
+                break;
+            case KeyEvent.VK_V:
+                if (this.autopilot.isEngaged()) {
+                    this.simulation.post(SimulationCommand.Type.AUTOPILOT_OFF, 0);
+                } else {
+                    // au plus pres : vers l'endroit d'ou vient le vent
+                    this.simulation.post(SimulationCommand.Type.AUTOPILOT_VMG, this.theWind.getWindDir() + Math.PI);
+                }
                 break;
             case KeyEvent.VK_S:
-                this.isStarted = !this.isStarted;
+                this.simulation.post(SimulationCommand.Type.TOGGLE_RUN, 0);
                 break;
             case KeyEvent.VK_B:
                 this.yCam--;
@@ -484,6 +625,16 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
             case KeyEvent.VK_F:
                 this.yCam++;
                 break;
+            case KeyEvent.VK_P:
+                this.showProfile = !this.showProfile;
+                break;
+            case KeyEvent.VK_G:
+                this.showGhosts = !this.showGhosts;
+                this.ghostFrames = GHOST_FRAMES;
+                if (!this.showGhosts) {
+                    this.ghosts.clear();
+                }
+                break;
             default:
                 break;
         }
@@ -503,8 +654,7 @@ public class SailboatVisualization implements GLEventListener, MouseListener,
     public void mousePressed(MouseEvent e) {
         this.lastPosX = e.getX();
         this.lastPosY = e.getY();
-        this.sailboat.setX(0.0);
-        this.sailboat.setY(0.0);
+        this.simulation.post(SimulationCommand.Type.RESET_POSITION, 0);
     }
 
     @Override
@@ -0,0 +1,510 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * La classe <code>Scenario</code> decrit une simulation a executer sans
+ * affichage : etat initial du voilier, vent, pas de temps, duree et
+ * programme de commandes (angle du safran et angle de la voile).
+ * <p>
+ * Le fichier de scenario est un fichier texte, une directive par ligne,
+ * les lignes vides et celles commencant par <code>#</code> sont ignorees :
+ * <pre>
+ * # etat initial
+ * x 0
+ * y 0
+ * theta -0.25
+ * phi 0.2
+ * xPoint 0
+ * yPoint 0
+ * thetaPoint 0
+ * phiPoint 0
+ * # vent : force et direction en radians
+ * wind 4 0
+ * # vent variable (facultatif) : gradient de force par metre selon x et y,
+ * # bascule (amplitude en radians, periode en secondes), rafales (instant,
+ * # centre x y, rayon, duree, force ajoutee) et grille de tabulation
+ * # (xmin xmax ymin ymax pas en metres, pas en secondes)
+ * gradient 0.001 0
+ * shift 0.2 600
+ * gust 300 500 0 200 60 2
+ * windgrid -1000 1000 -1000 1000 50 10
+ * # ou vent lu dans un fichier de vent (WindTileFile), qui remplace les precedents
+ * windfile prevision.wind
+ * # pas d'integration, duree simulee et periode d'echantillonnage en secondes
+ * dt 0.02
+ * # schema d'integration : euler, semi-implicit-euler (par defaut), heun, rk4
+ * # ou dopri5 (pas adaptatif, dt est alors l'intervalle entre deux commandes)
+ * integrator rk4
+ * # profil de voile (facultatif) : fichier de profils (SailProfile) et nom
+ * profile voiles.txt grand-voile
+ * duration 3600
+ * sample 1
+ * # commandes : instant, angle du safran, angle de la voile (radians)
+ * control 0 0 0.3
+ * control 120 0.1 0.3
+ * </pre>
+ * Une commande reste appliquee jusqu'a la commande suivante. Avant la premiere
+ * commande, le safran est a 0 et la voile a 0.3 radian comme dans la visualisation.
+ * Sans <code>windgrid</code>, un vent variable est calcule a chaque pas ; avec,
+ * il est tabule une fois sur la grille, de 0 a la duree simulee.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class Scenario {
+    /**
+     * Nom du scenario
+     */
+    private String name;
+    /**
+     * Etat initial : position, angles et vitesses
+     */
+    private double x, y, theta, phi, xPoint, yPoint, thetaPoint, phiPoint;
+    /**
+     * Force du vent
+     */
+    private double windForce;
+    /**
+     * Direction du vent
+     */
+    private double windDir;
+    /**
+     * Variations du vent : gradient, bascule et rafales
+     */
+    private final SyntheticWind windVariations;
+    /**
+     * Grille de tabulation du vent variable : bornes et pas en x et y, pas en t, null sans grille
+     */
+    private double[] windGrid;
+    /**
+     * Fichier de vent, null sans fichier
+     */
+    private Path windFile;
+    /**
+     * Pas d'integration
+     */
+    private double dt;
+    /**
+     * Nom du schema d'integration
+     */
+    private String integrator;
+    /**
+     * Profil de la voile, null pour le profil par defaut
+     */
+    private SailProfile profile;
+    /**
+     * Duree simulee
+     */
+    private double duration;
+    /**
+     * Periode d'echantillonnage des resultats
+     */
+    private double samplePeriod;
+    /**
+     * Instants des commandes, tries par ordre croissant
+     */
+    private double[] controlTimes;
+    /**
+     * Angles du safran commandes
+     */
+    private double[] controlDeltag;
+    /**
+     * Angles de la voile commandes
+     */
+    private double[] controlDeltavmax;
+    /**
+     * Nombre de commandes
+     */
+    private int controlCount;
+
+    /**
+     * Constructeur : scenario par defaut identique a la visualisation
+     * @param name nom du scenario
+     */
+    public Scenario(String name) {
+        this.name = name;
+        this.theta = -0.25;
+        this.phi = 0.2;
+        this.windForce = 4;
+        this.windDir = 0;
+        this.windVariations = new SyntheticWind(0, 0);
+        this.dt = 0.020;
+        this.integrator = "semi-implicit-euler";
+        this.duration = 60;
+        this.samplePeriod = 1;
+        this.controlTimes = new double[4];
+        this.controlDeltag = new double[4];
+        this.controlDeltavmax = new double[4];
+        this.controlCount = 0;
+    }
+
+    /**
+     * Lecture d'un scenario depuis un fichier
+     * @param file fichier de scenario
+     * @return le scenario lu, nomme d'apres le fichier
+     * @throws IOException si le fichier ne peut pas etre lu
+     */
+    public static Scenario load(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return Scenario.parse(name, reader);
+        }
+    }
+
+    /**
+     * Lecture d'un scenario depuis une chaine de caracteres
+     * @param name nom du scenario
+     * @param text contenu du scenario
+     * @return le scenario lu
+     */
+    public static Scenario parse(String name, String text) {
+        try {
+            return Scenario.parse(name, new BufferedReader(new StringReader(text)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Lecture d'un scenario ligne par ligne
+     * @param name nom du scenario
+     * @param reader source des lignes du scenario
+     * @return le scenario lu
+     * @throws IOException si la source ne peut pas etre lue
+     */
+    public static Scenario parse(String name, BufferedReader reader) throws IOException {
+        Scenario scenario = new Scenario(name);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] tokens = line.split("\\s+");
+            try {
+                scenario.apply(tokens);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(name + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return scenario;
+    }
+
+    /**
+     * Application d'une directive du fichier de scenario
+     * @param tokens mots de la ligne
+     * @throws IOException si le fichier de profils ne peut pas etre lu
+     */
+    private void apply(String[] tokens) throws IOException {
+        String key = tokens[0];
+        switch (key) {
+            case "x":
+                this.x = value(tokens, 1);
+                break;
+            case "y":
+                this.y = value(tokens, 1);
+                break;
+            case "theta":
+                this.theta = value(tokens, 1);
+                break;
+            case "phi":
+                this.phi = value(tokens, 1);
+                break;
+            case "xPoint":
+                this.xPoint = value(tokens, 1);
+                break;
+            case "yPoint":
+                this.yPoint = value(tokens, 1);
+                break;
+            case "thetaPoint":
+                this.thetaPoint = value(tokens, 1);
+                break;
+            case "phiPoint":
+                this.phiPoint = value(tokens, 1);
+                break;
+            case "wind":
+                this.windForce = value(tokens, 2);
+                this.windDir = Double.parseDouble(tokens[2]);
+                break;
+            case "gradient":
+                this.windVariations.setGradient(value(tokens, 2), Double.parseDouble(tokens[2]));
+                break;
+            case "shift":
+                this.windVariations.setShift(value(tokens, 2), Double.parseDouble(tokens[2]));
+                break;
+            case "gust":
+                this.windVariations.addGust(value(tokens, 6), Double.parseDouble(tokens[2]),
+                        Double.parseDouble(tokens[3]), Double.parseDouble(tokens[4]), Double.parseDouble(tokens[5]),
+                        Double.parseDouble(tokens[6]));
+                break;
+            case "windgrid":
+                checkCount(tokens, 6);
+                double[] grid = new double[6];
+                for (int i = 0; i < 6; i++) {
+                    grid[i] = Double.parseDouble(tokens[i + 1]);
+                }
+                if (!(grid[1] >= grid[0]) || !(grid[3] >= grid[2]) || !(grid[4] > 0) || !(grid[5] > 0)) {
+                    throw new IllegalArgumentException("grille de vent invalide");
+                }
+                this.windGrid = grid;
+                break;
+            case "windfile":
+                checkCount(tokens, 1);
+                this.windFile = Paths.get(tokens[1]);
+                break;
+            case "dt":
+                this.dt = value(tokens, 1);
+                if (this.dt <= 0) {
+                    throw new IllegalArgumentException("dt doit etre strictement positif");
+                }
+                break;
+            case "integrator":
+                checkCount(tokens, 1);
+                Integrator.forName(tokens[1]);
+                this.integrator = tokens[1];
+                break;
+            case "profile":
+                checkCount(tokens, 2);
+                this.profile = SailProfile.load(Paths.get(tokens[1])).get(tokens[2]);
+                if (this.profile == null) {
+                    throw new IllegalArgumentException("profil '" + tokens[2] + "' absent de " + tokens[1]);
+                }
+                break;
+            case "duration":
+                this.duration = value(tokens, 1);
+                break;
+            case "sample":
+                this.samplePeriod = value(tokens, 1);
+                break;
+            case "control":
+                this.addControl(value(tokens, 3), Double.parseDouble(tokens[2]), Double.parseDouble(tokens[3]));
+                break;
+            default:
+                throw new IllegalArgumentException("directive inconnue '" + key + "'");
+        }
+    }
+
+    /**
+     * Lecture de la premiere valeur d'une directive apres verification du nombre de valeurs
+     * @param tokens mots de la ligne
+     * @param count nombre de valeurs attendues
+     * @return la premiere valeur de la directive
+     */
+    private static double value(String[] tokens, int count) {
+        checkCount(tokens, count);
+        return Double.parseDouble(tokens[1]);
+    }
+
+    /**
+     * Verification du nombre de valeurs d'une directive
+     * @param tokens mots de la ligne
+     * @param count nombre de valeurs attendues
+     */
+    private static void checkCount(String[] tokens, int count) {
+        if (tokens.length != count + 1) {
+            throw new IllegalArgumentException("'" + tokens[0] + "' attend " + count + " valeur(s)");
+        }
+    }
+
+    /**
+     * Ajout d'une commande au programme
+     * @param t instant d'application de la commande
+     * @param deltag angle du safran
+     * @param deltavmax angle de la voile
+     */
+    public void addControl(double t, double deltag, double deltavmax) {
+        if (this.controlCount > 0 && t < this.controlTimes[this.controlCount - 1]) {
+            throw new IllegalArgumentException("les commandes doivent etre triees par instant croissant");
+        }
+        if (this.controlCount == this.controlTimes.length) {
+            int capacity = 2 * this.controlCount;
+            this.controlTimes = Arrays.copyOf(this.controlTimes, capacity);
+            this.controlDeltag = Arrays.copyOf(this.controlDeltag, capacity);
+            this.controlDeltavmax = Arrays.copyOf(this.controlDeltavmax, capacity);
+        }
+        this.controlTimes[this.controlCount] = t;
+        this.controlDeltag[this.controlCount] = deltag;
+        this.controlDeltavmax[this.controlCount] = deltavmax;
+        this.controlCount++;
+    }
+
+    /**
+     * Creation d'un voilier dans l'etat initial du scenario, avec le schema d'integration et le profil de voile
+     * du scenario
+     * @return un nouveau voilier
+     */
+    public Sailboat createSailboat() {
+        Sailboat sailboat = new Sailboat();
+        sailboat.setIntegrator(Integrator.forName(this.integrator));
+        if (this.profile != null) {
+            sailboat.getTheSail().setProfile(this.profile);
+        }
+        this.initialize(sailboat);
+        return sailboat;
+    }
+
+    /**
+     * Mise d'un voilier dans l'etat initial du scenario
+     * @param sailboat voilier a initialiser
+     */
+    public void initialize(Sailboat sailboat) {
+        sailboat.setX(this.x);
+        sailboat.setY(this.y);
+        sailboat.setTheta(this.theta);
+        sailboat.setPhi(this.phi);
+        sailboat.setxPoint(this.xPoint);
+        sailboat.setyPoint(this.yPoint);
+        sailboat.setThetaPoint(this.thetaPoint);
+        sailboat.setPhiPoint(this.phiPoint);
+    }
+
+    /**
+     * Creation du vent du scenario
+     * @return un nouveau vent
+     */
+    public Wind createWind() {
+        return new Wind(this.windForce, this.windDir);
+    }
+
+    /**
+     * Creation du modele de vent du scenario : le fichier de vent s'il y en a un, le vent constant s'il ne
+     * varie pas, le vent variable calcule a chaque echantillon sans grille, ou sa tabulation sur la grille du
+     * scenario
+     * @return un nouveau modele de vent
+     * @throws IOException si le fichier de vent ne peut pas etre lu
+     */
+    public WindModel createWindModel() throws IOException {
+        if (this.windFile != null) {
+            return new WindTileFile(this.windFile);
+        }
+        if (this.windVariations.isConstant()) {
+            return this.createWind();
+        }
+        SyntheticWind wind = new SyntheticWind(this.windForce, this.windDir, this.windVariations);
+        if (this.windGrid == null) {
+            return wind;
+        }
+        double[] g = this.windGrid;
+        return WindField.precompute(axis(g[0], g[1], g[4]), axis(g[2], g[3], g[4]),
+                axis(0, this.duration, g[5]), wind);
+    }
+
+    /**
+     * Axe de tabulation couvrant un intervalle
+     * @param min premiere valeur
+     * @param max valeur a couvrir
+     * @param step pas
+     * @return l'axe de <code>min</code> a au moins <code>max</code>
+     */
+    private static UniformAxis axis(double min, double max, double step) {
+        return new UniformAxis(min, step, (int) Math.ceil((max - min) / step - 1e-9) + 1);
+    }
+
+    /**
+     * Getter de l'attribut name
+     * @return le nom du scenario
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter de l'attribut dt
+     * @return le pas d'integration
+     */
+    public double getDt() {
+        return dt;
+    }
+
+    /**
+     * Setter de l'attribut dt
+     * @param dt nouveau pas d'integration
+     */
+    public void setDt(double dt) {
+        this.dt = dt;
+    }
+
+    /**
+     * Getter de l'attribut duration
+     * @return la duree simulee
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    /**
+     * Setter de l'attribut duration
+     * @param duration nouvelle duree simulee
+     */
+    public void setDuration(double duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * Getter de l'attribut samplePeriod
+     * @return la periode d'echantillonnage des resultats
+     */
+    public double getSamplePeriod() {
+        return samplePeriod;
+    }
+
+    /**
+     * Setter de l'attribut samplePeriod
+     * @param samplePeriod nouvelle periode d'echantillonnage des resultats
+     */
+    public void setSamplePeriod(double samplePeriod) {
+        this.samplePeriod = samplePeriod;
+    }
+
+    /**
+     * Getter du nombre de commandes
+     * @return le nombre de commandes du programme
+     */
+    public int getControlCount() {
+        return controlCount;
+    }
+
+    /**
+     * Instant d'application d'une commande
+     * @param i indice de la commande
+     * @return l'instant d'application de la commande
+     */
+    public double getControlTime(int i) {
+        return this.controlTimes[i];
+    }
+
+    /**
+     * Angle du safran d'une commande
+     * @param i indice de la commande
+     * @return l'angle du safran commande
+     */
+    public double getControlDeltag(int i) {
+        return this.controlDeltag[i];
+    }
+
+    /**
+     * Angle de la voile d'une commande
+     * @param i indice de la commande
+     * @return l'angle de la voile commande
+     */
+    public double getControlDeltavmax(int i) {
+        return this.controlDeltavmax[i];
+    }
+}
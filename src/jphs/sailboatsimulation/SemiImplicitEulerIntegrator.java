@@ -0,0 +1,32 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * La classe <code>SemiImplicitEulerIntegrator</code> implemente le schema
+ * d'Euler semi-implicite (ou symplectique) pour un systeme du second ordre :
+ * les vitesses sont d'abord mises a jour avec les accelerations, puis les
+ * positions avec les nouvelles vitesses. Ordre 1.
+ * <p>
+ * C'est le schema historique de <code>Sailboat.update</code>.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class SemiImplicitEulerIntegrator implements Integrator {
+
+    @Override
+    public Integrator copy() {
+        return new SemiImplicitEulerIntegrator();
+    }
+
+    @Override
+    public void integrate(StateDerivative f, double t, double[] state, double[] dState, double dt) {
+        int n = state.length / 2;
+        for (int i = 0; i < n; i++) {
+            state[n + i] = state[n + i] + dState[n + i] * dt;
+            state[i] = state[i] + state[n + i] * dt;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * La classe <code>SimulationCommand</code> decrit une commande envoyee au
+ * thread de simulation : reglage du safran ou de la voile, marche/arret,
+ * remise a zero de la position, engagement du pilote automatique. Chaque commande porte le temps de simulation
+ * a partir duquel elle s'applique. Les commandes sont immuables et peuvent
+ * etre creees par n'importe quel thread.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public final class SimulationCommand {
+    /**
+     * Types de commandes
+     */
+    public enum Type {
+        /**
+         * Fixe l'angle du safran a la valeur de la commande
+         */
+        SET_HELM,
+        /**
+         * Ajoute la valeur de la commande a l'angle du safran
+         */
+        ADJUST_HELM,
+        /**
+         * Fixe l'angle de la voile a la valeur de la commande
+         */
+        SET_SAIL,
+        /**
+         * Ajoute la valeur de la commande a l'angle de la voile
+         */
+        ADJUST_SAIL,
+        /**
+         * Demarre ou arrete la simulation
+         */
+        TOGGLE_RUN,
+        /**
+         * Ramene le voilier a l'origine
+         */
+        RESET_POSITION,
+        /**
+         * Engage le pilote automatique sur le cap de la commande, le cap courant si la valeur est NaN
+         */
+        AUTOPILOT_HEADING,
+        /**
+         * Engage le pilote automatique pour avancer au plus vite dans la direction de la commande
+         */
+        AUTOPILOT_VMG,
+        /**
+         * Desengage le pilote automatique
+         */
+        AUTOPILOT_OFF,
+        /**
+         * Ajoute la valeur de la commande a la consigne du pilote automatique
+         */
+        ADJUST_TARGET
+    }
+
+    /**
+     * Temps de simulation a partir duquel la commande s'applique
+     */
+    private final double time;
+    /**
+     * Type de la commande
+     */
+    private final Type type;
+    /**
+     * Valeur de la commande, en radians pour les angles
+     */
+    private final double value;
+
+    /**
+     * Constructeur
+     * @param time temps de simulation a partir duquel la commande s'applique
+     * @param type type de la commande
+     * @param value valeur de la commande
+     */
+    public SimulationCommand(double time, Type type, double value) {
+        this.time = time;
+        this.type = type;
+        this.value = value;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return this.time + " " + this.type + " " + this.value;
+    }
+}
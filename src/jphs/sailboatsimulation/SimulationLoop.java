@@ -0,0 +1,395 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * La classe <code>SimulationLoop</code> fait avancer la simulation d'un
+ * voilier dans son propre thread, a pas de temps fixe et au rythme du temps
+ * reel (multiplie par un facteur d'acceleration), independamment de la
+ * frequence d'affichage.
+ * <p>
+ * Apres chaque pas, les deux derniers etats sont publies dans un
+ * <code>SnapshotBuffer</code> que l'affichage lit et interpole, et l'etat est
+ * publie dans la telemetrie si elle est fournie. Les commandes arrivent par
+ * une file sans verrou ; elles sont appliquees au premier pas dont le temps
+ * de simulation atteint leur temps, dans l'ordre d'envoi. Si la simulation
+ * prend du retard, au plus <code>MAX_STEPS_PER_TICK</code> pas sont
+ * rattrapes d'un coup, puis le retard est abandonne : la simulation ralentit
+ * au lieu de s'emballer.
+ * <p>
+ * Avec un <code>Autopilot</code> engage, le safran et la voile sont choisis
+ * par le pilote tous les <code>getStepsPerSegment()</code> pas ; un reglage
+ * manuel du safran ou de la voile le desengage.
+ * <p>
+ * Le voilier, le temps de simulation et les commandes courantes ne sont
+ * modifies que par le thread de simulation.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class SimulationLoop implements Runnable {
+    /**
+     * Pas de temps par defaut, celui de la visualisation
+     */
+    public static final double DEFAULT_DT = 0.02;
+    /**
+     * Nombre maximal de pas rattrapes d'un coup
+     */
+    public static final int MAX_STEPS_PER_TICK = 5;
+    /**
+     * Bornes de l'angle du safran et de l'angle de la voile
+     */
+    public static final double MAX_DELTAG = 0.5, MAX_DELTAVMAX = 1.57;
+    /**
+     * Voilier simule
+     */
+    private final Sailboat sailboat;
+    /**
+     * Vent de la simulation
+     */
+    private final Wind wind;
+    /**
+     * Pas de temps de la simulation
+     */
+    private final double dt;
+    /**
+     * Temps de simulation
+     */
+    private double time;
+    /**
+     * Angle du safran et angle de la voile commandes
+     */
+    private double deltag, deltavmax;
+    /**
+     * Simulation en cours
+     */
+    private volatile boolean running;
+    /**
+     * Facteur d'acceleration du temps simule par rapport au temps reel
+     */
+    private volatile double timeScale = 1.;
+    /**
+     * Dernier temps de simulation publie
+     */
+    private volatile double publishedTime;
+    /**
+     * Commandes en attente
+     */
+    private final ConcurrentLinkedQueue<SimulationCommand> commands = new ConcurrentLinkedQueue<>();
+    /**
+     * Etats publies pour l'affichage
+     */
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    /**
+     * Telemetrie, eventuellement nulle
+     */
+    private volatile Telemetry telemetry;
+    /**
+     * Mesure de la duree des pas, eventuellement nulle
+     */
+    private volatile FrameProfiler profiler;
+    /**
+     * Apercu des trajectoires, eventuellement nul
+     */
+    private volatile GhostPreview preview;
+    /**
+     * Pilote automatique, eventuellement nul
+     */
+    private volatile Autopilot autopilot;
+    /**
+     * Pas restant avant le prochain calcul du pilote automatique
+     */
+    private int autopilotSteps;
+    /**
+     * Thread de simulation
+     */
+    private Thread thread;
+    /**
+     * Demande d'arret du thread de simulation
+     */
+    private volatile boolean stopping;
+
+    /**
+     * Constructeur avec le pas de temps par defaut, le safran a 0 et la voile a 0.3 radian
+     * @param sailboat voilier a simuler
+     * @param wind vent de la simulation
+     */
+    public SimulationLoop(Sailboat sailboat, Wind wind) {
+        this(sailboat, wind, DEFAULT_DT);
+    }
+
+    /**
+     * Constructeur, le safran a 0 et la voile a 0.3 radian
+     * @param sailboat voilier a simuler
+     * @param wind vent de la simulation
+     * @param dt pas de temps de la simulation
+     */
+    public SimulationLoop(Sailboat sailboat, Wind wind, double dt) {
+        this.sailboat = sailboat;
+        this.wind = wind;
+        this.dt = dt;
+        this.deltag = 0;
+        this.deltavmax = 0.3;
+    }
+
+    /**
+     * Demarrage du thread de simulation, sans effet s'il est deja demarre. La simulation reste a l'arret
+     * jusqu'a la commande <code>TOGGLE_RUN</code>.
+     */
+    public synchronized void start() {
+        if (this.thread != null) {
+            return;
+        }
+        this.stopping = false;
+        this.thread = new Thread(this, "physics");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Arret du thread de simulation et attente de sa fin
+     */
+    public synchronized void stop() {
+        if (this.thread == null) {
+            return;
+        }
+        this.stopping = true;
+        LockSupport.unpark(this.thread);
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.thread = null;
+    }
+
+    @Override
+    public void run() {
+        long next = System.nanoTime();
+        while (!this.stopping) {
+            long period = this.getPeriodNanos();
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(this, next - now);
+                continue;
+            }
+            int steps = 0;
+            while (now - next >= 0 && steps < MAX_STEPS_PER_TICK) {
+                this.tick(now);
+                next += period;
+                steps++;
+            }
+            if (now - next >= 0) {
+                next = now + period;
+            }
+        }
+    }
+
+    /**
+     * Un pas de la boucle : application des commandes echues, pas de simulation si elle est en cours, puis
+     * publication de l'etat. A l'arret, les efforts sont recalcules sans faire avancer le temps, pour que les
+     * reglages restent visibles. Un apercu demande est lance depuis l'etat du voilier apres le pas.
+     * @param nanos instant de publication, selon <code>System.nanoTime</code>
+     */
+    public void tick(long nanos) {
+        FrameProfiler p = this.profiler;
+        long start = p != null ? p.start() : 0;
+        this.applyCommands();
+        if (this.running) {
+            Autopilot a = this.autopilot;
+            if (a != null && a.isEngaged() && this.autopilotSteps-- <= 0) {
+                a.plan(this.sailboat, this.time);
+                this.deltag = a.getDeltag();
+                this.deltavmax = a.getDeltavmax();
+                this.autopilotSteps = a.getStepsPerSegment() - 1;
+            }
+            this.sailboat.update(this.dt, this.deltag, this.deltavmax, this.wind);
+            this.time += this.dt;
+            Telemetry t = this.telemetry;
+            if (t != null) {
+                t.publish(this.time, this.sailboat);
+            }
+        } else {
+            this.sailboat.update(0, this.deltag, this.deltavmax, this.wind);
+        }
+        GhostPreview g = this.preview;
+        if (g != null) {
+            g.fork(this.sailboat, this.time, this.deltag, this.deltavmax);
+        }
+        this.snapshots.publish(this.time, this.sailboat, nanos);
+        this.publishedTime = this.time;
+        if (p != null) {
+            p.stop(FrameProfiler.STEP, start);
+        }
+    }
+
+    /**
+     * Application des commandes dont le temps est atteint
+     */
+    private void applyCommands() {
+        SimulationCommand c;
+        while ((c = this.commands.peek()) != null && c.getTime() <= this.time) {
+            this.commands.poll();
+            switch (c.getType()) {
+                case SET_HELM:
+                    this.disengageAutopilot();
+                    this.deltag = clamp(c.getValue(), MAX_DELTAG);
+                    break;
+                case ADJUST_HELM:
+                    this.disengageAutopilot();
+                    this.deltag = clamp(this.deltag + c.getValue(), MAX_DELTAG);
+                    break;
+                case SET_SAIL:
+                    this.disengageAutopilot();
+                    this.deltavmax = clamp(c.getValue(), MAX_DELTAVMAX);
+                    break;
+                case ADJUST_SAIL:
+                    this.disengageAutopilot();
+                    this.deltavmax = clamp(this.deltavmax + c.getValue(), MAX_DELTAVMAX);
+                    break;
+                case TOGGLE_RUN:
+                    this.running = !this.running;
+                    break;
+                case RESET_POSITION:
+                    this.sailboat.setX(0.0);
+                    this.sailboat.setY(0.0);
+                    break;
+                case AUTOPILOT_HEADING:
+                    this.engageAutopilot(Autopilot.Mode.HEADING,
+                            Double.isNaN(c.getValue()) ? this.sailboat.getPhi() : c.getValue());
+                    break;
+                case AUTOPILOT_VMG:
+                    this.engageAutopilot(Autopilot.Mode.VMG, c.getValue());
+                    break;
+                case AUTOPILOT_OFF:
+                    this.disengageAutopilot();
+                    break;
+                case ADJUST_TARGET:
+                    if (this.autopilot != null) {
+                        this.autopilot.setTarget(this.autopilot.getTarget() + c.getValue());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Engagement du pilote automatique, s'il y en a un, depuis le reglage courant
+     */
+    private void engageAutopilot(Autopilot.Mode mode, double target) {
+        Autopilot a = this.autopilot;
+        if (a != null) {
+            a.engage(mode, target, this.deltag, this.deltavmax);
+            this.autopilotSteps = 0;
+        }
+    }
+
+    private void disengageAutopilot() {
+        Autopilot a = this.autopilot;
+        if (a != null) {
+            a.disengage();
+        }
+    }
+
+    /**
+     * Bornage d'un angle
+     */
+    private static double clamp(double v, double max) {
+        return Math.max(-max, Math.min(max, v));
+    }
+
+    /**
+     * Envoi d'une commande a appliquer des que possible, datee du dernier temps de simulation publie
+     * @param type type de la commande
+     * @param value valeur de la commande
+     */
+    public void post(SimulationCommand.Type type, double value) {
+        this.post(new SimulationCommand(this.publishedTime, type, value));
+    }
+
+    /**
+     * Envoi d'une commande, appliquee au premier pas dont le temps atteint celui de la commande. Les commandes
+     * sont appliquees dans l'ordre d'envoi : une commande datee du futur retient les suivantes.
+     * @param command commande a appliquer
+     */
+    public void post(SimulationCommand command) {
+        this.commands.add(command);
+    }
+
+    /**
+     * Periode de la boucle en temps reel
+     * @return la duree reelle d'un pas en nanosecondes
+     */
+    public long getPeriodNanos() {
+        return Math.max(1L, Math.round(this.dt * 1e9 / this.timeScale));
+    }
+
+    public SnapshotBuffer getSnapshots() {
+        return snapshots;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public double getPublishedTime() {
+        return publishedTime;
+    }
+
+    public double getDt() {
+        return dt;
+    }
+
+    public double getTimeScale() {
+        return timeScale;
+    }
+
+    /**
+     * Setter de l'attribut timeScale
+     * @param timeScale facteur d'acceleration du temps simule par rapport au temps reel, strictement positif
+     */
+    public void setTimeScale(double timeScale) {
+        if (!(timeScale > 0)) {
+            throw new IllegalArgumentException("facteur d'acceleration invalide : " + timeScale);
+        }
+        this.timeScale = timeScale;
+    }
+
+    public Telemetry getTelemetry() {
+        return telemetry;
+    }
+
+    public void setTelemetry(Telemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    public FrameProfiler getProfiler() {
+        return profiler;
+    }
+
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public GhostPreview getPreview() {
+        return preview;
+    }
+
+    public void setPreview(GhostPreview preview) {
+        this.preview = preview;
+    }
+
+    public Autopilot getAutopilot() {
+        return autopilot;
+    }
+
+    public void setAutopilot(Autopilot autopilot) {
+        this.autopilot = autopilot;
+    }
+}
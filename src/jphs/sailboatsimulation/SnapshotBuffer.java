@@ -0,0 +1,123 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * La classe <code>SnapshotBuffer</code> transmet les deux derniers etats du
+ * voilier du thread de simulation au thread d'affichage, pour que celui-ci
+ * puisse interpoler entre eux.
+ * <p>
+ * Les echanges sont proteges par un verrou de sequence : l'ecrivain rend le
+ * compteur impair, ecrit l'etat precedent, l'etat courant et l'instant de
+ * publication, puis rend le compteur pair. Le lecteur copie les valeurs et
+ * recommence si le compteur etait impair ou a change pendant la copie.
+ * L'ecrivain n'attend jamais le lecteur. Les etats suivent les indices des
+ * champs de <code>Telemetry</code>.
+ * <p>
+ * Un seul thread doit publier ; plusieurs threads peuvent lire.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class SnapshotBuffer {
+    /**
+     * Compteur de sequence, impair pendant une ecriture
+     */
+    private final AtomicLong sequence = new AtomicLong();
+    /**
+     * Etat precedent puis etat courant, sous forme de bits de reels
+     */
+    private final AtomicLongArray data = new AtomicLongArray(2 * Telemetry.FIELDS);
+    /**
+     * Instant de publication de l'etat courant, en nanosecondes
+     */
+    private final AtomicLong publishNanos = new AtomicLong();
+    /**
+     * Etat courant, propre a l'ecrivain
+     */
+    private final double[] current = new double[Telemetry.FIELDS];
+    /**
+     * Etat a publier, propre a l'ecrivain
+     */
+    private final double[] next = new double[Telemetry.FIELDS];
+    /**
+     * Vrai si un etat a deja ete publie
+     */
+    private boolean published;
+
+    /**
+     * Publication de l'etat d'un voilier : l'etat courant devient l'etat precedent
+     * @param time temps de simulation
+     * @param sailboat voilier a publier
+     * @param nanos instant de publication, selon <code>System.nanoTime</code>
+     */
+    public void publish(double time, Sailboat sailboat, long nanos) {
+        Telemetry.sample(time, sailboat, this.next, 0);
+        if (!this.published) {
+            System.arraycopy(this.next, 0, this.current, 0, Telemetry.FIELDS);
+            this.published = true;
+        }
+        long s = this.sequence.get();
+        this.sequence.set(s + 1);
+        for (int i = 0; i < Telemetry.FIELDS; i++) {
+            this.data.set(i, Double.doubleToRawLongBits(this.current[i]));
+            this.data.set(Telemetry.FIELDS + i, Double.doubleToRawLongBits(this.next[i]));
+        }
+        this.publishNanos.set(nanos);
+        this.sequence.set(s + 2);
+        System.arraycopy(this.next, 0, this.current, 0, Telemetry.FIELDS);
+    }
+
+    /**
+     * Lecture coherente des deux derniers etats publies
+     * @param previous tableau d'au moins <code>Telemetry.FIELDS</code> valeurs qui recoit l'etat precedent
+     * @param current tableau d'au moins <code>Telemetry.FIELDS</code> valeurs qui recoit l'etat courant
+     * @return l'instant de publication de l'etat courant, ou <code>Long.MIN_VALUE</code> si rien n'a ete publie
+     */
+    public long read(double[] previous, double[] current) {
+        while (true) {
+            long s1 = this.sequence.get();
+            if ((s1 & 1) != 0) {
+                Thread.yield();
+                continue;
+            }
+            if (s1 == 0) {
+                return Long.MIN_VALUE;
+            }
+            for (int i = 0; i < Telemetry.FIELDS; i++) {
+                previous[i] = Double.longBitsToDouble(this.data.get(i));
+                current[i] = Double.longBitsToDouble(this.data.get(Telemetry.FIELDS + i));
+            }
+            long nanos = this.publishNanos.get();
+            if (this.sequence.get() == s1) {
+                return nanos;
+            }
+        }
+    }
+
+    /**
+     * Lecture de l'etat a afficher a un instant, par interpolation lineaire entre les deux derniers etats
+     * publies. L'affichage a un pas de retard sur la simulation : l'etat precedent est affiche a l'instant de
+     * publication de l'etat courant, et l'etat courant une periode plus tard.
+     * @param nanos instant d'affichage, selon <code>System.nanoTime</code>
+     * @param periodNanos periode de publication en nanosecondes
+     * @param previous tableau de travail d'au moins <code>Telemetry.FIELDS</code> valeurs
+     * @param state tableau d'au moins <code>Telemetry.FIELDS</code> valeurs qui recoit l'etat interpole
+     * @return faux si rien n'a ete publie
+     */
+    public boolean interpolate(long nanos, long periodNanos, double[] previous, double[] state) {
+        long published = this.read(previous, state);
+        if (published == Long.MIN_VALUE) {
+            return false;
+        }
+        double alpha = Math.max(0., Math.min(1., (nanos - published) / (double) periodNanos));
+        for (int i = 0; i < Telemetry.FIELDS; i++) {
+            state[i] = previous[i] + (state[i] - previous[i]) * alpha;
+        }
+        return true;
+    }
+}
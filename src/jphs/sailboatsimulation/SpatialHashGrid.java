@@ -0,0 +1,226 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.Arrays;
+
+/**
+ * La classe <code>SpatialHashGrid</code> range des objets numerotes de 0 a
+ * <code>capacity - 1</code> dans une grille uniforme non bornee : la case
+ * d'un point est <code>(floor(x / cellSize), floor(y / cellSize))</code>
+ * et les cases sont rangees dans une table de hachage de taille fixe, chaque
+ * entree etant une liste chainee d'objets stockee dans des tableaux.
+ * <p>
+ * La grille est mise a jour de facon incrementale : un objet qui reste dans
+ * sa case ne coute qu'un calcul de case, un objet qui en change est
+ * decroche et raccroche en temps constant. Deux cases peuvent partager une
+ * entree de la table ; les parcours comparent donc la case de chaque objet
+ * a la case visitee. Si la taille des cases est au moins la distance
+ * d'interaction, les paires proches sont dans des cases voisines
+ * (<code>forEachPair</code>) et le cout d'un pas est lineaire en nombre
+ * d'objets tant que leur densite reste bornee.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class SpatialHashGrid {
+    /**
+     * Visiteur des paires d'objets de cases voisines
+     */
+    public interface PairVisitor {
+        /**
+         * Paire candidate, chaque paire etant visitee une seule fois
+         * @param a premier objet
+         * @param b second objet, d'indice plus grand
+         */
+        void visit(int a, int b);
+    }
+
+    /**
+     * Taille d'une case et son inverse
+     */
+    private final double cellSize, invCellSize;
+    /**
+     * Masque de la table de hachage, dont la taille est une puissance de deux
+     */
+    private final int mask;
+    /**
+     * Premier objet de chaque entree de la table, -1 pour une entree vide
+     */
+    private final int[] head;
+    /**
+     * Objets suivant et precedent dans la liste de leur entree, -1 en bout de liste
+     */
+    private final int[] next, prev;
+    /**
+     * Entree de la table de chaque objet, -1 pour un objet absent
+     */
+    private final int[] bucket;
+    /**
+     * Case de chaque objet
+     */
+    private final int[] cellX, cellY;
+
+    /**
+     * Constructeur
+     * @param capacity nombre maximal d'objets
+     * @param cellSize taille d'une case, au moins la distance d'interaction
+     */
+    public SpatialHashGrid(int capacity, double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("la taille des cases doit etre strictement positive");
+        }
+        this.cellSize = cellSize;
+        this.invCellSize = 1. / cellSize;
+        int table = Integer.highestOneBit(Math.max(2, 2 * capacity - 1)) << 1;
+        this.mask = table - 1;
+        this.head = new int[table];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.bucket = new int[capacity];
+        this.cellX = new int[capacity];
+        this.cellY = new int[capacity];
+        Arrays.fill(this.head, -1);
+        Arrays.fill(this.bucket, -1);
+    }
+
+    /**
+     * Case d'une coordonnee
+     * @param v abscisse ou ordonnee
+     * @return l'indice de la case
+     */
+    public int cell(double v) {
+        return (int) Math.floor(v * this.invCellSize);
+    }
+
+    /**
+     * Entree de la table d'une case
+     */
+    private int hash(int cx, int cy) {
+        int h = cx * 0x9E3779B1 + cy * 0x85EBCA77;
+        return (h ^ (h >>> 16)) & this.mask;
+    }
+
+    /**
+     * Insertion ou deplacement d'un objet ; un objet de position NaN est retire
+     * @param item indice de l'objet
+     * @param x position selon Ox0
+     * @param y position selon Oy0
+     */
+    public void update(int item, double x, double y) {
+        if (Double.isNaN(x) || Double.isNaN(y)) {
+            this.remove(item);
+            return;
+        }
+        int cx = this.cell(x);
+        int cy = this.cell(y);
+        if (this.bucket[item] >= 0) {
+            if (this.cellX[item] == cx && this.cellY[item] == cy) {
+                return;
+            }
+            this.remove(item);
+        }
+        int b = this.hash(cx, cy);
+        int first = this.head[b];
+        this.next[item] = first;
+        this.prev[item] = -1;
+        if (first >= 0) {
+            this.prev[first] = item;
+        }
+        this.head[b] = item;
+        this.bucket[item] = b;
+        this.cellX[item] = cx;
+        this.cellY[item] = cy;
+    }
+
+    /**
+     * Retrait d'un objet, sans effet s'il est absent
+     * @param item indice de l'objet
+     */
+    public void remove(int item) {
+        int b = this.bucket[item];
+        if (b < 0) {
+            return;
+        }
+        int p = this.prev[item];
+        int n = this.next[item];
+        if (p >= 0) {
+            this.next[p] = n;
+        } else {
+            this.head[b] = n;
+        }
+        if (n >= 0) {
+            this.prev[n] = p;
+        }
+        this.bucket[item] = -1;
+    }
+
+    /**
+     * Vrai si l'objet est dans la grille
+     * @param item indice de l'objet
+     * @return vrai si l'objet a ete insere et non retire
+     */
+    public boolean contains(int item) {
+        return this.bucket[item] >= 0;
+    }
+
+    /**
+     * Visite des paires d'objets situes dans la meme case ou dans deux cases voisines (y compris en diagonale)
+     * @param visitor visiteur des paires
+     */
+    public void forEachPair(PairVisitor visitor) {
+        int capacity = this.bucket.length;
+        for (int a = 0; a < capacity; a++) {
+            if (this.bucket[a] < 0) {
+                continue;
+            }
+            int cx = this.cellX[a];
+            int cy = this.cellY[a];
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = cx + dx;
+                    int ny = cy + dy;
+                    for (int b = this.head[this.hash(nx, ny)]; b >= 0; b = this.next[b]) {
+                        if (b > a && this.cellX[b] == nx && this.cellY[b] == ny) {
+                            visitor.visit(a, b);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Objets des cases qui recouvrent un carre centre sur un point
+     * @param x centre selon Ox0
+     * @param y centre selon Oy0
+     * @param radius demi-cote du carre
+     * @param out objets trouves
+     * @return le nombre d'objets ecrits dans <code>out</code>, au plus sa taille
+     */
+    public int query(double x, double y, double radius, int[] out) {
+        int count = 0;
+        int x0 = this.cell(x - radius);
+        int x1 = this.cell(x + radius);
+        int y0 = this.cell(y - radius);
+        int y1 = this.cell(y + radius);
+        for (int cy = y0; cy <= y1; cy++) {
+            for (int cx = x0; cx <= x1; cx++) {
+                for (int b = this.head[this.hash(cx, cy)]; b >= 0; b = this.next[b]) {
+                    if (this.cellX[b] == cx && this.cellY[b] == cy) {
+                        if (count == out.length) {
+                            return count;
+                        }
+                        out[count++] = b;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+}
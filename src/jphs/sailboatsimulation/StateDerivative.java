@@ -0,0 +1,22 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * L'interface <code>StateDerivative</code> decrit un systeme d'equations
+ * differentielles du premier ordre dy/dt = f(t, y) integre par un
+ * <code>Integrator</code>.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public interface StateDerivative {
+    /**
+     * Calcul de la derivee de l'etat sans modifier l'etat
+     * @param t instant simule
+     * @param state vecteur d'etat
+     * @param dState vecteur qui recoit la derivee de l'etat
+     */
+    void computeDerivative(double t, double[] state, double[] dState);
+}
@@ -0,0 +1,171 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.Arrays;
+
+/**
+ * La classe <code>StreamingQuantile</code> estime un quantile d'une suite de
+ * valeurs sans les garder, par l'algorithme P2 de Jain et Chlamtac : cinq
+ * marqueurs suivent le minimum, le quantile cherche, le maximum et deux
+ * quantiles intermediaires, et leurs hauteurs sont corrigees par
+ * interpolation parabolique a chaque valeur. La memoire et le cout d'un
+ * ajout sont constants.
+ * <p>
+ * L'estimation depend de l'ordre des valeurs : pour un resultat
+ * reproductible, les valeurs doivent etre ajoutees dans un ordre fixe. Les
+ * valeurs NaN sont ignorees.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class StreamingQuantile {
+    /**
+     * Rang du quantile estime, dans [0, 1]
+     */
+    private final double p;
+    /**
+     * Hauteurs des marqueurs
+     */
+    private final double[] q = new double[5];
+    /**
+     * Positions des marqueurs, de 1 au nombre de valeurs
+     */
+    private final double[] n = new double[5];
+    /**
+     * Positions souhaitees des marqueurs et leurs increments par valeur
+     */
+    private final double[] desired = new double[5], increment = new double[5];
+    /**
+     * Nombre de valeurs ajoutees
+     */
+    private long count;
+
+    /**
+     * Constructeur
+     * @param p rang du quantile, dans [0, 1] (0.5 pour la mediane)
+     */
+    public StreamingQuantile(double p) {
+        if (!(p >= 0 && p <= 1)) {
+            throw new IllegalArgumentException("rang de quantile hors de [0, 1] : " + p);
+        }
+        this.p = p;
+        this.increment[1] = p / 2;
+        this.increment[2] = p;
+        this.increment[3] = (1 + p) / 2;
+        this.increment[4] = 1;
+    }
+
+    /**
+     * Ajout d'une valeur
+     * @param x valeur
+     */
+    public void add(double x) {
+        if (Double.isNaN(x)) {
+            return;
+        }
+        double[] q = this.q;
+        double[] n = this.n;
+        if (this.count < 5) {
+            q[(int) this.count++] = x;
+            if (this.count == 5) {
+                Arrays.sort(q);
+                for (int i = 0; i < 5; i++) {
+                    n[i] = i + 1;
+                    this.desired[i] = 1 + 4 * this.increment[i];
+                }
+            }
+            return;
+        }
+        this.count++;
+        int k;
+        if (x < q[0]) {
+            q[0] = x;
+            k = 0;
+        } else if (x >= q[4]) {
+            q[4] = x;
+            k = 3;
+        } else {
+            k = 0;
+            while (x >= q[k + 1]) {
+                k++;
+            }
+        }
+        for (int i = k + 1; i < 5; i++) {
+            n[i]++;
+        }
+        for (int i = 0; i < 5; i++) {
+            this.desired[i] += this.increment[i];
+        }
+        for (int i = 1; i < 4; i++) {
+            double d = this.desired[i] - n[i];
+            if ((d >= 1 && n[i + 1] - n[i] > 1) || (d <= -1 && n[i - 1] - n[i] < -1)) {
+                int s = d > 0 ? 1 : -1;
+                double h = this.parabolic(i, s);
+                if (q[i - 1] < h && h < q[i + 1]) {
+                    q[i] = h;
+                } else {
+                    q[i] += s * (q[i + s] - q[i]) / (n[i + s] - n[i]);
+                }
+                n[i] += s;
+            }
+        }
+    }
+
+    /**
+     * Hauteur d'un marqueur deplace d'une position, par interpolation parabolique avec ses voisins
+     */
+    private double parabolic(int i, int s) {
+        double[] q = this.q;
+        double[] n = this.n;
+        return q[i] + s / (n[i + 1] - n[i - 1]) * ((n[i] - n[i - 1] + s) * (q[i + 1] - q[i]) / (n[i + 1] - n[i])
+                + (n[i + 1] - n[i] - s) * (q[i] - q[i - 1]) / (n[i] - n[i - 1]));
+    }
+
+    /**
+     * Quantile estime ; exact tant que moins de cinq valeurs ont ete ajoutees
+     * @return l'estimation du quantile, NaN sans valeur
+     */
+    public double getQuantile() {
+        if (this.count == 0) {
+            return Double.NaN;
+        }
+        if (this.count < 5) {
+            double[] first = Arrays.copyOf(this.q, (int) this.count);
+            Arrays.sort(first);
+            return first[(int) Math.min(this.count - 1, Math.max(0, Math.ceil(this.p * this.count) - 1))];
+        }
+        return this.q[2];
+    }
+
+    /**
+     * Plus petite valeur ajoutee
+     * @return le minimum, NaN sans valeur
+     */
+    public double getMin() {
+        if (this.count == 0) {
+            return Double.NaN;
+        }
+        return this.count < 5 ? Arrays.stream(this.q, 0, (int) this.count).min().getAsDouble() : this.q[0];
+    }
+
+    /**
+     * Plus grande valeur ajoutee
+     * @return le maximum, NaN sans valeur
+     */
+    public double getMax() {
+        if (this.count == 0) {
+            return Double.NaN;
+        }
+        return this.count < 5 ? Arrays.stream(this.q, 0, (int) this.count).max().getAsDouble() : this.q[4];
+    }
+
+    public double getP() {
+        return p;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
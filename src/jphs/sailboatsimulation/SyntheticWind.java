@@ -0,0 +1,185 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.util.Arrays;
+
+/**
+ * La classe <code>SyntheticWind</code> construit un vent variable a partir
+ * d'un vent moyen : gradient lineaire de force sur le plan d'eau, bascule
+ * periodique de direction et rafales. Une rafale ajoute une force en forme
+ * de cloche (gaussienne) autour de son centre et de son instant.
+ * <p>
+ * Le calcul demande des exponentielles et des sinus a chaque appel : pour
+ * une simulation longue ou une flotte, il vaut mieux le tabuler une fois
+ * dans un <code>WindField</code> avec <code>WindField.precompute</code>.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class SyntheticWind implements WindModel {
+    /**
+     * Force et direction du vent moyen
+     */
+    private final double force, dir;
+    /**
+     * Variation de la force par metre selon Ox0 et Oy0
+     */
+    private double gradientX, gradientY;
+    /**
+     * Amplitude en radians et periode en secondes de la bascule
+     */
+    private double shiftAmplitude, shiftPeriod;
+    /**
+     * Rafales : instant, centre, rayon, duree et force de chacune
+     */
+    private double[] gustTime, gustX, gustY, gustRadius, gustDuration, gustForce;
+    /**
+     * Nombre de rafales
+     */
+    private int gustCount;
+
+    /**
+     * Constructeur : vent constant
+     * @param force force du vent moyen
+     * @param dir direction du vent moyen en radians
+     */
+    public SyntheticWind(double force, double dir) {
+        this.force = force;
+        this.dir = dir;
+        this.gustTime = new double[4];
+        this.gustX = new double[4];
+        this.gustY = new double[4];
+        this.gustRadius = new double[4];
+        this.gustDuration = new double[4];
+        this.gustForce = new double[4];
+    }
+
+    /**
+     * Constructeur : vent moyen donne avec les variations d'un autre vent
+     * @param force force du vent moyen
+     * @param dir direction du vent moyen en radians
+     * @param variations vent dont le gradient, la bascule et les rafales sont copies
+     */
+    public SyntheticWind(double force, double dir, SyntheticWind variations) {
+        this.force = force;
+        this.dir = dir;
+        this.gradientX = variations.gradientX;
+        this.gradientY = variations.gradientY;
+        this.shiftAmplitude = variations.shiftAmplitude;
+        this.shiftPeriod = variations.shiftPeriod;
+        this.gustTime = variations.gustTime.clone();
+        this.gustX = variations.gustX.clone();
+        this.gustY = variations.gustY.clone();
+        this.gustRadius = variations.gustRadius.clone();
+        this.gustDuration = variations.gustDuration.clone();
+        this.gustForce = variations.gustForce.clone();
+        this.gustCount = variations.gustCount;
+    }
+
+    /**
+     * Reglage du gradient de force
+     * @param gradientX variation de la force par metre selon Ox0
+     * @param gradientY variation de la force par metre selon Oy0
+     */
+    public void setGradient(double gradientX, double gradientY) {
+        this.gradientX = gradientX;
+        this.gradientY = gradientY;
+    }
+
+    /**
+     * Reglage de la bascule de direction, sinusoidale
+     * @param amplitude ecart maximal a la direction moyenne en radians
+     * @param period periode en secondes, strictement positive
+     */
+    public void setShift(double amplitude, double period) {
+        if (!(period > 0)) {
+            throw new IllegalArgumentException("la periode de bascule doit etre strictement positive");
+        }
+        this.shiftAmplitude = amplitude;
+        this.shiftPeriod = period;
+    }
+
+    /**
+     * Ajout d'une rafale
+     * @param t instant du maximum de la rafale
+     * @param x centre de la rafale selon Ox0
+     * @param y centre de la rafale selon Oy0
+     * @param radius rayon de la rafale en metres (ecart type)
+     * @param duration duree de la rafale en secondes (ecart type)
+     * @param force force ajoutee au centre et au maximum, negative pour une molle
+     */
+    public void addGust(double t, double x, double y, double radius, double duration, double force) {
+        if (!(radius > 0) || !(duration > 0)) {
+            throw new IllegalArgumentException("le rayon et la duree d'une rafale doivent etre strictement positifs");
+        }
+        if (this.gustCount == this.gustTime.length) {
+            int capacity = 2 * this.gustCount;
+            this.gustTime = Arrays.copyOf(this.gustTime, capacity);
+            this.gustX = Arrays.copyOf(this.gustX, capacity);
+            this.gustY = Arrays.copyOf(this.gustY, capacity);
+            this.gustRadius = Arrays.copyOf(this.gustRadius, capacity);
+            this.gustDuration = Arrays.copyOf(this.gustDuration, capacity);
+            this.gustForce = Arrays.copyOf(this.gustForce, capacity);
+        }
+        int g = this.gustCount++;
+        this.gustTime[g] = t;
+        this.gustX[g] = x;
+        this.gustY[g] = y;
+        this.gustRadius[g] = radius;
+        this.gustDuration[g] = duration;
+        this.gustForce[g] = force;
+    }
+
+    @Override
+    public void sample(double x, double y, double t, Wind out) {
+        out.setWindForce(this.force(x, y, t));
+        out.setWindDir(this.direction(t));
+    }
+
+    /**
+     * Echantillonnage en bloc : la direction, qui ne depend que de l'instant, est calculee une fois
+     */
+    @Override
+    public void sample(double[] x, double[] y, double t, int from, int to, double[] force, double[] dir) {
+        double psi = this.direction(t);
+        for (int i = from; i < to; i++) {
+            force[i] = this.force(x[i], y[i], t);
+            dir[i] = psi;
+        }
+    }
+
+    /**
+     * Force du vent en un point a un instant
+     */
+    private double force(double x, double y, double t) {
+        double f = this.force + this.gradientX * x + this.gradientY * y;
+        for (int g = 0; g < this.gustCount; g++) {
+            double dx = (x - this.gustX[g]) / this.gustRadius[g];
+            double dy = (y - this.gustY[g]) / this.gustRadius[g];
+            double dt = (t - this.gustTime[g]) / this.gustDuration[g];
+            f += this.gustForce[g] * Math.exp(-0.5 * (dx * dx + dy * dy + dt * dt));
+        }
+        return Math.max(0, f);
+    }
+
+    /**
+     * Direction du vent a un instant
+     */
+    private double direction(double t) {
+        double psi = this.dir;
+        if (this.shiftAmplitude != 0) {
+            psi += this.shiftAmplitude * Math.sin(2 * Math.PI * t / this.shiftPeriod);
+        }
+        return psi;
+    }
+
+    /**
+     * Vrai si le vent ne varie ni dans l'espace ni dans le temps
+     * @return vrai pour un vent constant
+     */
+    public boolean isConstant() {
+        return this.gradientX == 0 && this.gradientY == 0 && this.shiftAmplitude == 0 && this.gustCount == 0;
+    }
+}
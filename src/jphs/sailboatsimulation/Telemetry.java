@@ -0,0 +1,256 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * La classe <code>Telemetry</code> transmet l'etat du voilier du thread de
+ * simulation vers des sorties (<code>TelemetrySink</code>) : console,
+ * fichier, memoire.
+ * <p>
+ * Le thread de simulation publie des echantillons dans un tampon circulaire
+ * alloue une fois pour toutes, sans verrou ni allocation : un echantillon est
+ * une suite de <code>FIELDS</code> reels copiee dans une case du tampon, puis
+ * rendue visible par une ecriture ordonnee du compteur de publication. Un
+ * thread de fond vide le tampon vers les sorties. Si le tampon est plein,
+ * l'echantillon est perdu et compte, la simulation n'attend jamais.
+ * <p>
+ * Un seul thread doit publier ; les sorties ne sont appelees que par le
+ * thread de fond.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class Telemetry implements AutoCloseable {
+    /**
+     * Indices des champs d'un echantillon : temps, vecteur d'etat du voilier (decale de 1 par rapport aux
+     * indices de <code>Sailboat</code>), angle du safran, angle de la voile et force velique
+     */
+    public static final int TIME = 0, X = 1 + Sailboat.X, Y = 1 + Sailboat.Y, THETA = 1 + Sailboat.THETA,
+            PHI = 1 + Sailboat.PHI, X_POINT = 1 + Sailboat.X_POINT, Y_POINT = 1 + Sailboat.Y_POINT,
+            THETA_POINT = 1 + Sailboat.THETA_POINT, PHI_POINT = 1 + Sailboat.PHI_POINT,
+            DELTAG = 1 + Sailboat.STATE_SIZE, DELTAV = DELTAG + 1, FV = DELTAV + 1;
+    /**
+     * Nombre de champs d'un echantillon
+     */
+    public static final int FIELDS = FV + 1;
+    /**
+     * Noms des champs, separes par des points-virgules
+     */
+    public static final String HEADER = HeadlessSimulation.HEADER + ";fV";
+    /**
+     * Capacite par defaut du tampon, en echantillons
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+    /**
+     * Attente du thread de fond quand le tampon est vide
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    /**
+     * Tampon des echantillons
+     */
+    private final double[] slots;
+    /**
+     * Masque des indices de cases, la capacite etant une puissance de 2
+     */
+    private final int mask;
+    /**
+     * Nombre d'echantillons publies, ecrit par le thread de simulation
+     */
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * Nombre d'echantillons traites, ecrit par le thread de fond
+     */
+    private final AtomicLong head = new AtomicLong();
+    /**
+     * Nombre d'echantillons perdus, ecrit par le thread de simulation
+     */
+    private final AtomicLong dropped = new AtomicLong();
+    /**
+     * Derniere valeur lue de <code>head</code> par le thread de simulation
+     */
+    private long cachedHead;
+    /**
+     * Sorties des echantillons
+     */
+    private final TelemetrySink[] sinks;
+    /**
+     * Thread de fond
+     */
+    private final Thread consumer;
+    /**
+     * Demande d'arret du thread de fond
+     */
+    private volatile boolean closing;
+
+    /**
+     * Constructeur avec la capacite par defaut
+     * @param sinks sorties des echantillons
+     */
+    public Telemetry(TelemetrySink... sinks) {
+        this(DEFAULT_CAPACITY, sinks);
+    }
+
+    /**
+     * Constructeur. Le thread de fond est demarre immediatement.
+     * @param capacity capacite du tampon en echantillons, arrondie a la puissance de 2 superieure
+     * @param sinks sorties des echantillons
+     */
+    public Telemetry(int capacity, TelemetrySink... sinks) {
+        if (capacity < 1 || capacity > (1 << 24)) {
+            throw new IllegalArgumentException("capacite invalide : " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.slots = new double[size * FIELDS];
+        this.sinks = sinks.clone();
+        this.consumer = new Thread(this::drainLoop, "telemetry");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Publication de l'etat d'un voilier, sans verrou ni allocation
+     * @param time temps de simulation
+     * @param sailboat voilier a enregistrer
+     * @return faux si le tampon est plein et l'echantillon perdu
+     */
+    public boolean publish(double time, Sailboat sailboat) {
+        long t = this.tail.get();
+        if (t - this.cachedHead > this.mask) {
+            this.cachedHead = this.head.get();
+            if (t - this.cachedHead > this.mask) {
+                this.dropped.lazySet(this.dropped.get() + 1);
+                return false;
+            }
+        }
+        sample(time, sailboat, this.slots, (int) (t & this.mask) * FIELDS);
+        this.tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Copie de l'etat d'un voilier dans un tableau, selon les indices des champs d'un echantillon
+     * @param time temps de simulation
+     * @param sailboat voilier a copier
+     * @param sample tableau qui recoit l'echantillon
+     * @param offset indice du premier champ dans le tableau
+     */
+    public static void sample(double time, Sailboat sailboat, double[] sample, int offset) {
+        sample[offset + TIME] = time;
+        sample[offset + X] = sailboat.getX();
+        sample[offset + Y] = sailboat.getY();
+        sample[offset + THETA] = sailboat.getTheta();
+        sample[offset + PHI] = sailboat.getPhi();
+        sample[offset + X_POINT] = sailboat.getxPoint();
+        sample[offset + Y_POINT] = sailboat.getyPoint();
+        sample[offset + THETA_POINT] = sailboat.getThetaPoint();
+        sample[offset + PHI_POINT] = sailboat.getPhiPoint();
+        sample[offset + DELTAG] = sailboat.getDeltag();
+        sample[offset + DELTAV] = sailboat.getDeltav();
+        sample[offset + FV] = sailboat.getTheSail().getfV();
+    }
+
+    /**
+     * Boucle du thread de fond
+     */
+    private void drainLoop() {
+        while (!this.closing) {
+            if (this.drain() == 0) {
+                this.flushSinks();
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Transmission aux sorties des echantillons publies
+     * @return le nombre d'echantillons transmis
+     */
+    private int drain() {
+        long h = this.head.get();
+        long t = this.tail.get();
+        int n = 0;
+        while (h < t) {
+            int o = (int) (h & this.mask) * FIELDS;
+            for (TelemetrySink sink : this.sinks) {
+                try {
+                    sink.write(this.slots, o);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("telemetrie : " + sink + " : " + e);
+                }
+            }
+            h++;
+            n++;
+            this.head.lazySet(h);
+        }
+        return n;
+    }
+
+    /**
+     * Vidage des sorties
+     */
+    private void flushSinks() {
+        for (TelemetrySink sink : this.sinks) {
+            try {
+                sink.flush();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("telemetrie : " + sink + " : " + e);
+            }
+        }
+    }
+
+    /**
+     * Nombre d'echantillons publies
+     * @return le nombre d'echantillons acceptes dans le tampon
+     */
+    public long getPublished() {
+        return this.tail.get();
+    }
+
+    /**
+     * Nombre d'echantillons perdus
+     * @return le nombre d'echantillons perdus faute de place dans le tampon
+     */
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    /**
+     * Capacite du tampon
+     * @return le nombre d'echantillons que le tampon peut contenir
+     */
+    public int getCapacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * Arret du thread de fond apres transmission des derniers echantillons, puis fermeture des sorties
+     */
+    @Override
+    public void close() {
+        this.closing = true;
+        LockSupport.unpark(this.consumer);
+        try {
+            this.consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.drain();
+        for (TelemetrySink sink : this.sinks) {
+            try {
+                sink.close();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("telemetrie : " + sink + " : " + e);
+            }
+        }
+    }
+}
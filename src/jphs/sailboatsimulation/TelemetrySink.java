@@ -0,0 +1,41 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.IOException;
+
+/**
+ * L'interface <code>TelemetrySink</code> decrit une sortie des echantillons
+ * de telemetrie. Ses methodes sont appelees par le thread de fond de
+ * <code>Telemetry</code>, jamais par le thread de simulation.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public interface TelemetrySink {
+    /**
+     * Ecriture d'un echantillon. Le tableau appartient au tampon de telemetrie : ses valeurs doivent etre copiees
+     * si elles sont conservees apres l'appel.
+     * @param sample tableau contenant l'echantillon
+     * @param offset indice du premier champ de l'echantillon, les champs etant ranges selon les indices de
+     *               <code>Telemetry</code>
+     * @throws IOException si l'ecriture echoue
+     */
+    void write(double[] sample, int offset) throws IOException;
+
+    /**
+     * Vidage des ecritures en attente, appele quand le tampon de telemetrie est vide
+     * @throws IOException si l'ecriture echoue
+     */
+    default void flush() throws IOException {
+    }
+
+    /**
+     * Fermeture de la sortie
+     * @throws IOException si la fermeture echoue
+     */
+    default void close() throws IOException {
+        this.flush();
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * La classe <code>UniformAxis</code> decrit un axe de tabulation a pas
+ * constant : <code>count</code> valeurs a partir de <code>min</code>,
+ * espacees de <code>step</code>. La recherche de la case contenant une
+ * valeur se fait en temps constant, sans boucle ni branche sur les valeurs
+ * de l'axe.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public final class UniformAxis {
+    /**
+     * Premiere valeur de l'axe
+     */
+    private final double min;
+    /**
+     * Pas entre deux valeurs
+     */
+    private final double step;
+    /**
+     * Nombre de valeurs
+     */
+    private final int count;
+    /**
+     * Inverse du pas
+     */
+    private final double invStep;
+
+    /**
+     * Constructeur
+     * @param min premiere valeur de l'axe
+     * @param step pas entre deux valeurs, strictement positif
+     * @param count nombre de valeurs, au moins 1
+     */
+    public UniformAxis(double min, double step, int count) {
+        if (count < 1 || (count > 1 && !(step > 0))) {
+            throw new IllegalArgumentException("axe invalide : min " + min + ", pas " + step + ", " + count + " valeurs");
+        }
+        this.min = min;
+        this.step = count > 1 ? step : 1.;
+        this.count = count;
+        this.invStep = 1. / this.step;
+    }
+
+    /**
+     * Creation d'un axe entre deux bornes incluses
+     * @param min premiere valeur de l'axe
+     * @param max derniere valeur de l'axe
+     * @param count nombre de valeurs, au moins 2
+     * @return le nouvel axe
+     */
+    public static UniformAxis between(double min, double max, int count) {
+        return new UniformAxis(min, (max - min) / (count - 1), count);
+    }
+
+    /**
+     * Position continue d'une valeur sur l'axe, bornee a [0, count - 1] : la partie entiere est l'indice de
+     * la case et la partie fractionnaire le poids de la valeur suivante pour l'interpolation lineaire
+     * @param v valeur a placer
+     * @return la position de la valeur sur l'axe
+     */
+    public double position(double v) {
+        double p = (v - this.min) * this.invStep;
+        return Math.max(0., Math.min(this.count - 1., p));
+    }
+
+    /**
+     * Indice de la case contenant une position, tel que l'indice suivant existe toujours si l'axe a plus
+     * d'une valeur
+     * @param position position renvoyee par <code>position</code>
+     * @return l'indice de la case
+     */
+    public int cell(double position) {
+        return Math.min((int) position, Math.max(0, this.count - 2));
+    }
+
+    /**
+     * Indice de la valeur la plus proche
+     * @param v valeur a placer
+     * @return l'indice de la valeur de l'axe la plus proche
+     */
+    public int nearest(double v) {
+        return (int) Math.round(this.position(v));
+    }
+
+    /**
+     * Valeur de l'axe a un indice
+     * @param i indice
+     * @return la valeur de l'axe
+     */
+    public double getValue(int i) {
+        return this.min + i * this.step;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return this.getValue(this.count - 1);
+    }
+
+    public double getStep() {
+        return step;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return this.min + " " + this.step + " " + this.count;
+    }
+
+    /**
+     * Lecture d'un axe ecrit par <code>toString</code>
+     * @param tokens mots contenant le minimum, le pas et le nombre de valeurs
+     * @param offset indice du minimum dans les mots
+     * @return l'axe lu
+     */
+    public static UniformAxis parse(String[] tokens, int offset) {
+        return new UniformAxis(Double.parseDouble(tokens[offset]), Double.parseDouble(tokens[offset + 1]),
+                Integer.parseInt(tokens[offset + 2]));
+    }
+}
@@ -0,0 +1,319 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * La classe <code>VectorEnvironment</code> expose N voiliers comme un
+ * environnement d'apprentissage vectorise, a la maniere de Gym :
+ * <code>reset(seeds)</code> remet les voiliers dans un etat initial tire au
+ * hasard, <code>step()</code> lit une commande par voilier, avance la
+ * flotte d'un pas et ecrit une observation, une recompense et un
+ * indicateur de fin d'episode par voilier.
+ * <p>
+ * Les echanges passent par un seul tampon en memoire directe, en
+ * <code>float</code> dans l'ordre natif des octets, alloue une fois : les
+ * commandes et les observations n'y sont ni copiees ni converties en objets
+ * a chaque pas :
+ * <pre>
+ * commandes     N x ACTION_SIZE       deltag, deltavmax
+ * observations  N x OBSERVATION_SIZE  x, y, xPoint, yPoint, theta, phi, thetaPoint, phiPoint,
+ *                                     force et angle du vent apparent (par rapport au cap)
+ * recompenses   N                     vitesse vers le vent, d'ou il vient
+ * fins          N                     1 si l'episode est fini a ce pas, 0 sinon
+ * </pre>
+ * Le tampon peut etre projete depuis un fichier (sous <code>/dev/shm</code>
+ * par exemple) : un processus d'apprentissage local qui projette le meme
+ * fichier lit les observations et ecrit les commandes sans copie, les deux
+ * processus alternant par un moyen de synchronisation externe.
+ * <p>
+ * Un episode finit au bout de <code>maxSteps</code> pas ou si le voilier
+ * diverge ; le voilier est alors remis a zero aussitot avec le generateur
+ * de son episode, et l'observation ecrite est celle du nouvel episode. Les
+ * voiliers sont simules par une <code>SailboatFleet</code>.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class VectorEnvironment {
+    /**
+     * Position des commandes dans la commande d'un voilier
+     */
+    public static final int DELTAG = 0, DELTAVMAX = 1, ACTION_SIZE = 2;
+    /**
+     * Position des grandeurs dans l'observation d'un voilier
+     */
+    public static final int X = 0, Y = 1, X_POINT = 2, Y_POINT = 3, THETA = 4, PHI = 5, THETA_POINT = 6,
+            PHI_POINT = 7, APPARENT_FORCE = 8, APPARENT_ANGLE = 9, OBSERVATION_SIZE = 10;
+    /**
+     * Duree maximale d'un episode par defaut, en pas
+     */
+    public static final int DEFAULT_MAX_STEPS = 3000;
+
+    /**
+     * Nombre de voiliers
+     */
+    private final int size;
+    /**
+     * Voiliers simules
+     */
+    private final SailboatFleet fleet;
+    /**
+     * Vent auquel les voiliers sont soumis
+     */
+    private final WindModel wind;
+    /**
+     * Pas d'integration
+     */
+    private final double dt;
+    /**
+     * Tampon partage et ses vues : commandes, observations, recompenses et fins
+     */
+    private final ByteBuffer buffer;
+    private final FloatBuffer actions, observations, rewards, dones;
+    /**
+     * Generateurs des episodes en cours
+     */
+    private final SplittableRandom[] randoms;
+    /**
+     * Nombre de pas de l'episode en cours de chaque voilier
+     */
+    private final int[] episodeSteps;
+    /**
+     * Voilier de travail pour les remises a zero
+     */
+    private final Sailboat scratch = new Sailboat();
+    /**
+     * Duree maximale d'un episode en pas
+     */
+    private int maxSteps = DEFAULT_MAX_STEPS;
+    /**
+     * Instant simule
+     */
+    private double time;
+
+    /**
+     * Constructeur : tampon en memoire directe
+     * @param size nombre de voiliers
+     * @param wind vent auquel les voiliers sont soumis
+     * @param dt pas d'integration
+     */
+    public VectorEnvironment(int size, WindModel wind, double dt) {
+        this(size, wind, dt, ByteBuffer.allocateDirect(bufferSize(size)));
+    }
+
+    /**
+     * Constructeur : tampon projete depuis un fichier, cree ou agrandi si besoin
+     * @param size nombre de voiliers
+     * @param wind vent auquel les voiliers sont soumis
+     * @param dt pas d'integration
+     * @param file fichier partage avec le processus d'apprentissage
+     * @throws IOException si le fichier ne peut pas etre projete
+     */
+    public VectorEnvironment(int size, WindModel wind, double dt, Path file) throws IOException {
+        this(size, wind, dt, map(file, bufferSize(size)));
+    }
+
+    private VectorEnvironment(int size, WindModel wind, double dt, ByteBuffer buffer) {
+        this.size = size;
+        this.fleet = new SailboatFleet(size);
+        this.wind = wind;
+        this.dt = dt;
+        this.buffer = buffer.order(ByteOrder.nativeOrder());
+        this.actions = this.view(0, size * ACTION_SIZE);
+        this.observations = this.view(size * ACTION_SIZE, size * OBSERVATION_SIZE);
+        this.rewards = this.view(size * (ACTION_SIZE + OBSERVATION_SIZE), size);
+        this.dones = this.view(size * (ACTION_SIZE + OBSERVATION_SIZE + 1), size);
+        this.randoms = new SplittableRandom[size];
+        this.episodeSteps = new int[size];
+    }
+
+    /**
+     * Taille du tampon partage
+     * @param size nombre de voiliers
+     * @return la taille en octets
+     */
+    public static int bufferSize(int size) {
+        return size * (ACTION_SIZE + OBSERVATION_SIZE + 2) * Float.BYTES;
+    }
+
+    /**
+     * Projection d'un fichier en lecture et ecriture
+     */
+    private static ByteBuffer map(Path file, int bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        }
+    }
+
+    /**
+     * Vue en <code>float</code> d'une partie du tampon
+     * @param first indice du premier reel
+     * @param count nombre de reels
+     */
+    private FloatBuffer view(int first, int count) {
+        ByteBuffer b = this.buffer.duplicate().order(ByteOrder.nativeOrder());
+        b.position(first * Float.BYTES);
+        b.limit((first + count) * Float.BYTES);
+        return b.slice().order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    /**
+     * Remise a zero de tous les voiliers et ecriture des premieres observations
+     * @param seeds graine de chaque voilier, dont les episodes suivants sont aussi tires
+     */
+    public void reset(long[] seeds) {
+        if (seeds.length != this.size) {
+            throw new IllegalArgumentException(seeds.length + " graines pour " + this.size + " voiliers");
+        }
+        this.time = 0;
+        for (int i = 0; i < this.size; i++) {
+            this.randoms[i] = new SplittableRandom(seeds[i]);
+            this.resetBoat(i);
+            this.rewards.put(i, 0);
+            this.dones.put(i, 0);
+        }
+        this.fleet.sampleWind(this.wind, this.time);
+        for (int i = 0; i < this.size; i++) {
+            this.observe(i);
+        }
+    }
+
+    /**
+     * Pas de simulation : lecture des commandes, pas de la flotte en parallele, puis ecriture des
+     * observations, recompenses et fins d'episode
+     */
+    public void step() {
+        if (this.size > 0 && this.randoms[0] == null) {
+            throw new IllegalStateException("reset doit etre appele avant step");
+        }
+        FloatBuffer a = this.actions;
+        for (int i = 0; i < this.size; i++) {
+            this.fleet.setControl(i, a.get(i * ACTION_SIZE + DELTAG), a.get(i * ACTION_SIZE + DELTAVMAX));
+        }
+        this.fleet.update(this.dt, this.wind, this.time);
+        this.time += this.dt;
+        SailboatFleet f = this.fleet;
+        for (int i = 0; i < this.size; i++) {
+            double psi = f.getWindDir(i);
+            double reward = -(f.getxPoint(i) * Math.cos(psi) + f.getyPoint(i) * Math.sin(psi));
+            boolean diverged = Double.isNaN(reward) || Double.isNaN(f.getTheta(i)) || Double.isNaN(f.getPhi(i));
+            boolean done = diverged || ++this.episodeSteps[i] >= this.maxSteps;
+            this.rewards.put(i, diverged ? 0 : (float) reward);
+            this.dones.put(i, done ? 1 : 0);
+            if (done) {
+                this.resetBoat(i);
+            }
+        }
+        this.fleet.sampleWind(this.wind, this.time);
+        for (int i = 0; i < this.size; i++) {
+            this.observe(i);
+        }
+    }
+
+    /**
+     * Remise a zero d'un voilier : a l'origine, au repos, cap tire dans [-PI, PI] et gite dans [-0.1, 0.1]
+     * @param i indice du voilier
+     */
+    private void resetBoat(int i) {
+        SplittableRandom r = this.randoms[i];
+        Sailboat s = this.scratch;
+        s.setX(0);
+        s.setY(0);
+        s.setxPoint(0);
+        s.setyPoint(0);
+        s.setThetaPoint(0);
+        s.setPhiPoint(0);
+        s.setPhi((2 * r.nextDouble() - 1) * Math.PI);
+        s.setTheta((2 * r.nextDouble() - 1) * 0.1);
+        this.fleet.load(i, s);
+        this.episodeSteps[i] = 0;
+    }
+
+    /**
+     * Ecriture de l'observation d'un voilier, le vent a sa position ayant ete echantillonne
+     * @param i indice du voilier
+     */
+    private void observe(int i) {
+        SailboatFleet f = this.fleet;
+        FloatBuffer o = this.observations;
+        int n = i * OBSERVATION_SIZE;
+        double phi = f.getPhi(i);
+        double force = f.getWindForce(i);
+        double psi = f.getWindDir(i);
+        double ax = force * Math.cos(psi) - f.getxPoint(i);
+        double ay = force * Math.sin(psi) - f.getyPoint(i);
+        o.put(n + X, (float) f.getX(i));
+        o.put(n + Y, (float) f.getY(i));
+        o.put(n + X_POINT, (float) f.getxPoint(i));
+        o.put(n + Y_POINT, (float) f.getyPoint(i));
+        o.put(n + THETA, (float) f.getTheta(i));
+        o.put(n + PHI, (float) phi);
+        o.put(n + THETA_POINT, (float) f.getThetaPoint(i));
+        o.put(n + PHI_POINT, (float) f.getPhiPoint(i));
+        o.put(n + APPARENT_FORCE, (float) Math.sqrt(ax * ax + ay * ay));
+        o.put(n + APPARENT_ANGLE, (float) PolarDiagram.normalizeAngle(Math.atan2(ay, ax) - phi));
+    }
+
+    /**
+     * Tampon partage complet, dans l'ordre commandes, observations, recompenses, fins
+     * @return le tampon
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Commandes a remplir avant chaque pas
+     * @return la vue des commandes, <code>ACTION_SIZE</code> reels par voilier
+     */
+    public FloatBuffer getActions() {
+        return actions;
+    }
+
+    /**
+     * Observations ecrites a chaque pas
+     * @return la vue des observations, <code>OBSERVATION_SIZE</code> reels par voilier
+     */
+    public FloatBuffer getObservations() {
+        return observations;
+    }
+
+    public FloatBuffer getRewards() {
+        return rewards;
+    }
+
+    public FloatBuffer getDones() {
+        return dones;
+    }
+
+    public SailboatFleet getFleet() {
+        return fleet;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+
+    public void setMaxSteps(int maxSteps) {
+        this.maxSteps = Math.max(1, maxSteps);
+    }
+}
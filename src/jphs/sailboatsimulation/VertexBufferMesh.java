@@ -0,0 +1,178 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+
+/**
+ * La classe <code>VertexBufferMesh</code> garde un maillage de triangles
+ * construit par <code>MeshBuilder</code> dans un tampon de sommets
+ * (VBO) de la carte graphique, et le dessine en un seul appel.
+ * <p>
+ * Un maillage statique (<code>GL_STATIC_DRAW</code>) est envoye une fois a
+ * sa creation. Un maillage dynamique (<code>GL_STREAM_DRAW</code>) garde sa
+ * taille maximale et est reecrit par <code>update</code> ; le tampon est
+ * d'abord abandonne pour que le pilote n'attende pas la fin du dessin
+ * precedent. Un maillage sans couleurs de sommets est dessine avec la
+ * couleur courante (<code>glColor3f</code>), ce qui permet de partager une
+ * meme forme entre plusieurs objets. Les methodes doivent etre appelees avec
+ * le contexte OpenGL courant.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class VertexBufferMesh {
+    /**
+     * Taille d'un sommet en octets
+     */
+    public static final int STRIDE = MeshBuilder.FLOATS_PER_VERTEX * Float.BYTES;
+    /**
+     * Nom OpenGL du tampon
+     */
+    private final int buffer;
+    /**
+     * Usage du tampon
+     */
+    private final int usage;
+    /**
+     * Vrai si les couleurs des sommets sont utilisees, faux pour la couleur courante
+     */
+    private final boolean vertexColors;
+    /**
+     * Nombre maximal de sommets
+     */
+    private final int capacity;
+    /**
+     * Nombre de sommets a dessiner
+     */
+    private int vertexCount;
+    /**
+     * Copie des sommets en memoire directe avant envoi
+     */
+    private final FloatBuffer staging;
+
+    /**
+     * Constructeur d'un maillage statique
+     * @param gl contexte OpenGL
+     * @param mesh sommets du maillage
+     */
+    public VertexBufferMesh(GL2 gl, MeshBuilder mesh) {
+        this(gl, mesh, true);
+    }
+
+    /**
+     * Constructeur d'un maillage statique
+     * @param gl contexte OpenGL
+     * @param mesh sommets du maillage
+     * @param vertexColors vrai pour dessiner avec les couleurs des sommets, faux pour la couleur courante
+     */
+    public VertexBufferMesh(GL2 gl, MeshBuilder mesh, boolean vertexColors) {
+        this(gl, mesh.getVertexCount(), GL.GL_STATIC_DRAW, vertexColors);
+        this.update(gl, mesh);
+    }
+
+    /**
+     * Constructeur d'un maillage vide
+     * @param gl contexte OpenGL
+     * @param capacity nombre maximal de sommets
+     * @param usage usage du tampon, <code>GL_STATIC_DRAW</code> ou <code>GL_STREAM_DRAW</code>
+     */
+    public VertexBufferMesh(GL2 gl, int capacity, int usage) {
+        this(gl, capacity, usage, true);
+    }
+
+    /**
+     * Constructeur d'un maillage vide
+     * @param gl contexte OpenGL
+     * @param capacity nombre maximal de sommets
+     * @param usage usage du tampon, <code>GL_STATIC_DRAW</code> ou <code>GL_STREAM_DRAW</code>
+     * @param vertexColors vrai pour dessiner avec les couleurs des sommets, faux pour la couleur courante
+     */
+    public VertexBufferMesh(GL2 gl, int capacity, int usage, boolean vertexColors) {
+        this.capacity = capacity;
+        this.usage = usage;
+        this.vertexColors = vertexColors;
+        this.staging = ByteBuffer.allocateDirect(capacity * STRIDE).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        int[] names = new int[1];
+        gl.glGenBuffers(1, names, 0);
+        this.buffer = names[0];
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, this.buffer);
+        gl.glBufferData(GL.GL_ARRAY_BUFFER, (long) capacity * STRIDE, null, usage);
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Remplacement des sommets du maillage
+     * @param gl contexte OpenGL
+     * @param mesh nouveaux sommets, au plus <code>capacity</code>
+     */
+    public void update(GL2 gl, MeshBuilder mesh) {
+        int count = mesh.getVertexCount();
+        if (count > this.capacity) {
+            throw new IllegalArgumentException("trop de sommets : " + count + " > " + this.capacity);
+        }
+        this.staging.clear();
+        mesh.writeTo(this.staging);
+        this.staging.flip();
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, this.buffer);
+        if (this.usage != GL.GL_STATIC_DRAW) {
+            gl.glBufferData(GL.GL_ARRAY_BUFFER, (long) this.capacity * STRIDE, null, this.usage);
+        }
+        gl.glBufferSubData(GL.GL_ARRAY_BUFFER, 0, (long) count * STRIDE, this.staging);
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+        this.vertexCount = count;
+    }
+
+    /**
+     * Dessin du maillage avec la matrice courante
+     * @param gl contexte OpenGL
+     */
+    public void draw(GL2 gl) {
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, this.buffer);
+        gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glEnableClientState(GL2.GL_NORMAL_ARRAY);
+        gl.glVertexPointer(3, GL.GL_FLOAT, STRIDE, MeshBuilder.POSITION * Float.BYTES);
+        gl.glNormalPointer(GL.GL_FLOAT, STRIDE, MeshBuilder.NORMAL * Float.BYTES);
+        if (this.vertexColors) {
+            gl.glEnableClientState(GL2.GL_COLOR_ARRAY);
+            gl.glColorPointer(3, GL.GL_FLOAT, STRIDE, MeshBuilder.COLOR * Float.BYTES);
+        }
+        gl.glDrawArrays(GL.GL_TRIANGLES, 0, this.vertexCount);
+        if (this.vertexColors) {
+            gl.glDisableClientState(GL2.GL_COLOR_ARRAY);
+        }
+        gl.glDisableClientState(GL2.GL_NORMAL_ARRAY);
+        gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Liberation du tampon
+     * @param gl contexte OpenGL
+     */
+    public void dispose(GL2 gl) {
+        gl.glDeleteBuffers(1, new int[] { this.buffer }, 0);
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Nom OpenGL du tampon, pour un dessin avec d'autres attributs (par instances par exemple)
+     * @return le nom du tampon
+     */
+    public int getBuffer() {
+        return buffer;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -3,6 +3,8 @@
  */
 package jphs.sailboatsimulation;
 
+import java.util.Arrays;
+
 /**
  * La classe <code>Wind</code> decrit le comportement du vent dans la simulation
  * de voilier
@@ -12,7 +14,7 @@ package jphs.sailboatsimulation;
  * @version 2.0 portage du code C++ en Java
  *
  */
-public class Wind {
+public class Wind implements WindModel {
 	/**
 	 * Force du vent
 	 */
@@ -31,6 +33,24 @@ public class Wind {
 		this(0,0);
 	}
 
+	/**
+	 * Vent constant : recopie de la force et de la direction
+	 */
+	@Override
+	public void sample(double x, double y, double t, Wind out) {
+		out.windForce = this.windForce;
+		out.windDir = this.windDir;
+	}
+
+	/**
+	 * Vent constant : meme force et meme direction en tous les points
+	 */
+	@Override
+	public void sample(double[] x, double[] y, double t, int from, int to, double[] force, double[] dir) {
+		Arrays.fill(force, from, to, this.windForce);
+		Arrays.fill(dir, from, to, this.windDir);
+	}
+
 	public double getWindForce() {
 		return windForce;
 	}
@@ -0,0 +1,176 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * La classe <code>WindField</code> est un champ de vent tabule sur une
+ * grille reguliere en x, y et t, interpole de facon trilineaire entre les
+ * huit noeuds qui entourent le point demande. Hors de la grille, le vent est
+ * celui du bord le plus proche.
+ * <p>
+ * Le vent est range par composantes, <code>u = F cos(psi)</code> et
+ * <code>v = F sin(psi)</code>, pour que l'interpolation d'une bascule de
+ * direction passe par le chemin le plus court et ne saute pas en traversant
+ * -pi/pi. Les composantes sont en <code>float</code>, x variant le plus
+ * vite : un champ de 100 x 100 noeuds sur 360 instants occupe 29 Mo.
+ * <p>
+ * La grille est remplie noeud par noeud (<code>set</code>) ou calculee une
+ * fois depuis un modele plus couteux (<code>precompute</code>).
+ * L'echantillonnage ne cree aucun objet ; la grille peut etre lue par
+ * plusieurs threads a la fois une fois remplie.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class WindField implements WindModel {
+    /**
+     * Axes de la grille
+     */
+    private final UniformAxis xAxis, yAxis, tAxis;
+    /**
+     * Ecart entre deux noeuds voisins selon x, y et t dans les tableaux, 0 sur un axe d'une seule valeur
+     */
+    private final int xStride, yStride, tStride;
+    /**
+     * Composantes du vent aux noeuds
+     */
+    private final float[] u, v;
+
+    /**
+     * Constructeur : champ de vent nul
+     * @param xAxis axe des positions selon Ox0
+     * @param yAxis axe des positions selon Oy0
+     * @param tAxis axe des instants
+     */
+    public WindField(UniformAxis xAxis, UniformAxis yAxis, UniformAxis tAxis) {
+        long nodes = (long) xAxis.getCount() * yAxis.getCount() * tAxis.getCount();
+        if (nodes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("grille de vent trop grande : " + nodes + " noeuds");
+        }
+        this.xAxis = xAxis;
+        this.yAxis = yAxis;
+        this.tAxis = tAxis;
+        this.xStride = xAxis.getCount() > 1 ? 1 : 0;
+        this.yStride = yAxis.getCount() > 1 ? xAxis.getCount() : 0;
+        this.tStride = tAxis.getCount() > 1 ? xAxis.getCount() * yAxis.getCount() : 0;
+        this.u = new float[(int) nodes];
+        this.v = new float[(int) nodes];
+    }
+
+    /**
+     * Creation d'un champ de vent par echantillonnage d'un modele a chaque noeud de la grille
+     * @param xAxis axe des positions selon Ox0
+     * @param yAxis axe des positions selon Oy0
+     * @param tAxis axe des instants
+     * @param model modele echantillonne
+     * @return le nouveau champ
+     */
+    public static WindField precompute(UniformAxis xAxis, UniformAxis yAxis, UniformAxis tAxis, WindModel model) {
+        WindField field = new WindField(xAxis, yAxis, tAxis);
+        Wind w = new Wind();
+        for (int k = 0; k < tAxis.getCount(); k++) {
+            double t = tAxis.getValue(k);
+            for (int j = 0; j < yAxis.getCount(); j++) {
+                double y = yAxis.getValue(j);
+                for (int i = 0; i < xAxis.getCount(); i++) {
+                    model.sample(xAxis.getValue(i), y, t, w);
+                    field.set(i, j, k, w.getWindForce(), w.getWindDir());
+                }
+            }
+        }
+        return field;
+    }
+
+    /**
+     * Indice d'un noeud dans les tableaux
+     */
+    private int index(int i, int j, int k) {
+        return (k * this.yAxis.getCount() + j) * this.xAxis.getCount() + i;
+    }
+
+    /**
+     * Reglage du vent a un noeud
+     * @param i indice sur l'axe x
+     * @param j indice sur l'axe y
+     * @param k indice sur l'axe t
+     * @param force force du vent
+     * @param dir direction du vent en radians
+     */
+    public void set(int i, int j, int k, double force, double dir) {
+        int n = this.index(i, j, k);
+        this.u[n] = (float) (force * Math.cos(dir));
+        this.v[n] = (float) (force * Math.sin(dir));
+    }
+
+    @Override
+    public void sample(double x, double y, double t, Wind out) {
+        double px = this.xAxis.position(x);
+        double py = this.yAxis.position(y);
+        double pt = this.tAxis.position(t);
+        int i = this.xAxis.cell(px);
+        int j = this.yAxis.cell(py);
+        int k = this.tAxis.cell(pt);
+        double fx = px - i;
+        double fy = py - j;
+        double ft = pt - k;
+        int n = this.index(i, j, k);
+        double wu = this.interpolate(this.u, n, fx, fy, ft);
+        double wv = this.interpolate(this.v, n, fx, fy, ft);
+        out.setWindForce(Math.sqrt(wu * wu + wv * wv));
+        out.setWindDir(Math.atan2(wv, wu));
+    }
+
+    @Override
+    public void sample(double[] x, double[] y, double t, int from, int to, double[] force, double[] dir) {
+        double pt = this.tAxis.position(t);
+        int k = this.tAxis.cell(pt);
+        double ft = pt - k;
+        int base = this.index(0, 0, k);
+        for (int m = from; m < to; m++) {
+            double px = this.xAxis.position(x[m]);
+            double py = this.yAxis.position(y[m]);
+            int i = this.xAxis.cell(px);
+            int j = this.yAxis.cell(py);
+            int n = base + j * this.xAxis.getCount() + i;
+            double wu = this.interpolate(this.u, n, px - i, py - j, ft);
+            double wv = this.interpolate(this.v, n, px - i, py - j, ft);
+            force[m] = Math.sqrt(wu * wu + wv * wv);
+            dir[m] = Math.atan2(wv, wu);
+        }
+    }
+
+    /**
+     * Interpolation trilineaire d'une composante dans une case de la grille
+     * @param c composante aux noeuds
+     * @param n indice du noeud de la case le plus proche de l'origine
+     * @param fx poids du noeud suivant selon x
+     * @param fy poids du noeud suivant selon y
+     * @param ft poids du noeud suivant selon t
+     * @return la composante interpolee
+     */
+    private double interpolate(float[] c, int n, double fx, double fy, double ft) {
+        int dx = this.xStride;
+        int dy = this.yStride;
+        int n1 = n + this.tStride;
+        double c00 = c[n] + (c[n + dx] - c[n]) * fx;
+        double c10 = c[n + dy] + (c[n + dy + dx] - c[n + dy]) * fx;
+        double c01 = c[n1] + (c[n1 + dx] - c[n1]) * fx;
+        double c11 = c[n1 + dy] + (c[n1 + dy + dx] - c[n1 + dy]) * fx;
+        double c0 = c00 + (c10 - c00) * fy;
+        double c1 = c01 + (c11 - c01) * fy;
+        return c0 + (c1 - c0) * ft;
+    }
+
+    public UniformAxis getxAxis() {
+        return xAxis;
+    }
+
+    public UniformAxis getyAxis() {
+        return yAxis;
+    }
+
+    public UniformAxis gettAxis() {
+        return tAxis;
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * L'interface <code>WindModel</code> decrit un vent qui varie selon la
+ * position et l'instant simule : rafales, bascules et gradients sur un plan
+ * d'eau. Un <code>Wind</code> est un modele de vent constant.
+ * <p>
+ * L'echantillonnage ecrit dans un <code>Wind</code> fourni par l'appelant
+ * pour ne pas creer d'objet a chaque pas de simulation. L'echantillonnage en
+ * bloc par defaut cree un <code>Wind</code> a chaque appel : les modeles du
+ * paquet le redefinissent sans creer d'objet.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public interface WindModel {
+    /**
+     * Vent en un point a un instant
+     * @param x position selon Ox0
+     * @param y position selon Oy0
+     * @param t instant simule en secondes
+     * @param out vent qui recoit la force et la direction
+     */
+    void sample(double x, double y, double t, Wind out);
+
+    /**
+     * Vent en une suite de points au meme instant
+     * @param x positions selon Ox0
+     * @param y positions selon Oy0
+     * @param t instant simule en secondes
+     * @param from indice du premier point (inclus)
+     * @param to indice du dernier point (exclu)
+     * @param force forces du vent, ecrites aux memes indices que les points
+     * @param dir directions du vent, ecrites aux memes indices que les points
+     */
+    default void sample(double[] x, double[] y, double t, int from, int to, double[] force, double[] dir) {
+        Wind w = new Wind();
+        for (int i = from; i < to; i++) {
+            this.sample(x[i], y[i], t, w);
+            force[i] = w.getWindForce();
+            dir[i] = w.getWindDir();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+/**
+ * La classe <code>WindShadow</code> modelise le deventement entre les
+ * voiliers d'une flotte : un voilier place sous le vent d'un autre, dans un
+ * cone ouvert vers l'aval, recoit un vent plus faible et devie.
+ * <p>
+ * Le cone d'un voilier porteur d'ombre part de sa position, dans la
+ * direction ou souffle le vent du voilier abrite, sur une longueur
+ * <code>length</code> ; sa demi-largeur vaut <code>beam</code> a l'origine et
+ * s'ouvre de <code>halfAngle</code>. Dans le cone, le deficit de force vaut
+ * <code>strength</code> sur l'axe au contact et decroit lineairement vers le
+ * bout et vers les bords du cone ; les deficits de plusieurs voiliers se
+ * composent par produit. La direction est deviee de <code>deflection</code>
+ * au plus, en s'ecartant de l'axe du cone.
+ * <p>
+ * Les positions sont rangees dans une <code>SpatialHashGrid</code> : pour
+ * chaque voilier, seules les cases qui recouvrent la zone au vent ou peut se
+ * trouver un porteur d'ombre sont parcourues, et le cout d'un pas reste
+ * lineaire en nombre de voiliers tant que leur densite reste bornee.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class WindShadow {
+    /**
+     * Longueur du cone par defaut, environ cinq longueurs de coque
+     */
+    public static final double DEFAULT_LENGTH = 35.;
+    /**
+     * Demi-largeur du cone a l'origine par defaut, la demi-largeur de la coque
+     */
+    public static final double DEFAULT_BEAM = BoatGeometry.HULL_HALF_BEAM;
+    /**
+     * Demi-angle d'ouverture du cone par defaut
+     */
+    public static final double DEFAULT_HALF_ANGLE = Math.toRadians(10.);
+    /**
+     * Deficit de force maximal par defaut
+     */
+    public static final double DEFAULT_STRENGTH = 0.3;
+    /**
+     * Deviation maximale de la direction par defaut
+     */
+    public static final double DEFAULT_DEFLECTION = Math.toRadians(5.);
+
+    /**
+     * Positions des voiliers
+     */
+    private final SpatialHashGrid grid;
+    /**
+     * Porteurs d'ombre candidats, tampon reutilise
+     */
+    private int[] candidates = new int[64];
+    /**
+     * Parametres du cone
+     */
+    private final double length, beam, halfAngle, tanHalfAngle;
+    /**
+     * Deficit de force et deviation maximaux
+     */
+    private double strength = DEFAULT_STRENGTH, deflection = DEFAULT_DEFLECTION;
+
+    /**
+     * Constructeur : cone par defaut
+     * @param capacity nombre maximal de voiliers
+     */
+    public WindShadow(int capacity) {
+        this(capacity, DEFAULT_LENGTH, DEFAULT_BEAM, DEFAULT_HALF_ANGLE);
+    }
+
+    /**
+     * Constructeur
+     * @param capacity nombre maximal de voiliers
+     * @param length longueur du cone
+     * @param beam demi-largeur du cone a l'origine
+     * @param halfAngle demi-angle d'ouverture du cone, dans [0, PI / 2[
+     */
+    public WindShadow(int capacity, double length, double beam, double halfAngle) {
+        if (!(length > 0) || beam < 0 || !(halfAngle >= 0 && halfAngle < 0.5 * Math.PI)) {
+            throw new IllegalArgumentException("cone d'ombre invalide : " + length + ", " + beam + ", " + halfAngle);
+        }
+        this.length = length;
+        this.beam = beam;
+        this.halfAngle = halfAngle;
+        this.tanHalfAngle = Math.tan(halfAngle);
+        this.grid = new SpatialHashGrid(capacity, 0.5 * length);
+    }
+
+    /**
+     * Application de l'ombre au vent echantillonne a la position de chaque voilier
+     * @param x positions selon Ox0
+     * @param y positions selon Oy0
+     * @param size nombre de voiliers
+     * @param force force du vent de chaque voilier, remplacee par la force abritee
+     * @param dir direction du vent de chaque voilier, remplacee par la direction deviee
+     */
+    public void apply(double[] x, double[] y, int size, double[] force, double[] dir) {
+        SpatialHashGrid g = this.grid;
+        for (int i = 0; i < size; i++) {
+            g.update(i, x[i], y[i]);
+        }
+        double half = 0.5 * this.length;
+        double reach = Math.hypot(half, this.beam + this.length * this.tanHalfAngle);
+        for (int i = 0; i < size; i++) {
+            if (!g.contains(i)) {
+                continue;
+            }
+            double wx = Math.cos(dir[i]);
+            double wy = Math.sin(dir[i]);
+            // la zone au vent du voilier, ou peuvent se trouver les porteurs d'ombre
+            int count;
+            while ((count = g.query(x[i] - half * wx, y[i] - half * wy, reach, this.candidates))
+                    == this.candidates.length) {
+                this.candidates = new int[2 * this.candidates.length];
+            }
+            double factor = 1;
+            double shift = 0;
+            for (int k = 0; k < count; k++) {
+                int j = this.candidates[k];
+                double dx = x[i] - x[j];
+                double dy = y[i] - y[j];
+                double along = dx * wx + dy * wy;
+                if (!(along > 0 && along < this.length)) {
+                    continue;
+                }
+                double across = wx * dy - wy * dx;
+                double width = this.beam + along * this.tanHalfAngle;
+                double lateral = Math.abs(across);
+                if (lateral >= width) {
+                    continue;
+                }
+                double weight = (1 - along / this.length) * (1 - lateral / width);
+                factor *= 1 - this.strength * weight;
+                shift += Math.copySign(this.deflection * weight, across);
+            }
+            if (factor < 1) {
+                force[i] *= factor;
+                dir[i] += Math.max(-this.deflection, Math.min(this.deflection, shift));
+            }
+        }
+    }
+
+    public double getLength() {
+        return length;
+    }
+
+    public double getBeam() {
+        return beam;
+    }
+
+    public double getHalfAngle() {
+        return halfAngle;
+    }
+
+    public double getStrength() {
+        return strength;
+    }
+
+    /**
+     * Setter du deficit de force maximal
+     * @param strength deficit sur l'axe au contact d'un porteur d'ombre, dans [0, 1]
+     */
+    public void setStrength(double strength) {
+        this.strength = Math.max(0, Math.min(1, strength));
+    }
+
+    public double getDeflection() {
+        return deflection;
+    }
+
+    public void setDeflection(double deflection) {
+        this.deflection = deflection;
+    }
+}
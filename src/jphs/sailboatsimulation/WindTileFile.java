@@ -0,0 +1,450 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * La classe <code>WindTileFile</code> lit un champ de vent trop grand pour
+ * la memoire (une prevision sur un grand plan d'eau) dans un fichier binaire
+ * projete en memoire. Le fichier est decoupe en tuiles de
+ * <code>tileX x tileY x tileT</code> cases : seules les pages des tuiles
+ * lues sont chargees par le systeme, et l'ouverture ne lit que l'entete.
+ * <p>
+ * Chaque tuile contient aussi les noeuds de son bord superieur, partages
+ * avec la tuile suivante, pour qu'une interpolation trilineaire ne lise
+ * qu'une tuile. Les composantes <code>u = F cos(psi)</code> et
+ * <code>v = F sin(psi)</code> sont quantifiees sur 16 bits avec un pas
+ * <code>scale</code> (0.01 par defaut). Les tuiles decodees en
+ * <code>float</code> sont gardees dans un petit cache LRU par thread : une
+ * flotte regroupee ne decode une tuile qu'une fois, puis chaque
+ * echantillon coute une recherche dans le cache et une interpolation.
+ * <p>
+ * Format, en petit boutiste :
+ * <pre>
+ * int    MAGIC, int VERSION
+ * 3 x    (double min, double step, int count)   axes x, y et t
+ * 3 x    int                                    tileX, tileY, tileT
+ * float  scale
+ * ...    remplissage jusqu'a HEADER_SIZE
+ * tuiles, t puis y puis x, chacune (tileX+1)(tileY+1)(tileT+1) couples (u, v) de short, x variant le plus vite
+ * </pre>
+ * Java 8 ne permettant pas de projeter plus de 2 Go d'un coup, le fichier
+ * est projete par blocs d'un nombre entier de tuiles.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class WindTileFile implements WindModel {
+    /**
+     * Signature et version du format
+     */
+    public static final int MAGIC = 0x4a505747, VERSION = 1;
+    /**
+     * Taille de l'entete en octets
+     */
+    public static final int HEADER_SIZE = 128;
+    /**
+     * Pas de quantification par defaut des composantes
+     */
+    public static final float DEFAULT_SCALE = 0.01f;
+    /**
+     * Nombre de tuiles decodees gardees par thread par defaut
+     */
+    public static final int DEFAULT_CACHE_SIZE = 16;
+    /**
+     * Taille maximale d'un bloc projete
+     */
+    private static final long MAX_MAPPING = 1L << 30;
+
+    /**
+     * Axes de la grille
+     */
+    private final UniformAxis xAxis, yAxis, tAxis;
+    /**
+     * Nombre de cases par tuile selon x, y et t
+     */
+    private final int tileX, tileY, tileT;
+    /**
+     * Nombre de tuiles selon x, y et t
+     */
+    private final int tilesX, tilesY, tilesT;
+    /**
+     * Nombre de noeuds par tuile selon x et y, et au total
+     */
+    private final int nodesX, nodesY, nodes;
+    /**
+     * Pas de quantification
+     */
+    private final float scale;
+    /**
+     * Blocs projetes, de <code>tilesPerMapping</code> tuiles chacun
+     */
+    private final MappedByteBuffer[] mappings;
+    /**
+     * Nombre de tuiles par bloc projete
+     */
+    private final int tilesPerMapping;
+    /**
+     * Tuiles decodees du thread courant
+     */
+    private final ThreadLocal<TileCache> caches;
+    /**
+     * Nombre de tuiles decodees, tous threads confondus
+     */
+    private final AtomicLong decoded = new AtomicLong();
+
+    /**
+     * Ouverture d'un fichier de vent avec le cache par defaut
+     * @param file fichier de vent
+     * @throws IOException si le fichier ne peut pas etre lu ou n'est pas un fichier de vent
+     */
+    public WindTileFile(Path file) throws IOException {
+        this(file, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Ouverture d'un fichier de vent
+     * @param file fichier de vent
+     * @param cacheSize nombre de tuiles decodees gardees par thread
+     * @throws IOException si le fichier ne peut pas etre lu ou n'est pas un fichier de vent
+     */
+    public WindTileFile(Path file, int cacheSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                continue;
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException(file + " n'est pas un fichier de vent");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + " : version " + version + " non geree");
+            }
+            this.xAxis = readAxis(header);
+            this.yAxis = readAxis(header);
+            this.tAxis = readAxis(header);
+            this.tileX = header.getInt();
+            this.tileY = header.getInt();
+            this.tileT = header.getInt();
+            this.scale = header.getFloat();
+            if (this.tileX < 1 || this.tileY < 1 || this.tileT < 1 || !(this.scale > 0)) {
+                throw new IOException(file + " : entete invalide");
+            }
+            this.tilesX = tiles(this.xAxis, this.tileX);
+            this.tilesY = tiles(this.yAxis, this.tileY);
+            this.tilesT = tiles(this.tAxis, this.tileT);
+            this.nodesX = this.tileX + 1;
+            this.nodesY = this.tileY + 1;
+            this.nodes = this.nodesX * this.nodesY * (this.tileT + 1);
+            long tileBytes = tileBytes(this.tileX, this.tileY, this.tileT);
+            long tileCount = (long) this.tilesX * this.tilesY * this.tilesT;
+            if (channel.size() < HEADER_SIZE + tileCount * tileBytes) {
+                throw new IOException(file + " : fichier tronque");
+            }
+            this.tilesPerMapping = (int) Math.max(1, MAX_MAPPING / tileBytes);
+            int mappingCount = (int) ((tileCount + this.tilesPerMapping - 1) / this.tilesPerMapping);
+            this.mappings = new MappedByteBuffer[mappingCount];
+            for (int m = 0; m < mappingCount; m++) {
+                long first = (long) m * this.tilesPerMapping;
+                long count = Math.min(this.tilesPerMapping, tileCount - first);
+                this.mappings[m] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * tileBytes,
+                        count * tileBytes);
+                this.mappings[m].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        int size = Math.max(1, cacheSize);
+        this.caches = ThreadLocal.withInitial(() -> new TileCache(size, this.nodes));
+    }
+
+    /**
+     * Lecture d'un axe dans l'entete
+     */
+    private static UniformAxis readAxis(ByteBuffer header) {
+        double min = header.getDouble();
+        double step = header.getDouble();
+        int count = header.getInt();
+        return new UniformAxis(min, step, count);
+    }
+
+    /**
+     * Nombre de tuiles couvrant les cases d'un axe
+     */
+    private static int tiles(UniformAxis axis, int tile) {
+        int cells = Math.max(1, axis.getCount() - 1);
+        return (cells + tile - 1) / tile;
+    }
+
+    /**
+     * Taille d'une tuile en octets
+     */
+    private static long tileBytes(int tileX, int tileY, int tileT) {
+        return (long) (tileX + 1) * (tileY + 1) * (tileT + 1) * 2 * Short.BYTES;
+    }
+
+    /**
+     * Ecriture d'un fichier de vent par echantillonnage d'un modele a chaque noeud, tuile par tuile : la
+     * memoire utilisee est celle d'une tuile quelle que soit la taille de la grille
+     * @param file fichier cree ou remplace
+     * @param xAxis axe des positions selon Ox0
+     * @param yAxis axe des positions selon Oy0
+     * @param tAxis axe des instants
+     * @param tileX nombre de cases par tuile selon x
+     * @param tileY nombre de cases par tuile selon y
+     * @param tileT nombre de cases par tuile selon t
+     * @param scale pas de quantification des composantes
+     * @param model modele echantillonne
+     * @throws IOException si le fichier ne peut pas etre ecrit
+     */
+    public static void write(Path file, UniformAxis xAxis, UniformAxis yAxis, UniformAxis tAxis, int tileX,
+            int tileY, int tileT, float scale, WindModel model) throws IOException {
+        if (tileX < 1 || tileY < 1 || tileT < 1 || !(scale > 0)) {
+            throw new IllegalArgumentException("tuiles ou pas de quantification invalides");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION);
+            for (UniformAxis axis : new UniformAxis[] { xAxis, yAxis, tAxis }) {
+                header.putDouble(axis.getMin()).putDouble(axis.getStep()).putInt(axis.getCount());
+            }
+            header.putInt(tileX).putInt(tileY).putInt(tileT).putFloat(scale);
+            header.clear();
+            writeFully(channel, header);
+            ByteBuffer tile = ByteBuffer.allocate((int) tileBytes(tileX, tileY, tileT))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            Wind w = new Wind();
+            for (int kt = 0; kt < tiles(tAxis, tileT); kt++) {
+                for (int jt = 0; jt < tiles(yAxis, tileY); jt++) {
+                    for (int it = 0; it < tiles(xAxis, tileX); it++) {
+                        tile.clear();
+                        for (int k = 0; k <= tileT; k++) {
+                            double t = tAxis.getValue(Math.min(kt * tileT + k, tAxis.getCount() - 1));
+                            for (int j = 0; j <= tileY; j++) {
+                                double y = yAxis.getValue(Math.min(jt * tileY + j, yAxis.getCount() - 1));
+                                for (int i = 0; i <= tileX; i++) {
+                                    double x = xAxis.getValue(Math.min(it * tileX + i, xAxis.getCount() - 1));
+                                    model.sample(x, y, t, w);
+                                    double f = w.getWindForce();
+                                    double dir = w.getWindDir();
+                                    tile.putShort(quantize(f * Math.cos(dir), scale));
+                                    tile.putShort(quantize(f * Math.sin(dir), scale));
+                                }
+                            }
+                        }
+                        tile.flip();
+                        writeFully(channel, tile);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Ecriture complete d'un tampon
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Quantification d'une composante, bornee aux valeurs d'un short
+     */
+    private static short quantize(double c, float scale) {
+        long q = Math.round(c / scale);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, q));
+    }
+
+    @Override
+    public void sample(double x, double y, double t, Wind out) {
+        TileCache cache = this.caches.get();
+        double pt = this.tAxis.position(t);
+        int k = this.tAxis.cell(pt);
+        this.interpolate(cache, this.xAxis.position(x), this.yAxis.position(y), pt, k);
+        out.setWindForce(cache.force);
+        out.setWindDir(cache.dir);
+    }
+
+    @Override
+    public void sample(double[] x, double[] y, double t, int from, int to, double[] force, double[] dir) {
+        TileCache cache = this.caches.get();
+        double pt = this.tAxis.position(t);
+        int k = this.tAxis.cell(pt);
+        for (int m = from; m < to; m++) {
+            this.interpolate(cache, this.xAxis.position(x[m]), this.yAxis.position(y[m]), pt, k);
+            force[m] = cache.force;
+            dir[m] = cache.dir;
+        }
+    }
+
+    /**
+     * Interpolation trilineaire dans la tuile qui contient la case, resultat dans <code>cache.force</code> et
+     * <code>cache.dir</code>
+     * @param cache tuiles decodees du thread courant
+     * @param px position sur l'axe x
+     * @param py position sur l'axe y
+     * @param pt position sur l'axe t
+     * @param k case sur l'axe t
+     */
+    private void interpolate(TileCache cache, double px, double py, double pt, int k) {
+        int i = this.xAxis.cell(px);
+        int j = this.yAxis.cell(py);
+        int ti = i / this.tileX;
+        int tj = j / this.tileY;
+        int tk = k / this.tileT;
+        int tile = (tk * this.tilesY + tj) * this.tilesX + ti;
+        float[] uv = cache.get(tile, this);
+        double fx = px - i;
+        double fy = py - j;
+        double ft = pt - k;
+        int sx = 2;
+        int sy = 2 * this.nodesX;
+        int st = sy * this.nodesY;
+        int n = ((k - tk * this.tileT) * this.nodesY + (j - tj * this.tileY)) * this.nodesX + (i - ti * this.tileX);
+        n *= 2;
+        double u = trilinear(uv, n, sx, sy, st, fx, fy, ft);
+        double v = trilinear(uv, n + 1, sx, sy, st, fx, fy, ft);
+        cache.force = Math.sqrt(u * u + v * v);
+        cache.dir = Math.atan2(v, u);
+    }
+
+    /**
+     * Interpolation trilineaire d'une composante entrelacee
+     */
+    private static double trilinear(float[] c, int n, int sx, int sy, int st, double fx, double fy, double ft) {
+        int n1 = n + st;
+        double c00 = c[n] + (c[n + sx] - c[n]) * fx;
+        double c10 = c[n + sy] + (c[n + sy + sx] - c[n + sy]) * fx;
+        double c01 = c[n1] + (c[n1 + sx] - c[n1]) * fx;
+        double c11 = c[n1 + sy] + (c[n1 + sy + sx] - c[n1 + sy]) * fx;
+        double c0 = c00 + (c10 - c00) * fy;
+        double c1 = c01 + (c11 - c01) * fy;
+        return c0 + (c1 - c0) * ft;
+    }
+
+    /**
+     * Decodage d'une tuile depuis le fichier projete
+     * @param tile indice de la tuile
+     * @param uv composantes decodees, entrelacees
+     */
+    private void decode(int tile, float[] uv) {
+        MappedByteBuffer mapping = this.mappings[tile / this.tilesPerMapping];
+        int offset = (tile % this.tilesPerMapping) * 2 * Short.BYTES * this.nodes;
+        float s = this.scale;
+        for (int n = 0; n < uv.length; n++) {
+            uv[n] = mapping.getShort(offset + n * Short.BYTES) * s;
+        }
+        this.decoded.incrementAndGet();
+    }
+
+    public UniformAxis getxAxis() {
+        return xAxis;
+    }
+
+    public UniformAxis getyAxis() {
+        return yAxis;
+    }
+
+    public UniformAxis gettAxis() {
+        return tAxis;
+    }
+
+    /**
+     * Nombre de tuiles decodees depuis l'ouverture, tous threads confondus
+     * @return le nombre de decodages
+     */
+    public long getDecodedCount() {
+        return decoded.get();
+    }
+
+    /**
+     * Cache LRU des tuiles decodees d'un thread. La recherche compare d'abord la derniere tuile servie, puis
+     * parcourt les autres ; le remplacement reprend la tuile servie le moins recemment. Aucun objet n'est cree
+     * apres le remplissage du cache.
+     */
+    private static final class TileCache {
+        /**
+         * Indices des tuiles en cache, -1 pour une place libre
+         */
+        private final int[] tiles;
+        /**
+         * Composantes decodees de chaque place
+         */
+        private final float[][] data;
+        /**
+         * Date de derniere utilisation de chaque place
+         */
+        private final long[] used;
+        /**
+         * Taille d'une tuile decodee
+         */
+        private final int length;
+        /**
+         * Horloge des utilisations
+         */
+        private long clock;
+        /**
+         * Derniere place servie
+         */
+        private int last;
+        /**
+         * Resultat de la derniere interpolation
+         */
+        double force, dir;
+
+        TileCache(int size, int nodes) {
+            this.tiles = new int[size];
+            this.data = new float[size][];
+            this.used = new long[size];
+            this.length = 2 * nodes;
+            Arrays.fill(this.tiles, -1);
+        }
+
+        /**
+         * Tuile decodee, decodee et mise en cache si besoin
+         * @param tile indice de la tuile
+         * @param file fichier qui decode la tuile
+         * @return les composantes decodees
+         */
+        float[] get(int tile, WindTileFile file) {
+            int slot = this.last;
+            if (this.tiles[slot] != tile) {
+                slot = -1;
+                int oldest = 0;
+                for (int s = 0; s < this.tiles.length; s++) {
+                    if (this.tiles[s] == tile) {
+                        slot = s;
+                        break;
+                    }
+                    if (this.used[s] < this.used[oldest]) {
+                        oldest = s;
+                    }
+                }
+                if (slot < 0) {
+                    slot = oldest;
+                    if (this.data[slot] == null) {
+                        this.data[slot] = new float[this.length];
+                    }
+                    file.decode(tile, this.data[slot]);
+                    this.tiles[slot] = tile;
+                }
+                this.last = slot;
+            }
+            this.used[slot] = ++this.clock;
+            return this.data[slot];
+        }
+    }
+}
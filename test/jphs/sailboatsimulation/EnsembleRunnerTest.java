@@ -0,0 +1,62 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * La classe <code>EnsembleRunnerTest</code> verifie que le resume d'un
+ * ensemble ne depend pas du nombre de threads pour une meme graine, et
+ * qu'une simulation dont l'integrateur echoue est comptee comme divergee
+ * sans interrompre l'ensemble.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class EnsembleRunnerTest {
+    private static void assertSameBits(String message, double expected, double actual) {
+        assertEquals(message, Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+    }
+
+    private static EnsembleRunner.Summary run(String text, int threads, int runs) throws IOException {
+        EnsembleRunner runner = new EnsembleRunner(Scenario.parse("test", text));
+        runner.setBatch(16);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        runner.setPool(pool);
+        try {
+            return runner.run(runs, 42);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void summaryDoesNotDependOnTheThreadCount() throws IOException {
+        String text = "wind 4 0.7\nduration 20\ndt 0.02\ncontrol 0 0 0.3\ncontrol 10 0.1 0.5\n";
+        EnsembleRunner.Summary one = run(text, 1, 40);
+        EnsembleRunner.Summary four = run(text, 4, 40);
+        assertEquals(one.getRuns(), four.getRuns());
+        assertEquals(one.getDiverged(), four.getDiverged());
+        for (int m = 0; m < EnsembleRunner.METRICS; m++) {
+            assertSameBits("moyenne " + m, one.getMean(m), four.getMean(m));
+            for (int l = 0; l < EnsembleRunner.DEFAULT_LEVELS.length; l++) {
+                assertSameBits("quantile " + m + ", " + l, one.getQuantile(m, l), four.getQuantile(m, l));
+            }
+        }
+    }
+
+    @Test
+    public void failingIntegratorCountsAsDiverged() throws IOException {
+        String text = "wind 4 0.7\nduration 60\ndt 0.02\nintegrator dopri5\ncontrol 0 -0.3 1.0\n";
+        EnsembleRunner.Summary summary = run(text, 2, 20);
+        assertEquals(20, summary.getRuns() + summary.getDiverged());
+        assertTrue("au moins une simulation divergee", summary.getDiverged() > 0);
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * La classe <code>SailboatFleetTest</code> verifie qu'une flotte donne,
+ * au bit pres, les memes resultats que chaque <code>Sailboat</code> integre
+ * separement, avec chaque schema d'integration et quel que soit le
+ * decoupage en taches.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class SailboatFleetTest {
+    private static final int SIZE = 600;
+
+    private static void assertSameBits(String message, double expected, double actual) {
+        assertEquals(message, Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+    }
+
+    /**
+     * Pas de la flotte et des voiliers separes, puis comparaison
+     * @param integrator nom du schema d'integration
+     * @param dt pas de temps
+     * @param steps nombre de pas
+     */
+    private static void checkAgainstSailboats(String integrator, double dt, int steps) {
+        Sailboat template = new Sailboat();
+        template.setIntegrator(Integrator.forName(integrator));
+        SailboatFleet fleet = new SailboatFleet(SIZE, template);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        fleet.setPool(pool);
+        fleet.setGrain(64);
+        Sailboat[] boats = new Sailboat[SIZE];
+        double[] deltag = new double[SIZE];
+        double[] deltavmax = new double[SIZE];
+        Random random = new Random(11);
+        for (int i = 0; i < SIZE; i++) {
+            boats[i] = new Sailboat();
+            boats[i].setIntegrator(Integrator.forName(integrator));
+            boats[i].setPhi(0.4 * random.nextDouble() - 0.2);
+            fleet.load(i, boats[i]);
+            deltag[i] = 0.2 * random.nextDouble() - 0.1;
+            deltavmax[i] = 0.3 + 0.2 * random.nextDouble();
+            fleet.setControl(i, deltag[i], deltavmax[i]);
+        }
+        Wind wind = new Wind(4, 0.3);
+        try {
+            for (int k = 0; k < steps; k++) {
+                for (int i = 0; i < SIZE; i++) {
+                    boats[i].update(dt, deltag[i], deltavmax[i], wind);
+                }
+                fleet.update(dt, wind);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < SIZE; i++) {
+            String m = integrator + ", voilier " + i + " : ";
+            assertSameBits(m + "x", boats[i].getX(), fleet.getX(i));
+            assertSameBits(m + "y", boats[i].getY(), fleet.getY(i));
+            assertSameBits(m + "theta", boats[i].getTheta(), fleet.getTheta(i));
+            assertSameBits(m + "phi", boats[i].getPhi(), fleet.getPhi(i));
+            assertSameBits(m + "xPoint", boats[i].getxPoint(), fleet.getxPoint(i));
+            assertSameBits(m + "phiPoint", boats[i].getPhiPoint(), fleet.getPhiPoint(i));
+            assertSameBits(m + "fV", boats[i].getTheSail().getfV(), fleet.getfV(i));
+        }
+    }
+
+    @Test
+    public void matchesSailboatsWithTheDefaultIntegrator() {
+        checkAgainstSailboats("semi-implicit-euler", 0.02, 1000);
+    }
+
+    @Test
+    public void matchesSailboatsWithEuler() {
+        checkAgainstSailboats("euler", 0.02, 500);
+    }
+
+    @Test
+    public void matchesSailboatsWithHeun() {
+        checkAgainstSailboats("heun", 0.1, 300);
+    }
+
+    @Test
+    public void matchesSailboatsWithRungeKutta4() {
+        checkAgainstSailboats("rk4", 0.1, 300);
+    }
+
+    @Test
+    public void matchesSailboatsWithDormandPrince() {
+        checkAgainstSailboats("dopri5", 0.02, 300);
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+/**
+ * La classe <code>SailboatSnapshotTest</code> verifie qu'un voilier restaure
+ * depuis un instantane suit exactement la trajectoire du voilier capture, et
+ * que l'encodage et les fichiers d'instantane conservent toutes les valeurs.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class SailboatSnapshotTest {
+    private static final double DT = 0.02;
+
+    private static void assertSameBits(String message, double expected, double actual) {
+        assertEquals(message, Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+    }
+
+    private static Sailboat sailboat(boolean adaptive) {
+        Sailboat s = new Sailboat();
+        if (adaptive) {
+            s.setIntegrator(DormandPrinceIntegrator.forSailboat());
+        }
+        return s;
+    }
+
+    /**
+     * Capture au milieu d'une trajectoire, restauration dans un autre voilier, puis meme suite de pas
+     */
+    private static void checkRestore(boolean adaptive) {
+        Wind wind = new Wind(4, 0.3);
+        Sailboat original = sailboat(adaptive);
+        for (int k = 0; k < 500; k++) {
+            original.update(DT, 0.1, 0.3, wind);
+        }
+        SailboatSnapshot snapshot = new SailboatSnapshot().capture(original, 500 * DT);
+        Sailboat restored = sailboat(adaptive);
+        snapshot.restore(restored);
+        for (int k = 0; k < 500; k++) {
+            original.update(DT, -0.1, 0.5, wind);
+            restored.update(DT, -0.1, 0.5, wind);
+        }
+        assertSameBits("x", original.getX(), restored.getX());
+        assertSameBits("y", original.getY(), restored.getY());
+        assertSameBits("theta", original.getTheta(), restored.getTheta());
+        assertSameBits("phi", original.getPhi(), restored.getPhi());
+        assertSameBits("thetaPoint", original.getThetaPoint(), restored.getThetaPoint());
+        assertSameBits("phiPoint", original.getPhiPoint(), restored.getPhiPoint());
+        assertSameBits("fV", original.getTheSail().getfV(), restored.getTheSail().getfV());
+    }
+
+    @Test
+    public void restoreReproducesTheTrajectory() {
+        checkRestore(false);
+    }
+
+    @Test
+    public void restoreReproducesTheAdaptiveTrajectory() {
+        checkRestore(true);
+    }
+
+    private static SailboatSnapshot capturedSnapshot() {
+        Sailboat s = sailboat(true);
+        Wind wind = new Wind(4, 0.3);
+        for (int k = 0; k < 100; k++) {
+            s.update(DT, 0.1, 0.3, wind);
+        }
+        return new SailboatSnapshot().capture(s, 100 * DT);
+    }
+
+    private static void assertSameSnapshot(SailboatSnapshot expected, SailboatSnapshot actual) {
+        for (int k = 0; k < SailboatSnapshot.SIZE; k++) {
+            assertSameBits("valeur " + k, expected.get(k), actual.get(k));
+        }
+    }
+
+    @Test
+    public void encodeDecodeRoundTrip() {
+        SailboatSnapshot snapshot = capturedSnapshot();
+        ByteBuffer buffer = ByteBuffer.allocate(SailboatSnapshot.BYTES);
+        snapshot.encode(buffer);
+        assertEquals(0, buffer.remaining());
+        buffer.flip();
+        assertSameSnapshot(snapshot, new SailboatSnapshot().decode(buffer));
+    }
+
+    @Test
+    public void saveLoadRoundTrip() throws IOException {
+        SailboatSnapshot snapshot = capturedSnapshot();
+        Path file = Files.createTempFile("snapshot", ".bin");
+        try {
+            snapshot.save(file);
+            assertSameSnapshot(snapshot, SailboatSnapshot.load(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
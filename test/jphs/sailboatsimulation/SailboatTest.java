@@ -0,0 +1,90 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * La classe <code>SailboatTest</code> verifie que le schema par defaut de
+ * <code>Sailboat.update</code> est toujours le schema d'Euler semi-implicite
+ * historique, au bit pres, et qu'une copie de voilier suit la meme
+ * trajectoire que l'original.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class SailboatTest {
+    private static final double DT = 0.02;
+
+    /**
+     * Angles du safran et de la voile au pas k : plusieurs reglages successifs
+     */
+    private static double deltag(int k) {
+        return k < 500 ? 0.1 : (k < 1000 ? -0.2 : 0.05);
+    }
+
+    private static double deltavmax(int k) {
+        return k < 500 ? 0.5 : (k < 1000 ? 1.0 : 0.3);
+    }
+
+    private static void assertSameBits(String message, double expected, double actual) {
+        assertEquals(message, Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+    }
+
+    @Test
+    public void defaultIntegratorIsHistoricalSemiImplicitEuler() {
+        Sailboat sailboat = new Sailboat();
+        Sailboat model = new Sailboat();
+        Wind wind = new Wind(4, 0.3);
+        double[] s = {
+            model.getX(), model.getY(), model.getTheta(), model.getPhi(),
+            model.getxPoint(), model.getyPoint(), model.getThetaPoint(), model.getPhiPoint()
+        };
+        double[] ds = new double[Sailboat.STATE_SIZE];
+        KinematicFrame frame = new KinematicFrame();
+        for (int k = 0; k < 1500; k++) {
+            sailboat.update(DT, deltag(k), deltavmax(k), wind);
+            double fV = model.computeDerivative(s, deltag(k), deltavmax(k), wind.getWindForce(), wind.getWindDir(),
+                    frame, ds);
+            // vitesses d'abord, puis positions avec les nouvelles vitesses
+            int n = Sailboat.STATE_SIZE / 2;
+            for (int i = 0; i < n; i++) {
+                s[n + i] = s[n + i] + ds[n + i] * DT;
+                s[i] = s[i] + s[n + i] * DT;
+            }
+            assertSameBits("fV au pas " + k, fV, sailboat.getTheSail().getfV());
+        }
+        assertSameBits("x", s[Sailboat.X], sailboat.getX());
+        assertSameBits("y", s[Sailboat.Y], sailboat.getY());
+        assertSameBits("theta", s[Sailboat.THETA], sailboat.getTheta());
+        assertSameBits("phi", s[Sailboat.PHI], sailboat.getPhi());
+        assertSameBits("xPoint", s[Sailboat.X_POINT], sailboat.getxPoint());
+        assertSameBits("yPoint", s[Sailboat.Y_POINT], sailboat.getyPoint());
+        assertSameBits("thetaPoint", s[Sailboat.THETA_POINT], sailboat.getThetaPoint());
+        assertSameBits("phiPoint", s[Sailboat.PHI_POINT], sailboat.getPhiPoint());
+    }
+
+    @Test
+    public void copyFollowsTheSameTrajectory() {
+        Sailboat original = new Sailboat();
+        original.setIntegrator(new RungeKutta4Integrator());
+        original.getTheHull().setAlphaF(250);
+        Wind wind = new Wind(4, 0.3);
+        for (int k = 0; k < 200; k++) {
+            original.update(DT, deltag(k), deltavmax(k), wind);
+        }
+        Sailboat copy = new Sailboat(original);
+        for (int k = 200; k < 1500; k++) {
+            original.update(DT, deltag(k), deltavmax(k), wind);
+            copy.update(DT, deltag(k), deltavmax(k), wind);
+        }
+        assertSameBits("x", original.getX(), copy.getX());
+        assertSameBits("y", original.getY(), copy.getY());
+        assertSameBits("theta", original.getTheta(), copy.getTheta());
+        assertSameBits("phi", original.getPhi(), copy.getPhi());
+        assertSameBits("phiPoint", original.getPhiPoint(), copy.getPhiPoint());
+    }
+}
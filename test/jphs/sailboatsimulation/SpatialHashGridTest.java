@@ -0,0 +1,119 @@
+/**
+ *
+ */
+package jphs.sailboatsimulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * La classe <code>SpatialHashGridTest</code> compare la grille a une
+ * recherche exhaustive : toutes les paires plus proches que la taille d'une
+ * case et tous les points d'un carre doivent etre trouves, y compris apres
+ * des deplacements et des retraits.
+ * @author Jean-Philippe Schneider
+ * @version 1.0
+ *
+ */
+public class SpatialHashGridTest {
+    private static final int COUNT = 2000;
+    private static final double CELL = 5.;
+
+    /**
+     * Grille de points tires au hasard, dont certains en coordonnees negatives, puis deplaces
+     */
+    private static SpatialHashGrid grid(double[] x, double[] y, Random random) {
+        SpatialHashGrid grid = new SpatialHashGrid(COUNT, CELL);
+        for (int i = 0; i < COUNT; i++) {
+            x[i] = 400 * random.nextDouble() - 200;
+            y[i] = 400 * random.nextDouble() - 200;
+            grid.update(i, x[i], y[i]);
+        }
+        for (int i = 0; i < COUNT; i += 3) {
+            x[i] += 20 * random.nextDouble() - 10;
+            y[i] += 20 * random.nextDouble() - 10;
+            grid.update(i, x[i], y[i]);
+        }
+        return grid;
+    }
+
+    @Test
+    public void forEachPairFindsEveryClosePair() {
+        double[] x = new double[COUNT];
+        double[] y = new double[COUNT];
+        SpatialHashGrid grid = grid(x, y, new Random(5));
+        Set<Long> visited = new HashSet<>();
+        grid.forEachPair((a, b) -> {
+            assertTrue("paire ordonnee", a < b);
+            assertTrue("paire visitee une seule fois", visited.add((long) a * COUNT + b));
+        });
+        int close = 0;
+        for (int a = 0; a < COUNT; a++) {
+            for (int b = a + 1; b < COUNT; b++) {
+                if (Math.hypot(x[a] - x[b], y[a] - y[b]) < CELL) {
+                    close++;
+                    assertTrue("paire " + a + ", " + b + " manquante", visited.contains((long) a * COUNT + b));
+                }
+            }
+        }
+        assertTrue("des paires proches sont tirees", close > 0);
+    }
+
+    @Test
+    public void queryFindsEveryPointOfTheSquare() {
+        double[] x = new double[COUNT];
+        double[] y = new double[COUNT];
+        Random random = new Random(6);
+        SpatialHashGrid grid = grid(x, y, random);
+        int[] out = new int[COUNT];
+        for (int q = 0; q < 200; q++) {
+            double cx = 400 * random.nextDouble() - 200;
+            double cy = 400 * random.nextDouble() - 200;
+            double radius = 20 * random.nextDouble();
+            int count = grid.query(cx, cy, radius, out);
+            Set<Integer> found = new HashSet<>();
+            for (int k = 0; k < count; k++) {
+                found.add(out[k]);
+            }
+            assertEquals("objets en double", count, found.size());
+            for (int i = 0; i < COUNT; i++) {
+                if (Math.abs(x[i] - cx) <= radius && Math.abs(y[i] - cy) <= radius) {
+                    assertTrue("point " + i + " manquant", found.contains(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void removedPointsAreNotFound() {
+        double[] x = new double[COUNT];
+        double[] y = new double[COUNT];
+        SpatialHashGrid grid = grid(x, y, new Random(7));
+        for (int i = 0; i < COUNT; i += 2) {
+            grid.remove(i);
+        }
+        grid.update(1, Double.NaN, 0);
+        assertFalse(grid.contains(0));
+        assertFalse(grid.contains(1));
+        assertTrue(grid.contains(3));
+        int[] out = new int[COUNT];
+        int count = grid.query(0, 0, 300, out);
+        int[] expected = new int[COUNT / 2 - 1];
+        for (int k = 0; k < expected.length; k++) {
+            expected[k] = 2 * k + 3;
+        }
+        int[] found = Arrays.copyOf(out, count);
+        Arrays.sort(found);
+        assertEquals(expected.length, count);
+        assertTrue("points restants", Arrays.equals(expected, found));
+        grid.forEachPair((a, b) -> assertTrue("paire d'un point retire", a % 2 == 1 && b % 2 == 1 && a != 1));
+    }
+}